@@ -0,0 +1,159 @@
+package camus.statechart.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import camus.statechart.Statechart;
+
+
+/**
+ * 벤치마크에서 사용하는 상태차트들을 생성하는 함수들을 정의한다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+public final class BenchCharts {
+	private BenchCharts() {
+		throw new AssertionError("Should not be called: class=" + BenchCharts.class.getName());
+	}
+
+	/**
+	 * 최상위 상태 아래에 <code>nstates</code>개의 단말 상태를 갖는 상태차트를 생성한다.
+	 * <p>
+	 * 처음 두 단말 상태 <code>s0</code>, <code>s1</code>은 이벤트를 받을 때마다 서로에게 전이한다.
+	 *
+	 * @param nstates	단말 상태 갯수 (2 이상).
+	 * @return	상태차트.
+	 */
+	public static Statechart<BenchExecution> flat(int nstates) {
+		BenchState root = new BenchState(null, "", null);
+		for ( int i =0; i < nstates; ++i ) {
+			String target = (i == 0) ? "/s1" : (i == 1) ? "/s0" : null;
+			new BenchState(root, "s" + i, target);
+		}
+		root.setDefaultStateId("s0");
+
+		return new Statechart<>(root);
+	}
+
+	/**
+	 * 깊이 <code>depth</code>의 복합 상태 경로 끝에 두 단말 상태 <code>a</code>, <code>b</code>를
+	 * 갖는 상태차트를 생성한다.
+	 * <p>
+	 * <code>handledAtLeaf</code>가 <code>true</code>인 경우는 단말 상태가 이벤트를 처리하여
+	 * 형제 상태로 전이하고, <code>false</code>인 경우는 최상위 상태가 이벤트를 처리하여
+	 * 상태 전이 없이 이벤트 전파를 중단시킨다. 후자는 이벤트가 모든 상위 상태를 거쳐 전달되는
+	 * 비용을 측정하기 위해 사용된다.
+	 *
+	 * @param depth			단말 상태의 부모 상태의 깊이.
+	 * @param handledAtLeaf	단말 상태에서 이벤트 처리 여부.
+	 * @return	상태차트.
+	 */
+	public static Statechart<BenchExecution> nested(int depth, boolean handledAtLeaf) {
+		BenchState root = new BenchState(null, "", handledAtLeaf ? null : BenchState.CONSUME);
+
+		BenchState parent = root;
+		for ( int i =1; i <= depth; ++i ) {
+			BenchState child = new BenchState(parent, "n" + i, null);
+			parent.setDefaultStateId(child.getLuid());
+			parent = child;
+		}
+		new BenchState(parent, "a", handledAtLeaf ? "../b" : null);
+		new BenchState(parent, "b", handledAtLeaf ? "../a" : null);
+		parent.setDefaultStateId("a");
+
+		return new Statechart<>(root);
+	}
+
+	/**
+	 * 최상위 상태 아래에 각각 깊이 <code>depth</code>인 두 복합 상태 경로 <code>l</code>, <code>r</code>를
+	 * 갖고, 각 경로의 단말 상태가 이벤트를 받을 때마다 다른 경로의 단말 상태로 전이하는
+	 * 상태차트를 생성한다.
+	 * <p>
+	 * 한번의 전이마다 <code>depth</code>개의 상태에서 탈출하고 <code>depth</code>개의 상태로 진입한다.
+	 *
+	 * @param depth	단말 상태의 깊이 (2 이상).
+	 * @return	상태차트.
+	 */
+	public static Statechart<BenchExecution> distant(int depth) {
+		BenchState root = new BenchState(null, "", null);
+		String leftLeaf = chain(root, "l", depth);
+		String rightLeaf = chain(root, "r", depth);
+		root.setDefaultStateId("l1");
+
+		new BenchState(findParent(root, leftLeaf), "leaf", rightLeaf);
+		new BenchState(findParent(root, rightLeaf), "leaf", leftLeaf);
+
+		return new Statechart<>(root);
+	}
+
+	/**
+	 * 모든 복합 상태가 <code>fanout</code>개의 자식 상태를 갖는 깊이 <code>depth</code>의
+	 * 완전 트리 형태의 상태차트를 생성한다.
+	 * <p>
+	 * 각 상태의 지역 식별자는 <code>c&lt;깊이&gt;_&lt;자식 순서&gt;</code> 형태이므로, 같은 깊이의
+	 * 상태들은 같은 지역 식별자를 공유한다.
+	 *
+	 * @param fanout	자식 상태 갯수.
+	 * @param depth		단말 상태의 깊이.
+	 * @return	상태차트.
+	 */
+	public static Statechart<BenchExecution> tree(int fanout, int depth) {
+		BenchState root = new BenchState(null, "", null);
+		populate(root, fanout, 1, depth);
+
+		return new Statechart<>(root);
+	}
+
+	/**
+	 * {@link #tree(int, int)}로 생성된 상태차트의 모든 상태 전역 식별자를 반환한다.
+	 *
+	 * @param schart	상태차트.
+	 * @return	전역 식별자 리스트.
+	 */
+	public static List<String> guids(Statechart<BenchExecution> schart) {
+		List<String> guids = new ArrayList<>(schart.getStateCount());
+		for ( int i =0; i < schart.getStateCount(); ++i ) {
+			guids.add(schart.getStateById(i).getGuid());
+		}
+
+		return guids;
+	}
+
+	private static void populate(BenchState parent, int fanout, int level, int depth) {
+		if ( level > depth ) {
+			return;
+		}
+
+		for ( int i =0; i < fanout; ++i ) {
+			BenchState child = new BenchState(parent, "c" + level + "_" + i, null);
+			populate(child, fanout, level+1, depth);
+		}
+		parent.setDefaultStateId("c" + level + "_0");
+	}
+
+	// 'prefix1/prefix2/.../prefix<depth-1>' 형태의 복합 상태 경로를 생성하고,
+	// 그 아래에 생성될 단말 상태 'leaf'의 전역 식별자를 반환한다.
+	private static String chain(BenchState root, String prefix, int depth) {
+		BenchState parent = root;
+		for ( int i =1; i < depth; ++i ) {
+			BenchState child = new BenchState(parent, prefix + i, null);
+			parent.setDefaultStateId(child.getLuid());
+			parent = child;
+		}
+		parent.setDefaultStateId("leaf");
+
+		return parent.getGuid() + "/leaf";
+	}
+
+	private static BenchState findParent(BenchState root, String leafGuid) {
+		BenchState state = root;
+		for ( String luid: leafGuid.substring(1).split("/") ) {
+			if ( luid.equals("leaf") ) {
+				break;
+			}
+			state = (BenchState)state.getChildState(luid);
+		}
+
+		return state;
+	}
+}
@@ -0,0 +1,41 @@
+package camus.statechart.bench;
+
+import camus.statechart.Statechart;
+import camus.statechart.StatechartDispatcher;
+import camus.statechart.StatechartExecution;
+
+
+/**
+ * 벤치마크용 상태차트 수행 클래스를 정의한다.
+ * <p>
+ * 별도의 지정이 없으면 이벤트를 호출 쓰레드에서 바로 처리하는 dispatcher를 사용하기 때문에,
+ * {@link #receiveEvent(event.Event)} 호출이 반환될 때 해당 이벤트의 처리가 완료된다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+public class BenchExecution extends StatechartExecution<BenchExecution> {
+	static final StatechartDispatcher CALLER_RUNS = StatechartDispatcher.executor(Runnable::run);
+
+	public long count;
+
+	public BenchExecution(Statechart<BenchExecution> schart) {
+		this(schart, CALLER_RUNS);
+	}
+
+	public BenchExecution(Statechart<BenchExecution> schart, StatechartDispatcher dispatcher) {
+		super(schart, dispatcher);
+	}
+
+	/**
+	 * 주어진 상태차트의 수행을 생성하고 시작시킨다.
+	 *
+	 * @param schart	상태차트.
+	 * @return	시작된 상태차트 수행.
+	 */
+	public static BenchExecution newStarted(Statechart<BenchExecution> schart) throws Exception {
+		BenchExecution exec = new BenchExecution(schart);
+		exec.start();
+
+		return exec;
+	}
+}
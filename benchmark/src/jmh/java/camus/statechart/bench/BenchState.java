@@ -0,0 +1,57 @@
+package camus.statechart.bench;
+
+import camus.statechart.State;
+import camus.statechart.support.AbstractState;
+
+import event.Event;
+
+
+/**
+ * 벤치마크용 Java 상태 클래스를 정의한다.
+ * <p>
+ * 모든 이벤트에 대해 수행의 처리 횟수를 증가시키고, 생성시 지정된 목표 경로를 반환한다.
+ * 목표 경로가 <code>null</code>인 상태는 이벤트를 처리하지 않고 상위 상태로 넘긴다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+public class BenchState extends AbstractState<BenchExecution> {
+	/** 이벤트를 처리하되 상태 전이는 하지 않는 상태의 목표 경로. */
+	public static final String CONSUME = State.STOP_PROPAGATE_GUID;
+
+	private final String m_target;
+
+	public BenchState(BenchState parent, String luid, String target) {
+		super(parent, toGuid(parent, luid), false, null);
+
+		m_target = target;
+		if ( parent != null ) {
+			parent.addChildState(this);
+		}
+	}
+
+	@Override
+	public String handleEvent(BenchExecution context, Event event) {
+		if ( m_target != null ) {
+			++context.count;
+		}
+
+		return m_target;
+	}
+
+	@Override
+	public boolean accepts(Event event) {
+		return m_target != null;
+	}
+
+	private static String toGuid(BenchState parent, String luid) {
+		if ( parent == null ) {
+			return "/";
+		}
+		else if ( parent.getGuid().equals("/") ) {
+			return "/" + luid;
+		}
+		else {
+			return parent.getGuid() + "/" + luid;
+		}
+	}
+}
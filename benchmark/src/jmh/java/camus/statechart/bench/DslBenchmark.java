@@ -0,0 +1,82 @@
+package camus.statechart.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import camus.statechart.Statechart;
+import camus.statechart.groovy.GStatechartLoader;
+
+
+/**
+ * 같은 구조의 상태차트를 Java 상태 클래스({@link BenchState})와 Groovy DSL로 정의한 경우의
+ * 이벤트 처리 성능을 비교한다.
+ * <p>
+ * 상태차트는 두 형제 단말 상태로 구성되며, 각 상태는 {@link Tick} 이벤트를 받으면 처리 횟수를
+ * 증가시키고 다른 상태로 전이한다. Groovy DSL은 동적 모드와 정적 컴파일 모드
+ * ({@link GStatechartLoader#load(String, boolean)})를 각각 측정한다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class DslBenchmark {
+	private static final String SCRIPT
+		= "statechart(camus.statechart.bench.BenchExecution) {\n"
+		+ "	defaultStateId 's0'\n"
+		+ "	state ('s0') {\n"
+		+ "		on (camus.statechart.bench.Tick) { ev -> count++; '../s1' }\n"
+		+ "	}\n"
+		+ "	state ('s1') {\n"
+		+ "		on (camus.statechart.bench.Tick) { ev -> count++; '../s0' }\n"
+		+ "	}\n"
+		+ "}\n";
+
+	private final Tick m_tick = new Tick();
+	private BenchExecution m_java;
+	private BenchExecution m_groovy;
+	private BenchExecution m_groovyStatic;
+
+	@Setup
+	@SuppressWarnings("unchecked")
+	public void setup() throws Exception {
+		GStatechartLoader loader = new GStatechartLoader();
+
+		m_java = BenchExecution.newStarted(BenchCharts.flat(2));
+		m_groovy = BenchExecution.newStarted((Statechart<BenchExecution>)loader.load(SCRIPT, false));
+		m_groovyStatic = BenchExecution.newStarted((Statechart<BenchExecution>)loader.load(SCRIPT, true));
+	}
+
+	@TearDown
+	public void tearDown() {
+		m_java.stop();
+		m_groovy.stop();
+		m_groovyStatic.stop();
+	}
+
+	@Benchmark
+	public long java() {
+		m_java.receiveEvent(m_tick);
+		return m_java.count;
+	}
+
+	@Benchmark
+	public long groovy() {
+		m_groovy.receiveEvent(m_tick);
+		return m_groovy.count;
+	}
+
+	@Benchmark
+	public long groovyStatic() {
+		m_groovyStatic.receiveEvent(m_tick);
+		return m_groovyStatic.count;
+	}
+}
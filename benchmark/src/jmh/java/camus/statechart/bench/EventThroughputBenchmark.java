@@ -0,0 +1,91 @@
+package camus.statechart.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+
+/**
+ * 단일 상태차트 수행의 이벤트 처리 성능을 측정한다.
+ * <p>
+ * 이벤트는 호출 쓰레드에서 바로 처리되므로({@link BenchExecution}), 측정값은 이벤트 큐 추가와
+ * 이벤트 처리, 상태 전이 비용의 합이다.
+ * <ul>
+ * 	<li> <code>flat</code>: <code>width</code>개의 단말 상태를 갖는 상태차트에서 형제 단말 상태 사이의 전이.
+ * 	<li> <code>nestedLeaf</code>: 깊이 <code>depth</code>에 위치한 형제 단말 상태 사이의 전이.
+ * 	<li> <code>nestedBubble</code>: 깊이 <code>depth</code>의 단말 상태에서 최상위 상태까지 이벤트가
+ * 		전파된 후 전이 없이 처리되는 경우.
+ * </ul>
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EventThroughputBenchmark {
+	@State(Scope.Thread)
+	public static class Flat {
+		@Param({"2", "64", "1024"})
+		public int width;
+
+		final Tick m_tick = new Tick();
+		BenchExecution m_exec;
+
+		@Setup
+		public void setup() throws Exception {
+			m_exec = BenchExecution.newStarted(BenchCharts.flat(width));
+		}
+
+		@TearDown
+		public void tearDown() {
+			m_exec.stop();
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Nested {
+		@Param({"1", "8", "32"})
+		public int depth;
+
+		final Tick m_tick = new Tick();
+		BenchExecution m_leaf;
+		BenchExecution m_bubble;
+
+		@Setup
+		public void setup() throws Exception {
+			m_leaf = BenchExecution.newStarted(BenchCharts.nested(depth, true));
+			m_bubble = BenchExecution.newStarted(BenchCharts.nested(depth, false));
+		}
+
+		@TearDown
+		public void tearDown() {
+			m_leaf.stop();
+			m_bubble.stop();
+		}
+	}
+
+	@Benchmark
+	public long flat(Flat st) {
+		st.m_exec.receiveEvent(st.m_tick);
+		return st.m_exec.count;
+	}
+
+	@Benchmark
+	public long nestedLeaf(Nested st) {
+		st.m_leaf.receiveEvent(st.m_tick);
+		return st.m_leaf.count;
+	}
+
+	@Benchmark
+	public long nestedBubble(Nested st) {
+		st.m_bubble.receiveEvent(st.m_tick);
+		return st.m_bubble.count;
+	}
+}
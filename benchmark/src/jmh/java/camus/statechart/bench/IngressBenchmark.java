@@ -0,0 +1,116 @@
+package camus.statechart.bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import camus.statechart.Statechart;
+import camus.statechart.StatechartDispatcher;
+import camus.statechart.support.AbstractState;
+
+import event.Event;
+
+
+/**
+ * 여러 쓰레드가 하나의 상태차트 수행에 동시에 이벤트를 전달할 때의 생산자 처리량을 측정한다.
+ * <p>
+ * 상태차트 수행은 전용 쓰레드({@link StatechartDispatcher#dedicatedThread()})에서 이벤트를 처리하며,
+ * 측정값은 생산자 쓰레드들의 {@link BenchExecution#receiveEvent(Event)} 호출 처리량이다.
+ * 생산 속도가 처리 속도보다 빠른 경우 큐가 무한히 커지는 것을 막기 위해, 처리되지 않은 이벤트가
+ * {@link #MAX_BACKLOG}개를 넘으면 생산자는 처리될 때까지 대기한다. 따라서 생산자 수가 많은
+ * 경우의 측정값은 소비자 처리량에 의해 제한될 수 있다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class IngressBenchmark {
+	static final long MAX_BACKLOG = 1 << 20;
+	static final int CHECK_INTERVAL = 1024;
+
+	@State(Scope.Benchmark)
+	public static class Target {
+		final AtomicLong m_processed = new AtomicLong();
+		final LongAdder m_sent = new LongAdder();
+		BenchExecution m_exec;
+
+		@Setup
+		public void setup() throws Exception {
+			Statechart<BenchExecution> schart = new Statechart<>(new Sink(m_processed));
+			m_exec = new BenchExecution(schart, StatechartDispatcher.dedicatedThread());
+			m_exec.start();
+		}
+
+		@TearDown
+		public void tearDown() {
+			m_exec.stop();
+		}
+
+		void awaitBacklog() {
+			while ( m_sent.sum() - m_processed.get() > MAX_BACKLOG ) {
+				Thread.yield();
+			}
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Producer {
+		final Tick m_tick = new Tick();
+		int m_count;
+	}
+
+	@Benchmark
+	@Threads(1)
+	public void producers1(Target target, Producer producer) {
+		send(target, producer);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void producers4(Target target, Producer producer) {
+		send(target, producer);
+	}
+
+	@Benchmark
+	@Threads(16)
+	public void producers16(Target target, Producer producer) {
+		send(target, producer);
+	}
+
+	private static void send(Target target, Producer producer) {
+		target.m_exec.receiveEvent(producer.m_tick);
+
+		if ( ++producer.m_count == CHECK_INTERVAL ) {
+			producer.m_count = 0;
+			target.m_sent.add(CHECK_INTERVAL);
+			target.awaitBacklog();
+		}
+	}
+
+	// 모든 이벤트를 상태 전이 없이 처리하고 처리 횟수만을 기록하는 단일 상태
+	static class Sink extends AbstractState<BenchExecution> {
+		private final AtomicLong m_processed;
+
+		Sink(AtomicLong processed) {
+			super(null, "/", false, null);
+
+			m_processed = processed;
+		}
+
+		@Override
+		public String handleEvent(BenchExecution context, Event event) {
+			m_processed.lazySet(m_processed.get() + 1);
+			return BenchState.CONSUME;
+		}
+	}
+}
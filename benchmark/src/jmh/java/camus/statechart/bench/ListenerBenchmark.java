@@ -0,0 +1,81 @@
+package camus.statechart.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import camus.statechart.StatechartEvent;
+import camus.statechart.StatechartEventKind;
+
+
+/**
+ * 상태차트 리스너 통보 비용을 측정한다.
+ * <p>
+ * 두 형제 단말 상태 사이를 전이하는 상태차트({@link BenchCharts#flat(int)})에
+ * <code>listeners</code>개의 리스너를 등록한 후 이벤트 처리 성능을 측정한다.
+ * 전이마다 이벤트 처리, 상태 탈출, 상태 진입 통보가 하나씩 발생한다.
+ * <ul>
+ * 	<li> <code>ALL</code>: 모든 종류의 통보를 받는 리스너.
+ * 	<li> <code>ENTERED</code>: 상태 진입 통보만을 받는 리스너.
+ * 	<li> <code>UNRELATED</code>: 발생되지 않는 종류(수행 종료)의 통보만을 받는 리스너.
+ * 		통보 객체 생성 없이 건너뛰는 비용을 측정한다.
+ * </ul>
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class ListenerBenchmark {
+	public enum Subscription { ALL, ENTERED, UNRELATED }
+
+	@Param({"0", "1", "4"})
+	public int listeners;
+
+	@Param({"ALL", "ENTERED", "UNRELATED"})
+	public Subscription subscription;
+
+	private final Tick m_tick = new Tick();
+	private BenchExecution m_exec;
+	private long m_notified;
+
+	@Setup
+	public void setup() throws Exception {
+		m_exec = new BenchExecution(BenchCharts.flat(2));
+		for ( int i =0; i < listeners; ++i ) {
+			switch ( subscription ) {
+				case ALL:
+					m_exec.addStatechartListener((StatechartEvent ev) -> ++m_notified);
+					break;
+				case ENTERED:
+					m_exec.addStatechartListener((StatechartEvent ev) -> ++m_notified,
+												StatechartEventKind.STATE_ENTERED);
+					break;
+				case UNRELATED:
+					m_exec.addStatechartListener((StatechartEvent ev) -> ++m_notified,
+												StatechartEventKind.FINISHED);
+					break;
+			}
+		}
+		m_exec.start();
+	}
+
+	@TearDown
+	public void tearDown() {
+		m_exec.stop();
+	}
+
+	@Benchmark
+	public long transition() {
+		m_exec.receiveEvent(m_tick);
+		return m_exec.count + m_notified;
+	}
+}
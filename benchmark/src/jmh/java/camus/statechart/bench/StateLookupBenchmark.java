@@ -0,0 +1,103 @@
+package camus.statechart.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import camus.statechart.Statechart;
+
+
+/**
+ * 생성된 큰 상태 트리({@link BenchCharts#tree(int, int)})에서의 상태 검색 비용을 측정한다.
+ * <p>
+ * 검색 대상은 트리의 모든 상태를 차례대로 순환한다.
+ * <ul>
+ * 	<li> <code>getState</code>: 전역 식별자로 상태 검색.
+ * 	<li> <code>findStateByLuid</code>: 지역 식별자로 상태 검색. 같은 깊이의 상태들은 지역 식별자를
+ * 		공유하므로 결과는 여러 상태로 구성된다.
+ * 	<li> <code>traverse</code>, <code>resolve</code>: 단말 상태에서 다른 서브트리의 단말 상태로의
+ * 		상대 경로(<code>../../c2_1/c3_1</code> 형태) 해석. <code>resolve</code>는 해석 결과를 캐시한다.
+ * </ul>
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class StateLookupBenchmark {
+	@Param({"4"})
+	public int fanout;
+
+	@Param({"3", "6"})
+	public int depth;
+
+	private Statechart<BenchExecution> m_schart;
+	private String[] m_guids;
+	private String[] m_luids;
+	private camus.statechart.State<BenchExecution>[] m_leaves;
+	private String m_relativePath;
+	private int m_index;
+
+	@Setup
+	@SuppressWarnings("unchecked")
+	public void setup() {
+		m_schart = BenchCharts.tree(fanout, depth);
+
+		List<String> guids = BenchCharts.guids(m_schart);
+		m_guids = guids.toArray(new String[guids.size()]);
+		m_luids = new String[m_guids.length];
+		for ( int i =0; i < m_guids.length; ++i ) {
+			m_luids[i] = m_schart.getStateById(i).getLuid();
+		}
+
+		m_leaves = guids.stream()
+						.map(m_schart::getState)
+						.filter(state -> !state.isComposite())
+						.toArray(camus.statechart.State[]::new);
+
+		// 깊이 'depth'의 단말 상태에서 깊이 2의 다른 형제 서브트리 아래 단말 상태로의 경로
+		StringBuilder builder = new StringBuilder();
+		for ( int i =2; i <= depth; ++i ) {
+			builder.append("../");
+		}
+		for ( int i =2; i <= depth; ++i ) {
+			builder.append("c").append(i).append("_1").append(i < depth ? "/" : "");
+		}
+		m_relativePath = builder.toString();
+	}
+
+	@Benchmark
+	public Object getState() {
+		return m_schart.getState(m_guids[next(m_guids.length)]);
+	}
+
+	@Benchmark
+	public Object findStateByLuid() {
+		return m_schart.findStateByLuid(m_luids[next(m_luids.length)]);
+	}
+
+	@Benchmark
+	public Object traverse() {
+		return m_schart.traverse(m_leaves[next(m_leaves.length)], m_relativePath);
+	}
+
+	@Benchmark
+	public Object resolve() {
+		return m_schart.resolve(m_leaves[next(m_leaves.length)], m_relativePath);
+	}
+
+	private int next(int length) {
+		int idx = m_index;
+		m_index = (idx + 1 < length) ? idx + 1 : 0;
+
+		return idx;
+	}
+}
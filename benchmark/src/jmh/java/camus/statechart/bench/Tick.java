@@ -0,0 +1,42 @@
+package camus.statechart.bench;
+
+import event.Event;
+
+
+/**
+ * 벤치마크에서 상태차트 수행에 전달하는 이벤트 타입을 정의한다.
+ * <p>
+ * 이벤트 처리 과정에서 호출되는 {@link Event#isInstanceOf(Class)}와 {@link Event#getEventTypeIds()}의
+ * 비용이 측정 대상인 엔진 비용에 섞이지 않도록 일반 클래스로 구현한다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+public final class Tick implements Event {
+	private static final String[] TYPE_IDS = new String[]{ Tick.class.getName() };
+	private static final String[] NO_PROPERTIES = new String[0];
+
+	@Override
+	public String[] getEventTypeIds() {
+		return TYPE_IDS;
+	}
+
+	@Override
+	public boolean isInstanceOf(Class<?> intfc) {
+		return intfc.isInstance(this);
+	}
+
+	@Override
+	public String[] getPropertyNames() {
+		return NO_PROPERTIES;
+	}
+
+	@Override
+	public Object getProperty(String name) {
+		return null;
+	}
+
+	@Override
+	public String toString() {
+		return "Tick";
+	}
+}
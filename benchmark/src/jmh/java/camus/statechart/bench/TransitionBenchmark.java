@@ -0,0 +1,51 @@
+package camus.statechart.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+
+/**
+ * 서로 멀리 떨어진 두 상태 사이의 전이 비용을 측정한다.
+ * <p>
+ * 상태차트는 최상위 상태 아래에 깊이 <code>depth</code>인 두 경로를 갖고, 매 이벤트마다 한쪽
+ * 경로의 단말 상태에서 다른 쪽 경로의 단말 상태로 전이한다({@link BenchCharts#distant(int)}).
+ * 따라서 한번의 전이마다 최소 공통 조상(최상위 상태)을 찾고 <code>depth</code>개의 상태에서
+ * 탈출한 후 <code>depth</code>개의 상태로 진입한다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class TransitionBenchmark {
+	@Param({"2", "8", "32"})
+	public int depth;
+
+	private final Tick m_tick = new Tick();
+	private BenchExecution m_exec;
+
+	@Setup
+	public void setup() throws Exception {
+		m_exec = BenchExecution.newStarted(BenchCharts.distant(depth));
+	}
+
+	@TearDown
+	public void tearDown() {
+		m_exec.stop();
+	}
+
+	@Benchmark
+	public long distant() {
+		m_exec.receiveEvent(m_tick);
+		return m_exec.count;
+	}
+}
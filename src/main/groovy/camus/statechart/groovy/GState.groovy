@@ -1,85 +1,249 @@
-package camus.statechart.groovy
-
-import camus.statechart.State
-import camus.statechart.StateNotFoundException
-import camus.statechart.StatechartExecution
-import camus.statechart.support.AbstractState
-
-import event.Event
-
-
-/**
- * 
- * @author Kang-Woo Lee (ETRI)
- */
-class GState<C extends StatechartExecution<C>> extends AbstractState<C> implements State<C> {
-	Closure entry
-	Closure exit
-	List<GTransition> transitions = []
-	
-	GState(State parentState, String guid, boolean keepHistory, String exceptionChildStateId) {
-		super(parentState, guid, keepHistory, exceptionChildStateId)
-	}
-	
-	GState div(String rel) {
-		switch ( rel ) {
-			case "..":
-				if ( parentState ) {
-					parentState
-				}
-				break;
-			case ".":
-				break;
-			default:
-				def child = childStates[rel]
-				if ( !child ) {
-					throw new StateNotFoundException("$guid/$rel")
-				}
-				child
-				break
-		}
-	}
-
-	@Override
-	public String enter(C context) {
-		if ( entry ) {
-			def code = entry.rehydrate(context, null, null)
-			code.resolveStrategy = Closure.DELEGATE_ONLY
-			code.call()
-		}
-		else {
-			null
-		}
-	}
-
-	@Override
-	public void leave(C context) {
-		if ( exit ) {
-			def code = exit.rehydrate(context, null, null)
-			code.resolveStrategy = Closure.DELEGATE_ONLY
-			code.call()
-		}
-	}
-
-	@Override
-	public String handleEvent(C context, Event event) {
-		for ( GTransition trans: transitions ) {
-			if ( trans.eventClass ) {
-				if ( !event.isInstanceOf(trans.eventClass) ) {
-					continue;
-				}
-			}
-			
-			if ( trans.action ) {
-				def code = trans.action.rehydrate(context, null, null)
-				code.resolveStrategy = Closure.DELEGATE_ONLY
-				def result = code.call(event)
-				if ( result instanceof String && result.length() > 0 ) {
-					return result as String
-				}
-			}
-		}
-		
-		return null;
-	}
-}
\ No newline at end of file
+package camus.statechart.groovy
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+import java.util.function.Function
+
+import groovy.transform.CompileStatic
+
+import camus.statechart.State
+import camus.statechart.StateNotFoundException
+import camus.statechart.StatechartExecution
+import camus.statechart.support.AbstractState
+
+import event.Event
+
+
+/**
+ * 
+ * @author Kang-Woo Lee (ETRI)
+ */
+class GState<C extends StatechartExecution<C>> extends AbstractState<C> implements State<C> {
+	private static final int[] NO_TRANSITIONS = new int[0]
+	
+	Class<?> contextClass		// 스크립트에 선언된 수행 문맥 클래스 (선언되지 않은 경우는 null)
+	Closure entry
+	Closure exit
+	List<GTransition> transitions = []
+	List<GTimeout> timeoutDecls = []		// 'getTimeouts()'와 구분하기 위해 별도의 이름을 사용함
+	
+	// 이벤트 타입 식별자 목록별로 적용 가능한 전이 규칙들의 순번 (선언 순서 유지)
+	private final Map<List<String>, int[]> m_dispatchIndex = new ConcurrentHashMap<>()
+	private Set<Class<?>> m_eventTypes = Collections.emptySet()	// 전이 규칙들의 이벤트 타입 (전체인 경우는 null)
+	private final Function<C, Bindings> m_binder = { C context -> new Bindings(this, context) } as Function
+	
+	GState(State parentState, String guid, boolean keepHistory, String exceptionChildStateId) {
+		super(parentState, guid, keepHistory, exceptionChildStateId)
+	}
+	
+	GState div(String rel) {
+		switch ( rel ) {
+			case "..":
+				if ( parentState ) {
+					parentState
+				}
+				break;
+			case ".":
+				break;
+			default:
+				def child = childStates[rel]
+				if ( !child ) {
+					throw new StateNotFoundException("$guid/$rel")
+				}
+				child
+				break
+		}
+	}
+
+	@Override
+	@CompileStatic
+	public String enter(C context) {
+		Closure code = bind(context).entry
+		code ? (String)code.call() : null
+	}
+
+	@Override
+	@CompileStatic
+	public void leave(C context) {
+		Closure code = bind(context).exit
+		if ( code ) {
+			code.call()
+		}
+	}
+
+	void setTransitions(List<GTransition> transitions) {
+		this.transitions = transitions
+		m_dispatchIndex.clear()
+		
+		Set<Class<?>> types = new LinkedHashSet<>()
+		for ( GTransition trans: transitions ) {
+			if ( trans.action ) {
+				if ( !trans.eventClass ) {
+					// 이벤트 타입이 지정되지 않은 규칙은 모든 이벤트에 적용된다.
+					types = null
+					break
+				}
+				types << trans.eventClass
+			}
+		}
+		m_eventTypes = (types != null) ? Collections.unmodifiableSet(types) : null
+	}
+	
+	@Override
+	public Set<Class<?>> getEventTypes() {
+		m_eventTypes
+	}
+	
+	/**
+	 * 시간 제한 동작들을 설정한다.
+	 * <p>
+	 * 각 동작은 {@link AbstractState#after(long, TimeUnit, Function)}를 통해 등록되며,
+	 * 상태 생성 과정에서 한번만 호출되어야 한다.
+	 */
+	void setTimeoutDecls(List<GTimeout> decls) {
+		this.timeoutDecls = decls
+		for ( int i =0; i < decls.size(); ++i ) {
+			final int idx = i
+			after(decls[i].delayMillis, TimeUnit.MILLISECONDS, { C context -> timeout(context, idx) } as Function)
+		}
+	}
+	
+	@CompileStatic
+	private String timeout(C context, int idx) {
+		def result = bind(context).timeoutActions[idx].call()
+		(result instanceof String && ((String)result).length() > 0) ? (String)result : null
+	}
+	
+	/**
+	 * 주어진 이벤트에 적용 가능한 전이 규칙들의 순번을 선언 순서대로 반환한다.
+	 * <p>
+	 * 결과는 이벤트의 타입 식별자 목록({@link Event#getEventTypeIds()})별로 저장되어, 같은 타입들을
+	 * 갖는 이벤트에 대해서는 전이 규칙들의 이벤트 타입 검사를 반복하지 않는다. 같은 구현 클래스의
+	 * 이벤트라도 타입 식별자 목록이 다르면 별도로 검사된다.
+	 * 
+	 * @param event	대상 이벤트.
+	 * @return	적용 가능한 전이 규칙들의 {@link #transitions} 내 순번 배열.
+	 */
+	@CompileStatic
+	int[] getTransitionIndexes(Event event) {
+		if ( transitions.empty ) {
+			return NO_TRANSITIONS
+		}
+		
+		String[] typeIds = event.getEventTypeIds()
+		int[] matches = m_dispatchIndex.get(Arrays.asList(typeIds))
+		if ( matches == null ) {
+			matches = buildTransitionIndexes(event)
+			m_dispatchIndex.put(Arrays.asList(typeIds.clone()), matches)
+		}
+		
+		matches
+	}
+	
+	@CompileStatic
+	private int[] buildTransitionIndexes(Event event) {
+		// 같은 이벤트 타입을 대상으로 하는 규칙들이 여럿인 경우 타입 검사는 한번만 수행한다.
+		Map<Class,Boolean> accepteds = [:]
+		List<Integer> matches = []
+		for ( int i =0; i < transitions.size(); ++i ) {
+			GTransition trans = transitions[i]
+			if ( trans.eventClass ) {
+				Boolean accepted = accepteds[trans.eventClass]
+				if ( accepted == null ) {
+					accepted = event.isInstanceOf(trans.eventClass)
+					accepteds[trans.eventClass] = accepted
+				}
+				if ( !accepted ) {
+					continue
+				}
+			}
+			if ( trans.action ) {
+				matches << i
+			}
+		}
+		
+		matches.empty ? NO_TRANSITIONS : matches as int[]
+	}
+	
+	@Override
+	@CompileStatic
+	public boolean accepts(Event event) {
+		getTransitionIndexes(event).length > 0
+	}
+
+	@Override
+	@CompileStatic
+	public String handleEvent(C context, Event event) {
+		int[] indexes = getTransitionIndexes(event)
+		if ( indexes.length == 0 ) {
+			return null
+		}
+		
+		Closure[] actions = bind(context).actions
+		for ( int idx: indexes ) {
+			def result = actions[idx].call(event)
+			if ( result instanceof String && ((String)result).length() > 0 ) {
+				return (String)result
+			}
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * 주어진 수행에 바인딩된 진입/탈출/전이 closure들을 반환한다.
+	 * <p>
+	 * 각 closure는 수행별로 처음 사용될 때 한번 수행 객체를 delegate로 하여 복제되고,
+	 * 이후에는 수행 객체에 저장된 복제본이 재사용된다.
+	 * <p>
+	 * 스크립트에 수행 문맥 클래스가 선언된 경우, closure들은 해당 클래스에 대해 타입 검사되어
+	 * 있으므로 다른 클래스의 수행 객체에는 바인딩하지 않는다.
+	 * 
+	 * @throws IllegalArgumentException	수행 객체가 선언된 수행 문맥 클래스의 객체가 아닌 경우.
+	 */
+	@CompileStatic
+	private Bindings bind(C context) {
+		context.getStateLocal(this, m_binder)
+	}
+	
+	@CompileStatic
+	private static class Bindings {
+		final Closure entry
+		final Closure exit
+		final Closure[] actions
+		final Closure[] timeoutActions
+		
+		Bindings(GState state, Object context) {
+			Class<?> contextClass = state.contextClass
+			if ( contextClass != null && !contextClass.isInstance(context) ) {
+				throw new IllegalArgumentException("statechart declares context class "
+								+ contextClass.name + ", but execution is " + context.getClass().name)
+			}
+			
+			entry = bindTo(state.entry, context)
+			exit = bindTo(state.exit, context)
+			
+			List<GTransition> transitions = state.transitions
+			actions = new Closure[transitions.size()]
+			for ( int i =0; i < actions.length; ++i ) {
+				actions[i] = bindTo(transitions[i].action, context)
+			}
+			
+			List<GTimeout> timeouts = state.timeoutDecls
+			timeoutActions = new Closure[timeouts.size()]
+			for ( int i =0; i < timeoutActions.length; ++i ) {
+				timeoutActions[i] = bindTo(timeouts[i].action, context)
+			}
+		}
+		
+		private static Closure bindTo(Closure closure, Object context) {
+			if ( closure == null ) {
+				return null
+			}
+			
+			Closure code = closure.rehydrate(context, null, null)
+			code.resolveStrategy = Closure.DELEGATE_ONLY
+			code
+		}
+	}
+}
@@ -1,115 +1,202 @@
-package camus.statechart.groovy
-
-import groovy.lang.Closure
-
-/**
- * 
- * @author Kang-Woo Lee (ETRI)
- */
-class GStateBuilder {
-	String guid, luid
-	Closure entry, exit
-	List<GStateBuilder> childStateBuilders = []
-	List<GTransition> transitions = []
-	
-	String defaultStateId
-	boolean keepHistory
-	String exceptionChildStateId
-	
-	GTransition currentTransition
-	
-	GStateBuilder(GStateBuilder parent, String luid) {
-		this.luid = luid
-		if ( !parent ) {
-			this.guid = "/" + luid
-		}
-		else if ( parent.guid != "/" ) {
-			this.guid =  parent.guid + "/" + luid
-		}
-		else {
-			this.guid = parent.guid + luid
-		}
-	}
-	
-	def GState build(GState parent) {
-		GState state = new GState(parent, guid, keepHistory, exceptionChildStateId)
-		state.entry = entry
-		state.exit = exit
-		if ( childStateBuilders.empty ) {
-			state.defaultStateId = null
-		}
-		else {
-			if ( !(state.defaultStateId = defaultStateId) ) {
-				state.defaultStateId = childStateBuilders[0].luid
-			}
-			for ( GStateBuilder childBldr: childStateBuilders ) {
-				GState child = childBldr.build(state)
-				state.addChildState(child)
-			}
-		}
-		state.transitions = transitions
-		
-		state
-	}
-	
-	def state(String luid, Closure decl) {
-		state(null, luid, decl)
-	}
-	
-	def state(String luid) {
-		state(null, luid, null)
-	}
-	
-	def state(Map attrs, String luid, Closure decl) {
-		GStateBuilder child = new GStateBuilder(this, luid)
-		child.with decl
-		childStateBuilders << child
-		
-		child
-	}
-	
-	def defaultStateId(String id) {
-		defaultStateId = id
-	}
-	
-	def keepHistory(boolean flag) {
-		keepHistory = flag
-	}
-	
-	def entry(Closure decl) {
-		this.entry = decl
-	}
-	
-	def exit(Closure decl) {
-		this.exit = decl
-	}
-	
-	def on(eventExpr, Closure decl) {
-		def eventClass = null
-		if ( eventExpr instanceof String ) {
-			eventClass = Class.forName(eventExpr)
-		}
-		else if ( eventExpr instanceof Class ) {
-			eventClass = (Class)eventExpr
-		}
-		
-		transitions << new GTransition(eventClass:eventClass, action:decl)
-	}
-	
-	def on(Closure decl) {
-		transitions << new GTransition(action:decl)
-	}
-	
-	public String propertyMissing(String name) {
-		println "propertyMissing($name)"
-	}
-	
-	public String methodMissing(String name, args) {
-		println "methodMissing($name,$args)"
-	}
-	
-	@Override
-	public String toString() {
-		"State[${guid}]"
-	}
-}
+package camus.statechart.groovy
+
+import java.util.concurrent.TimeUnit
+
+import groovy.lang.Closure
+import groovy.time.BaseDuration
+import groovy.transform.stc.ClosureParams
+import groovy.transform.stc.FirstParam
+
+/**
+ * 상태 선언 closure는 본 빌더를, 진입/탈출/전이 closure는 상태차트 수행 객체(<code>C</code>)를
+ * delegate로 수행된다. 이 정보는 {@link DelegatesTo}로 선언되어 있어 정적 컴파일 모드에서
+ * 상태차트 스크립트가 수행 문맥 클래스에 대해 타입 검사된다.
+ * 
+ * @author Kang-Woo Lee (ETRI)
+ */
+class GStateBuilder<C> {
+	String guid, luid
+	Class<C> contextClass		// 선언된 수행 문맥 클래스 (선언되지 않은 경우는 null)
+	Closure entry, exit
+	List<GStateBuilder> childStateBuilders = []
+	List<GTransition> transitions = []
+	List<GTimeout> timeouts = []
+	
+	String defaultStateId
+	boolean keepHistory
+	boolean orthogonal
+	boolean concurrentRegions
+	String exceptionChildStateId
+	
+	GTransition currentTransition
+	
+	GStateBuilder(GStateBuilder parent, String luid) {
+		this.luid = luid
+		this.contextClass = parent?.contextClass
+		if ( !parent ) {
+			this.guid = "/" + luid
+		}
+		else if ( parent.guid != "/" ) {
+			this.guid =  parent.guid + "/" + luid
+		}
+		else {
+			this.guid = parent.guid + luid
+		}
+	}
+	
+	def GState build(GState parent) {
+		GState state = new GState(parent, guid, keepHistory, exceptionChildStateId)
+		state.contextClass = contextClass
+		state.entry = entry
+		state.exit = exit
+		state.orthogonal = orthogonal
+		state.concurrentRegions = concurrentRegions
+		if ( childStateBuilders.empty ) {
+			state.defaultStateId = null
+		}
+		else {
+			if ( !(state.defaultStateId = defaultStateId) ) {
+				state.defaultStateId = childStateBuilders[0].luid
+			}
+			for ( GStateBuilder childBldr: childStateBuilders ) {
+				GState child = childBldr.build(state)
+				state.addChildState(child)
+			}
+		}
+		state.transitions = transitions
+		state.timeoutDecls = timeouts
+		
+		state
+	}
+	
+	def state(String luid,
+			@DelegatesTo(type="camus.statechart.groovy.GStateBuilder<C>", strategy=Closure.DELEGATE_FIRST)
+			Closure decl) {
+		state(null, luid, decl)
+	}
+	
+	def state(String luid) {
+		state(null, luid, null)
+	}
+	
+	def state(Map attrs, String luid,
+			@DelegatesTo(type="camus.statechart.groovy.GStateBuilder<C>", strategy=Closure.DELEGATE_FIRST)
+			Closure decl) {
+		GStateBuilder<C> child = new GStateBuilder<>(this, luid)
+		child.with decl
+		childStateBuilders << child
+		
+		child
+	}
+	
+	/**
+	 * 본 상태를 직교 상태로 만들고 주어진 이름의 영역을 추가한다.
+	 * <p>
+	 * 영역은 일반 상태와 같은 방법으로 선언되며, 본 상태에 진입하면 모든 영역의 시작 상태로 진입한다.
+	 * <pre>
+	 * state ("running") {
+	 *     region ("media") { state ("playing") { ... } }
+	 *     region ("network") { state ("connected") { ... } }
+	 *     concurrentRegions true
+	 * }
+	 * </pre>
+	 */
+	def region(String luid,
+			@DelegatesTo(type="camus.statechart.groovy.GStateBuilder<C>", strategy=Closure.DELEGATE_FIRST)
+			Closure decl) {
+		orthogonal = true
+		state(null, luid, decl)
+	}
+	
+	/**
+	 * 영역들이 하나의 이벤트를 동시에 처리할지 여부를 설정한다.
+	 * 영역들의 closure가 수행 객체의 필드를 공유하지 않는 경우에만 설정하여야 한다.
+	 */
+	def concurrentRegions(boolean flag) {
+		concurrentRegions = flag
+	}
+	
+	def defaultStateId(String id) {
+		defaultStateId = id
+	}
+	
+	def keepHistory(boolean flag) {
+		keepHistory = flag
+	}
+	
+	def entry(@DelegatesTo(type="C", strategy=Closure.DELEGATE_ONLY) Closure decl) {
+		this.entry = decl
+	}
+	
+	def exit(@DelegatesTo(type="C", strategy=Closure.DELEGATE_ONLY) Closure decl) {
+		this.exit = decl
+	}
+	
+	/**
+	 * 주어진 타입의 이벤트에 대한 전이 규칙을 추가한다.
+	 * <p>
+	 * 정적 컴파일 모드에서 closure의 인자는 주어진 이벤트 타입으로 타입 검사된다.
+	 */
+	public <E> void on(Class<E> eventClass,
+					@DelegatesTo(type="C", strategy=Closure.DELEGATE_ONLY)
+					@ClosureParams(FirstParam.FirstGenericType) Closure decl) {
+		transitions << new GTransition(eventClass:eventClass, action:decl)
+	}
+	
+	def on(eventExpr, @DelegatesTo(type="C", strategy=Closure.DELEGATE_ONLY) Closure decl) {
+		def eventClass = null
+		if ( eventExpr instanceof String ) {
+			eventClass = Class.forName(eventExpr)
+		}
+		else if ( eventExpr instanceof Class ) {
+			eventClass = (Class)eventExpr
+		}
+		
+		transitions << new GTransition(eventClass:eventClass, action:decl)
+	}
+	
+	def on(@DelegatesTo(type="C", strategy=Closure.DELEGATE_ONLY) Closure decl) {
+		transitions << new GTransition(action:decl)
+	}
+	
+	/**
+	 * 상태 진입 후 주어진 시간 내에 탈출하지 않으면 호출될 시간 제한 동작을 추가한다.
+	 * <p>
+	 * 전이 closure와 마찬가지로 closure가 반환한 경로의 상태로 전이한다. 시간 제한 전에 상태를
+	 * 탈출하면 타이머는 자동으로 취소된다.
+	 * <pre>
+	 * state ("ownerSelecting") {
+	 *     after(30, TimeUnit.SECONDS) { "../idle" }
+	 * }
+	 * </pre>
+	 */
+	def after(long amount, TimeUnit unit,
+			@DelegatesTo(type="C", strategy=Closure.DELEGATE_ONLY) Closure decl) {
+		timeouts << new GTimeout(delayMillis:unit.toMillis(amount), action:decl)
+	}
+	
+	def after(long millis, @DelegatesTo(type="C", strategy=Closure.DELEGATE_ONLY) Closure decl) {
+		after(millis, TimeUnit.MILLISECONDS, decl)
+	}
+	
+	/**
+	 * <code>TimeCategory</code>를 통해 생성된 시간 간격(예: <code>30.seconds</code>)으로
+	 * 시간 제한 동작을 추가한다.
+	 */
+	def after(BaseDuration duration, @DelegatesTo(type="C", strategy=Closure.DELEGATE_ONLY) Closure decl) {
+		after(duration.toMilliseconds(), TimeUnit.MILLISECONDS, decl)
+	}
+	
+	public String propertyMissing(String name) {
+		println "propertyMissing($name)"
+	}
+	
+	public String methodMissing(String name, args) {
+		println "methodMissing($name,$args)"
+	}
+	
+	@Override
+	public String toString() {
+		"State[${guid}]"
+	}
+}
@@ -1,100 +1,66 @@
-package camus.statechart.groovy
-
-import camus.statechart.State
-import camus.statechart.StateNotFoundException
-import camus.statechart.Statechart
-import camus.statechart.StatechartExecution
-
-import org.codehaus.groovy.control.CompilerConfiguration
-
-/**
- * 
- * @author Kang-Woo Lee (ETRI)
- */
-class GStatechart<C extends StatechartExecution<C>> extends Statechart<C> {
-	public static GStatechartBuilder builder(Map args, Closure decl) {
-		new GStatechartBuilder(args, decl)
-	}
-	
-	public static GStatechartBuilder builder(Closure decl) {
-		GStatechartBuilder bldr = new GStatechartBuilder([:], decl)
-	}
-	
-	public static GStatechart from(File scriptFile) {
-		def configuration = new CompilerConfiguration()
-		configuration.scriptBaseClass = GStatechartScript.name
-		
-		new GroovyShell(configuration)
-			.evaluate(scriptFile)
-			.build()
-	}
-	
-	GStatechart(GState root) {
-		super(root);
-	}
-
-	@Override
-	public State<C> getState(String guid) {
-		rootState[path];
-	}
-	
-	public GState getAt(String path) throws StateNotFoundException {
-		rootState[path]
-	}
-	
-	public Set<GState> findStateByLuid(String luid) {
-		Set<GState> found = new HashSet<GState>();
-		
-		List<GState> states = [rootState]
-		while ( !states.isEmpty() ) {
-			GState state = states.remove(0);
-			if ( state.luid == luid ) {
-				found.add(state);
-			}
-			
-			states.addAll(state.childStates);
-		}
-		
-		return found;
-	}
-	
-	public GState traverse(GState fromState, String path) throws StateNotFoundException {
-		GState current = fromState;
-
-		int idx = 0;
-		List<String> parts = path.split("/")
-		String head = parts.get(0);
-		if ( head.length() == 0 ) {
-			current = getRootState();
-			++idx;
-		}
-		else if ( head.startsWith("@") ) {
-			Set<GState> founds = findStateByLuid(head.substring(1));
-			if ( founds.size() == 1 ) {
-				current = founds.iterator().next();
-				++idx;
-			}
-			else if ( founds.size() == 0 ) {
-				throw new StateNotFoundException("LUID=" + head);
-			}
-			else {
-				throw new IllegalArgumentException("ambiguous state id=" + head);
-			}
-		}
-
-		for (; idx < parts.size(); ++idx ) {
-			if ( parts.get(idx).equals("..") ) {
-				current = current.parentState
-				if ( current == null ) {
-					throw new StateNotFoundException("from=" + fromState.getGuid() + ", path=" + path);
-				}
-			}
-			else if ( parts.get(idx).equals(".") ) { }
-			else {
-				current = current.parentState.getSubState(parts.get(idx));
-			}
-		}
-		
-		return current;
-	}
-}
+package camus.statechart.groovy
+
+import camus.statechart.StateNotFoundException
+import camus.statechart.Statechart
+import camus.statechart.StatechartExecution
+
+import groovy.transform.CompileStatic
+
+import org.codehaus.groovy.control.CompilerConfiguration
+import org.codehaus.groovy.control.customizers.ASTTransformationCustomizer
+
+/**
+ * 
+ * @author Kang-Woo Lee (ETRI)
+ */
+class GStatechart<C extends StatechartExecution<C>> extends Statechart<C> {
+	public static GStatechartBuilder builder(Map args, Closure decl) {
+		new GStatechartBuilder(args, decl)
+	}
+	
+	public static GStatechartBuilder builder(Closure decl) {
+		GStatechartBuilder bldr = new GStatechartBuilder([:], decl)
+	}
+	
+	public static GStatechart from(File scriptFile) {
+		from(scriptFile, false)
+	}
+	
+	/**
+	 * 주어진 상태차트 스크립트 파일을 컴파일하여 상태차트를 생성한다.
+	 * <p>
+	 * <code>compileStatic</code>이 <code>true</code>인 경우 스크립트는 정적으로 타입 검사 및
+	 * 컴파일된다. 이때 스크립트는 <code>statechart(ContextClass) { ... }</code> 형태로
+	 * 상태차트 수행 문맥 클래스를 선언하여야 하며, 이벤트 처리 closure의 인자 타입은
+	 * <code>on(EventClass) { ev -> ... }</code>와 같이 클래스로 지정된 이벤트 타입으로 결정된다.
+	 * 
+	 * <p>
+	 * 컴파일된 스크립트 클래스는 {@link GStatechartLoader#getDefault()}에 저장되어, 같은 내용의
+	 * 스크립트는 다시 컴파일되지 않는다.
+	 * 
+	 * @param scriptFile	상태차트 스크립트 파일.
+	 * @param compileStatic	정적 컴파일 여부.
+	 * @return	상태차트 객체.
+	 */
+	public static GStatechart from(File scriptFile, boolean compileStatic) {
+		GStatechartLoader.default.load(scriptFile, compileStatic)
+	}
+	
+	static CompilerConfiguration newCompilerConfiguration(boolean compileStatic) {
+		def configuration = new CompilerConfiguration()
+		configuration.scriptBaseClass = GStatechartScript.name
+		if ( compileStatic ) {
+			configuration.addCompilationCustomizers(new ASTTransformationCustomizer(CompileStatic))
+		}
+		
+		configuration
+	}
+	
+	GStatechart(GState root) {
+		super(root);
+	}
+
+	public GState getAt(String guid) throws StateNotFoundException {
+		getState(guid)
+	}
+}
@@ -1,24 +1,27 @@
-package camus.statechart.groovy
-
-import java.util.Map
-
-import groovy.lang.Closure
-import groovy.transform.InheritConstructors
-
-/**
- * 
- * @author Kang-Woo Lee (ETRI)
- */
-@InheritConstructors
-class GStatechartBuilder {
-	GStateBuilder stateBuilder
-	
-	GStatechartBuilder(Map args, Closure decl) {
-		stateBuilder = new GStateBuilder(null, "");
-		stateBuilder.with decl
-	}
-	
-	GStatechart build() {
-		new GStatechart(stateBuilder.build(null))
-	}
-}
+package camus.statechart.groovy
+
+import java.util.Map
+
+import groovy.lang.Closure
+import groovy.transform.InheritConstructors
+
+/**
+ * 
+ * @author Kang-Woo Lee (ETRI)
+ */
+@InheritConstructors
+class GStatechartBuilder<C> {
+	GStateBuilder<C> stateBuilder
+	Class<C> contextClass
+	
+	GStatechartBuilder(Map args, Closure decl) {
+		contextClass = (Class<C>)args.contextClass
+		stateBuilder = new GStateBuilder<>(null, "");
+		stateBuilder.contextClass = contextClass
+		stateBuilder.with decl
+	}
+	
+	GStatechart build() {
+		new GStatechart(stateBuilder.build(null))
+	}
+}
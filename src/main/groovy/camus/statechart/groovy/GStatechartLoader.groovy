@@ -0,0 +1,292 @@
+package camus.statechart.groovy
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.AtomicMoveNotSupportedException
+import java.nio.file.DirectoryNotEmptyException
+import java.nio.file.FileAlreadyExistsException
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption
+import java.security.MessageDigest
+import java.util.concurrent.ConcurrentHashMap
+
+import groovy.transform.CompileStatic
+
+import org.codehaus.groovy.control.CompilationUnit
+import org.codehaus.groovy.control.CompilerConfiguration
+import org.codehaus.groovy.control.Phases
+import org.codehaus.groovy.runtime.InvokerHelper
+import org.codehaus.groovy.tools.GroovyClass
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+
+
+/**
+ * <code>GStatechartLoader</code>는 컴파일된 상태차트 스크립트 클래스를 재사용하는 스크립트 적재기를 정의한다.
+ * <p>
+ * 스크립트는 내용(과 컴파일 모드, Groovy 버전, 스크립트가 참조하는 DSL 클래스들의 서명)의
+ * SHA-256 해시 값으로 식별된다. 따라서 본 라이브러리가 갱신되면 이전 버전으로 컴파일된 클래스 파일은
+ * 사용되지 않는다.
+ * 한번 컴파일된 스크립트 클래스는 메모리에 저장되며, 캐시 디렉토리가 지정된 경우는
+ * 생성된 클래스 파일들이 <code>&lt;캐시 디렉토리&gt;/&lt;해시 값&gt;/</code>에 함께 저장된다.
+ * 따라서 이전에 적재된 적이 있는 스크립트는 프로세스가 재시작된 후에도 Groovy 컴파일러를
+ * 호출하지 않고 적재된다.
+ * <p>
+ * 본 클래스는 ThreadSafe하도록 구현되었다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+class GStatechartLoader {
+	private static final Logger s_logger = LoggerFactory.getLogger(GStatechartLoader.class)
+	private static final String CLASS_PREFIX = "GStatechart_"
+	// 컴파일된 스크립트 클래스가 의존하는 DSL 클래스들
+	private static final List<Class<?>> DSL_CLASSES = [GStatechartScript, GStatechartBuilder, GStateBuilder,
+														GStatechart, GState, GTransition, GTimeout]
+	private static final byte[] LIBRARY_SIGNATURE = librarySignature()
+	private static final GStatechartLoader DEFAULT = new GStatechartLoader(null, null)
+
+	private final File m_cacheDir
+	private final ClassLoader m_parent		// null인 경우는 적재 쓰레드의 context 클래스 로더
+	private final Map<ClassLoader,Map<String,Class<? extends Script>>> m_classes = new ConcurrentHashMap<>()
+
+	/**
+	 * 메모리 캐시만을 사용하는 적재기를 생성한다.
+	 */
+	GStatechartLoader() {
+		this(null)
+	}
+
+	/**
+	 * 주어진 디렉토리를 디스크 캐시로 사용하는 적재기를 생성한다.
+	 *
+	 * @param cacheDir	컴파일된 클래스 파일들을 저장할 디렉토리.
+	 * 					<code>null</code>인 경우는 메모리 캐시만을 사용한다.
+	 */
+	GStatechartLoader(File cacheDir) {
+		this(cacheDir, Thread.currentThread().contextClassLoader ?: GStatechartLoader.classLoader)
+	}
+
+	/**
+	 * 주어진 디렉토리를 디스크 캐시로 사용하는 적재기를 생성한다.
+	 *
+	 * @param cacheDir	컴파일된 클래스 파일들을 저장할 디렉토리.
+	 * 					<code>null</code>인 경우는 메모리 캐시만을 사용한다.
+	 * @param parent	스크립트에서 참조하는 클래스들을 적재할 상위 클래스 로더.
+	 * 					<code>null</code>인 경우는 적재를 요청한 쓰레드의 context 클래스 로더를 사용한다.
+	 */
+	GStatechartLoader(File cacheDir, ClassLoader parent) {
+		m_cacheDir = cacheDir
+		m_parent = parent
+	}
+
+	/**
+	 * {@link GStatechart#from(File)}에서 사용하는 메모리 캐시 기반 기본 적재기를 반환한다.
+	 * <p>
+	 * 기본 적재기는 적재를 요청한 쓰레드의 context 클래스 로더를 상위 클래스 로더로 사용하며,
+	 * 컴파일된 클래스들은 상위 클래스 로더별로 구분하여 저장한다.
+	 *
+	 * @return	기본 적재기.
+	 */
+	static GStatechartLoader getDefault() {
+		DEFAULT
+	}
+
+	/**
+	 * 주어진 스크립트 파일로부터 상태차트를 생성한다.
+	 *
+	 * @param scriptFile	상태차트 스크립트 파일.
+	 * @param compileStatic	정적 컴파일 여부.
+	 * @return	상태차트 객체.
+	 */
+	GStatechart load(File scriptFile, boolean compileStatic = false) {
+		load(scriptFile.getText(StandardCharsets.UTF_8.name()), compileStatic)
+	}
+
+	/**
+	 * 주어진 스크립트 내용으로부터 상태차트를 생성한다.
+	 *
+	 * @param scriptText	상태차트 스크립트 내용.
+	 * @param compileStatic	정적 컴파일 여부.
+	 * @return	상태차트 객체.
+	 */
+	GStatechart load(String scriptText, boolean compileStatic = false) {
+		Class<? extends Script> scriptClass = loadClass(scriptText, compileStatic)
+
+		Script script = InvokerHelper.createScript(scriptClass, new Binding())
+		((GStatechartBuilder)script.run()).build()
+	}
+
+	/**
+	 * 주어진 스크립트 내용에 해당하는 컴파일된 스크립트 클래스를 반환한다.
+	 * <p>
+	 * 메모리나 디스크 캐시에 해당 클래스가 없는 경우만 스크립트를 컴파일한다.
+	 *
+	 * @param scriptText	상태차트 스크립트 내용.
+	 * @param compileStatic	정적 컴파일 여부.
+	 * @return	스크립트 클래스.
+	 */
+	Class<? extends Script> loadClass(String scriptText, boolean compileStatic = false) {
+		String key = hash(scriptText, compileStatic)
+		ClassLoader parent = m_parent ?: Thread.currentThread().contextClassLoader ?: GStatechartLoader.classLoader
+		Map<String,Class<? extends Script>> classes
+							= m_classes.computeIfAbsent(parent) { new ConcurrentHashMap<>() }
+		classes.computeIfAbsent(key) { String k -> loadOrCompile(parent, k, scriptText, compileStatic) }
+	}
+
+	/**
+	 * 메모리 캐시를 비운다. 디스크 캐시는 유지된다.
+	 * <p>
+	 * 메모리 캐시는 상위 클래스 로더들을 참조하므로, 더 이상 사용되지 않는 클래스 로더로 적재한
+	 * 스크립트가 있는 경우는 본 메소드를 호출하여 해제한다.
+	 */
+	void clear() {
+		m_classes.clear()
+	}
+
+	private Class<? extends Script> loadOrCompile(ClassLoader parent, String key, String scriptText,
+													boolean compileStatic) {
+		String className = CLASS_PREFIX + key
+
+		Map<String,byte[]> classFiles = readClassFiles(key)
+		if ( classFiles == null ) {
+			classFiles = compile(parent, className, scriptText, compileStatic)
+			writeClassFiles(key, classFiles)
+		}
+		else {
+			s_logger.debug("loaded cached statechart script: key={}", key)
+		}
+
+		new ScriptClassLoader(parent, classFiles).loadClass(className) as Class<? extends Script>
+	}
+
+	private static Map<String,byte[]> compile(ClassLoader parent, String className, String scriptText,
+												boolean compileStatic) {
+		CompilerConfiguration config = GStatechart.newCompilerConfiguration(compileStatic)
+		GroovyClassLoader gcl = new GroovyClassLoader(parent, config)
+		try {
+			CompilationUnit unit = new CompilationUnit(config, null, gcl)
+			unit.addSource(className + ".groovy", scriptText)
+			unit.compile(Phases.CLASS_GENERATION)
+
+			Map<String,byte[]> classFiles = [:]
+			for ( GroovyClass gclass: unit.classes ) {
+				classFiles[gclass.name] = gclass.bytes
+			}
+			s_logger.debug("compiled statechart script: class={}, nclasses={}", className, classFiles.size())
+
+			classFiles
+		}
+		finally {
+			gcl.close()
+		}
+	}
+
+	private Map<String,byte[]> readClassFiles(String key) {
+		if ( m_cacheDir == null ) {
+			return null
+		}
+
+		Path dir = m_cacheDir.toPath().resolve(key)
+		if ( !Files.isDirectory(dir) ) {
+			return null
+		}
+
+		try {
+			Map<String,byte[]> classFiles = [:]
+			Files.newDirectoryStream(dir, "*.class").withCloseable { stream ->
+				for ( Path file: stream ) {
+					String name = file.fileName.toString()
+					classFiles[name.substring(0, name.length() - ".class".length())] = Files.readAllBytes(file)
+				}
+			}
+
+			classFiles.empty ? null : classFiles
+		}
+		catch ( IOException e ) {
+			s_logger.warn("fails to read cached statechart script: dir={}, cause={}", dir, e.toString())
+			null
+		}
+	}
+
+	// 동시에 여러 프로세스가 같은 스크립트를 저장할 수 있으므로, 임시 디렉토리에 저장한 후
+	// 원자적으로 이름을 바꾼다.
+	private void writeClassFiles(String key, Map<String,byte[]> classFiles) {
+		if ( m_cacheDir == null ) {
+			return
+		}
+
+		Path tmpDir = null
+		try {
+			Files.createDirectories(m_cacheDir.toPath())
+
+			tmpDir = Files.createTempDirectory(m_cacheDir.toPath(), ".tmp-" + key)
+			classFiles.each { String name, byte[] bytes ->
+				Files.write(tmpDir.resolve(name + ".class"), bytes)
+			}
+			Files.move(tmpDir, m_cacheDir.toPath().resolve(key), StandardCopyOption.ATOMIC_MOVE)
+			tmpDir = null
+		}
+		catch ( FileAlreadyExistsException | DirectoryNotEmptyException | AtomicMoveNotSupportedException e ) {
+			// 다른 적재기가 먼저 저장한 경우
+		}
+		catch ( IOException e ) {
+			s_logger.warn("fails to write statechart script cache: key={}, cause={}", key, e.toString())
+		}
+		finally {
+			if ( tmpDir != null ) {
+				tmpDir.toFile().deleteDir()
+			}
+		}
+	}
+
+	private static String hash(String scriptText, boolean compileStatic) {
+		MessageDigest digest = MessageDigest.getInstance("SHA-256")
+		digest.update(GroovySystem.version.getBytes(StandardCharsets.UTF_8))
+		digest.update(LIBRARY_SIGNATURE)
+		digest.update((byte)(compileStatic ? 1 : 0))
+		digest.update(scriptText.getBytes(StandardCharsets.UTF_8))
+
+		digest.digest().encodeHex().toString()
+	}
+
+	// 스크립트가 참조하는 DSL 클래스들의 클래스 파일로부터 라이브러리 서명을 계산한다.
+	// 클래스 파일을 읽을 수 없는 경우는 패키지 구현 버전을 대신 사용한다.
+	private static byte[] librarySignature() {
+		MessageDigest digest = MessageDigest.getInstance("SHA-256")
+		for ( Class<?> cls: DSL_CLASSES ) {
+			digest.update(cls.name.getBytes(StandardCharsets.UTF_8))
+
+			InputStream is = cls.getResourceAsStream(cls.simpleName + ".class")
+			if ( is != null ) {
+				is.withCloseable { digest.update(it.bytes) }
+			}
+			else {
+				String version = cls.package?.implementationVersion ?: "unknown"
+				digest.update(version.getBytes(StandardCharsets.UTF_8))
+			}
+		}
+
+		digest.digest()
+	}
+
+	@CompileStatic
+	private static class ScriptClassLoader extends ClassLoader {
+		private final Map<String,byte[]> m_classFiles
+
+		ScriptClassLoader(ClassLoader parent, Map<String,byte[]> classFiles) {
+			super(parent)
+
+			m_classFiles = classFiles
+		}
+
+		@Override
+		protected Class<?> findClass(String name) throws ClassNotFoundException {
+			byte[] bytes = m_classFiles.get(name)
+			if ( bytes == null ) {
+				throw new ClassNotFoundException(name)
+			}
+
+			defineClass(name, bytes, 0, bytes.length)
+		}
+	}
+}
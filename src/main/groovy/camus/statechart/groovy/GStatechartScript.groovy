@@ -1,11 +1,22 @@
-package camus.statechart.groovy
-
-/**
- * 
- * @author Kang-Woo Lee (ETRI)
- */
-abstract class GStatechartScript extends Script {
-	def statechart(Closure decl) {
-		new GStatechartBuilder([:], decl)
-	}
-}
+package camus.statechart.groovy
+
+/**
+ * 정적 컴파일 모드({@link GStatechart#from(File, boolean)})로 컴파일되는 스크립트는
+ * {@link #statechart(Class, Closure)}를 사용하여 상태차트 수행 문맥 클래스를 선언하여야 한다.
+ * 이 경우 진입/탈출/전이 closure 내의 속성 및 메소드 참조는 선언된 클래스에 대해 타입 검사된다.
+ * 또한 생성된 상태차트는 선언된 클래스의 수행 객체에만 closure들을 바인딩하므로, 다른 클래스의
+ * 수행에서 사용되면 상태 진입시 {@link IllegalArgumentException}이 발생된다.
+ * 
+ * @author Kang-Woo Lee (ETRI)
+ */
+abstract class GStatechartScript extends Script {
+	def statechart(@DelegatesTo(value=GStateBuilder, strategy=Closure.DELEGATE_FIRST) Closure decl) {
+		new GStatechartBuilder([:], decl)
+	}
+	
+	public <C> GStatechartBuilder<C> statechart(Class<C> contextClass,
+			@DelegatesTo(type="camus.statechart.groovy.GStateBuilder<C>", strategy=Closure.DELEGATE_FIRST)
+			Closure decl) {
+		new GStatechartBuilder<C>([contextClass: contextClass], decl)
+	}
+}
@@ -0,0 +1,10 @@
+package camus.statechart.groovy;
+
+/**
+ * 
+ * @author Kang-Woo Lee (ETRI)
+ */
+class GTimeout {
+	long delayMillis
+	Closure action
+}
@@ -1,12 +1,12 @@
-package camus.statechart.groovy;
-
-import event.Event
-
-/**
- * 
- * @author Kang-Woo Lee (ETRI)
- */
-class GTransition {
-	Class eventClass
-	Closure action
-}
+package camus.statechart.groovy;
+
+import event.Event
+
+/**
+ * 
+ * @author Kang-Woo Lee (ETRI)
+ */
+class GTransition {
+	Class eventClass
+	Closure action
+}
@@ -0,0 +1,27 @@
+package camus.statechart;
+
+import event.Event;
+
+
+/**
+ * <code>CoalescingEvent</code>는 가장 최근 값만이 의미를 갖는 이벤트를 정의한다.
+ * <p>
+ * 상태차트 수행에 전달된 이벤트가 병합 키를 갖고, 같은 병합 키를 갖는 이전 이벤트가 아직 처리되지
+ * 않고 이벤트 큐에 남아 있는 경우, 새 이벤트는 큐의 끝에 추가되는 대신 이전 이벤트를 큐의 같은
+ * 위치에서 대체한다. 따라서 센서 측정값이나 재실 상태와 같이 값의 수준만이 의미를 갖는 이벤트가
+ * 짧은 시간에 몰리더라도 가장 최근 이벤트 하나만 처리된다.
+ * <p>
+ * 이미 처리가 시작된 이벤트는 대체되지 않으며, 이벤트 저널에서 재처리되는 이벤트는 병합되지 않는다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+public interface CoalescingEvent extends Event {
+	/**
+	 * 이벤트의 병합 키를 반환한다.
+	 * <p>
+	 * 병합 키는 {@link Object#equals(Object)}와 {@link Object#hashCode()}로 비교된다.
+	 *
+	 * @return	병합 키. <code>null</code>인 경우는 병합하지 않는다.
+	 */
+	public Object getCoalescingKey();
+}
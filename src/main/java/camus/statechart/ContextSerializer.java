@@ -0,0 +1,39 @@
+package camus.statechart;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+
+/**
+ * <code>ContextSerializer</code>는 상태차트 스냅샷에 포함될 응용 문맥 데이터의 직렬화 방법을 정의한다.
+ * <p>
+ * 상태차트 수행 클래스({@link StatechartExecution}의 하위 클래스)에 추가된 응용 데이터는
+ * 상태차트 라이브러리가 알 수 없으므로, 스냅샷 생성 및 복원시 본 인터페이스를 통해 기록되고 복원된다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ * @see StatechartExecution#snapshot(ContextSerializer)
+ * @see StatechartExecution#restore(byte[], ContextSerializer)
+ */
+public interface ContextSerializer<C extends StatechartExecution<C>> {
+	/**
+	 * 주어진 상태차트 수행의 응용 데이터를 기록한다.
+	 * <p>
+	 * 본 메소드는 상태차트 잠금을 획득한 상태에서 호출된다.
+	 *
+	 * @param context	상태차트 수행 문맥.
+	 * @param out		기록 대상.
+	 * @throws IOException	기록 중 오류가 발생된 경우.
+	 */
+	public void write(C context, DataOutput out) throws IOException;
+
+	/**
+	 * {@link #write(StatechartExecution, DataOutput)}로 기록된 응용 데이터를 읽어
+	 * 주어진 상태차트 수행에 설정한다.
+	 *
+	 * @param context	복원 대상 상태차트 수행 문맥.
+	 * @param in		입력 대상.
+	 * @throws IOException	입력 중 오류가 발생된 경우.
+	 */
+	public void read(C context, DataInput in) throws IOException;
+}
@@ -0,0 +1,17 @@
+package camus.statechart;
+
+import event.Event;
+
+
+/**
+ * <code>ControlEvent</code>는 상태차트 수행의 진행을 제어하는 이벤트를 정의한다.
+ * <p>
+ * 수행 종료 이벤트({@link EndOfEvent})나 작업 취소 이벤트와 같이 대기 중인 일반 이벤트들보다
+ * 먼저 처리되어야 하는 이벤트는 본 인터페이스를 구현한다. 상태차트 수행에 전달된 제어 이벤트는
+ * 이벤트 큐의 우선 처리 큐에 추가되어, 일반 이벤트 큐에 쌓인 이벤트들보다 먼저 처리된다.
+ * 제어 이벤트들 사이의 처리 순서는 도착 순서를 따른다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+public interface ControlEvent extends Event {
+}
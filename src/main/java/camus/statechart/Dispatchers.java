@@ -0,0 +1,132 @@
+package camus.statechart;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.base.Preconditions;
+
+
+/**
+ * {@link StatechartDispatcher}의 기본 구현 클래스들을 정의한다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+final class Dispatchers {
+	static final StatechartDispatcher DEDICATED_THREAD = new DedicatedThreadDispatcher();
+
+	// JDK 21 이상에서만 존재하는 'Thread.startVirtualThread(Runnable)'
+	private static final MethodHandle START_VIRTUAL_THREAD;
+	static {
+		MethodHandle handle;
+		try {
+			handle = MethodHandles.publicLookup().findStatic(Thread.class, "startVirtualThread",
+											MethodType.methodType(Thread.class, Runnable.class));
+		}
+		catch ( NoSuchMethodException | IllegalAccessException e ) {
+			handle = null;
+		}
+		START_VIRTUAL_THREAD = handle;
+	}
+
+	private Dispatchers() {
+		throw new AssertionError("Should not be called: class=" + Dispatchers.class.getName());
+	}
+
+	static boolean isVirtualThreadSupported() {
+		return START_VIRTUAL_THREAD != null;
+	}
+
+	static StatechartDispatcher virtualThread() {
+		if ( START_VIRTUAL_THREAD == null ) {
+			throw new UnsupportedOperationException("virtual thread is not supported: java.version="
+													+ System.getProperty("java.version"));
+		}
+
+		return VirtualThreadDispatcher.INSTANCE;
+	}
+
+	private static class DedicatedThreadDispatcher implements StatechartDispatcher {
+		private static final AtomicInteger s_seqno = new AtomicInteger(0);
+
+		@Override
+		public Executor attach(StatechartExecution<?> exec) {
+			String name = "statechart-exec-" + s_seqno.getAndIncrement();
+			return Executors.newSingleThreadExecutor(task -> {
+				Thread thread = new Thread(task, name);
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+
+		@Override
+		public void detach(StatechartExecution<?> exec, Executor executor) {
+			((ExecutorService)executor).shutdown();
+		}
+
+		@Override
+		public String toString() {
+			return "DedicatedThread";
+		}
+	}
+
+	static class ExecutorDispatcher implements StatechartDispatcher {
+		private final Executor m_executor;
+		private final int m_quantum;
+
+		ExecutorDispatcher(Executor executor, int quantum) {
+			Objects.requireNonNull(executor, "Executor was null");
+			Preconditions.checkArgument(quantum > 0, "invalid quantum: " + quantum);
+
+			m_executor = executor;
+			m_quantum = quantum;
+		}
+
+		@Override
+		public Executor attach(StatechartExecution<?> exec) {
+			return m_executor;
+		}
+
+		@Override
+		public int getQuantum() {
+			return m_quantum;
+		}
+
+		@Override
+		public String toString() {
+			return "Executor[" + m_executor + "]";
+		}
+	}
+
+	private static class VirtualThreadDispatcher implements StatechartDispatcher {
+		private static final VirtualThreadDispatcher INSTANCE = new VirtualThreadDispatcher();
+		private static final Executor EXECUTOR = VirtualThreadDispatcher::start;
+
+		@Override
+		public Executor attach(StatechartExecution<?> exec) {
+			return EXECUTOR;
+		}
+
+		private static Thread start(Runnable task) {
+			try {
+				return (Thread)START_VIRTUAL_THREAD.invokeExact(task);
+			}
+			catch ( RuntimeException | Error e ) {
+				throw e;
+			}
+			catch ( Throwable e ) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		@Override
+		public String toString() {
+			return "VirtualThread";
+		}
+	}
+}
@@ -1,13 +1,11 @@
-package camus.statechart;
-
-import event.Event;
-
-
-
-/**
- * <code>EndOfEvent</code>는 종료 이벤트의 인터페이스를 정의한다.
- * 
- * @author Kang-Woo Lee
- */
-public interface EndOfEvent extends Event {
-}
+package camus.statechart;
+
+/**
+ * <code>EndOfEvent</code>는 종료 이벤트의 인터페이스를 정의한다.
+ * <p>
+ * 종료 이벤트는 제어 이벤트이므로 대기 중인 일반 이벤트들보다 먼저 처리된다.
+ * 
+ * @author Kang-Woo Lee
+ */
+public interface EndOfEvent extends ControlEvent {
+}
@@ -0,0 +1,783 @@
+package camus.statechart;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+import event.Event;
+
+
+/**
+ * <code>EventJournal</code>은 상태차트 수행에 전달된 이벤트들을 처리 전에 파일에 먼저 기록하는
+ * 선행 기록(write-ahead) 저널을 정의한다.
+ * <p>
+ * 저널에 연결된 상태차트 수행({@link #attach(StatechartExecution, String, ContextSerializer)})에
+ * 전달된 이벤트는 바로 이벤트 큐에 추가되지 않고 저널에 기록되며, 기록이 디스크에 반영된(fsync)
+ * 이후에 이벤트 큐에 추가된다. 디스크 반영은 하나의 기록 쓰레드가 프로세스 내 모든 수행의
+ * 기록들을 모아서 한번에 수행(group commit)하기 때문에, 이벤트마다 디스크 반영 비용이 발생하지 않는다.
+ * 수행에 이벤트 큐 용량({@link StatechartExecution#setEventQueueCapacity(int, OverflowPolicy)})이 설정된
+ * 경우는 기록 요청 전에 큐의 자리를 예약하므로, 기록 중인 이벤트까지 포함하여 용량 제한이 적용된다.
+ * <p>
+ * 저널은 전달된 이벤트만을 기록하므로, 재처리 결과가 원래 처리 결과와 같으려면 상태 변화가 이벤트에
+ * 의해서만 발생하여야 한다. 따라서 시간 제한({@link State#getTimeouts()})이 설정된 상태를 포함하는
+ * 상태차트의 수행은 저널에 연결할 수 없고, 저널에 연결된 수행에는 지연 이벤트
+ * ({@link StatechartExecution#scheduleEvent(State, Event, long, TimeUnit)})를 예약할 수 없다.
+ * <p>
+ * 각 수행은 저널 내에서 응용이 부여한 키로 식별되며, 수행별로 정해진 갯수의 이벤트가 처리될 때마다
+ * 수행 스냅샷({@link StatechartExecution#snapshot(ContextSerializer)})이 체크포인트로 기록된다.
+ * 프로세스 재시작시에는 {@link #recover(StatechartExecution, String, ContextSerializer)}를 통해
+ * 마지막 체크포인트로부터 수행을 복원한 후, 이후 기록된 이벤트들을 리스너 통지 없이 다시 처리하여
+ * 수행 상태를 재구성한다. 모든 키의 체크포인트 이후로 더 이상 필요없는 저널 파일(segment)은
+ * 자동으로 삭제된다.
+ * <p>
+ * 저널 파일 기록에 실패하면 저널은 더 이상 기록 요청을 받지 않으며, 디스크 반영이 확인되지 않은
+ * 이벤트들은 처리되지 않는다. 이때 각 이벤트가 전달된 수행의 리스너들에게는
+ * {@link StatechartFaultCase#JOURNAL_WRITE} 오류가 통보된다.
+ * <p>
+ * 본 클래스는 ThreadSafe하도록 구현되었다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+public class EventJournal implements Closeable {
+	private static final Logger s_logger = LoggerFactory.getLogger(EventJournal.class);
+
+	public static final int DEFAULT_CHECKPOINT_INTERVAL = 1000;
+	public static final long DEFAULT_SEGMENT_SIZE = 64L * 1024 * 1024;
+	private static final int MAX_GROUP_SIZE = 4096;
+
+	private static final byte TYPE_EVENT = 1;
+	private static final byte TYPE_CHECKPOINT = 2;
+	private static final byte TYPE_REMOVED = 3;
+	private static final String SEGMENT_PREFIX = "journal-";
+	private static final String SEGMENT_SUFFIX = ".log";
+
+	private final File m_dir;
+	private final EventSerializer m_serializer;
+	private final int m_checkpointInterval;
+	private volatile long m_maxSegmentSize = DEFAULT_SEGMENT_SIZE;
+	private final BlockingQueue<Append> m_appends = new LinkedBlockingQueue<>();
+	private final Thread m_writer;
+	private final Object m_submitLock = new Object();	// 기록 요청과 종료/실패 전환을 원자적으로 수행
+	@GuardedBy("m_submitLock") private volatile boolean m_closed = false;
+	@GuardedBy("m_submitLock") private volatile IOException m_failure;
+
+	// 저널 생성시 기존 저널 파일들로부터 읽은 키별 복구 정보 ('recover()' 호출시 제거됨)
+	private final Map<String,RecoveryLog> m_recoveryLogs = new ConcurrentHashMap<>();
+
+	// 아래 필드들은 생성자와 기록 쓰레드에서만 사용된다.
+	@GuardedBy("m_writer") private final List<Segment> m_segments = new ArrayList<>();
+	@GuardedBy("m_writer") private final Map<String,Long> m_checkpointSeqs = new HashMap<>();
+	@GuardedBy("m_writer") private final Map<String,Segment> m_checkpointSegments = new HashMap<>();
+	@GuardedBy("m_writer") private FileChannel m_channel;
+
+	/**
+	 * 주어진 디렉토리를 사용하는 이벤트 저널을 생성한다.
+	 * <p>
+	 * 디렉토리에 이전에 기록된 저널 파일들이 있는 경우는 이를 읽어 키별 복구 정보를 구성한다.
+	 *
+	 * @param dir			저널 파일들을 저장할 디렉토리.
+	 * @param serializer	이벤트 직렬화 객체.
+	 * @param checkpointInterval	체크포인트를 기록할 수행별 이벤트 갯수 간격.
+	 * @throws IOException	기존 저널 파일을 읽는 중 오류가 발생된 경우.
+	 */
+	public EventJournal(File dir, EventSerializer serializer, int checkpointInterval)
+		throws IOException {
+		Objects.requireNonNull(dir, "journal directory was null");
+		Objects.requireNonNull(serializer, "EventSerializer was null");
+		Preconditions.checkArgument(checkpointInterval > 0,
+									"invalid checkpoint interval: " + checkpointInterval);
+
+		m_dir = dir;
+		m_serializer = serializer;
+		m_checkpointInterval = checkpointInterval;
+
+		Files.createDirectories(dir.toPath());
+		scanSegments();
+		openNewSegment();
+
+		m_writer = new Thread(this::runWriter, "statechart-journal-writer");
+		m_writer.setDaemon(true);
+		m_writer.start();
+	}
+
+	/**
+	 * 한 저널 파일의 최대 크기를 설정한다. 기록 후 파일 크기가 이를 넘으면 새 파일에 기록한다.
+	 *
+	 * @param size	최대 파일 크기 (바이트).
+	 */
+	public void setMaxSegmentSize(long size) {
+		Preconditions.checkArgument(size > 0, "invalid segment size: " + size);
+
+		m_maxSegmentSize = size;
+	}
+
+	/**
+	 * 주어진 상태차트 수행을 저널에 연결한다.
+	 * <p>
+	 * 이후 수행에 전달되는 이벤트들은 저널에 기록된 후 처리된다.
+	 * 이전에 같은 키로 기록된 내용이 있는 경우는 {@link #recover(StatechartExecution, String, ContextSerializer)}를
+	 * 사용하여야 한다.
+	 *
+	 * @param exec			연결할 상태차트 수행.
+	 * @param key			저널 내에서 수행을 식별하는 키.
+	 * @param serializer	체크포인트 기록시 사용할 응용 데이터 직렬화 객체.
+	 * @throws IllegalStateException	주어진 키로 기록된 복구되지 않은 내용이 있는 경우.
+	 * @throws IllegalArgumentException	수행의 상태차트에 시간 제한이 설정된 상태가 있거나,
+	 * 						수행의 이벤트 큐에 {@link OverflowPolicy#DROP_OLDEST} 정책이 설정된 경우.
+	 */
+	public <C extends StatechartExecution<C>> void attach(C exec, String key,
+														ContextSerializer<C> serializer) {
+		RecoveryLog log = m_recoveryLogs.get(key);
+		if ( log != null && !log.m_removed ) {
+			throw new IllegalStateException("journal has unrecovered records: key=" + key);
+		}
+
+		attach(exec, key, serializer, (log != null) ? log.m_lastSeq : 0).release();
+		m_recoveryLogs.remove(key);
+	}
+
+	/**
+	 * 저널에 기록된 내용으로부터 주어진 상태차트 수행을 복원하고 시작시킨 후, 저널에 연결한다.
+	 * <p>
+	 * 마지막 체크포인트가 있는 경우는 이로부터 수행 상태를 복원하고, 그렇지 않은 경우는 처음부터
+	 * 수행을 시작한다. 이후 체크포인트 이후에 기록된 이벤트들을 현재 쓰레드에서 차례대로 다시 처리한다.
+	 * 복원 및 재처리 과정에서는 상태차트 리스너들에게 통지하지 않는다.
+	 * 주어진 키로 기록된 내용이 없는 경우는 수행을 시작하고 저널에 연결한다.
+	 * <p>
+	 * 수행은 시작되기 전에 저널에 연결되므로, 시작 이후 전달된 이벤트들도 모두 저널에 기록된다.
+	 * 다만 재처리가 끝날 때까지는 이벤트 큐에 추가되지 않고 보류되며, 재처리가 끝난 후
+	 * 기록된 순서대로 처리된다.
+	 *
+	 * @param exec			복원할 상태차트 수행. 아직 시작되지 않은 상태이어야 한다.
+	 * @param key			저널 내에서 수행을 식별하는 키.
+	 * @param serializer	응용 데이터 직렬화 객체.
+	 * @throws IllegalArgumentException	수행의 상태차트에 시간 제한이 설정된 상태가 있거나,
+	 * 						수행의 이벤트 큐에 {@link OverflowPolicy#DROP_OLDEST} 정책이 설정된 경우.
+	 * @throws Exception	복원 또는 수행 시작 중 오류가 발생된 경우.
+	 */
+	public <C extends StatechartExecution<C>> void recover(C exec, String key,
+															ContextSerializer<C> serializer)
+		throws Exception {
+		RecoveryLog log = m_recoveryLogs.remove(key);
+		if ( log == null || log.m_removed ) {
+			attach(exec, key, serializer, (log != null) ? log.m_lastSeq : 0).release();
+			exec.start();
+
+			return;
+		}
+
+		Binding<C> binding = attach(exec, key, serializer, log.m_lastSeq);
+		exec.setReplaying(true);
+		try {
+			if ( log.m_checkpoint != null ) {
+				exec.restore(log.m_checkpoint, serializer);
+			}
+			exec.start();
+
+			for ( byte[] bytes: log.m_events ) {
+				exec.handleEvent(m_serializer.read(new DataInputStream(new ByteArrayInputStream(bytes))));
+			}
+			s_logger.info("recovered: key={}, checkpoint={}, replayed={}", key,
+							log.m_checkpoint != null, log.m_events.size());
+		}
+		catch ( Exception e ) {
+			exec.setJournalBinding(null);
+			throw e;
+		}
+		finally {
+			exec.setReplaying(false);
+		}
+
+		// 재처리 중에 기록된 이벤트들을 기록 순서대로 이벤트 큐에 추가한다.
+		binding.release();
+	}
+
+	/**
+	 * 주어진 키의 수행이 종료되어 더 이상 복구할 필요가 없음을 기록한다.
+	 * <p>
+	 * 이후 해당 키로 기록된 내용만을 포함하는 저널 파일들은 삭제될 수 있다.
+	 *
+	 * @param exec	대상 상태차트 수행.
+	 */
+	public void remove(StatechartExecution<?> exec) {
+		Binding<?> binding = exec.getJournalBinding();
+		if ( binding != null && binding.m_journal == this ) {
+			exec.setJournalBinding(null);
+			binding.remove();
+		}
+	}
+
+	/**
+	 * 기록되지 않은 이벤트들을 모두 기록한 후 저널을 닫는다.
+	 * <p>
+	 * 저널이 닫힌 후 연결된 수행에 전달되는 이벤트는 {@link IllegalStateException}으로 거부된다.
+	 * 닫히기 전에 요청된 기록은 모두 기록되고 처리된다.
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized ( m_submitLock ) {
+			m_closed = true;
+		}
+		try {
+			m_writer.join();
+		}
+		catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+		}
+		m_channel.close();
+	}
+
+	// 연결된 수행의 이벤트들은 'Binding.release()'가 호출될 때까지 기록만 되고 처리되지 않는다.
+	private <C extends StatechartExecution<C>> Binding<C> attach(C exec, String key,
+																ContextSerializer<C> serializer,
+																long lastSeq) {
+		Objects.requireNonNull(key, "journal key was null");
+		Preconditions.checkState(!m_closed, "journal has been closed");
+		// 기록된 이벤트는 복구시 다시 처리되므로, 큐가 가득 찼다고 버릴 수 없다.
+		Preconditions.checkArgument(exec.getEventQueueCapacity() == Integer.MAX_VALUE
+									|| exec.getOverflowPolicy() != OverflowPolicy.DROP_OLDEST,
+									"DROP_OLDEST cannot be used with an event journal: exec=" + exec);
+		// 타이머 만료에 의한 전이는 기록되지 않으므로, 재처리시 다른 상태에서 이벤트를 처리하게 된다.
+		Preconditions.checkArgument(!hasTimeouts(exec.getStatechart()),
+									"statechart with state timeouts cannot be journaled: exec=" + exec);
+
+		Binding<C> binding = new Binding<>(this, exec, key, serializer, lastSeq);
+		exec.setJournalBinding(binding);
+
+		return binding;
+	}
+
+	private static boolean hasTimeouts(Statechart<?> schart) {
+		for ( int i =0; i < schart.getStateCount(); ++i ) {
+			if ( !schart.getStateById(i).getTimeouts().isEmpty() ) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * 저널과 하나의 상태차트 수행 사이의 연결을 정의한다.
+	 */
+	static final class Binding<C extends StatechartExecution<C>> {
+		private final EventJournal m_journal;
+		private final C m_exec;
+		private final String m_key;
+		private final ContextSerializer<C> m_serializer;
+		@GuardedBy("this") private long m_seq;
+		@GuardedBy("this") private List<Runnable> m_held = new ArrayList<>();	// 보류 중인 전달 (해제 후는 null)
+
+		Binding(EventJournal journal, C exec, String key, ContextSerializer<C> serializer, long lastSeq) {
+			m_journal = journal;
+			m_exec = exec;
+			m_key = key;
+			m_serializer = serializer;
+			m_seq = lastSeq;
+		}
+
+		/**
+		 * 이벤트를 저널에 기록하고, 디스크 반영 후 수행의 이벤트 큐에 추가하도록 한다.
+		 * <p>
+		 * 기록 요청 전에 수행의 이벤트 큐에 자리를 예약하므로, 기록 중인 이벤트도 큐 용량에 포함된다.
+		 * 우선 처리 대상인 {@link ControlEvent}는 용량 제한을 받지 않는다.
+		 *
+		 * @param event		기록할 이벤트.
+		 * @param policy	큐가 가득 찬 경우의 처리 정책.
+		 * @return	기록이 요청된 경우는 <code>true</code>, 큐가 가득 차서 버려진 경우는 <code>false</code>.
+		 * @throws EventQueueFullException	큐가 가득 차서 이벤트가 거부된 경우.
+		 */
+		boolean append(Event event, OverflowPolicy policy) {
+			boolean reserved = !(event instanceof ControlEvent);
+			if ( reserved && !m_exec.reserveEvent(event, policy) ) {
+				return false;
+			}
+
+			try {
+				ByteArrayOutputStream baos = new ByteArrayOutputStream(128);
+				m_journal.m_serializer.write(event, new DataOutputStream(baos));
+				byte[] payload = baos.toByteArray();
+
+				// 수행별 이벤트 순서와 저널 기록 순서가 일치하도록 순번 부여와 기록 요청을 함께 수행한다.
+				synchronized ( this ) {
+					long seq = m_seq + 1;
+					m_journal.submit(new Append(TYPE_EVENT, m_key, seq, payload,
+												() -> deliver(seq, event, reserved),
+												cause -> failed(event, reserved, cause)));
+					m_seq = seq;
+				}
+
+				return true;
+			}
+			catch ( IOException e ) {
+				unreserve(reserved);
+				throw new IllegalArgumentException("fails to serialize event: " + event, e);
+			}
+			catch ( RuntimeException e ) {
+				unreserve(reserved);
+				throw e;
+			}
+		}
+
+		/**
+		 * 보류된 이벤트들을 기록 순서대로 이벤트 큐에 추가하고, 이후에는 기록되는 대로 추가한다.
+		 */
+		synchronized void release() {
+			List<Runnable> held = m_held;
+			m_held = null;
+			if ( held != null ) {
+				held.forEach(Runnable::run);
+			}
+		}
+
+		// 기록 쓰레드에서 저널 순서대로 호출된다.
+		private synchronized void deliver(long seq, Event event, boolean reserved) {
+			if ( m_held != null ) {
+				m_held.add(() -> deliver(seq, event, reserved));
+				return;
+			}
+
+			m_exec.deliverEvent(event, reserved);
+
+			if ( seq % m_journal.m_checkpointInterval == 0 ) {
+				// 체크포인트 작업은 'seq'까지의 이벤트가 모두 처리된 후, 다음 이벤트 처리 전에 수행된다.
+				m_exec.enqueueAction(() -> checkpoint(seq));
+			}
+		}
+
+		private void checkpoint(long seq) {
+			if ( !m_exec.isRunning() ) {
+				return;
+			}
+
+			try {
+				byte[] snapshot = m_exec.snapshot(m_serializer);
+				m_journal.submit(new Append(TYPE_CHECKPOINT, m_key, seq, snapshot, null, null));
+			}
+			catch ( Exception e ) {
+				s_logger.warn("fails to write checkpoint: key={}, cause={}", m_key, e.toString());
+			}
+		}
+
+		// 디스크 반영이 확인되지 않아 처리되지 않는 이벤트를 수행의 이벤트 처리 쓰레드에서 통보한다.
+		private void failed(Event event, boolean reserved, IOException cause) {
+			unreserve(reserved);
+			m_exec.enqueueAction(() -> m_exec.notifyJournalFailure(event, cause));
+		}
+
+		private void unreserve(boolean reserved) {
+			if ( reserved ) {
+				m_exec.unreserveEvent();
+			}
+		}
+
+		private void remove() {
+			synchronized ( this ) {
+				m_journal.submit(new Append(TYPE_REMOVED, m_key, m_seq, new byte[0], null, null));
+			}
+		}
+	}
+
+	private void submit(Append append) {
+		synchronized ( m_submitLock ) {
+			IOException failure = m_failure;
+			if ( failure != null ) {
+				throw new IllegalStateException("journal has failed", failure);
+			}
+			if ( m_closed ) {
+				throw new IllegalStateException("journal has been closed");
+			}
+
+			m_appends.add(append);
+		}
+	}
+
+	// 기록 쓰레드에서 호출되며, 이후의 기록 요청을 거부하고 기록되지 않은 요청들의 실패를 통보한다.
+	private void fail(IOException cause, List<Append> unwritten) {
+		synchronized ( m_submitLock ) {
+			m_failure = cause;
+			m_appends.drainTo(unwritten);
+		}
+
+		for ( Append append: unwritten ) {
+			if ( append.m_onFailure != null ) {
+				try {
+					append.m_onFailure.accept(cause);
+				}
+				catch ( Throwable e ) {
+					s_logger.warn("fails to notify journal failure: key=" + append.m_key, e);
+				}
+			}
+		}
+	}
+
+	private void runWriter() {
+		List<Append> group = new ArrayList<>();
+		while ( true ) {
+			try {
+				Append first = m_appends.poll(100, TimeUnit.MILLISECONDS);
+				if ( first == null ) {
+					// 닫힌 후에는 더 이상 추가되지 않으므로, 비어 있으면 모두 기록된 것이다.
+					if ( m_closed && m_appends.isEmpty() ) {
+						return;
+					}
+					continue;
+				}
+				group.add(first);
+				m_appends.drainTo(group, MAX_GROUP_SIZE-1);
+			}
+			catch ( InterruptedException e ) {
+				return;
+			}
+
+			try {
+				writeGroup(group);
+			}
+			catch ( IOException e ) {
+				// 디스크 반영이 확인되지 않은 이벤트는 처리하지 않는다.
+				s_logger.error("journal write failed; stop accepting events: dir=" + m_dir, e);
+				fail(e, group);
+				return;
+			}
+
+			for ( Append append: group ) {
+				if ( append.m_onCommit != null ) {
+					try {
+						append.m_onCommit.run();
+					}
+					catch ( Throwable e ) {
+						s_logger.warn("fails to deliver journaled event: key=" + append.m_key, e);
+					}
+				}
+			}
+			group.clear();
+
+			try {
+				rollSegmentIfNeeded();
+			}
+			catch ( IOException e ) {
+				s_logger.error("fails to roll journal segment; stop accepting events: dir=" + m_dir, e);
+				fail(e, group);
+				return;
+			}
+			deleteObsoleteSegments();
+		}
+	}
+
+	private void writeGroup(List<Append> group) throws IOException {
+		Segment segment = m_segments.get(m_segments.size()-1);
+
+		int total = 0;
+		for ( Append append: group ) {
+			total += append.recordSize();
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate(total);
+		for ( Append append: group ) {
+			append.writeTo(buffer);
+
+			switch ( append.m_type ) {
+				case TYPE_EVENT:
+					segment.m_maxSeqs.put(append.m_key, append.m_seq);
+					clearRemoved(append.m_key);
+					break;
+				case TYPE_CHECKPOINT:
+					m_checkpointSeqs.put(append.m_key, append.m_seq);
+					m_checkpointSegments.put(append.m_key, segment);
+					break;
+				case TYPE_REMOVED:
+					m_checkpointSeqs.put(append.m_key, Long.MAX_VALUE);
+					m_checkpointSegments.remove(append.m_key);
+					break;
+			}
+		}
+		buffer.flip();
+
+		while ( buffer.hasRemaining() ) {
+			m_channel.write(buffer);
+		}
+		m_channel.force(false);
+		segment.m_size += total;
+	}
+
+	// 종료가 기록된 키로 다시 이벤트가 기록되는 경우
+	private void clearRemoved(String key) {
+		Long cpSeq = m_checkpointSeqs.get(key);
+		if ( cpSeq != null && cpSeq == Long.MAX_VALUE ) {
+			m_checkpointSeqs.remove(key);
+		}
+	}
+
+	// 새 파일을 먼저 연 후에 이전 파일을 닫으므로, 실패하더라도 열린 채널이 남지 않는다.
+	private void rollSegmentIfNeeded() throws IOException {
+		Segment current = m_segments.get(m_segments.size()-1);
+		if ( current.m_size >= m_maxSegmentSize ) {
+			FileChannel prev = m_channel;
+			openNewSegment();
+			try {
+				prev.close();
+			}
+			catch ( IOException e ) {
+				s_logger.warn("fails to close journal segment: file={}, cause={}", current.m_file, e.toString());
+			}
+		}
+	}
+
+	// 현재 파일을 제외하고, 포함된 모든 키의 이벤트가 이후의 체크포인트에 반영된 파일들을 삭제한다.
+	// 삭제에 실패한 파일은 다음 기록 후에 다시 시도한다.
+	private void deleteObsoleteSegments() {
+		for ( int i = m_segments.size()-2; i >= 0; --i ) {
+			Segment segment = m_segments.get(i);
+			if ( isObsolete(segment) ) {
+				try {
+					Files.deleteIfExists(segment.m_file.toPath());
+					m_segments.remove(i);
+					s_logger.debug("deleted obsolete journal segment: {}", segment.m_file);
+				}
+				catch ( IOException e ) {
+					s_logger.warn("fails to delete journal segment: file={}, cause={}", segment.m_file,
+									e.toString());
+				}
+			}
+		}
+	}
+
+	private boolean isObsolete(Segment segment) {
+		if ( m_checkpointSegments.containsValue(segment) ) {
+			return false;
+		}
+		for ( Map.Entry<String,Long> entry: segment.m_maxSeqs.entrySet() ) {
+			Long cpSeq = m_checkpointSeqs.get(entry.getKey());
+			if ( cpSeq == null || cpSeq < entry.getValue() ) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private void openNewSegment() throws IOException {
+		long index = m_segments.isEmpty() ? 0 : m_segments.get(m_segments.size()-1).m_index + 1;
+		File file = new File(m_dir, String.format("%s%020d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW,
+												StandardOpenOption.WRITE);
+		m_segments.add(new Segment(file, index));
+		m_channel = channel;
+	}
+
+	private void scanSegments() throws IOException {
+		File[] files = m_dir.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX)
+														&& name.endsWith(SEGMENT_SUFFIX));
+		if ( files == null ) {
+			throw new IOException("cannot list journal directory: " + m_dir);
+		}
+		Arrays.sort(files);
+
+		for ( File file: files ) {
+			String name = file.getName();
+			long index = Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+														name.length() - SEGMENT_SUFFIX.length()));
+			Segment segment = new Segment(file, index);
+			scanSegment(segment);
+			m_segments.add(segment);
+		}
+	}
+
+	private void scanSegment(Segment segment) throws IOException {
+		byte[] bytes = Files.readAllBytes(segment.m_file.toPath());
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+
+		CRC32 crc = new CRC32();
+		int offset = 0;
+		while ( offset + 8 <= bytes.length ) {
+			int length = in.readInt();
+			int checksum = in.readInt();
+			if ( length <= 0 || offset + 8 + length > bytes.length ) {
+				break;
+			}
+			crc.reset();
+			crc.update(bytes, offset + 8, length);
+			if ( (int)crc.getValue() != checksum ) {
+				// 마지막 기록 중에 중단되어 손상된 기록 이후는 무시한다.
+				s_logger.warn("corrupted journal record: file={}, offset={}", segment.m_file, offset);
+				break;
+			}
+
+			try {
+				byte type = in.readByte();
+				String key = in.readUTF();
+				long seq = in.readLong();
+				byte[] payload = new byte[in.readInt()];
+				in.readFully(payload);
+
+				applyRecord(segment, type, key, seq, payload);
+			}
+			catch ( EOFException e ) {
+				break;
+			}
+			offset += 8 + length;
+		}
+		segment.m_size = offset;
+	}
+
+	private void applyRecord(Segment segment, byte type, String key, long seq, byte[] payload) {
+		RecoveryLog log = m_recoveryLogs.computeIfAbsent(key, k -> new RecoveryLog());
+		switch ( type ) {
+			case TYPE_EVENT:
+				segment.m_maxSeqs.put(key, seq);
+				clearRemoved(key);
+				log.addEvent(seq, payload);
+				break;
+			case TYPE_CHECKPOINT:
+				m_checkpointSeqs.put(key, seq);
+				m_checkpointSegments.put(key, segment);
+				log.setCheckpoint(seq, payload);
+				break;
+			case TYPE_REMOVED:
+				m_checkpointSeqs.put(key, Long.MAX_VALUE);
+				m_checkpointSegments.remove(key);
+				log.setRemoved();
+				break;
+		}
+		log.m_lastSeq = Math.max(log.m_lastSeq, seq);
+	}
+
+	private static final class Append {
+		private final byte m_type;
+		private final String m_key;
+		private final long m_seq;
+		private final byte[] m_payload;
+		private final Runnable m_onCommit;
+		private final Consumer<IOException> m_onFailure;
+		private final byte[] m_keyBytes;
+
+		Append(byte type, String key, long seq, byte[] payload, Runnable onCommit,
+				Consumer<IOException> onFailure) {
+			m_type = type;
+			m_key = key;
+			m_seq = seq;
+			m_payload = payload;
+			m_onCommit = onCommit;
+			m_onFailure = onFailure;
+			m_keyBytes = encodeUTF(key);
+		}
+
+		// 기록 형식: length(4), crc32(4), type(1), key(UTF), seq(8), payload length(4), payload
+		int recordSize() {
+			return 8 + bodySize();
+		}
+
+		private int bodySize() {
+			return 1 + m_keyBytes.length + 8 + 4 + m_payload.length;
+		}
+
+		void writeTo(ByteBuffer buffer) {
+			int start = buffer.position();
+			buffer.putInt(bodySize());
+			buffer.putInt(0);
+			buffer.put(m_type);
+			buffer.put(m_keyBytes);
+			buffer.putLong(m_seq);
+			buffer.putInt(m_payload.length);
+			buffer.put(m_payload);
+
+			CRC32 crc = new CRC32();
+			crc.update(buffer.array(), start + 8, bodySize());
+			buffer.putInt(start + 4, (int)crc.getValue());
+		}
+
+		private static byte[] encodeUTF(String str) {
+			try {
+				ByteArrayOutputStream baos = new ByteArrayOutputStream(str.length() + 2);
+				new DataOutputStream(baos).writeUTF(str);
+				return baos.toByteArray();
+			}
+			catch ( IOException e ) {
+				throw new IllegalArgumentException("invalid journal key: " + str, e);
+			}
+		}
+	}
+
+	private static final class Segment {
+		private final File m_file;
+		private final long m_index;
+		private final Map<String,Long> m_maxSeqs = new HashMap<>();	// 키별 마지막 이벤트 순번
+		private long m_size = 0;
+
+		Segment(File file, long index) {
+			m_file = file;
+			m_index = index;
+		}
+	}
+
+	private static final class RecoveryLog {
+		private byte[] m_checkpoint;
+		private long m_checkpointSeq = 0;
+		private final List<byte[]> m_events = new ArrayList<>();	// 체크포인트 이후의 이벤트들
+		private final List<Long> m_eventSeqs = new ArrayList<>();
+		private long m_lastSeq = 0;
+		private boolean m_removed = false;
+
+		void addEvent(long seq, byte[] payload) {
+			m_removed = false;
+			if ( seq > m_checkpointSeq ) {
+				m_events.add(payload);
+				m_eventSeqs.add(seq);
+			}
+		}
+
+		// 체크포인트 기록은 해당 순번보다 뒤의 이벤트 기록 이후에 저장될 수 있으므로,
+		// 순번을 기준으로 체크포인트에 반영된 이벤트들을 제거한다.
+		void setCheckpoint(long seq, byte[] snapshot) {
+			if ( seq < m_checkpointSeq ) {
+				return;
+			}
+			m_checkpoint = snapshot;
+			m_checkpointSeq = seq;
+
+			int idx = 0;
+			while ( idx < m_eventSeqs.size() && m_eventSeqs.get(idx) <= seq ) {
+				++idx;
+			}
+			m_events.subList(0, idx).clear();
+			m_eventSeqs.subList(0, idx).clear();
+		}
+
+		void setRemoved() {
+			m_removed = true;
+			m_checkpoint = null;
+			m_checkpointSeq = 0;
+			m_events.clear();
+			m_eventSeqs.clear();
+		}
+	}
+}
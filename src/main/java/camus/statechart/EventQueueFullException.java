@@ -0,0 +1,16 @@
+package camus.statechart;
+
+
+/**
+ * 상태차트 수행의 이벤트 큐가 가득 차서 이벤트를 추가할 수 없는 경우 발생되는 예외를 정의한다.
+ *
+ * @see StatechartExecution#setEventQueueCapacity(int, OverflowPolicy)
+ * @author Kang-Woo Lee (ETRI)
+ */
+public class EventQueueFullException extends RuntimeException {
+	private static final long serialVersionUID = -3470857046392521094L;
+
+	public EventQueueFullException(String details) {
+		super(details);
+	}
+}
@@ -0,0 +1,33 @@
+package camus.statechart;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import event.Event;
+
+
+/**
+ * <code>EventSerializer</code>는 {@link EventJournal}에 기록될 이벤트의 직렬화 방법을 정의한다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+public interface EventSerializer {
+	/**
+	 * 주어진 이벤트를 기록한다.
+	 *
+	 * @param event	기록할 이벤트.
+	 * @param out	기록 대상.
+	 * @throws IOException	기록 중 오류가 발생된 경우.
+	 */
+	public void write(Event event, DataOutput out) throws IOException;
+
+	/**
+	 * {@link #write(Event, DataOutput)}로 기록된 이벤트를 읽는다.
+	 *
+	 * @param in	입력 대상.
+	 * @return	복원된 이벤트 객체.
+	 * @throws IOException	입력 중 오류가 발생된 경우.
+	 */
+	public Event read(DataInput in) throws IOException;
+}
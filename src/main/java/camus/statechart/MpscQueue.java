@@ -0,0 +1,123 @@
+package camus.statechart;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Predicate;
+
+
+/**
+ * <code>MpscQueue</code>는 여러 생산자 쓰레드와 하나의 소비자 쓰레드 사이에서 사용하는
+ * 잠금을 사용하지 않는 연결 리스트 기반 큐를 정의한다.
+ * <p>
+ * {@link #offer(Object)}는 여러 쓰레드에서 동시에 호출될 수 있으며, 한번의 원자적 교환 연산만으로
+ * 완료된다. {@link #poll()}과 {@link #peek()}은 동시에 하나의 쓰레드에서만 호출되어야 한다.
+ * <p>
+ * 생산자가 원자적 교환을 마치고 이전 노드에 연결하기 전까지의 짧은 구간 동안은 {@link #poll()}이
+ * 원소를 반환하지 못할 수 있다. 반면 {@link #isEmpty()}는 원자적 교환이 끝난 원소를 포함하여
+ * 판단하므로, 소비자는 대기 여부를 표시하는 volatile 변수를 기록한 후 {@link #isEmpty()}를 확인하고,
+ * 생산자는 {@link #offer(Object)} 후 해당 변수를 확인하여 소비자를 깨우는 방식으로 깨우기 누락 없이
+ * 대기할 수 있다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+final class MpscQueue<E> {
+	private final AtomicReference<Node<E>> m_tail;
+	private volatile Node<E> m_head;	// 소비자만 변경함
+
+	MpscQueue() {
+		Node<E> stub = new Node<>(null);
+		m_head = stub;
+		m_tail = new AtomicReference<>(stub);
+	}
+
+	void offer(E elm) {
+		Node<E> node = new Node<>(elm);
+		Node<E> prev = m_tail.getAndSet(node);
+		Node.NEXT.lazySet(prev, node);
+	}
+
+	E poll() {
+		Node<E> head = m_head;
+		Node<E> next = head.m_next;
+		if ( next == null ) {
+			return null;
+		}
+
+		E elm = next.m_value;
+		next.m_value = null;
+		m_head = next;
+
+		return elm;
+	}
+
+	E peek() {
+		Node<E> next = m_head.m_next;
+		return (next != null) ? next.m_value : null;
+	}
+
+	/**
+	 * 큐가 비어있는지 여부를 반환한다.
+	 * <p>
+	 * 원자적 교환은 끝났으나 아직 연결되지 않은 원소가 있는 경우도 비어있지 않은 것으로 판단한다.
+	 * 본 메소드는 소비자 연산이다.
+	 *
+	 * @return	비어있는 경우는 <code>true</code>.
+	 */
+	boolean isEmpty() {
+		return m_tail.get() == m_head;
+	}
+
+	/**
+	 * 주어진 조건을 만족하는 첫번째 원소를 찾아 큐에서 제거한다.
+	 * <p>
+	 * 마지막 원소는 생산자가 동시에 다음 노드를 연결할 수 있으므로 제거하지 않는다.
+	 * 본 메소드는 소비자 연산이므로 {@link #poll()}과 동시에 호출되어서는 안된다.
+	 *
+	 * @param pred	제거 조건.
+	 * @return	제거된 원소. 조건을 만족하는 원소가 없거나 마지막 원소인 경우는 <code>null</code>.
+	 */
+	E removeFirst(Predicate<? super E> pred) {
+		Node<E> prev = m_head;
+		for ( Node<E> node = prev.m_next; node != null; prev = node, node = node.m_next ) {
+			if ( pred.test(node.m_value) ) {
+				Node<E> next = node.m_next;
+				if ( next == null ) {
+					return null;
+				}
+
+				E elm = node.m_value;
+				node.m_value = null;
+				prev.m_next = next;
+
+				return elm;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * 큐의 마지막 원소를 반환한다.
+	 * <p>
+	 * 본 메소드는 소비자 연산이므로 {@link #poll()}과 동시에 호출되어서는 안된다.
+	 *
+	 * @return	마지막 원소. 큐가 비어있거나 마지막 원소가 아직 연결되지 않은 경우는 <code>null</code>.
+	 */
+	E peekLast() {
+		Node<E> tail = m_tail.get();
+		return (tail != m_head) ? tail.m_value : null;
+	}
+
+	private static final class Node<E> {
+		@SuppressWarnings("rawtypes")
+		private static final AtomicReferenceFieldUpdater<Node,Node> NEXT
+							= AtomicReferenceFieldUpdater.newUpdater(Node.class, Node.class, "m_next");
+		
+		private E m_value;
+		private volatile Node<E> m_next;
+
+		Node(E value) {
+			m_value = value;
+		}
+	}
+}
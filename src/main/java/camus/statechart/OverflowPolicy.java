@@ -0,0 +1,27 @@
+package camus.statechart;
+
+
+/**
+ * <code>OverflowPolicy</code>는 용량이 제한된 이벤트 큐가 가득 찬 상태에서
+ * {@link StatechartExecution#receiveEvent(event.Event)}로 이벤트가 전달된 경우의 처리 방법을 정의한다.
+ * <p>
+ * 정책과 무관하게 {@link StatechartExecution#offer(event.Event)}는 대기하거나 예외를 발생시키지 않고
+ * 추가 여부만을 반환한다.
+ *
+ * @see StatechartExecution#setEventQueueCapacity(int, OverflowPolicy)
+ * @author Kang-Woo Lee (ETRI)
+ */
+public enum OverflowPolicy {
+	/**
+	 * 큐에 빈 자리가 생길 때까지 이벤트를 전달한 쓰레드를 대기시킨다.
+	 * 이벤트 처리 쓰레드가 자신의 수행에 이벤트를 전달한 경우는 교착 상태를 피하기 위해
+	 * {@link EventQueueFullException}을 발생시킨다.
+	 */
+	BLOCK,
+	/** {@link EventQueueFullException}을 발생시킨다. */
+	REJECT,
+	/** 새로 전달된 이벤트를 버린다. */
+	DROP_NEWEST,
+	/** 큐에서 가장 오래 기다린 이벤트를 버리고 새 이벤트를 추가한다. */
+	DROP_OLDEST;
+}
@@ -0,0 +1,467 @@
+package camus.statechart;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+import event.Event;
+
+
+/**
+ * <code>PassivationManager</code>는 오랫동안 이벤트를 받지 않은 상태차트 수행을 스냅샷으로 저장하고
+ * 메모리에서 제거(비활성화)하였다가, 해당 수행에 이벤트가 전달되면 다시 복원(활성화)하는 관리자를 정의한다.
+ * <p>
+ * 관리 대상 수행들은 응용이 부여한 키로 식별되며, 이벤트는 {@link #receiveEvent(String, Event)}를
+ * 통해 전달되어야 한다. 비활성화된 수행에 이벤트가 전달되면 수행 생성 함수로 새 수행 객체를 생성하고
+ * 저장된 스냅샷으로 복원한 후({@link StatechartExecution#restore(byte[], ContextSerializer)})
+ * 이벤트를 전달한다. 비활성화와 복원 과정에서 상태의 진입/탈출 동작은 호출되지 않는다.
+ * <p>
+ * 비활성화는 주기적으로 수행되며, 다음 조건을 만족하는 수행들을 가장 오래 전에 사용된 순서(LRU)로
+ * 비활성화한다. 처리 중인 이벤트나 만료되지 않은 타이머가 있는 수행과, 활성 상태 중 하나가
+ * 비활성화를 거부하는({@link State#isPassivatable(StatechartExecution)}) 수행은 비활성화되지 않는다.
+ * <ul>
+ * 	<li> 마지막 이벤트 이후 설정된 유휴 시간 이상 경과한 수행.
+ * 	<li> 활성 수행의 수 또는 추정 메모리 크기가 설정된 한도를 넘는 경우, 한도 이내가 될 때까지의 수행.
+ * </ul>
+ * 비활성화된 수행 객체는 더 이상 사용되지 않으므로, 응용은 관리자에 등록한 수행 객체를 직접 참조하지
+ * 않고 {@link #getExecution(String)}을 통해 접근하여야 한다. 단, 비활성화 이전에 수행 객체를 획득한
+ * 생산자가 이벤트를 전달하는 경우에도 이벤트가 버려지지 않도록, 비활성화된 수행 객체에 전달된
+ * 이벤트는 본 관리자를 통해 복원된 수행에 전달된다. 등록이 해제된 후에는
+ * {@link IllegalArgumentException}이 발생한다. 비활성화된 수행 객체는 다시 시작할 수 없다.
+ * <p>
+ * 본 클래스는 ThreadSafe하도록 구현되었다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+public class PassivationManager<C extends StatechartExecution<C>> implements Closeable {
+	private static final Logger s_logger = LoggerFactory.getLogger(PassivationManager.class);
+
+	private final PassivationStore m_store;
+	private final Function<String,C> m_factory;
+	private final ContextSerializer<C> m_serializer;
+	private final long m_idleNanos;
+	private final Map<String,Entry<C>> m_entries = new ConcurrentHashMap<>();
+	@GuardedBy("m_resident") private final LinkedHashMap<String,Entry<C>> m_resident
+															= new LinkedHashMap<>(16, 0.75f, true);
+	private final ScheduledExecutorService m_sweeper;
+
+	private volatile int m_maxResidentCount = Integer.MAX_VALUE;
+	private volatile long m_maxResidentBytes = Long.MAX_VALUE;
+	private volatile ToLongFunction<? super C> m_sizeEstimator = exec -> 0;
+
+	/**
+	 * 비활성화 관리자를 생성한다.
+	 *
+	 * @param store			스냅샷 저장소.
+	 * @param factory		비활성화된 수행을 복원할 때 사용할 수행 생성 함수.
+	 * 						생성된 수행은 시작되지 않은 상태이어야 한다.
+	 * @param serializer	응용 데이터 직렬화 객체. <code>null</code>인 경우는 응용 데이터를 저장하지 않는다.
+	 * @param idleTime		비활성화 대상이 되는 유휴 시간.
+	 * @param unit			유휴 시간 단위.
+	 */
+	public PassivationManager(PassivationStore store, Function<String,C> factory,
+							ContextSerializer<C> serializer, long idleTime, TimeUnit unit) {
+		Objects.requireNonNull(store, "PassivationStore was null");
+		Objects.requireNonNull(factory, "execution factory was null");
+		Preconditions.checkArgument(idleTime > 0, "invalid idle time: " + idleTime);
+
+		m_store = store;
+		m_factory = factory;
+		m_serializer = serializer;
+		m_idleNanos = unit.toNanos(idleTime);
+
+		m_sweeper = Executors.newSingleThreadScheduledExecutor(task -> {
+			Thread thread = new Thread(task, "statechart-passivation");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long period = Math.max(unit.toMillis(idleTime) / 2, 10);
+		m_sweeper.scheduleWithFixedDelay(this::sweep, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * 동시에 활성화된 상태로 유지할 최대 수행 갯수를 설정한다.
+	 *
+	 * @param count	최대 활성 수행 갯수.
+	 */
+	public void setMaxResidentCount(int count) {
+		Preconditions.checkArgument(count > 0, "invalid resident count: " + count);
+
+		m_maxResidentCount = count;
+	}
+
+	/**
+	 * 활성화된 수행들이 차지하는 추정 메모리 크기의 한도를 설정한다.
+	 *
+	 * @param bytes		최대 추정 메모리 크기 (바이트).
+	 * @param estimator	수행 객체별 메모리 크기 추정 함수.
+	 */
+	public void setMaxResidentBytes(long bytes, ToLongFunction<? super C> estimator) {
+		Preconditions.checkArgument(bytes > 0, "invalid resident bytes: " + bytes);
+		Objects.requireNonNull(estimator, "size estimator was null");
+
+		m_sizeEstimator = estimator;
+		m_maxResidentBytes = bytes;
+	}
+
+	/**
+	 * 시작된 상태차트 수행을 주어진 키로 등록한다.
+	 *
+	 * @param key	수행 식별 키.
+	 * @param exec	등록할 상태차트 수행.
+	 * @throws IllegalArgumentException	이미 같은 키로 등록된 수행이 있는 경우.
+	 */
+	public void register(String key, C exec) {
+		Objects.requireNonNull(key, "key was null");
+		Objects.requireNonNull(exec, "StatechartExecution was null");
+
+		Entry<C> entry = new Entry<>(key, exec);
+		if ( m_entries.putIfAbsent(key, entry) != null ) {
+			throw new IllegalArgumentException("execution already registered: key=" + key);
+		}
+		touch(entry);
+
+		evictOverLimit();
+	}
+
+	/**
+	 * 주어진 키의 수행 등록을 해제한다.
+	 * <p>
+	 * 수행이 활성화된 상태라면 수행 객체는 그대로 유지되며, 비활성화된 상태라면 저장된 스냅샷이 삭제된다.
+	 *
+	 * @param key	수행 식별 키.
+	 * @return	활성화된 수행 객체. 비활성화되어 있었거나 등록되지 않은 경우는 <code>null</code>.
+	 */
+	public C unregister(String key) {
+		Entry<C> entry = m_entries.remove(key);
+		if ( entry == null ) {
+			return null;
+		}
+
+		synchronized ( entry ) {
+			synchronized ( m_resident ) {
+				m_resident.remove(key);
+			}
+
+			C exec = entry.m_exec;
+			entry.m_exec = null;
+			if ( exec == null ) {
+				try {
+					m_store.delete(key);
+				}
+				catch ( IOException e ) {
+					s_logger.warn("fails to delete passivated snapshot: key={}, cause={}", key, e.toString());
+				}
+			}
+
+			return exec;
+		}
+	}
+
+	/**
+	 * 주어진 키의 수행에 이벤트를 전달한다.
+	 * <p>
+	 * 수행이 비활성화된 상태라면 먼저 복원한 후 이벤트를 전달한다.
+	 *
+	 * @param key	수행 식별 키.
+	 * @param event	전달할 이벤트.
+	 * @throws IllegalArgumentException	등록되지 않은 키인 경우.
+	 */
+	public void receiveEvent(String key, Event event) {
+		Entry<C> entry = getEntry(key);
+
+		deliver(entry, event, false);
+	}
+
+	/**
+	 * 주어진 키의 수행 객체를 반환한다. 비활성화된 상태라면 복원한 후 반환한다.
+	 * <p>
+	 * 반환된 객체는 이후 다시 비활성화될 수 있으므로, 응용은 이를 오래 보관하지 않아야 한다.
+	 *
+	 * @param key	수행 식별 키.
+	 * @return	활성화된 수행 객체.
+	 * @throws IllegalArgumentException	등록되지 않은 키인 경우.
+	 */
+	public C getExecution(String key) {
+		Entry<C> entry = getEntry(key);
+
+		C exec;
+		boolean activated;
+		synchronized ( entry ) {
+			activated = ensureResident(entry);
+			exec = entry.m_exec;
+		}
+
+		if ( activated ) {
+			evictOverLimit();
+		}
+
+		return exec;
+	}
+
+	/**
+	 * 주어진 키의 수행이 현재 활성화된 상태인지 여부를 반환한다.
+	 *
+	 * @param key	수행 식별 키.
+	 * @return	활성화된 경우는 <code>true</code>, 비활성화되었거나 등록되지 않은 경우는 <code>false</code>.
+	 */
+	public boolean isResident(String key) {
+		Entry<C> entry = m_entries.get(key);
+		return entry != null && entry.m_exec != null;
+	}
+
+	/**
+	 * 현재 활성화된 수행의 갯수를 반환한다.
+	 *
+	 * @return	활성 수행 갯수.
+	 */
+	public int getResidentCount() {
+		synchronized ( m_resident ) {
+			return m_resident.size();
+		}
+	}
+
+	/**
+	 * 등록된 전체 수행의 갯수를 반환한다.
+	 *
+	 * @return	전체 수행 갯수.
+	 */
+	public int getExecutionCount() {
+		return m_entries.size();
+	}
+
+	/**
+	 * 주어진 키의 수행을 즉시 비활성화한다.
+	 *
+	 * @param key	수행 식별 키.
+	 * @return	비활성화된 경우는 <code>true</code>, 처리 중인 이벤트가 있거나 이미 비활성화된 경우는 <code>false</code>.
+	 */
+	public boolean passivate(String key) {
+		Entry<C> entry = m_entries.get(key);
+		return entry != null && passivate(entry);
+	}
+
+	@Override
+	public void close() {
+		m_sweeper.shutdown();
+	}
+
+	private void deliver(Entry<C> entry, Event event, boolean urgent) {
+		boolean activated;
+		synchronized ( entry ) {
+			// 비활성화 작업과 경쟁하지 않도록 잠금을 획득한 상태에서 이벤트를 큐에 추가한다.
+			activated = ensureResident(entry);
+			entry.m_exec.receiveEvent(event, urgent);
+		}
+
+		if ( activated ) {
+			evictOverLimit();
+		}
+	}
+
+	private Entry<C> getEntry(String key) {
+		Entry<C> entry = m_entries.get(key);
+		if ( entry == null ) {
+			throw new IllegalArgumentException("unknown execution: key=" + key);
+		}
+
+		return entry;
+	}
+
+	// 'entry'에 대한 잠금을 획득한 상태에서 호출된다.
+	private boolean ensureResident(Entry<C> entry) {
+		boolean activated = false;
+		if ( entry.m_exec == null ) {
+			if ( m_entries.get(entry.m_key) != entry ) {
+				throw new IllegalArgumentException("unknown execution: key=" + entry.m_key);
+			}
+
+			activate(entry);
+			activated = true;
+		}
+		touch(entry);
+
+		return activated;
+	}
+
+	private void touch(Entry<C> entry) {
+		entry.m_lastAccess = System.nanoTime();
+		synchronized ( m_resident ) {
+			m_resident.put(entry.m_key, entry);
+		}
+	}
+
+	private void activate(Entry<C> entry) {
+		byte[] snapshot;
+		try {
+			snapshot = m_store.read(entry.m_key);
+		}
+		catch ( IOException e ) {
+			throw new IllegalStateException("fails to read passivated snapshot: key=" + entry.m_key, e);
+		}
+		if ( snapshot == null ) {
+			throw new IllegalStateException("passivated snapshot not found: key=" + entry.m_key);
+		}
+
+		C exec = m_factory.apply(entry.m_key);
+		try {
+			exec.restore(snapshot, m_serializer);
+			exec.start();
+		}
+		catch ( Exception e ) {
+			throw new IllegalStateException("fails to activate execution: key=" + entry.m_key, e);
+		}
+		entry.m_exec = exec;
+
+		try {
+			m_store.delete(entry.m_key);
+		}
+		catch ( IOException e ) {
+			s_logger.warn("fails to delete passivated snapshot: key={}, cause={}", entry.m_key, e.toString());
+		}
+		s_logger.debug("activated: key={}", entry.m_key);
+	}
+
+	private boolean passivate(Entry<C> entry) {
+		C exec;
+		boolean passivated;
+		synchronized ( entry ) {
+			exec = entry.m_exec;
+			if ( exec == null ) {
+				return false;
+			}
+
+			// 비활성화된 수행 객체에 늦게 전달된 이벤트는 본 관리자를 통해 복원된 수행에 전달한다.
+			byte[] snapshot = exec.passivate(m_serializer, (ev, urgent) -> deliver(entry, ev, urgent));
+			if ( snapshot == null ) {
+				return false;
+			}
+
+			try {
+				m_store.write(entry.m_key, snapshot);
+
+				entry.m_exec = null;
+				synchronized ( m_resident ) {
+					m_resident.remove(entry.m_key);
+				}
+				s_logger.debug("passivated: key={}, bytes={}", entry.m_key, snapshot.length);
+				passivated = true;
+			}
+			catch ( IOException e ) {
+				// 저장에 실패한 경우는 수행을 그대로 재개한다.
+				s_logger.warn("fails to passivate execution: key={}, cause={}", entry.m_key, e.toString());
+				resume(entry, exec, snapshot);
+				passivated = false;
+			}
+		}
+
+		// 비활성화 도중 이전 수행 객체의 큐에 추가된 이벤트들을 넘긴다. 이벤트 전달 과정에서
+		// 다른 수행들의 잠금을 획득할 수 있으므로 잠금 밖에서 수행한다.
+		exec.forwardPassivated();
+
+		return passivated;
+	}
+
+	private void resume(Entry<C> entry, C passivated, byte[] snapshot) {
+		C exec = m_factory.apply(entry.m_key);
+		try {
+			exec.restore(snapshot, m_serializer);
+			exec.start();
+			entry.m_exec = exec;
+		}
+		catch ( Exception e ) {
+			s_logger.error("fails to resume execution: key=" + entry.m_key, e);
+			m_entries.remove(entry.m_key, entry);
+			entry.m_exec = null;
+			synchronized ( m_resident ) {
+				m_resident.remove(entry.m_key);
+			}
+		}
+	}
+
+	private void sweep() {
+		try {
+			long now = System.nanoTime();
+			for ( Entry<C> entry: snapshotResidents() ) {
+				if ( now - entry.m_lastAccess < m_idleNanos ) {
+					// LRU 순서이므로 이후의 수행들은 모두 유휴 시간 이내이다.
+					break;
+				}
+				passivate(entry);
+			}
+
+			evictOverLimit();
+		}
+		catch ( Throwable e ) {
+			s_logger.warn("passivation sweep failed", e);
+		}
+	}
+
+	private void evictOverLimit() {
+		int maxCount = m_maxResidentCount;
+		long maxBytes = m_maxResidentBytes;
+		if ( maxCount == Integer.MAX_VALUE && maxBytes == Long.MAX_VALUE ) {
+			return;
+		}
+
+		List<Entry<C>> residents = snapshotResidents();
+		int count = residents.size();
+		long bytes = 0;
+		if ( maxBytes != Long.MAX_VALUE ) {
+			ToLongFunction<? super C> estimator = m_sizeEstimator;
+			for ( Entry<C> entry: residents ) {
+				C exec = entry.m_exec;
+				if ( exec != null ) {
+					bytes += entry.m_bytes = estimator.applyAsLong(exec);
+				}
+			}
+		}
+
+		for ( Iterator<Entry<C>> iter = residents.iterator();
+				iter.hasNext() && (count > maxCount || bytes > maxBytes); ) {
+			Entry<C> entry = iter.next();
+			long entryBytes = entry.m_bytes;
+			if ( passivate(entry) ) {
+				--count;
+				bytes -= entryBytes;
+			}
+		}
+	}
+
+	// 가장 오래 전에 사용된 순서의 활성 수행 리스트
+	private List<Entry<C>> snapshotResidents() {
+		synchronized ( m_resident ) {
+			return new ArrayList<>(m_resident.values());
+		}
+	}
+
+	private static final class Entry<C extends StatechartExecution<C>> {
+		private final String m_key;
+		private volatile C m_exec;		// 비활성화된 경우는 null
+		private volatile long m_lastAccess;
+		private long m_bytes;			// 마지막으로 추정된 메모리 크기
+
+		Entry(String key, C exec) {
+			m_key = key;
+			m_exec = exec;
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package camus.statechart;
+
+import java.io.File;
+import java.io.IOException;
+
+
+/**
+ * <code>PassivationStore</code>는 {@link PassivationManager}가 비활성화된 상태차트 수행의
+ * 스냅샷을 저장하는 저장소 인터페이스를 정의한다.
+ * <p>
+ * 기본으로 제공되는 저장소는 다음과 같다.
+ * <ul>
+ * 	<li> {@link #directory(File)}: 수행별로 하나의 파일에 저장한다.
+ * 	<li> {@link #memory()}: 메모리에 바이트 배열로 저장한다. 수행 객체 전체를 유지하는 것보다
+ * 		훨씬 적은 메모리를 사용한다.
+ * </ul>
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+public interface PassivationStore {
+	/**
+	 * 주어진 키에 해당하는 스냅샷을 저장한다. 이미 저장된 스냅샷이 있는 경우는 대체한다.
+	 *
+	 * @param key		수행 식별 키.
+	 * @param snapshot	스냅샷 데이터.
+	 * @throws IOException	저장 중 오류가 발생된 경우.
+	 */
+	public void write(String key, byte[] snapshot) throws IOException;
+
+	/**
+	 * 주어진 키에 해당하는 스냅샷을 읽는다.
+	 *
+	 * @param key	수행 식별 키.
+	 * @return	스냅샷 데이터. 저장된 것이 없는 경우는 <code>null</code>.
+	 * @throws IOException	읽는 중 오류가 발생된 경우.
+	 */
+	public byte[] read(String key) throws IOException;
+
+	/**
+	 * 주어진 키에 해당하는 스냅샷을 삭제한다.
+	 *
+	 * @param key	수행 식별 키.
+	 * @throws IOException	삭제 중 오류가 발생된 경우.
+	 */
+	public void delete(String key) throws IOException;
+
+	/**
+	 * 주어진 디렉토리에 수행별로 하나의 파일을 생성하여 저장하는 저장소를 반환한다.
+	 *
+	 * @param dir	저장 디렉토리.
+	 * @return	파일 기반 저장소.
+	 */
+	public static PassivationStore directory(File dir) {
+		return new PassivationStores.DirectoryStore(dir);
+	}
+
+	/**
+	 * 메모리에 저장하는 저장소를 반환한다.
+	 *
+	 * @return	메모리 기반 저장소.
+	 */
+	public static PassivationStore memory() {
+		return new PassivationStores.MemoryStore();
+	}
+}
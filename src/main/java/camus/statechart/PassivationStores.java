@@ -0,0 +1,98 @@
+package camus.statechart;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.common.io.BaseEncoding;
+
+
+/**
+ * {@link PassivationStore}의 기본 구현 클래스들을 정의한다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+final class PassivationStores {
+	private PassivationStores() {
+		throw new AssertionError("Should not be called: class=" + PassivationStores.class.getName());
+	}
+
+	static class DirectoryStore implements PassivationStore {
+		private final File m_dir;
+
+		DirectoryStore(File dir) {
+			Objects.requireNonNull(dir, "store directory was null");
+
+			m_dir = dir;
+		}
+
+		@Override
+		public void write(String key, byte[] snapshot) throws IOException {
+			Path file = toPath(key);
+			Files.createDirectories(file.getParent());
+
+			// 기록 도중 중단되더라도 이전 스냅샷이 손상되지 않도록 임시 파일에 기록한 후 교체한다.
+			Path tmp = Files.createTempFile(file.getParent(), ".tmp-", ".snapshot");
+			try {
+				Files.write(tmp, snapshot);
+				Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			finally {
+				Files.deleteIfExists(tmp);
+			}
+		}
+
+		@Override
+		public byte[] read(String key) throws IOException {
+			Path file = toPath(key);
+			return Files.exists(file) ? Files.readAllBytes(file) : null;
+		}
+
+		@Override
+		public void delete(String key) throws IOException {
+			Files.deleteIfExists(toPath(key));
+		}
+
+		// 키에는 파일 이름으로 사용할 수 없는 문자가 포함될 수 있으므로 인코딩하여 사용한다.
+		private Path toPath(String key) {
+			String name = BaseEncoding.base32Hex().omitPadding()
+										.encode(key.getBytes(StandardCharsets.UTF_8));
+			return new File(m_dir, name + ".snapshot").toPath();
+		}
+
+		@Override
+		public String toString() {
+			return "DirectoryStore[" + m_dir + "]";
+		}
+	}
+
+	static class MemoryStore implements PassivationStore {
+		private final Map<String,byte[]> m_snapshots = new ConcurrentHashMap<>();
+
+		@Override
+		public void write(String key, byte[] snapshot) {
+			m_snapshots.put(key, snapshot);
+		}
+
+		@Override
+		public byte[] read(String key) {
+			return m_snapshots.get(key);
+		}
+
+		@Override
+		public void delete(String key) {
+			m_snapshots.remove(key);
+		}
+
+		@Override
+		public String toString() {
+			return "MemoryStore[size=" + m_snapshots.size() + "]";
+		}
+	}
+}
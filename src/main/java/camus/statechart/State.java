@@ -1,41 +1,204 @@
-package camus.statechart;
-
-import java.util.Collection;
-
-import event.Event;
-
-/**
- * 
- * @author Kang-Woo Lee (ETRI)
- */
-public interface State<C extends StatechartExecution<C>> {
-	public static final String FINISH_STATE_GUID = "/finished";
-	public static final String STOP_PROPAGATE_GUID = "$$stop_propagate";
-	
-	public State<C> getParentState();
-	public String getGuid();
-	public String getLuid();
-	
-	public default boolean isComposite() {
-		return !getChildStates().isEmpty();
-	}
-	public default boolean isFinal() {
-		return this instanceof FinalState;
-	}
-	
-	public State<C> getInitialChildState();
-	public State<C> getChildState(String luid);
-	public Collection<State<C>> getChildStates();
-	public boolean isAncestorOf(State<C> state);
-	
-	public State<C> getRecentChildState();
-	public void setRecentChildState(String stateId);
-	
-	public State<C> getExceptionState();
-	
-	public default String enter(C context) {
-		return null;
-	}
-	public default void leave(C context) { }
-	public String handleEvent(C context, Event event);
-}
+package camus.statechart;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import event.Event;
+
+/**
+ * 
+ * @author Kang-Woo Lee (ETRI)
+ */
+public interface State<C extends StatechartExecution<C>> {
+	public static final String FINISH_STATE_GUID = "/finished";
+	public static final String STOP_PROPAGATE_GUID = "$$stop_propagate";
+	
+	public State<C> getParentState();
+	public String getGuid();
+	public String getLuid();
+	
+	public default boolean isComposite() {
+		return !getChildStates().isEmpty();
+	}
+	public default boolean isFinal() {
+		return this instanceof FinalState;
+	}
+	
+	public State<C> getInitialChildState();
+	public State<C> getChildState(String luid);
+	public Collection<State<C>> getChildStates();
+	public boolean isAncestorOf(State<C> state);
+	
+	/**
+	 * 본 상태가 최근에 활성화되었던 자식 상태를 기록하는지 여부를 반환한다.
+	 * <p>
+	 * 기록된 자식 상태는 상태차트 수행별로 유지되며, {@link StatechartExecution#getRecentChildState(State)}를
+	 * 통해 얻을 수 있다.
+	 * 
+	 * @return	기록하는 경우는 <code>true</code>, 그렇지 않은 경우는 <code>false</code>.
+	 */
+	public default boolean keepsHistory() {
+		return false;
+	}
+	
+	/**
+	 * 본 상태가 최근에 활성화되었던 자식 상태를 반환한다.
+	 * 
+	 * @deprecated	상태 객체는 여러 수행에서 공유되므로 수행별 기록을 갖지 않는다.
+	 * 				{@link StatechartExecution#getRecentChildState(State)}를 사용한다.
+	 * 				기본 구현은 항상 <code>null</code>을 반환한다.
+	 */
+	@Deprecated
+	public default State<C> getRecentChildState() {
+		return null;
+	}
+	
+	/**
+	 * @deprecated	최근 자식 상태는 상태차트 수행이 직접 기록한다. 기본 구현은 아무 작업도 하지 않는다.
+	 */
+	@Deprecated
+	public default void setRecentChildState(String stateId) { }
+	
+	public State<C> getExceptionState();
+	
+	/**
+	 * 본 상태가 직교 상태(AND-state)인지 여부를 반환한다.
+	 * <p>
+	 * 직교 상태의 자식 상태들은 각각 독립된 영역(region)의 최상위 상태가 되며, 직교 상태에 진입하면
+	 * 모든 영역의 시작 상태들로 동시에 진입한다. 이벤트는 각 영역의 활성 상태들에게 먼저 전달되고,
+	 * 어느 영역에서도 처리되지 않은 경우에 직교 상태와 그 조상 상태들에게 전달된다.
+	 * 모든 영역이 종료 상태({@link #isFinal()})에 도달하면 {@link #regionsCompleted(StatechartExecution)}가
+	 * 호출된다. 영역 안에 다시 직교 상태를 둘 수는 없다.
+	 * 
+	 * @return	직교 상태인 경우는 <code>true</code>, 그렇지 않은 경우는 <code>false</code>.
+	 */
+	public default boolean isOrthogonal() {
+		return false;
+	}
+	
+	/**
+	 * 직교 상태의 영역들이 하나의 이벤트를 쓰레드 풀에서 동시에 처리할 수 있는지 여부를 반환한다.
+	 * <p>
+	 * 영역들의 상태 처리기가 상태차트 수행 객체의 필드를 공유하지 않는 경우에만 <code>true</code>를
+	 * 반환하여야 한다. 동시에 처리하는 경우에도 처리 결과의 통보와 상태 전이는 이벤트 처리 쓰레드에서
+	 * 영역 순서대로 수행된다.
+	 * <p>
+	 * 영역들의 상태 처리기는 이벤트 처리 쓰레드가 상태차트 잠금을 획득한 채 기다리는 동안 쓰레드 풀에서
+	 * 호출된다. 따라서 처리기에서는 현재 상태 조회, 지연 이벤트 예약, 스냅샷 생성, 리스너 등록 등
+	 * 상태차트 잠금이 필요한 수행 메소드를 호출할 수 없으며, 호출하는 경우는
+	 * {@link IllegalStateException}이 발생한다. 이벤트 전달({@link StatechartExecution#receiveEvent(Event)})과
+	 * 수행 전용 데이터 조회({@link StatechartExecution#getStateLocal(State, java.util.function.Function)})는
+	 * 호출할 수 있다.
+	 * 
+	 * @return	동시에 처리하는 경우는 <code>true</code>, 그렇지 않은 경우는 <code>false</code>.
+	 * @see StatechartExecution#setRegionPool(java.util.concurrent.ForkJoinPool)
+	 */
+	public default boolean hasConcurrentRegions() {
+		return false;
+	}
+	
+	/**
+	 * 직교 상태의 모든 영역이 종료 상태에 도달한 경우 호출되어, 직교 상태의 완료 후 전이할 상태를 반환한다.
+	 * <p>
+	 * 본 메소드는 이벤트 처리 쓰레드에서 상태차트 잠금을 획득한 상태로 호출되며, 영역들이 종료 상태에
+	 * 도달할 때마다 한번만 호출된다. <code>null</code>을 반환하면 직교 상태와 종료된 영역들이 그대로
+	 * 유지된다. 기본 구현은 항상 <code>null</code>을 반환한다.
+	 * 
+	 * @param context	상태차트 수행 문맥.
+	 * @return	전이할 상태의 경로. 전이하지 않는 경우는 <code>null</code>.
+	 */
+	public default String regionsCompleted(C context) {
+		return null;
+	}
+	
+	/**
+	 * 본 상태에 설정된 시간 제한들을 반환한다.
+	 * <p>
+	 * 상태차트 수행은 본 상태에 진입할 때 각 시간 제한에 대한 타이머를 등록하고,
+	 * 본 상태를 탈출할 때 만료되지 않은 타이머들을 취소한다.
+	 * 
+	 * @return	시간 제한 리스트.
+	 */
+	public default List<StateTimeout<C>> getTimeouts() {
+		return Collections.emptyList();
+	}
+	
+	/**
+	 * 본 상태가 활성화된 주어진 수행을 비활성화({@link PassivationManager})할 수 있는지 여부를 반환한다.
+	 * <p>
+	 * 비활성화된 수행은 스냅샷으로만 저장되므로, 진입 동작에서 수행 전용 자원(다른 객체에 등록한 리스너,
+	 * 수행 중인 작업 등)을 획득한 상태는 해당 자원을 반환하기 전까지 <code>false</code>를 반환하여야
+	 * 한다. 본 메소드는 상태차트 잠금을 획득한 상태에서 호출된다. 기본 구현은 항상 <code>true</code>를
+	 * 반환한다.
+	 * 
+	 * @param context	상태차트 수행 문맥.
+	 * @return	비활성화할 수 있는 경우는 <code>true</code>, 그렇지 않은 경우는 <code>false</code>.
+	 */
+	public default boolean isPassivatable(C context) {
+		return true;
+	}
+	
+	public default String enter(C context) {
+		return null;
+	}
+	public default void leave(C context) { }
+	public String handleEvent(C context, Event event);
+	
+	/**
+	 * 본 상태가 주어진 이벤트를 처리할 수 있는지 여부를 반환한다.
+	 * <p>
+	 * 상태차트 수행은 이벤트 처리시 <code>false</code>를 반환한 상태에 대해서는
+	 * {@link #handleEventRef(StatechartExecution, Event)}를 호출하지 않고 바로 상위 상태로 넘어간다.
+	 * 따라서 본 메소드는 이벤트의 타입만으로 빠르게 판단할 수 있어야 하며, 확실하지 않은 경우는
+	 * <code>true</code>를 반환하여야 한다. 기본 구현은 항상 <code>true</code>를 반환한다.
+	 * 
+	 * @param event	처리할 이벤트.
+	 * @return	처리할 수 있는 경우는 <code>true</code>, 그렇지 않은 경우는 <code>false</code>.
+	 */
+	public default boolean accepts(Event event) {
+		return true;
+	}
+	
+	/**
+	 * 본 상태가 처리하는 이벤트 타입들을 반환한다.
+	 * <p>
+	 * 반환된 타입 중 하나의 인스턴스({@link Event#isInstanceOf(Class)})가 아닌 이벤트에 대해서는
+	 * {@link #accepts(Event)}가 <code>false</code>를 반환하여야 한다. {@link StatechartEventRouter}는
+	 * 이 정보를 이용하여 이벤트를 처리할 수 있는 수행들에게만 이벤트를 전달한다.
+	 * 기본 구현은 처리하는 이벤트 타입을 알 수 없음을 뜻하는 <code>null</code>을 반환한다.
+	 * 
+	 * @return	이벤트 타입 집합. 알 수 없거나 모든 이벤트를 처리할 수 있는 경우는 <code>null</code>.
+	 */
+	public default Set<Class<?>> getEventTypes() {
+		return null;
+	}
+	
+	/**
+	 * 상태 진입을 시도하고, 진입이 거부된 경우 대신 이동할 상태의 참조를 반환한다.
+	 * <p>
+	 * 기본 구현은 {@link #enter(StatechartExecution)}가 반환한 경로를 참조로 변환한다.
+	 * 경로 문자열 생성 및 해석 비용을 줄이고자 하는 상태 클래스는 본 메소드를 재정의하여
+	 * 미리 생성된 {@link StateRef}를 반환할 수 있다.
+	 * 
+	 * @param context	상태차트 수행 문맥.
+	 * @return	진입이 허가된 경우는 <code>null</code>, 그렇지 않은 경우는 대신 이동할 상태의 참조.
+	 */
+	public default StateRef<C> enterRef(C context) {
+		return StateRef.path(enter(context));
+	}
+	
+	/**
+	 * 주어진 이벤트를 처리하고, 전이할 목표 상태의 참조를 반환한다.
+	 * <p>
+	 * 기본 구현은 {@link #handleEvent(StatechartExecution, Event)}가 반환한 경로를 참조로 변환한다.
+	 * 
+	 * @param context	상태차트 수행 문맥.
+	 * @param event		처리할 이벤트.
+	 * @return	이벤트를 처리하지 않은 경우는 <code>null</code>, 그렇지 않은 경우는 목표 상태의 참조.
+	 */
+	public default StateRef<C> handleEventRef(C context, Event event) {
+		return StateRef.path(handleEvent(context, event));
+	}
+}
@@ -0,0 +1,188 @@
+package camus.statechart;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import javax.annotation.concurrent.Immutable;
+
+import camus.statechart.support.AbstractState;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Maps;
+
+
+/**
+ * <code>StateIndex</code>는 상태 차트를 구성하는 상태들에 대한 색인을 정의한다.
+ * <p>
+ * 색인은 상태 차트 생성시 한번 구성되며, 이후 변경되지 않는다.
+ * 각 상태에는 최상위 상태부터 전위 순회(pre-order) 순서로 0부터 시작하는 상태 번호가 부여된다.
+ * 또한 상태 번호별로 깊이와 마지막 후손 상태의 번호를 함께 기록하여, 임의의 두 상태 사이의 조상 관계를
+ * 정수 비교만으로 판단할 수 있도록 한다. 상태 <code>a</code>가 상태 <code>b</code>의 조상(자신 포함)인
+ * 필요충분 조건은 <code>id(a) &lt;= id(b) &lt;= last(a)</code>이다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+@Immutable
+final class StateIndex<C extends StatechartExecution<C>> {
+	private final List<State<C>> m_states;
+	private final Map<State<C>,Integer> m_ids;
+	private final Map<String,State<C>> m_byGuid;
+	private final ImmutableSetMultimap<String,State<C>> m_byLuid;
+	private final int[] m_parents;
+	private final int[] m_depths;
+	private final int[] m_lasts;
+	private final long m_signature;
+
+	StateIndex(State<C> root) {
+		ImmutableList.Builder<State<C>> states = ImmutableList.builder();
+		Map<State<C>,Integer> ids = new IdentityHashMap<>();
+		Map<String,State<C>> byGuid = Maps.newHashMap();
+		ImmutableSetMultimap.Builder<String,State<C>> byLuid = ImmutableSetMultimap.builder();
+
+		collect(root, states, ids, byGuid, byLuid);
+
+		m_states = states.build();
+		m_ids = Collections.unmodifiableMap(ids);
+		m_byGuid = Collections.unmodifiableMap(byGuid);
+		m_byLuid = byLuid.build();
+
+		int nstates = m_states.size();
+		m_parents = new int[nstates];
+		m_depths = new int[nstates];
+		m_lasts = new int[nstates];
+		number(root, -1, 0);
+
+		// 상태 번호 순서의 전역 식별자들로부터 상태 구조 서명을 계산한다.
+		CRC32 crc = new CRC32();
+		for ( State<C> state: m_states ) {
+			crc.update(state.getGuid().getBytes(StandardCharsets.UTF_8));
+			crc.update(0);
+		}
+		m_signature = ((long)nstates << 32) | crc.getValue();
+	}
+
+	long getSignature() {
+		return m_signature;
+	}
+
+	int size() {
+		return m_states.size();
+	}
+
+	State<C> get(int id) {
+		return m_states.get(id);
+	}
+
+	List<State<C>> getStates() {
+		return m_states;
+	}
+
+	int getId(State<C> state) {
+		if ( state instanceof AbstractState ) {
+			int id = ((AbstractState<C>)state).getStateId();
+			if ( id >= 0 && id < m_states.size() && m_states.get(id) == state ) {
+				return id;
+			}
+		}
+		
+		Integer id = m_ids.get(state);
+		if ( id == null ) {
+			throw new StateNotFoundException("not indexed: state=" + state);
+		}
+
+		return id;
+	}
+
+	int getParentId(int id) {
+		return m_parents[id];
+	}
+
+	int getDepth(int id) {
+		return m_depths[id];
+	}
+
+	int getLastDescendantId(int id) {
+		return m_lasts[id];
+	}
+
+	/**
+	 * 상태 번호 <code>ancestor</code>의 상태가 상태 번호 <code>descendant</code>의 상태의
+	 * 조상인지 여부를 반환한다. 두 상태가 동일한 경우도 <code>true</code>를 반환한다.
+	 */
+	boolean isAncestorOf(int ancestor, int descendant) {
+		return ancestor <= descendant && descendant <= m_lasts[ancestor];
+	}
+
+	/**
+	 * 두 상태 번호에 해당하는 상태들의 최소 공통 조상 상태의 번호를 반환한다.
+	 */
+	int getLeastCommonAncestorId(int id1, int id2) {
+		while ( !isAncestorOf(id1, id2) ) {
+			id1 = m_parents[id1];
+		}
+
+		return id1;
+	}
+
+	State<C> getByGuid(String guid) {
+		return m_byGuid.get(guid);
+	}
+
+	Set<State<C>> getByLuid(String luid) {
+		return m_byLuid.get(luid);
+	}
+
+	// 'state'와 그 후손 상태들의 부모 번호, 깊이, 마지막 후손 번호를 기록하고,
+	// 'state'의 마지막 후손 상태의 번호를 반환한다.
+	@SuppressWarnings("rawtypes")
+	private int number(State<C> state, int parentId, int depth) {
+		int id = m_ids.get(state);
+		m_parents[id] = parentId;
+		m_depths[id] = depth;
+
+		int last = id;
+		for ( State<C> child: state.getChildStates() ) {
+			last = number(child, id, depth+1);
+		}
+		m_lasts[id] = last;
+
+		if ( state instanceof AbstractState ) {
+			((AbstractState)state).setPosition(new StatePosition(this, state, id, last, depth));
+		}
+
+		return last;
+	}
+
+	private static <C extends StatechartExecution<C>> void collect(State<C> state,
+										ImmutableList.Builder<State<C>> states,
+										Map<State<C>,Integer> ids, Map<String,State<C>> byGuid,
+										ImmutableSetMultimap.Builder<String,State<C>> byLuid) {
+		if ( byGuid.putIfAbsent(state.getGuid(), state) != null ) {
+			throw new StateExistsException("guid=" + state.getGuid());
+		}
+		ids.put(state, ids.size());
+		states.add(state);
+		byLuid.put(state.getLuid(), state);
+		
+		if ( state.isOrthogonal() ) {
+			if ( !state.isComposite() ) {
+				throw new IllegalArgumentException("orthogonal state has no region: " + state);
+			}
+			for ( State<C> parent = state.getParentState(); parent != null; parent = parent.getParentState() ) {
+				if ( parent.isOrthogonal() ) {
+					throw new IllegalArgumentException("nested orthogonal state is not supported: " + state);
+				}
+			}
+		}
+
+		for ( State<C> child: state.getChildStates() ) {
+			collect(child, states, ids, byGuid, byLuid);
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package camus.statechart;
+
+import javax.annotation.concurrent.Immutable;
+
+
+/**
+ * <code>StatePosition</code>은 상태차트 생성시 상태에 부여되는 구조 번호를 정의한다.
+ * <p>
+ * 구조 번호는 상태 색인만이 생성할 수 있으며, 번호를 부여한 색인과 대상 상태를 함께 기록한다.
+ * 따라서 서로 다른 상태차트에 속한 상태들의 번호나 다른 상태에 부여된 번호를 비교하는 경우는
+ * 조상 관계를 판단하지 않는다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+@Immutable
+public final class StatePosition {
+	private final Object m_owner;		// 번호를 부여한 상태 색인
+	private final State<?> m_state;
+	private final int m_preorder;
+	private final int m_lastDescendant;
+	private final int m_depth;
+
+	StatePosition(Object owner, State<?> state, int preorder, int lastDescendant, int depth) {
+		m_owner = owner;
+		m_state = state;
+		m_preorder = preorder;
+		m_lastDescendant = lastDescendant;
+		m_depth = depth;
+	}
+
+	/**
+	 * 본 구조 번호가 부여된 상태를 반환한다.
+	 *
+	 * @return	상태 객체.
+	 */
+	public State<?> getState() {
+		return m_state;
+	}
+
+	/**
+	 * 전위 순회 순서의 상태 번호를 반환한다.
+	 *
+	 * @return	상태 번호.
+	 * @see Statechart#getStateId(State)
+	 */
+	public int getStateId() {
+		return m_preorder;
+	}
+
+	/**
+	 * 마지막 후손 상태의 상태 번호를 반환한다.
+	 *
+	 * @return	상태 번호.
+	 */
+	public int getLastDescendantId() {
+		return m_lastDescendant;
+	}
+
+	/**
+	 * 상태 트리에서의 깊이를 반환한다. 최상위 상태의 깊이는 0이다.
+	 *
+	 * @return	상태 깊이.
+	 */
+	public int getDepth() {
+		return m_depth;
+	}
+
+	/**
+	 * 두 구조 번호가 동일한 상태 색인에서 부여되었는지 여부를 반환한다.
+	 *
+	 * @param other	비교 대상 구조 번호.
+	 * @return	동일 상태차트의 번호인 경우는 <code>true</code>.
+	 */
+	public boolean isSameChart(StatePosition other) {
+		return other != null && m_owner == other.m_owner;
+	}
+
+	/**
+	 * 본 번호의 상태가 주어진 번호의 상태의 조상(자신 포함)인지 여부를 반환한다.
+	 *
+	 * @param other	대상 구조 번호.
+	 * @return	조상인 경우는 <code>true</code>.
+	 * @throws IllegalArgumentException	두 번호가 서로 다른 상태차트의 번호인 경우.
+	 */
+	public boolean isAncestorOf(StatePosition other) {
+		if ( !isSameChart(other) ) {
+			throw new IllegalArgumentException("positions of different statecharts: "
+												+ this + ", " + other);
+		}
+
+		return m_preorder <= other.m_preorder && other.m_preorder <= m_lastDescendant;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("StatePosition[%s: id=%d, last=%d, depth=%d]",
+							m_state.getGuid(), m_preorder, m_lastDescendant, m_depth);
+	}
+}
@@ -0,0 +1,124 @@
+package camus.statechart;
+
+import java.util.Objects;
+
+import javax.annotation.concurrent.Immutable;
+
+
+/**
+ * <code>StateRef</code>는 상태 전이의 목표 상태를 가리키는 참조 객체를 정의한다.
+ * <p>
+ * 상태 참조는 다음 두가지 방식으로 생성된다.
+ * <ul>
+ * 	<li> {@link #of(State)}: 목표 상태 객체를 직접 가리키는 참조. 별도의 해석 과정 없이
+ * 		바로 목표 상태로 사용된다.
+ * 	<li> {@link #path(String)}: 경로 문자열로 표현된 참조. 경로는 전이를 요청한 상태를
+ * 		기준으로 해석되며, 해석 결과는 {@link Statechart}에 캐시되어 동일 (상태, 경로)에 대해서는
+ * 		한번만 해석된다.
+ * </ul>
+ * 상태 참조 객체는 변경 불가능하기 때문에, 상태 구현 클래스에서 미리 생성하여 재사용할 수 있다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+@Immutable
+public final class StateRef<C extends StatechartExecution<C>> {
+	@SuppressWarnings("rawtypes")
+	private static final StateRef STOP_PROPAGATE = new StateRef<>(null, State.STOP_PROPAGATE_GUID);
+
+	private final State<C> m_target;
+	private final String m_path;
+
+	private StateRef(State<C> target, String path) {
+		m_target = target;
+		m_path = path;
+	}
+
+	/**
+	 * 주어진 상태 객체를 직접 가리키는 참조를 생성한다.
+	 *
+	 * @param target	목표 상태 객체.
+	 * @return	상태 참조 객체.
+	 */
+	public static <C extends StatechartExecution<C>> StateRef<C> of(State<C> target) {
+		Objects.requireNonNull(target, "target state was null");
+
+		return new StateRef<>(target, target.getGuid());
+	}
+
+	/**
+	 * 주어진 경로 문자열에 해당하는 참조를 생성한다.
+	 * <p>
+	 * 경로가 <code>null</code>인 경우는 <code>null</code>을 반환하고,
+	 * {@link State#STOP_PROPAGATE_GUID}인 경우는 {@link #stopPropagate()}를 반환한다.
+	 *
+	 * @param path	목표 상태 경로.
+	 * @return	상태 참조 객체.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <C extends StatechartExecution<C>> StateRef<C> path(String path) {
+		if ( path == null ) {
+			return null;
+		}
+		else if ( path.equals(State.STOP_PROPAGATE_GUID) ) {
+			return STOP_PROPAGATE;
+		}
+		else {
+			return new StateRef<>(null, path);
+		}
+	}
+
+	/**
+	 * 상태 전이 없이 이벤트 전파만을 중단시키는 참조를 반환한다.
+	 *
+	 * @return	이벤트 전파 중단 참조 객체.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <C extends StatechartExecution<C>> StateRef<C> stopPropagate() {
+		return STOP_PROPAGATE;
+	}
+
+	/**
+	 * 본 참조가 이벤트 전파 중단 참조인지 여부를 반환한다.
+	 *
+	 * @return	이벤트 전파 중단 참조인 경우는 <code>true</code>, 그렇지 않은 경우는 <code>false</code>.
+	 */
+	public boolean isStopPropagate() {
+		return this == STOP_PROPAGATE;
+	}
+
+	/**
+	 * 본 참조의 경로 문자열을 반환한다.
+	 * <p>
+	 * 상태 객체를 직접 가리키는 참조인 경우는 대상 상태의 전역 식별자를 반환한다.
+	 *
+	 * @return	경로 문자열.
+	 */
+	public String getPath() {
+		return m_path;
+	}
+
+	/**
+	 * 주어진 상태를 기준으로 본 참조가 가리키는 상태 객체를 얻는다.
+	 *
+	 * @param schart	상태 차트.
+	 * @param from		경로 해석의 기준 상태.
+	 * @return	목표 상태 객체.
+	 * @throws StateNotFoundException	경로에 해당하는 상태가 없는 경우.
+	 */
+	public State<C> resolve(Statechart<C> schart, State<C> from) throws StateNotFoundException {
+		if ( m_target != null ) {
+			return m_target;
+		}
+		else if ( isStopPropagate() ) {
+			throw new IllegalStateException("cannot resolve stop-propagate reference");
+		}
+		else {
+			return schart.resolve(from, m_path);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("StateRef[%s]", m_path);
+	}
+}
@@ -0,0 +1,52 @@
+package camus.statechart;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import javax.annotation.concurrent.Immutable;
+
+
+/**
+ * <code>StateTimeout</code>은 상태에 설정된 시간 제한을 정의한다.
+ * <p>
+ * 상태차트 수행이 시간 제한이 설정된 상태에 진입하면 공유 타이머({@link TimingWheel#getDefault()})에
+ * 타이머가 등록되고, 해당 상태를 탈출하면 타이머는 자동으로 취소된다. 상태를 탈출하기 전에 지정된
+ * 시간이 지나면 상태차트 수행의 이벤트 처리 쓰레드에서 시간 제한 동작이 호출되며, 동작이 반환한
+ * 경로의 상태로 전이한다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+@Immutable
+public final class StateTimeout<C extends StatechartExecution<C>> {
+	private final long m_delayNanos;
+	private final Function<? super C, String> m_action;
+
+	/**
+	 * 시간 제한 객체를 생성한다.
+	 *
+	 * @param delay		진입 후 시간 제한 동작이 호출될 때까지의 시간.
+	 * @param unit		시간 단위.
+	 * @param action	시간 제한 동작. 동작은 전이할 상태의 경로를 반환하며, 전이하지 않는 경우는
+	 * 					<code>null</code>을 반환한다.
+	 */
+	public StateTimeout(long delay, TimeUnit unit, Function<? super C, String> action) {
+		Objects.requireNonNull(action, "timeout action was null");
+
+		m_delayNanos = unit.toNanos(delay);
+		m_action = action;
+	}
+
+	public long getDelay(TimeUnit unit) {
+		return unit.convert(m_delayNanos, TimeUnit.NANOSECONDS);
+	}
+
+	public Function<? super C, String> getAction() {
+		return m_action;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Timeout[%dms]", TimeUnit.NANOSECONDS.toMillis(m_delayNanos));
+	}
+}
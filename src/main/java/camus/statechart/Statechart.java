@@ -1,142 +1,274 @@
-package camus.statechart;
-
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
-
-
-
-/**
- * 
- * @author Kang-Woo Lee (ETRI)
- */
-public class Statechart<C extends StatechartExecution<C>> {
-	private final State<C> m_root;
-	
-	/**
-	 * 상태차트 객체를 생성한다.
-	 * 
-	 * @param root	상태 차트의 최상위 상태 객체.
-	 */
-	public Statechart(State<C> root) {
-		m_root = root;
-	}
-	
-	/**
-	 * 상태 차트의 최상위 상태 객체를 얻는다.
-	 * 
-	 * @return 최상위 상태 객체.
-	 */
-	public State<C> getRootState() {
-		return m_root;
-	}
-	
-	/**
-	 * 주어진 전역 식별자에 해당하는 상태 객체를 얻는다.
-	 * 
-	 * @param guid	검색할 상태의 전역 식별자.
-	 * @return	검색된 상태 객체.
-	 * @throws StateNotFoundException	전역 식별자에 해당하는 상태가 없는 경우.
-	 */
-	public State<C> getState(String guid) throws StateNotFoundException {
-		String[] parts = guid.split("/");
-		
-		State<C> current = getRootState();
-		for ( int i =1; i < parts.length; ++i ) {
-			String luid = parts[i];
-			
-			current = current.getChildState(luid);
-		}
-		
-		return current;
-	}
-	
-	public Set<State<C>> findStateByLuid(String luid) {
-		Set<State<C>> found = new HashSet<State<C>>();
-		
-		List<State<C>> states = new ArrayList<State<C>>();
-		states.add(getRootState());
-		
-		while ( !states.isEmpty() ) {
-			State<C> state = states.remove(0);
-			if ( state.getLuid().equals(luid) ) {
-				found.add(state);
-			}
-			
-			states.addAll(state.getChildStates());
-		}
-		
-		return found;
-	}
-	
-	public State<C> traverse(State<C> fromState, String path) throws StateNotFoundException {
-		State<C> current = fromState;
-
-		int idx = 0;
-		List<String> parts = splitPath(path);
-		String head = parts.get(0);
-		if ( head.length() == 0 ) {
-			current = getRootState();
-			++idx;
-		}
-		else if ( head.startsWith("@") ) {
-			Set<State<C>> founds = findStateByLuid(head.substring(1));
-			if ( founds.size() == 1 ) {
-				current = founds.iterator().next();
-				++idx;
-			}
-			else if ( founds.size() == 0 ) {
-				throw new StateNotFoundException("LUID=" + head);
-			}
-			else {
-				throw new IllegalArgumentException("ambiguous state id=" + head);
-			}
-		}
-
-		for (; idx < parts.size(); ++idx ) {
-			if ( parts.get(idx).equals("..") ) {
-				current = current.getParentState();
-				if ( current == null ) {
-					throw new StateNotFoundException("from=" + fromState.getGuid() + ", path=" + path);
-				}
-			}
-			else if ( parts.get(idx).equals(".") ) { }
-			else {
-				current = current.getChildState(parts.get(idx));
-			}
-		}
-		
-		return current;
-	}
-	
-    private static ArrayList<String> splitPath(String path) {
-        ArrayList<String> vList = new ArrayList<String>();
-        char[] buf = path.toCharArray();
-        for ( int start = 0; start < buf.length;  ) {
-            int i;
-
-            StringBuffer appender = new StringBuffer();
-            for ( i =start; i < buf.length; ++i ) {
-                char c = buf[i];
-
-                if ( c == '/' ) {
-                    break;
-                }
-                else if ( c == '\\' ) {
-                    if ( ++i >= buf.length ) {
-                        throw new IllegalArgumentException("Corrupted CSV string");
-                    }
-                    c = buf[i];
-                }
-                
-                appender.append(c);
-            }
-
-            vList.add(appender.toString());
-            start = i + 1;
-        }
-
-        return vList;
-    }
+package camus.statechart;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+
+/**
+ * <code>Statechart</code>는 상태 트리와 그 색인을 정의한다.
+ * <p>
+ * 하나의 상태차트 객체는 여러 상태차트 수행({@link StatechartExecution})이 동시에 공유할 수 있으며,
+ * 이때 상태 객체들도 함께 공유된다. 따라서 상태 객체는 수행별 데이터를 필드에 두지 않고
+ * {@link StatechartExecution#getStateLocal(State, java.util.function.Function)}를 통해 수행별로
+ * 유지하여야 한다. 예를 들어 {@link camus.statechart.support.ServiceExecutionState}는 수행할
+ * <code>Service</code> 객체를 상태 진입시마다 수행별로 생성한다.
+ * 
+ * @author Kang-Woo Lee (ETRI)
+ */
+public class Statechart<C extends StatechartExecution<C>> {
+	private static final int MAX_RESOLVE_CACHE_SIZE = 64;	// 기준 상태별 최대 캐시 경로 수
+	
+	private final State<C> m_root;
+	private final StateIndex<C> m_index;
+	private final Map<State<C>,Map<String,State<C>>> m_resolveCache = new ConcurrentHashMap<>();
+	
+	/**
+	 * 상태차트 객체를 생성한다.
+	 * <p>
+	 * 생성 과정에서 주어진 최상위 상태부터 모든 하위 상태들에 대한 색인을 구성하기 때문에,
+	 * 상태 트리는 상태차트 생성 전에 모두 구성되어 있어야 한다.
+	 * 
+	 * @param root	상태 차트의 최상위 상태 객체.
+	 * @throws StateExistsException	동일 전역 식별자를 갖는 상태가 두개 이상 존재하는 경우.
+	 */
+	public Statechart(State<C> root) {
+		m_root = root;
+		m_index = new StateIndex<>(root);
+	}
+	
+	/**
+	 * 상태 차트의 최상위 상태 객체를 얻는다.
+	 * 
+	 * @return 최상위 상태 객체.
+	 */
+	public State<C> getRootState() {
+		return m_root;
+	}
+	
+	/**
+	 * 주어진 전역 식별자에 해당하는 상태 객체를 얻는다.
+	 * 
+	 * @param guid	검색할 상태의 전역 식별자.
+	 * @return	검색된 상태 객체.
+	 * @throws StateNotFoundException	전역 식별자에 해당하는 상태가 없는 경우.
+	 */
+	public State<C> getState(String guid) throws StateNotFoundException {
+		State<C> state = m_index.getByGuid(guid);
+		if ( state == null ) {
+			throw new StateNotFoundException("guid=" + guid);
+		}
+		
+		return state;
+	}
+	
+	/**
+	 * 주어진 지역 식별자를 갖는 모든 상태 객체를 얻는다.
+	 * 
+	 * @param luid	검색할 상태의 지역 식별자.
+	 * @return	검색된 상태 객체 집합. 해당 상태가 없는 경우는 빈 집합.
+	 */
+	public Set<State<C>> findStateByLuid(String luid) {
+		return m_index.getByLuid(luid);
+	}
+	
+	/**
+	 * 상태 차트에 포함된 상태의 갯수를 반환한다.
+	 * 
+	 * @return	상태 갯수.
+	 */
+	public int getStateCount() {
+		return m_index.size();
+	}
+	
+	/**
+	 * 상태 구조 서명을 반환한다.
+	 * <p>
+	 * 서명은 상태 갯수와 상태 번호 순서로 나열된 상태들의 전역 식별자로부터 계산되며,
+	 * 스냅샷이나 이벤트 기록이 동일한 구조의 상태차트에서 생성된 것인지 확인하는데 사용된다.
+	 * 
+	 * @return	상태 구조 서명.
+	 */
+	public long getSignature() {
+		return m_index.getSignature();
+	}
+	
+	/**
+	 * 주어진 상태의 상태 번호를 반환한다.
+	 * <p>
+	 * 상태 번호는 상태차트 생성시 최상위 상태부터 전위 순회 순서로 0부터 부여된다.
+	 * 
+	 * @param state	대상 상태 객체.
+	 * @return	상태 번호.
+	 * @throws StateNotFoundException	주어진 상태가 본 상태차트에 포함되지 않은 경우.
+	 */
+	public int getStateId(State<C> state) throws StateNotFoundException {
+		return m_index.getId(state);
+	}
+	
+	/**
+	 * 주어진 상태 번호에 해당하는 상태 객체를 얻는다.
+	 * 
+	 * @param id	상태 번호.
+	 * @return	상태 객체.
+	 * @throws IndexOutOfBoundsException	상태 번호가 유효 범위를 벗어난 경우.
+	 */
+	public State<C> getStateById(int id) {
+		return m_index.get(id);
+	}
+	
+	/**
+	 * 상태 <code>ancestor</code>가 상태 <code>descendant</code>의 조상 상태인지 여부를 반환한다.
+	 * <p>
+	 * 두 상태가 동일한 경우도 <code>true</code>를 반환한다. 판단은 상태차트 생성시 부여된
+	 * 구조 번호의 정수 비교로 이루어진다.
+	 * 
+	 * @param ancestor		조상 여부를 확인할 상태.
+	 * @param descendant	후손 여부를 확인할 상태.
+	 * @return	조상 상태인 경우는 <code>true</code>, 그렇지 않은 경우는 <code>false</code>.
+	 * @throws StateNotFoundException	주어진 상태가 본 상태차트에 포함되지 않은 경우.
+	 */
+	public boolean isAncestorOf(State<C> ancestor, State<C> descendant) {
+		return m_index.isAncestorOf(m_index.getId(ancestor), m_index.getId(descendant));
+	}
+	
+	/**
+	 * 주어진 두 상태의 최소 공통 조상 상태를 반환한다.
+	 * <p>
+	 * 한 상태가 다른 상태의 조상인 경우는 그 조상 상태를 반환한다.
+	 * 
+	 * @param state1	대상 상태.
+	 * @param state2	대상 상태.
+	 * @return	최소 공통 조상 상태.
+	 * @throws StateNotFoundException	주어진 상태가 본 상태차트에 포함되지 않은 경우.
+	 */
+	public State<C> getLeastCommonAncestor(State<C> state1, State<C> state2) {
+		int lcaId = m_index.getLeastCommonAncestorId(m_index.getId(state1), m_index.getId(state2));
+		return m_index.get(lcaId);
+	}
+	
+	/**
+	 * 상태 트리에서의 주어진 상태의 깊이를 반환한다. 최상위 상태의 깊이는 0이다.
+	 * 
+	 * @param state	대상 상태.
+	 * @return	상태 깊이.
+	 * @throws StateNotFoundException	주어진 상태가 본 상태차트에 포함되지 않은 경우.
+	 */
+	public int getDepth(State<C> state) {
+		return m_index.getDepth(m_index.getId(state));
+	}
+	
+	/**
+	 * 주어진 상태를 기준으로 경로에 해당하는 상태 객체를 얻는다.
+	 * <p>
+	 * {@link #traverse(State, String)}와 동일한 결과를 반환하지만, 해석 결과를
+	 * (기준 상태, 경로) 별로 캐시하여 동일 경로에 대해서는 경로 문자열 분석을 다시 수행하지 않는다.
+	 * 실행 중에 동적으로 생성된 경로들로 캐시가 계속 커지지 않도록, 기준 상태별로 일정 갯수의
+	 * 경로만을 캐시하며 이후의 경로들은 매번 분석한다.
+	 * 
+	 * @param fromState	경로 해석의 기준 상태.
+	 * @param path		대상 상태 경로.
+	 * @return	경로에 해당하는 상태 객체.
+	 * @throws StateNotFoundException	경로에 해당하는 상태가 없는 경우.
+	 */
+	public State<C> resolve(State<C> fromState, String path) throws StateNotFoundException {
+		Map<String,State<C>> resolveds = m_resolveCache.get(fromState);
+		if ( resolveds == null ) {
+			resolveds = m_resolveCache.computeIfAbsent(fromState, k -> new ConcurrentHashMap<>());
+		}
+		
+		State<C> resolved = resolveds.get(path);
+		if ( resolved == null ) {
+			resolved = traverse(fromState, path);
+			if ( resolveds.size() < MAX_RESOLVE_CACHE_SIZE ) {
+				resolveds.put(path, resolved);
+			}
+		}
+		
+		return resolved;
+	}
+	
+	public State<C> traverse(State<C> fromState, String path) throws StateNotFoundException {
+		if ( path.startsWith("/") ) {
+			// 절대 경로가 상태의 전역 식별자와 동일한 경우는 경로 분석없이 바로 색인에서 찾는다.
+			State<C> state = m_index.getByGuid(path);
+			if ( state != null ) {
+				return state;
+			}
+		}
+		
+		State<C> current = fromState;
+
+		int idx = 0;
+		List<String> parts = splitPath(path);
+		String head = parts.get(0);
+		if ( head.length() == 0 ) {
+			current = getRootState();
+			++idx;
+		}
+		else if ( head.startsWith("@") ) {
+			Set<State<C>> founds = findStateByLuid(head.substring(1));
+			if ( founds.size() == 1 ) {
+				current = founds.iterator().next();
+				++idx;
+			}
+			else if ( founds.size() == 0 ) {
+				throw new StateNotFoundException("LUID=" + head);
+			}
+			else {
+				throw new IllegalArgumentException("ambiguous state id=" + head);
+			}
+		}
+
+		for (; idx < parts.size(); ++idx ) {
+			if ( parts.get(idx).equals("..") ) {
+				current = current.getParentState();
+				if ( current == null ) {
+					throw new StateNotFoundException("from=" + fromState.getGuid() + ", path=" + path);
+				}
+			}
+			else if ( parts.get(idx).equals(".") ) { }
+			else {
+				current = current.getChildState(parts.get(idx));
+				if ( current == null ) {
+					throw new StateNotFoundException("from=" + fromState.getGuid() + ", path=" + path);
+				}
+			}
+		}
+		
+		return current;
+	}
+	
+    private static ArrayList<String> splitPath(String path) {
+        ArrayList<String> vList = new ArrayList<String>();
+        char[] buf = path.toCharArray();
+        for ( int start = 0; start < buf.length;  ) {
+            int i;
+
+            StringBuilder appender = new StringBuilder();
+            for ( i =start; i < buf.length; ++i ) {
+                char c = buf[i];
+
+                if ( c == '/' ) {
+                    break;
+                }
+                else if ( c == '\\' ) {
+                    if ( ++i >= buf.length ) {
+                        throw new IllegalArgumentException("Corrupted CSV string");
+                    }
+                    c = buf[i];
+                }
+                
+                appender.append(c);
+            }
+
+            vList.add(appender.toString());
+            start = i + 1;
+        }
+
+        return vList;
+    }
 }
\ No newline at end of file
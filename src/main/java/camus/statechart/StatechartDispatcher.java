@@ -0,0 +1,103 @@
+package camus.statechart;
+
+import java.util.concurrent.Executor;
+
+
+/**
+ * <code>StatechartDispatcher</code>는 상태차트 수행에 전달된 이벤트를 처리할 쓰레드를
+ * 결정하는 전략의 인터페이스를 정의한다.
+ * <p>
+ * 상태차트 수행은 수행 시작시 {@link #attach(StatechartExecution)}를 호출하여 이벤트 처리에
+ * 사용할 {@link Executor}를 할당받고, 수행 종료시 {@link #detach(StatechartExecution, Executor)}를
+ * 호출하여 이를 반환한다. 상태차트 수행은 할당받은 <code>Executor</code>에 동시에 최대 하나의
+ * 작업만을 제출하기 때문에, 구현 클래스는 이벤트 처리 순서나 동시 처리 여부를 고려할 필요가 없다.
+ * <p>
+ * 기본으로 제공되는 전략은 다음과 같다.
+ * <ul>
+ * 	<li> {@link #dedicatedThread()}: 상태차트 수행마다 전용 쓰레드를 사용한다.
+ * 	<li> {@link #executor(Executor)}: 호출자가 제공한 <code>Executor</code>를 사용한다.
+ * 	<li> {@link #virtualThread()}: 가상 쓰레드를 사용한다. (가상 쓰레드를 지원하는 JDK에서만 사용 가능)
+ * 	<li> {@link StatechartScheduler}: 고정된 갯수의 작업 쓰레드를 여러 수행이 공유한다.
+ * 	<li> {@link StatechartShardHost}: 수행 키에 따라 배정된 shard의 전용 작업 쓰레드에서 처리한다.
+ * </ul>
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+public interface StatechartDispatcher {
+	/**
+	 * 주어진 상태차트 수행의 이벤트 처리에 사용할 <code>Executor</code>를 할당한다.
+	 *
+	 * @param exec	상태차트 수행 객체.
+	 * @return	이벤트 처리 작업을 수행시킬 <code>Executor</code>.
+	 */
+	public Executor attach(StatechartExecution<?> exec);
+
+	/**
+	 * 상태차트 수행에 할당된 <code>Executor</code>를 반환한다.
+	 *
+	 * @param exec		상태차트 수행 객체.
+	 * @param executor	{@link #attach(StatechartExecution)}로 할당된 <code>Executor</code>.
+	 */
+	public default void detach(StatechartExecution<?> exec, Executor executor) { }
+
+	/**
+	 * 한 상태차트 수행이 쓰레드를 연속하여 점유할 때 처리하는 최대 작업 갯수를 반환한다.
+	 *
+	 * @return	최대 연속 처리 작업 갯수.
+	 */
+	public default int getQuantum() {
+		return Integer.MAX_VALUE;
+	}
+
+	/**
+	 * 상태차트 수행마다 전용 쓰레드를 생성하여 이벤트를 처리하는 전략을 반환한다.
+	 *
+	 * @return	전용 쓰레드 전략 객체.
+	 */
+	public static StatechartDispatcher dedicatedThread() {
+		return Dispatchers.DEDICATED_THREAD;
+	}
+
+	/**
+	 * 주어진 <code>Executor</code>를 사용하여 이벤트를 처리하는 전략을 반환한다.
+	 *
+	 * @param executor	이벤트 처리에 사용할 <code>Executor</code>.
+	 * @return	<code>Executor</code> 전략 객체.
+	 */
+	public static StatechartDispatcher executor(Executor executor) {
+		return new Dispatchers.ExecutorDispatcher(executor, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * 주어진 <code>Executor</code>를 사용하여 이벤트를 처리하는 전략을 반환한다.
+	 *
+	 * @param executor	이벤트 처리에 사용할 <code>Executor</code>.
+	 * @param quantum	한 상태차트 수행이 쓰레드를 연속하여 점유할 때 처리하는 최대 작업 갯수.
+	 * @return	<code>Executor</code> 전략 객체.
+	 */
+	public static StatechartDispatcher executor(Executor executor, int quantum) {
+		return new Dispatchers.ExecutorDispatcher(executor, quantum);
+	}
+
+	/**
+	 * 가상 쓰레드를 사용하여 이벤트를 처리하는 전략을 반환한다.
+	 * <p>
+	 * 상태차트 수행마다 동시에 최대 하나의 가상 쓰레드가 사용되기 때문에, 진입/탈출 작업에서
+	 * 블록킹 I/O를 사용하더라도 플랫폼 쓰레드를 점유하지 않는다.
+	 *
+	 * @return	가상 쓰레드 전략 객체.
+	 * @throws UnsupportedOperationException	현 JDK가 가상 쓰레드를 지원하지 않는 경우.
+	 */
+	public static StatechartDispatcher virtualThread() {
+		return Dispatchers.virtualThread();
+	}
+
+	/**
+	 * 현 JDK가 가상 쓰레드를 지원하는지 여부를 반환한다.
+	 *
+	 * @return	지원하는 경우는 <code>true</code>, 그렇지 않은 경우는 <code>false</code>.
+	 */
+	public static boolean isVirtualThreadSupported() {
+		return Dispatchers.isVirtualThreadSupported();
+	}
+}
@@ -0,0 +1,31 @@
+package camus.statechart;
+
+
+/**
+ * <code>StatechartEventKind</code>는 상태차트 수행 중에 발생되는 {@link StatechartEvent}의
+ * 종류를 정의한다.
+ * <p>
+ * {@link StatechartListener} 등록시 관심있는 종류를 지정하면, 지정된 종류의 이벤트만 전달된다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+public enum StatechartEventKind {
+	/** {@link StatechartStartedEvent} */
+	STARTED,
+	/** {@link StatechartFinishedEvent} */
+	FINISHED,
+	/** {@link StateEnteredEvent} */
+	STATE_ENTERED,
+	/** {@link StateLeftEvent} */
+	STATE_LEFT,
+	/** {@link StateBouncedEvent} */
+	STATE_BOUNCED,
+	/** {@link EventHandledEvent} */
+	EVENT_HANDLED,
+	/** {@link FaultRaisedEvent} */
+	FAULT_RAISED;
+
+	final int mask() {
+		return 1 << ordinal();
+	}
+}
@@ -1,73 +1,724 @@
-package camus.statechart;
-
-import java.util.Objects;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import event.Event;
-import event.EventSubscriber;
-import utils.thread.AsyncConsumer;
-
-
-/**
- * 
- * 본 클래스는 ThreadSafe하도록 구현되었다.
- * 
- * @author Kang-Woo Lee
- */
-class StatechartEventQueue implements EventSubscriber {
-	static final Logger s_logger = LoggerFactory.getLogger(StatechartEventQueue.class);
-
-	private final StatechartExecution<?> m_scExec;
-	private final AsyncConsumer<Runnable> m_dispatcher;
-
-	StatechartEventQueue(StatechartExecution<?> scExec) {
-		m_scExec = scExec;
-		m_dispatcher = AsyncConsumer.singleWorker(task -> {
-			try {
-				task.run();
-			}
-			catch ( Throwable e ) {
-				s_logger.warn("fails to handle event={}", task);
-			}
-		});
-	}
-
-	@Override
-	public final void receiveEvent(Event event) {
-		if ( event != null ) {
-			s_logger.debug("submitting event: {}", event);
-
-			m_dispatcher.accept(new EventDeliveryAction(event));
-		}
-	}
-
-	public void enqueueAction(Runnable action) {
-		s_logger.debug("submitting action: {}", action);
-		
-		m_dispatcher.accept(action);
-	}
-	
-	class EventDeliveryAction implements Runnable {
-		private final Event m_event;
-		
-		EventDeliveryAction(Event event) {
-			Objects.requireNonNull(event, "Event was null");
-			
-			m_event = event;
-		}
-		
-		public Event getEvent() {
-			return m_event;
-		}
-		
-		public void run() {
-			m_scExec.handleEvent(m_event);
-	    }
-		
-		public String toString() {
-			return "Action[event=" + m_event.toString() + "]";
-		}
-	}
-}
\ No newline at end of file
+package camus.statechart;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.BiConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import event.Event;
+import event.EventSubscriber;
+
+import camus.statechart.metrics.ExecutionMetrics;
+
+
+/**
+ *
+ * 본 클래스는 ThreadSafe하도록 구현되었다.
+ * <p>
+ * 전달된 이벤트와 작업은 자체 큐에 저장되고, {@link StatechartDispatcher}로부터 할당받은
+ * {@link Executor}에서 처리된다. 큐에 저장된 작업을 처리하는 작업(drain)은 동시에 최대 하나만
+ * 제출되기 때문에 이벤트는 도착 순서대로 하나씩 처리된다.
+ * <p>
+ * 이벤트 추가는 잠금 없이 {@link MpscQueue}에 원소를 추가하고 필요한 경우 처리 작업을 제출하는 것으로
+ * 끝나기 때문에, 이벤트 생산자는 상태차트 잠금이나 현재 진행 중인 이벤트 처리 시간의 영향을 받지 않는다.
+ * <p>
+ * 일괄 처리 크기가 1보다 크게 설정된 경우는 큐에 연속하여 쌓인 이벤트들을 최대 일괄 처리 크기만큼
+ * 모아 {@link StatechartExecution#handleEvents(List)}를 통해 한번에 처리한다.
+ * <p>
+ * 용량이 설정된 경우는 큐에 저장된 이벤트의 수를 세어 용량을 넘는 이벤트를 {@link OverflowPolicy}에 따라
+ * 처리한다. 내부 작업({@link #enqueueAction(Runnable)})은 용량 제한을 받지 않는다. 저널에 기록되는
+ * 이벤트는 기록 요청 전에 자리를 예약({@link #reserve(Event, OverflowPolicy)})하므로, 기록 중인 이벤트도
+ * 큐에 저장된 이벤트의 수에 포함된다. {@link OverflowPolicy#DROP_OLDEST} 정책의 경우는 생산자가 큐의 원소를
+ * 제거할 수 있도록, 소비자의 꺼내기 연산과 생산자의 제거 연산이 <code>m_pollLock</code>으로 동기화된다.
+ * <p>
+ * {@link CoalescingEvent}가 추가될 때 같은 키를 갖는 이벤트가 아직 처리되지 않고 큐에 남아 있으면,
+ * 새 이벤트는 큐에 추가되지 않고 대기 중인 이벤트를 제자리에서 대체한다. 대체 여부는 대기 중인
+ * 이벤트의 처리 작업 객체에 대한 CAS 연산으로 결정되므로, 처리 쓰레드가 이미 꺼낸 이벤트는
+ * 대체되지 않는다.
+ * <p>
+ * 큐는 일반 이벤트 큐와 우선 처리 이벤트 큐의 두 단계로 구성된다. {@link ControlEvent}이거나
+ * 우선 처리가 명시된 이벤트({@link #receiveUrgentEvent(Event)})는 우선 처리 큐에 추가되고, 처리 작업은
+ * 우선 처리 큐가 빌 때까지 일반 큐의 작업을 꺼내지 않는다. 각 큐 내에서는 도착 순서가 유지된다.
+ * 우선 처리 이벤트는 용량 제한과 이벤트 병합의 대상이 아니다.
+ *
+ * @author Kang-Woo Lee
+ */
+class StatechartEventQueue implements EventSubscriber {
+	static final Logger s_logger = LoggerFactory.getLogger(StatechartEventQueue.class);
+
+	private final StatechartExecution<?> m_scExec;
+	private final StatechartDispatcher m_dispatcher;
+	private final int m_quantum;
+	private final MpscQueue<Runnable> m_pendings = new MpscQueue<>();
+	private final MpscQueue<Runnable> m_urgents = new MpscQueue<>();	// 우선 처리 이벤트 큐
+	private final AtomicBoolean m_scheduled = new AtomicBoolean(false);
+	private final Runnable m_drainer = this::drain;
+	private volatile Executor m_executor;	// 'open()' 호출 전이나 'close()' 호출 후에는 null
+	private volatile int m_batchSize = 1;
+	private final List<Event> m_batch = new ArrayList<>();	// drain 작업에서만 사용됨
+	private volatile ExecutionMetrics m_metrics;	// 측정하지 않는 경우는 null
+	private volatile int m_capacity = Integer.MAX_VALUE;	// 'open()' 전에만 변경됨
+	private volatile OverflowPolicy m_policy = OverflowPolicy.BLOCK;
+	private final AtomicInteger m_eventCount = new AtomicInteger(0);	// 용량 제한시 큐에 저장된 이벤트 수
+	private final AtomicInteger m_blockedCount = new AtomicInteger(0);	// 빈 자리를 기다리는 생산자 수
+	private final Object m_notFull = new Object();
+	private final Object m_pollLock = new Object();
+	private volatile Thread m_drainThread;		// drain 작업을 수행 중인 쓰레드
+	private volatile boolean m_closed = false;
+	private volatile BiConsumer<Event,Boolean> m_forward;	// 비활성화된 경우 남은 이벤트를 넘길 대상
+	private final Map<Object,EventDeliveryAction> m_coalescings = new ConcurrentHashMap<>();	// 키별 대기 이벤트
+
+	StatechartEventQueue(StatechartExecution<?> scExec, StatechartDispatcher dispatcher) {
+		Objects.requireNonNull(dispatcher, "StatechartDispatcher was null");
+
+		m_scExec = scExec;
+		m_dispatcher = dispatcher;
+		m_quantum = dispatcher.getQuantum();
+	}
+
+	/**
+	 * 이벤트 처리에 사용할 <code>Executor</code>를 할당받는다.
+	 * <p>
+	 * 할당 전에 전달된 작업이 있는 경우는 할당 즉시 처리를 시작한다.
+	 */
+	synchronized void open() {
+		if ( m_executor == null ) {
+			m_executor = m_dispatcher.attach(m_scExec);
+			m_closed = false;
+
+			if ( !isEmpty() && m_scheduled.compareAndSet(false, true) ) {
+				schedule();
+			}
+		}
+	}
+
+	/**
+	 * 할당받은 <code>Executor</code>를 반환한다.
+	 * <p>
+	 * 이미 처리 중인 작업은 계속 진행된다.
+	 */
+	synchronized void close() {
+		Executor executor = m_executor;
+		if ( executor != null ) {
+			m_executor = null;
+			m_dispatcher.detach(m_scExec, executor);
+		}
+
+		// 빈 자리를 기다리는 생산자들을 깨운다.
+		m_closed = true;
+		synchronized ( m_notFull ) {
+			m_notFull.notifyAll();
+		}
+	}
+
+	/**
+	 * 닫힌 큐에 남아 있거나 이후에 추가되는 이벤트들을 주어진 대상에게 넘긴다.
+	 * <p>
+	 * 수행이 비활성화된 후, 비활성화 이전에 수행 객체를 획득한 생산자들이 추가한 이벤트가
+	 * 버려지지 않도록 하기 위해 사용된다. 이벤트가 아닌 작업은 그대로 수행된다.
+	 */
+	void forwardTo(BiConsumer<Event,Boolean> forward) {
+		m_forward = forward;
+		if ( m_scheduled.compareAndSet(false, true) ) {
+			schedule();
+		}
+	}
+
+	@Override
+	public final void receiveEvent(Event event) {
+		if ( event instanceof ControlEvent ) {
+			receiveUrgentEvent(event);
+		}
+		else if ( event != null ) {
+			s_logger.debug("submitting event: {}", event);
+
+			if ( add(event, m_policy) ) {
+				scheduleIfIdle();
+			}
+		}
+	}
+
+	/**
+	 * 주어진 이벤트를 우선 처리 큐에 추가한다.
+	 * <p>
+	 * 추가된 이벤트는 일반 큐에 대기 중인 이벤트들보다 먼저 처리된다.
+	 */
+	void receiveUrgentEvent(Event event) {
+		if ( event != null ) {
+			s_logger.debug("submitting urgent event: {}", event);
+
+			m_urgents.offer(new EventDeliveryAction(event, null, true, m_metrics));
+			scheduleIfIdle();
+		}
+	}
+
+	/**
+	 * 주어진 이벤트를 대기하거나 예외를 발생시키지 않고 큐에 추가한다.
+	 *
+	 * @param event	추가할 이벤트.
+	 * @return	추가된 경우는 <code>true</code>, 큐가 가득 차서 버려진 경우는 <code>false</code>.
+	 */
+	boolean offer(Event event) {
+		if ( event instanceof ControlEvent ) {
+			receiveUrgentEvent(event);
+			return true;
+		}
+
+		OverflowPolicy policy = (m_policy == OverflowPolicy.DROP_OLDEST)
+								? OverflowPolicy.DROP_OLDEST : OverflowPolicy.DROP_NEWEST;
+		if ( add(event, policy) ) {
+			scheduleIfIdle();
+			return true;
+		}
+		else {
+			return false;
+		}
+	}
+
+	/**
+	 * 저널에 기록할 이벤트를 위해 큐의 자리를 예약한다.
+	 * <p>
+	 * 예약된 자리는 기록된 이벤트가 {@link #deliver(Event, boolean)}로 추가된 후 처리 쓰레드가 꺼낼 때,
+	 * 또는 기록에 실패하여 {@link #unreserve()}가 호출될 때 반환된다. 이미 기록된 이벤트는 버릴 수 없으므로
+	 * {@link OverflowPolicy#DROP_OLDEST} 정책은 지원하지 않는다.
+	 *
+	 * @return	예약된 경우는 <code>true</code>, {@link OverflowPolicy#DROP_NEWEST} 정책에 따라
+	 * 			이벤트를 버려야 하는 경우는 <code>false</code>.
+	 * @throws EventQueueFullException	{@link OverflowPolicy#REJECT} 정책에 따라 거부된 경우.
+	 */
+	boolean reserve(Event event, OverflowPolicy policy) {
+		int capacity = m_capacity;
+		if ( capacity == Integer.MAX_VALUE || tryReserve(capacity) ) {
+			return true;
+		}
+
+		switch ( policy ) {
+			case BLOCK:
+				awaitNotFull(capacity);
+				return true;
+			case REJECT:
+				eventDropped(false);
+				throw new EventQueueFullException("capacity=" + capacity + ", event=" + event);
+			case DROP_NEWEST:
+				s_logger.debug("event queue full, dropped the newest event: {}", event);
+				eventDropped(false);
+				return false;
+			default:
+				throw new IllegalStateException("unsupported overflow policy for journaled events: " + policy);
+		}
+	}
+
+	/**
+	 * {@link #reserve(Event, OverflowPolicy)}로 예약한 자리를 반환한다.
+	 */
+	void unreserve() {
+		if ( m_capacity != Integer.MAX_VALUE ) {
+			releaseSlot();
+		}
+	}
+
+	/**
+	 * 저널에 기록된 이벤트를 큐에 추가한다.
+	 *
+	 * @param reserved	{@link #reserve(Event, OverflowPolicy)}로 자리를 예약한 이벤트인지 여부.
+	 * 					예약되지 않은 이벤트도 용량 제한 없이 추가된다.
+	 */
+	void deliver(Event event, boolean reserved) {
+		if ( !reserved && m_capacity != Integer.MAX_VALUE ) {
+			m_eventCount.incrementAndGet();
+		}
+
+		// 재처리 결과가 원래 처리 결과와 같도록 저널에 기록된 이벤트는 병합하지 않는다.
+		enqueue(new EventDeliveryAction(event, null, false, m_metrics));
+	}
+
+	/**
+	 * 주어진 이벤트들을 순서대로 큐에 추가한다.
+	 * <p>
+	 * 모든 이벤트를 추가한 후에 한번만 처리 작업을 스케줄링한다. 단, 큐가 가득 차서 다음 이벤트의
+	 * 추가가 대기하거나 거부될 수 있는 경우는 그 전에 앞서 추가된 이벤트들의 처리 작업을 스케줄링한다.
+	 * 이벤트들은 하나씩 추가되므로 다른 생산자의 이벤트가 중간에 끼어들 수 있으며, 제어 이벤트는
+	 * 우선 처리 큐에 추가된다.
+	 */
+	public void receiveEvents(Collection<? extends Event> events) {
+		boolean added = false;
+		OverflowPolicy policy = m_policy;
+		try {
+			for ( Event event: events ) {
+				if ( event instanceof ControlEvent ) {
+					m_urgents.offer(new EventDeliveryAction(event, null, true, m_metrics));
+					added = true;
+				}
+				else if ( event != null ) {
+					if ( added && isFull() ) {
+						// 처리 작업 없이 대기하면 빈 자리가 생기지 않는다.
+						scheduleIfIdle();
+						added = false;
+					}
+					added |= add(event, policy);
+				}
+			}
+		}
+		finally {
+			// 거부되어 중단된 경우도 앞서 추가된 이벤트들은 처리되어야 한다.
+			if ( added ) {
+				scheduleIfIdle();
+			}
+		}
+	}
+
+	int getCapacity() {
+		return m_capacity;
+	}
+
+	OverflowPolicy getOverflowPolicy() {
+		return m_policy;
+	}
+
+	synchronized void setCapacity(int capacity, OverflowPolicy policy) {
+		if ( m_executor != null ) {
+			throw new IllegalStateException("event queue has already been opened");
+		}
+
+		m_capacity = capacity;
+		m_policy = policy;
+	}
+
+	// 이벤트를 큐에 추가하고 추가 여부를 반환한다. 처리 작업의 스케줄링은 호출자가 수행한다.
+	private boolean add(Event event, OverflowPolicy policy) {
+		Object key = null;
+		if ( event instanceof CoalescingEvent ) {
+			key = ((CoalescingEvent)event).getCoalescingKey();
+			if ( key != null && coalesce(key, event) ) {
+				return true;
+			}
+		}
+
+		int capacity = m_capacity;
+		if ( capacity == Integer.MAX_VALUE ) {
+			offerEvent(event, key);
+			return true;
+		}
+
+		if ( !tryReserve(capacity) ) {
+			switch ( policy ) {
+				case BLOCK:
+					awaitNotFull(capacity);
+					break;
+				case REJECT:
+					eventDropped(false);
+					throw new EventQueueFullException("capacity=" + capacity + ", event=" + event);
+				case DROP_NEWEST:
+					s_logger.debug("event queue full, dropped the newest event: {}", event);
+					eventDropped(false);
+					return false;
+				case DROP_OLDEST:
+					return replaceOldest(event, key);
+			}
+		}
+
+		offerEvent(event, key);
+		return true;
+	}
+
+	// 같은 키를 갖는 대기 중인 이벤트를 주어진 이벤트로 대체한다.
+	private boolean coalesce(Object key, Event event) {
+		EventDeliveryAction pending = m_coalescings.get(key);
+		if ( pending != null && pending.replace(event) ) {
+			s_logger.debug("coalesced event: key={}, event={}", key, event);
+
+			ExecutionMetrics metrics = m_metrics;
+			if ( metrics != null ) {
+				metrics.eventCoalesced();
+			}
+			return true;
+		}
+
+		return false;
+	}
+
+	private void offerEvent(Event event, Object key) {
+		EventDeliveryAction action = new EventDeliveryAction(event, key, false, m_metrics);
+		if ( key != null ) {
+			m_coalescings.put(key, action);
+		}
+		m_pendings.offer(action);
+	}
+
+	private boolean isFull() {
+		int capacity = m_capacity;
+		return capacity != Integer.MAX_VALUE && m_eventCount.get() >= capacity;
+	}
+
+	private boolean tryReserve(int capacity) {
+		while ( true ) {
+			int count = m_eventCount.get();
+			if ( count >= capacity ) {
+				return false;
+			}
+			if ( m_eventCount.compareAndSet(count, count+1) ) {
+				return true;
+			}
+		}
+	}
+
+	private void awaitNotFull(int capacity) {
+		if ( Thread.currentThread() == m_drainThread ) {
+			// 이벤트 처리 쓰레드가 대기하면 빈 자리가 생기지 않는다.
+			throw new EventQueueFullException("cannot block the event handling thread: capacity="
+												+ capacity);
+		}
+
+		synchronized ( m_notFull ) {
+			m_blockedCount.incrementAndGet();
+			try {
+				while ( !tryReserve(capacity) ) {
+					if ( m_closed ) {
+						throw new EventQueueFullException("event queue has been closed");
+					}
+					m_notFull.wait();
+				}
+			}
+			catch ( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+				throw new EventQueueFullException("interrupted while waiting: capacity=" + capacity);
+			}
+			finally {
+				m_blockedCount.decrementAndGet();
+			}
+		}
+	}
+
+	// 가장 오래된 이벤트를 버리고, 그 자리를 사용하여 새 이벤트를 추가한다.
+	private boolean replaceOldest(Event event, Object key) {
+		synchronized ( m_pollLock ) {
+			Runnable oldest;
+			while ( (oldest = m_pendings.removeFirst(task -> task instanceof EventDeliveryAction)) != null ) {
+				// 이미 버려진 처리 작업은 건너뛴다.
+				Event dropped = ((EventDeliveryAction)oldest).take();
+				if ( dropped != null ) {
+					s_logger.debug("event queue full, dropped the oldest event: {}", dropped);
+					eventDropped(true);
+
+					offerEvent(event, key);
+					return true;
+				}
+			}
+
+			// 큐에 남은 이벤트가 마지막 원소뿐인 경우는 큐에서 제거할 수 없으므로 버려진 것으로 표시만 한다.
+			Runnable last = m_pendings.peekLast();
+			if ( last instanceof EventDeliveryAction ) {
+				Event dropped = ((EventDeliveryAction)last).take();
+				if ( dropped != null ) {
+					s_logger.debug("event queue full, dropped the oldest event: {}", dropped);
+					eventDropped(true);
+
+					offerEvent(event, key);
+					return true;
+				}
+			}
+		}
+
+		// 자리를 예약한 이벤트가 아직 큐에 연결되지 않은 경우
+		s_logger.debug("event queue full, dropped the newest event: {}", event);
+		eventDropped(false);
+		return false;
+	}
+
+	// 용량이 설정된 경우에만 호출된다.
+	private void releaseSlot() {
+		if ( m_eventCount.decrementAndGet() < m_capacity && m_blockedCount.get() > 0 ) {
+			synchronized ( m_notFull ) {
+				m_notFull.notifyAll();
+			}
+		}
+	}
+
+	private void eventDropped(boolean queued) {
+		ExecutionMetrics metrics = m_metrics;
+		if ( metrics != null ) {
+			metrics.eventDropped(queued);
+		}
+	}
+
+	/**
+	 * 처리 대기 중이거나 처리 중인 작업이 없는지 여부를 반환한다.
+	 */
+	boolean isIdle() {
+		return !m_scheduled.get() && isEmpty();
+	}
+
+	private boolean isEmpty() {
+		return m_urgents.isEmpty() && m_pendings.isEmpty();
+	}
+
+	void setMetrics(ExecutionMetrics metrics) {
+		m_metrics = metrics;
+	}
+
+	int getBatchSize() {
+		return m_batchSize;
+	}
+
+	void setBatchSize(int size) {
+		m_batchSize = size;
+	}
+
+	public void enqueueAction(Runnable action) {
+		s_logger.debug("submitting action: {}", action);
+
+		enqueue(action);
+	}
+
+	private void enqueue(Runnable task) {
+		m_pendings.offer(task);
+		scheduleIfIdle();
+	}
+
+	private void scheduleIfIdle() {
+		if ( m_scheduled.compareAndSet(false, true) ) {
+			schedule();
+		}
+	}
+
+	private Runnable poll() {
+		// 우선 처리 이벤트는 버려지지 않는다.
+		Runnable urgent = m_urgents.poll();
+		if ( urgent != null ) {
+			((EventDeliveryAction)urgent).dequeued();
+			return urgent;
+		}
+
+		boolean locked = m_policy == OverflowPolicy.DROP_OLDEST && m_capacity != Integer.MAX_VALUE;
+		while ( true ) {
+			Runnable task;
+			if ( locked ) {
+				synchronized ( m_pollLock ) {
+					task = m_pendings.poll();
+				}
+			}
+			else {
+				task = m_pendings.poll();
+			}
+
+			if ( task instanceof EventDeliveryAction ) {
+				EventDeliveryAction action = (EventDeliveryAction)task;
+				if ( !action.dequeued() ) {
+					// 큐가 가득 차서 버려진 이벤트
+					continue;
+				}
+			}
+
+			return task;
+		}
+	}
+
+	// 'm_scheduled'를 획득한 쓰레드만 호출한다.
+	private void schedule() {
+		Executor executor = m_executor;
+		if ( executor != null ) {
+			try {
+				executor.execute(m_drainer);
+			}
+			catch ( RejectedExecutionException e ) {
+				s_logger.debug("executor rejected the drain task: {}", m_scExec);
+				m_scheduled.set(false);
+
+				// 'close()' 직후에 거부된 경우는 'forwardTo()'가 스케줄링 기회를 놓쳤을 수 있으므로 다시 확인한다.
+				if ( m_forward != null && !isEmpty() && m_scheduled.compareAndSet(false, true) ) {
+					schedule();
+				}
+			}
+			return;
+		}
+
+		BiConsumer<Event,Boolean> forward = m_forward;
+		if ( forward != null ) {
+			forwardPendings(forward);
+		}
+
+		// 아직 'Executor'가 할당되지 않았거나 반환된 경우는 'open()'이 호출될 때 다시 스케줄링된다.
+		// 단, 'open()' 또는 'forwardTo()'가 동시에 호출되어 스케줄링 기회를 놓쳤을 수 있으므로 다시 확인한다.
+		m_scheduled.set(false);
+		if ( (m_executor != null || m_forward != null) && !isEmpty()
+			&& m_scheduled.compareAndSet(false, true) ) {
+			schedule();
+		}
+	}
+
+	// 'm_scheduled'를 획득한 쓰레드만 호출한다.
+	private void forwardPendings(BiConsumer<Event,Boolean> forward) {
+		Runnable task;
+		while ( (task = poll()) != null ) {
+			if ( task instanceof EventDeliveryAction ) {
+				EventDeliveryAction action = (EventDeliveryAction)task;
+				try {
+					forward.accept(action.getEvent(), action.m_urgent);
+				}
+				catch ( Throwable e ) {
+					s_logger.warn("fails to forward event={}", action.getEvent(), e);
+				}
+			}
+			else {
+				runTask(task);
+			}
+		}
+	}
+
+	private void drain() {
+		int batchSize = m_batchSize;
+		m_drainThread = Thread.currentThread();
+
+		Runnable task;
+		for ( int cnt = 0; cnt < m_quantum && (task = poll()) != null; ++cnt ) {
+			if ( batchSize > 1 && task instanceof EventDeliveryAction ) {
+				// 연속된 이벤트들을 모아 한번에 처리한다.
+				m_batch.add(((EventDeliveryAction)task).getEvent());
+
+				if ( m_batch.size() >= batchSize || !(peek() instanceof EventDeliveryAction) ) {
+					flushBatch();
+				}
+			}
+			else {
+				runTask(task);
+			}
+		}
+		flushBatch();
+		m_drainThread = null;
+
+		if ( !isEmpty() ) {
+			// quantum을 모두 사용한 경우는 다른 수행들의 뒤에서 다시 처리하도록 한다.
+			schedule();
+		}
+		else {
+			m_scheduled.set(false);
+
+			// 'm_scheduled'를 해제하는 사이에 새로 추가된 작업이 있을 수 있으므로 다시 확인한다.
+			if ( !isEmpty() && m_scheduled.compareAndSet(false, true) ) {
+				schedule();
+			}
+		}
+	}
+
+	// 다음에 꺼낼 작업을 반환한다.
+	private Runnable peek() {
+		Runnable urgent = m_urgents.peek();
+		return (urgent != null) ? urgent : m_pendings.peek();
+	}
+
+	private void flushBatch() {
+		if ( !m_batch.isEmpty() ) {
+			try {
+				m_scExec.handleEvents(m_batch);
+			}
+			catch ( Throwable e ) {
+				s_logger.warn("fails to handle events={}", m_batch, e);
+			}
+			finally {
+				m_batch.clear();
+			}
+		}
+	}
+
+	private static void runTask(Runnable task) {
+		try {
+			task.run();
+		}
+		catch ( Throwable e ) {
+			s_logger.warn("fails to handle event={}", task, e);
+		}
+	}
+
+	private static final AtomicReferenceFieldUpdater<EventDeliveryAction,Event> EVENT
+				= AtomicReferenceFieldUpdater.newUpdater(EventDeliveryAction.class, Event.class, "m_pending");
+
+	class EventDeliveryAction implements Runnable {
+		// 처리되기를 기다리는 이벤트. 처리 쓰레드가 꺼냈거나 큐가 가득 차서 버려진 경우는 null.
+		// 병합 키가 있는 경우는 생산자에 의해 같은 키의 새 이벤트로 대체될 수 있다.
+		volatile Event m_pending;
+		private Event m_event;		// 처리 쓰레드가 꺼낸 이벤트
+		private final Object m_key;	// 병합 키 (없는 경우는 null)
+		private final boolean m_urgent;	// 우선 처리 이벤트 여부 (용량 제한을 받지 않음)
+		private final ExecutionMetrics m_metrics;	// 큐 추가 시점에 설정된 측정값 (없는 경우는 null)
+		private final long m_enqueuedAt;
+
+		EventDeliveryAction(Event event, Object key, boolean urgent, ExecutionMetrics metrics) {
+			Objects.requireNonNull(event, "Event was null");
+
+			m_pending = event;
+			m_key = key;
+			m_urgent = urgent;
+			m_metrics = metrics;
+			if ( metrics != null ) {
+				metrics.eventEnqueued();
+				m_enqueuedAt = System.nanoTime();
+			}
+			else {
+				m_enqueuedAt = 0;
+			}
+		}
+
+		// 대기 중인 이벤트를 주어진 이벤트로 대체한다. 이미 꺼내졌거나 버려진 경우는 false를 반환한다.
+		boolean replace(Event event) {
+			Event pending;
+			do {
+				if ( (pending = m_pending) == null ) {
+					return false;
+				}
+			} while ( !EVENT.compareAndSet(this, pending, event) );
+
+			return true;
+		}
+
+		// 대기 중인 이벤트를 꺼낸다. 이후에는 대체되지 않는다.
+		Event take() {
+			Event event = EVENT.getAndSet(this, null);
+			if ( event != null && m_key != null ) {
+				m_coalescings.remove(m_key, this);
+			}
+
+			return event;
+		}
+
+		// 처리 쓰레드가 큐에서 꺼낸 경우 호출된다. 이미 버려진 경우는 false를 반환한다.
+		boolean dequeued() {
+			if ( (m_event = take()) == null ) {
+				return false;
+			}
+
+			if ( !m_urgent && m_capacity != Integer.MAX_VALUE ) {
+				releaseSlot();
+			}
+
+			if ( m_metrics != null ) {
+				m_metrics.eventDequeued(System.nanoTime() - m_enqueuedAt);
+			}
+
+			return true;
+		}
+
+		public Event getEvent() {
+			return m_event;
+		}
+
+		public void run() {
+			m_scExec.handleEvent(m_event);
+	    }
+
+		public String toString() {
+			Event event = (m_event != null) ? m_event : m_pending;
+			return "Action[event=" + event + "]";
+		}
+	}
+}
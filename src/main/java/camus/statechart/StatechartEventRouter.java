@@ -0,0 +1,299 @@
+package camus.statechart;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import event.Event;
+
+
+/**
+ * <code>StatechartEventRouter</code>는 하나의 이벤트를 여러 상태차트 수행에게 전달하는 라우터를 정의한다.
+ * <p>
+ * 라우터는 이벤트 타입별로 현재 활성 상태들 중에 해당 타입의 이벤트를 처리하는 상태가 있는
+ * 수행들의 색인을 유지한다. 색인은 등록된 수행들의 {@link StateEnteredEvent}와 {@link StateLeftEvent}
+ * 통보를 통해 점진적으로 갱신되므로, {@link #broadcast(Event)}는 전체 수행의 수가 아니라
+ * 이벤트를 처리할 수 있는 수행의 수에 비례하는 비용으로 이벤트를 전달한다.
+ * <p>
+ * 상태가 처리하는 이벤트 타입은 {@link State#getEventTypes()}로 결정된다. 처리하는 타입을 알 수 없는
+ * 상태가 활성화된 수행은 모든 이벤트를 전달받는다. 이벤트에 해당하는 타입들은
+ * {@link Event#isInstanceOf(Class)}로 결정되며, 그 결과는 이벤트의 타입 식별자 목록
+ * ({@link Event#getEventTypeIds()})별로 저장되어 재사용된다.
+ * <p>
+ * {@link PassivationManager}가 관리하는 수행은 비활성화되면 더 이상 사용되지 않는 객체가 되므로,
+ * 본 라우터에 등록하지 않는다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+@ThreadSafe
+public class StatechartEventRouter {
+	private static final Set<StatechartEventKind> KINDS = EnumSet.of(StatechartEventKind.STARTED,
+												StatechartEventKind.STATE_ENTERED, StatechartEventKind.STATE_LEFT);
+
+	private final Map<StatechartExecution<?>,Registration> m_registrations = new ConcurrentHashMap<>();
+	private final Map<Class<?>,Set<StatechartExecution<?>>> m_index = new ConcurrentHashMap<>();
+	private final Set<StatechartExecution<?>> m_wildcards = ConcurrentHashMap.newKeySet();
+	private volatile Class<?>[] m_types = new Class<?>[0];	// 색인된 이벤트 타입 (추가만 되며, 'this'로 동기화하여 변경)
+	private final Map<List<String>,Matches> m_matches = new ConcurrentHashMap<>();	// 이벤트 타입 식별자 목록별
+
+	/**
+	 * 상태차트 수행을 라우터에 등록한다.
+	 * <p>
+	 * 수행 중인 상태차트를 등록하는 경우는 등록 시점의 활성 상태들로 색인이 초기화된다.
+	 *
+	 * @param exec	등록할 상태차트 수행.
+	 * @throws IllegalStateException	이미 등록된 수행인 경우.
+	 */
+	public <C extends StatechartExecution<C>> void register(StatechartExecution<C> exec) {
+		Objects.requireNonNull(exec, "StatechartExecution was null");
+
+		Registration reg = new Registration(exec);
+		if ( m_registrations.putIfAbsent(exec, reg) != null ) {
+			throw new IllegalStateException("execution already registered: " + exec);
+		}
+		exec.addStatechartListener(reg, KINDS, states -> {
+			for ( State<C> state: states ) {
+				reg.update(state, +1);
+			}
+		});
+	}
+
+	/**
+	 * 상태차트 수행의 등록을 해제한다.
+	 *
+	 * @param exec	등록 해제할 상태차트 수행.
+	 * @return	등록 해제된 경우는 <code>true</code>, 등록되지 않은 수행인 경우는 <code>false</code>.
+	 */
+	public boolean unregister(StatechartExecution<?> exec) {
+		Registration reg = m_registrations.remove(exec);
+		if ( reg == null ) {
+			return false;
+		}
+
+		exec.removeStatechartListener(reg);
+		reg.close();
+
+		return true;
+	}
+
+	/**
+	 * 주어진 이벤트를 처리할 수 있는 상태가 활성화된 수행들에게 이벤트를 전달한다.
+	 *
+	 * @param event	전달할 이벤트.
+	 * @return	이벤트를 전달받은 수행의 수.
+	 */
+	public int broadcast(Event event) {
+		int count = 0;
+		for ( StatechartExecution<?> exec: getInterestedExecutions(event) ) {
+			exec.receiveEvent(event);
+			++count;
+		}
+
+		return count;
+	}
+
+	/**
+	 * 주어진 이벤트를 처리할 수 있는 상태가 활성화된 수행들을 반환한다.
+	 *
+	 * @param event	대상 이벤트.
+	 * @return	수행 집합.
+	 */
+	public Collection<StatechartExecution<?>> getInterestedExecutions(Event event) {
+		Objects.requireNonNull(event, "Event was null");
+
+		Set<StatechartExecution<?>> single = null;
+		Set<StatechartExecution<?>> merged = null;
+		for ( Class<?> type: getMatchingTypes(event) ) {
+			Set<StatechartExecution<?>> execs = m_index.get(type);
+			if ( execs == null || execs.isEmpty() ) {
+				continue;
+			}
+
+			// 대부분의 이벤트는 하나의 타입에만 해당되므로, 여러 타입에 해당되는 경우에만 합친다.
+			if ( single == null ) {
+				single = execs;
+			}
+			else {
+				if ( merged == null ) {
+					merged = Collections.newSetFromMap(new IdentityHashMap<>());
+					merged.addAll(single);
+				}
+				merged.addAll(execs);
+			}
+		}
+
+		if ( m_wildcards.isEmpty() ) {
+			if ( merged != null ) {
+				return merged;
+			}
+			return (single != null) ? Collections.unmodifiableSet(single) : Collections.emptySet();
+		}
+		else {
+			if ( merged == null ) {
+				merged = Collections.newSetFromMap(new IdentityHashMap<>());
+				if ( single != null ) {
+					merged.addAll(single);
+				}
+			}
+			merged.addAll(m_wildcards);
+			return merged;
+		}
+	}
+
+	/**
+	 * 등록된 상태차트 수행의 수를 반환한다.
+	 *
+	 * @return	등록된 수행의 수.
+	 */
+	public int getExecutionCount() {
+		return m_registrations.size();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("StatechartEventRouter[executions=%d, types=%d]",
+							m_registrations.size(), m_types.length);
+	}
+
+	private Class<?>[] getMatchingTypes(Event event) {
+		Class<?>[] types = m_types;
+		String[] typeIds = event.getEventTypeIds();
+		Matches matches = m_matches.get(Arrays.asList(typeIds));
+		if ( matches == null || matches.m_version != types.length ) {
+			// 새로운 타입 식별자 목록이거나, 마지막 계산 이후 색인된 타입이 추가된 경우
+			Class<?>[] found = new Class<?>[types.length];
+			int count = 0;
+			for ( Class<?> type: types ) {
+				if ( event.isInstanceOf(type) ) {
+					found[count++] = type;
+				}
+			}
+			matches = new Matches(types.length, Arrays.copyOf(found, count));
+			m_matches.put(Arrays.asList(typeIds.clone()), matches);
+		}
+
+		return matches.m_types;
+	}
+
+	private synchronized void addType(Class<?> type) {
+		Class<?>[] types = m_types;
+		for ( Class<?> registered: types ) {
+			if ( registered == type ) {
+				return;
+			}
+		}
+
+		types = Arrays.copyOf(types, types.length + 1);
+		types[types.length-1] = type;
+		m_types = types;
+	}
+
+	private static final class Matches {
+		private final int m_version;		// 계산 당시 색인된 타입의 수
+		private final Class<?>[] m_types;
+
+		Matches(int version, Class<?>[] types) {
+			m_version = version;
+			m_types = types;
+		}
+	}
+
+	/**
+	 * 하나의 수행에 대해 활성 상태들이 처리하는 이벤트 타입별 상태 수를 유지한다.
+	 * <p>
+	 * 리스너 통보는 수행의 상태차트 잠금 안에서 전달되므로 갱신은 수행별로 순서대로 이루어지며,
+	 * 등록 해제와의 경쟁만을 위해 동기화된다.
+	 */
+	private final class Registration implements StatechartListener {
+		private final StatechartExecution<?> m_exec;
+		@GuardedBy("this") private final Map<Class<?>,int[]> m_counts = new HashMap<>();
+		@GuardedBy("this") private int m_wildcardCount = 0;
+		@GuardedBy("this") private boolean m_closed = false;
+
+		Registration(StatechartExecution<?> exec) {
+			m_exec = exec;
+		}
+
+		@Override
+		public void receiveEvent(StatechartEvent event) {
+			if ( event instanceof StateEnteredEvent ) {
+				update(m_exec.getStatechart().getState(((StateEnteredEvent)event).getStateId()), +1);
+			}
+			else if ( event instanceof StateLeftEvent ) {
+				update(m_exec.getStatechart().getState(((StateLeftEvent)event).getStateId()), -1);
+			}
+			else if ( event instanceof StatechartStartedEvent ) {
+				// 재시작되는 경우 이전 수행에서 탈출 통보를 받지 못한 상태들을 정리한다.
+				reset();
+			}
+		}
+
+		synchronized void update(State<?> state, int delta) {
+			if ( m_closed ) {
+				return;
+			}
+
+			Set<Class<?>> types = state.getEventTypes();
+			if ( types == null ) {
+				int prev = m_wildcardCount;
+				m_wildcardCount = Math.max(0, prev + delta);
+				if ( prev == 0 && m_wildcardCount > 0 ) {
+					m_wildcards.add(m_exec);
+				}
+				else if ( prev > 0 && m_wildcardCount == 0 ) {
+					m_wildcards.remove(m_exec);
+				}
+				return;
+			}
+
+			for ( Class<?> type: types ) {
+				int[] count = m_counts.get(type);
+				if ( count == null ) {
+					if ( delta < 0 ) {
+						continue;
+					}
+					m_counts.put(type, count = new int[1]);
+				}
+
+				int prev = count[0];
+				count[0] += delta;
+				if ( prev == 0 && count[0] > 0 ) {
+					addType(type);
+					m_index.computeIfAbsent(type, t -> ConcurrentHashMap.newKeySet()).add(m_exec);
+				}
+				else if ( prev > 0 && count[0] == 0 ) {
+					m_counts.remove(type);
+					m_index.get(type).remove(m_exec);
+				}
+			}
+		}
+
+		synchronized void reset() {
+			for ( Class<?> type: m_counts.keySet() ) {
+				m_index.get(type).remove(m_exec);
+			}
+			m_counts.clear();
+
+			if ( m_wildcardCount > 0 ) {
+				m_wildcards.remove(m_exec);
+				m_wildcardCount = 0;
+			}
+		}
+
+		synchronized void close() {
+			reset();
+			m_closed = true;
+		}
+	}
+}
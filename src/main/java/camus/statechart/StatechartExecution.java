@@ -1,414 +1,1963 @@
-package camus.statechart;
-
-import java.util.List;
-import java.util.concurrent.locks.ReentrantLock;
-
-import javax.annotation.concurrent.GuardedBy;
-
-import camus.statechart.support.StateChartUtils;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import com.google.common.collect.Lists;
-import com.google.common.eventbus.EventBus;
-
-import async.AsyncOperationState;
-import async.support.AbstractService;
-import event.Event;
-import event.EventSubscriber;
-import utils.Utilities;
-import utils.async.Guard;
-
-
-
-/**
- * 
- * @author Kang-Woo Lee (ETRI)
- */
-public class StatechartExecution<C extends StatechartExecution<C>> extends AbstractService
-														implements EventSubscriber {
-    private static final Logger s_logger = LoggerFactory.getLogger(StatechartExecution.class);
-
-	private final Statechart<C> m_schart;
-	private final Guard m_scGuard = Guard.by(new ReentrantLock());
-	private final StatechartEventQueue m_eventQueue;
-	@GuardedBy("m_scLock") private final List<State<C>> m_path;
-	@GuardedBy("m_scLock") private final EventBus m_eventBus;
-    
-    public StatechartExecution(Statechart<C> schart) {
-		m_schart = schart;
-		m_eventQueue = new StatechartEventQueue(this);
-		m_path = Lists.newArrayList();
-		m_eventBus = new EventBus();
-		
-		setLogger(s_logger);
-    }
-	
-	/**
-	 * 본 수행에서 사용하는 상태차트를 반환한다.
-	 * 
-	 * @return	상태차트.
-	 */
-	public Statechart<C> getStatechart() {
-		return m_schart;
-	}
-
-	/**
-	 * 상태차트 수행 중에 현재 상태 객체를 반환한다.
-	 */
-	public State<C> getCurrentState() {
-		return m_scGuard.get(()-> {
-			return (m_path.size() > 0) ? m_path.get(m_path.size()-1) : null;
-		});
-	}
-
-	@Override
-	public void receiveEvent(Event event) {
-		if ( isRunning() ) {
-			m_scGuard.run(()->m_eventQueue.receiveEvent(event));
-		}
-	}
-
-	@Override
-	protected void startService() throws Exception {
-		m_scGuard.lock();
-		try {
-			notifyScEventInGuard(new StatechartStartedEvent(m_schart));
-	
-			State<C> root = m_schart.getRootState();
-			State<C> to = enterLeafStateInGuard(root);
-			if ( to != null ) {
-				gotoStateInGuard(to, null);
-			}
-	
-			if ( m_path.get(m_path.size()-1).isFinal() ) {
-				final State<C> s = m_path.get(m_path.size()-1);
-				
-				Utilities.runAsync(getExecutor(), () -> {
-					if ( s instanceof FinalState ) {
-						FinalState fs = (FinalState)s;
-						stopInGuard(fs.getAsyncOperationState(), fs.getFailureCause());
-					}
-					else {
-						stopInGuard(AsyncOperationState.COMPLETED, null);
-					}
-				});
-			}
-		}
-		finally {
-			m_scGuard.unlock();
-		}
-	}
-	
-	@Override
-	protected void stopService() {
-		m_scGuard.run(() -> stopInGuard(AsyncOperationState.COMPLETED, null));
-	}
-
-	public void addStatechartListener(Object listener) {
-		m_scGuard.run(() -> m_eventBus.register(listener));
-	}
-
-	public void removeStatechartListener(Object listener) {
-		m_scGuard.run(() -> m_eventBus.unregister(listener));
-	}
-
-	public String toString() {
-		return "Statechart[current=" + getCurrentState() + "]";
-	}
-
-	void handleEvent(Event event) {
-		if ( !isRunning() ) {
-			return;
-		}
-
-		if ( event instanceof EndOfEvent ) {
-			stopInGuard(AsyncOperationState.COMPLETED, null);
-
-			return;
-		}
-		
-		m_scGuard.lock();
-		try {
-			int idx = m_path.size() -1;
-	
-			State<C> toState = null;
-			String toStateId =null;
-			for ( ; idx >= 0; --idx ) {
-				State<C> state = m_path.get(idx);
-				try {
-					toStateId = state.handleEvent((C)this, event);
-				}
-				catch ( Throwable fault ) {
-					State<C> faultState = getFaultHandleStateInGuard(state, fault);
-					s_logger.warn("fails to handle event: state={}, event={}, cause={}",
-									state, event, fault);
-	
-					notifyScEventInGuard(new FaultRaisedEvent(fault, state, faultState,
-													StatechartFaultCase.HANDLE_EVENT, event));
-				}
-				
-				notifyScEventInGuard(new EventHandledEvent(event, state, toStateId));
-				if ( toStateId != null ) {
-					if ( !toStateId.equals(State.STOP_PROPAGATE_GUID) ) {
-						toState = StateChartUtils.traverse(m_schart, state, toStateId);
-						s_logger.info("handled: event={}, {}, goto={}", event, state, toState);
-					}
-					else {
-						s_logger.info("handled: event={}, {}", event, state);
-					}
-					break;
-				}
-			}
-	
-			if ( toState != null ) {
-				gotoStateInGuard(toState, event);
-			}
-	
-			if ( m_path.get(m_path.size()-1).isFinal() ) {
-				final State<C> s = m_path.get(m_path.size()-1);
-				if ( s instanceof FinalState ) {
-					FinalState fs = (FinalState)s;
-					switch ( fs.getAsyncOperationState() ) {
-						case COMPLETED:
-						case CANCELLED:
-							stopInGuard(AsyncOperationState.COMPLETED, null);
-							break;
-						case FAILED:
-							stopInGuard(fs.getAsyncOperationState(), fs.getFailureCause());
-							break;
-						default:
-							throw new RuntimeException();
-					}
-				}
-				else {
-					stopInGuard(AsyncOperationState.COMPLETED, null);
-				}
-			}
-		}
-		finally {
-			m_scGuard.unlock();
-		}
-	}
-
-	private void stopInGuard(AsyncOperationState asyncState, Throwable fault) {
-		for ( int i = m_path.size()-1; i >= 0; --i ) {
-			State<C> state = m_path.get(i);
-			exitIGEInGuard(state);
-
-			notifyScEventInGuard(new StateLeftEvent(state));
-			s_logger.info("exited: {}", state);
-		}
-
-		notifyScEventInGuard(new StatechartFinishedEvent(asyncState, fault));
-		notifyServiceInterrupted();
-	}
-
-	private void gotoStateInGuard(State<C> to, Event causingEvent) {
-		while ( true ) {
-			State<C> current = getCurrentState();
-
-			if ( current == to ) {
-				if ( to.isComposite() ) {
-					try {
-						to = to.getInitialChildState();
-					}
-					catch ( Throwable fault ) {
-						State<C> reactState = to;
-						to = getFaultHandleStateInGuard(reactState, fault);
-
-						notifyScEventInGuard(new FaultRaisedEvent(fault, reactState, to,
-											StatechartFaultCase.GET_INITIAL_SUBSTATE, causingEvent));
-					}
-				}
-				else {
-					return;
-				}
-			}
-			else if ( current.isAncestorOf(to) ) {
-				throw new AssertionError("Cannot goto the substate: current=" + current
-										+ ", to=" + to);
-			}
-			else if ( to.isAncestorOf(current) ) {
-				exitUptoAncestorInGuard(to);
-
-				if ( to.isComposite() ) {
-					try {
-						to = to.getInitialChildState();
-					}
-					catch ( Throwable fault ) {
-						State<C> reactState = to;
-						to = getFaultHandleStateInGuard(reactState, fault);
-
-						notifyScEventInGuard(new FaultRaisedEvent(fault, reactState, null,
-												StatechartFaultCase.GET_INITIAL_SUBSTATE, null));
-					}
-				}
-				else {
-					return;
-				}
-			}
-			else if ( to.getParentState().isAncestorOf(current) ) {
-				try {
-					exitUptoAncestorInGuard(to.getParentState());
-				}
-				catch ( RuntimeException fault ) {
-					stopInGuard(AsyncOperationState.FAILED, fault);
-					
-					throw new RuntimeException(fault);
-				}
-			}
-			else {
-				throw new AssertionError("Cannot goto the substate: current=" + current
-										+ ", to=" + to);
-			}
-
-			to = enterLeafStateInGuard(to);
-			if ( to == null ) {
-				// 목표 상태로의 진입이 성공한 경우
-				return;
-			}
-		}
-	}
-
-	/**
-	 * 주어진 후손 상태까지 내려간다.
-	 *
-	 * @param state		이동 대상 후손 상태.
-	 * @return		성공적으로 진입된 경우는 <code>null</code>을 반환하고,
-	 * 				다른 state로 전이가 추천된 경우는 해당 state를 반환한다.
-	 */
-	private State<C> enterLeafStateInGuard(State<C> state) {
-		State<C> from = getCurrentState();
-		while ( true ) {
-			State<C> next;
-
-			if ( from != state ) {
-				while ( true ) {
-					try {
-						String bouncePath;
-						if ( (bouncePath = state.enter((C)this)) == null ) {
-							break;
-						}
-						next = m_schart.traverse(state, bouncePath);
-						notifyScEventInGuard(new StateBouncedEvent<>(state, next));
-
-						// state의 진입이 허가되지 않고 다른 state 'next'로 이동이 추천된 경우.
-						// 만일 추천된 state가 sibling state인 경우는 해당 state로의 진입을 시도하고,
-						// 그렇지 않은 경우는 해당 state를 반환한다.
-						//
-						if ( next.getParentState() != state.getParentState() ) {
-							return next;
-						}
-					}
-					catch ( Throwable e ) {
-						s_logger.warn("fails to call entry for " + state, e);
-						
-						next = getFaultHandleStateInGuard(state, e);
-						notifyScEventInGuard(new FaultRaisedEvent(e, state, next,
-														StatechartFaultCase.STATE_ENTRY, null));
-						if ( next == null ) {
-							// 별도의 failure handle state가 설정되지 않은 경우는 Statechart 수행을 종료시킨다.
-							stopInGuard(AsyncOperationState.FAILED, e);
-							throw new RuntimeException();
-						}
-					}
-
-					state = next;
-				}
-
-				notifyScEventInGuard(new StateEnteredEvent(state));
-
-				// 대상 자식  state로의 진입이 성공된 경우.
-				if ( s_logger.isInfoEnabled() ) {
-					s_logger.info("entered: state[" + state.getGuid() + "]");
-				}
-
-				m_path.add(state);
-			}
-
-			// 만일 진입한 상태가 nesting state인 경우는 시작 상태로 진입을 시도한다.
-			if ( state.isComposite() ) {
-				try {
-					state = state.getInitialChildState();
-				}
-				catch ( Throwable e ) {
-					State<C> raiser = state;
-					state = getFaultHandleStateInGuard(raiser, e);
-					
-					notifyScEventInGuard(new FaultRaisedEvent(e, raiser, state,
-												StatechartFaultCase.GET_INITIAL_SUBSTATE, null));
-				}
-			}
-			else {
-				return null;
-			}
-		}
-	}
-
-	/**
-	 * 현재 상태에서 주어진 조상 state까지 exit을 호출하여 상태를 빠져나간다.
-	 * <p>
-	 * 대상 조상 state의 'exit'은 호출되지 않음.
-	 * 'ancestor' state가 현재 state의 ancestor 여부는 확인하지 않으므로, 미리 validate되어야 함.
-	 *
-	 * @param ancestor	대상 조상 state
-	 * @throws	AssertionError	'ancestor'가 현재 상태의 조상이 아닌 경우.
-	 */
-	private void exitUptoAncestorInGuard(State<C> ancestor) {
-		for ( int i = m_path.size()-1; i >= 0; --i ) {
-			State<C> state = m_path.get(i);
-			if ( state == ancestor ) {
-				return;
-			}
-
-			exitIGEInGuard(state);
-			m_path.remove(i);
-
-			notifyScEventInGuard(new StateLeftEvent(state));
-
-			if ( s_logger.isInfoEnabled() ) {
-				s_logger.info("exited: state[" + state.getGuid() + "]");
-			}
-		}
-
-		throw new AssertionError("Should not be here: class=" + getClass().getName()
-								+ ".exitUptoAncestor()");
-	}
-
-	private void exitIGEInGuard(State<C> state) {
-		State<C> parent = state.getParentState();
-		if ( parent != null ) {
-			parent.setRecentChildState(state.getLuid());
-		}
-		
-		try {
-			state.leave((C)this);
-		}
-		catch ( Exception e ) {
-			s_logger.warn("ignored exception at exit: state=" + state + ", exception=" + e);
-		}
-	}
-
-	private State<C> getFaultHandleStateInGuard(State<C> state, Throwable fault) {
-		State<C> superState = state.getParentState();
-		while ( true ) {
-			if ( superState != null ) {
-				state = superState.getExceptionState();
-				if ( state != null ) {
-					return state;
-				}
-				
-				superState = superState.getParentState();
-			}
-			else {
-				return m_schart.getRootState().getExceptionState();
-			}
-		}
-	}
-
-	private void notifyScEventInGuard(final StatechartEvent scEvent) {
-		m_eventBus.post(scEvent);
-	}
-}
+package camus.statechart;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.eventbus.EventBus;
+
+import async.AsyncOperationState;
+import async.support.AbstractService;
+import event.Event;
+import event.EventSubscriber;
+import utils.Utilities;
+import utils.async.Guard;
+
+import camus.statechart.metrics.StateMetrics;
+import camus.statechart.metrics.StatechartMetrics;
+import camus.statechart.trace.EventTypeIds;
+import camus.statechart.trace.TraceRecorder;
+
+
+
+/**
+ * 
+ * @author Kang-Woo Lee (ETRI)
+ */
+public class StatechartExecution<C extends StatechartExecution<C>> extends AbstractService
+														implements EventSubscriber {
+    private static final Logger s_logger = LoggerFactory.getLogger(StatechartExecution.class);
+    private static final AtomicLong s_execIdGen = new AtomicLong(0);
+    // 영역들이 동시에 이벤트를 처리하는 동안 작업 쓰레드별로 이벤트를 처리 중인 수행
+    private static final ThreadLocal<StatechartExecution<?>> s_regionWorker = new ThreadLocal<>();
+
+	private final long m_execId = s_execIdGen.incrementAndGet();
+	private final Statechart<C> m_schart;
+	private final ReentrantLock m_scLock = new ReentrantLock();
+	private final Guard m_scGuard = Guard.by(m_scLock);
+	private final StatechartEventQueue m_eventQueue;
+	@GuardedBy("m_scLock") private final List<State<C>> m_path;
+	@GuardedBy("m_scLock") private List<List<State<C>>> m_regions;	// 현재 상태가 직교 상태인 경우 영역별 활성 경로
+	@GuardedBy("m_scLock") private boolean m_regionsCompleted = false;	// 직교 상태의 완료 동작이 호출된 경우
+	private final StatechartListeners m_listeners = new StatechartListeners();
+	@GuardedBy("m_scLock") private EventBus m_eventBus;		// 'addStatechartListener(Object)' 지원용
+	@GuardedBy("m_scLock") private int m_eventBusSubscriberCount = 0;
+	private final StatechartListener m_eventBusRelay = event -> m_eventBus.post(event);
+	@GuardedBy("m_scLock") private boolean m_active = false;
+	@GuardedBy("m_scLock") private Object[] m_stateLocals;	// 상태 번호별 수행 전용 데이터
+	@GuardedBy("m_scLock") private int[] m_history;		// 상태 번호별 최근 자식 상태 번호 + 1 (0: 없음)
+	@GuardedBy("m_scLock") private List<State<C>> m_restoredPath;	// 'restore()' 후 시작 전까지만 사용
+	@GuardedBy("m_scLock") private List<List<State<C>>> m_restoredRegions;
+	private volatile TraceRecorder m_tracer;
+	private volatile StatechartMetrics m_metrics;
+	@GuardedBy("m_scLock") private long[] m_enteredAt;	// 측정 중인 경우 상태 번호별 진입 시각
+	private volatile EventJournal.Binding<C> m_journal;
+	private volatile boolean m_replaying = false;	// 저널 재처리 중에는 리스너에게 통지하지 않음
+	@GuardedBy("m_scLock") private StateTimer<C>[] m_timers;	// 상태 번호별 만료되지 않은 타이머 목록
+	@GuardedBy("m_scLock") private int m_timerCount = 0;
+	private volatile ForkJoinPool m_regionPool = ForkJoinPool.commonPool();
+	private volatile BiConsumer<Event,Boolean> m_forward;	// 비활성화된 경우 늦게 도착한 이벤트를 전달할 대상
+    
+    public StatechartExecution(Statechart<C> schart) {
+		this(schart, StatechartDispatcher.dedicatedThread());
+    }
+    
+    /**
+     * 주어진 이벤트 처리 전략을 사용하는 상태차트 수행 객체를 생성한다.
+     * <p>
+     * {@link StatechartScheduler}를 전달하면 스케줄러의 작업 쓰레드를 여러 수행이 공유하게 되어,
+     * 수행마다 전용 작업 쓰레드를 생성하지 않는다.
+     * 
+     * @param schart		수행할 상태차트.
+     * @param dispatcher	이벤트 처리에 사용할 쓰레드 할당 전략.
+     */
+    public StatechartExecution(Statechart<C> schart, StatechartDispatcher dispatcher) {
+		m_schart = schart;
+		m_eventQueue = new StatechartEventQueue(this, dispatcher);
+		m_path = Lists.newArrayList();
+		
+		setLogger(s_logger);
+    }
+	
+	/**
+	 * 본 수행에서 사용하는 상태차트를 반환한다.
+	 * 
+	 * @return	상태차트.
+	 */
+	public Statechart<C> getStatechart() {
+		return m_schart;
+	}
+
+	/**
+	 * 본 수행의 식별자를 반환한다.
+	 * <p>
+	 * 식별자는 동일 프로세스 내에서 생성된 상태차트 수행들 사이에서 유일하다.
+	 * 
+	 * @return	수행 식별자.
+	 */
+	public long getExecutionId() {
+		return m_execId;
+	}
+	
+	/**
+	 * 본 수행에 설정된 수행 기록기를 반환한다.
+	 * 
+	 * @return	수행 기록기. 설정되지 않은 경우는 <code>null</code>.
+	 */
+	public TraceRecorder getTraceRecorder() {
+		return m_tracer;
+	}
+	
+	/**
+	 * 상태 진입/탈출, 이벤트 처리 등의 수행 과정을 기록할 기록기를 설정한다.
+	 * <p>
+	 * 기록기는 상태차트 잠금을 획득한 상태에서만 기록되므로, 하나의 기록기를 여러 수행에서
+	 * 공유하여서는 안된다. 오류 발생시 최근 기록을 얻으려면
+	 * {@link TraceRecorder#setFaultDumpHandler(camus.statechart.trace.TraceDumpHandler, int)}를
+	 * 사용한다.
+	 * 
+	 * @param tracer	수행 기록기. <code>null</code>인 경우는 기록을 중단한다.
+	 * @throws IllegalStateException	기록기가 이미 다른 상태차트의 수행에 설정된 경우.
+	 */
+	public void setTraceRecorder(TraceRecorder tracer) {
+		if ( tracer != null ) {
+			tracer.bind(m_schart);
+		}
+		m_tracer = tracer;
+	}
+	
+	/**
+	 * 본 수행에 설정된 측정값 저장소를 반환한다.
+	 * 
+	 * @return	측정값 저장소. 설정되지 않은 경우는 <code>null</code>.
+	 */
+	public StatechartMetrics getMetrics() {
+		return m_metrics;
+	}
+	
+	/**
+	 * 이벤트 큐 대기, 상태 진입/탈출/이벤트 처리 소요 시간 등을 수집할 측정값 저장소를 설정한다.
+	 * <p>
+	 * 하나의 저장소를 같은 상태차트를 사용하는 여러 수행에서 공유할 수 있다. 저장소가 설정되지
+	 * 않은 경우는 측정을 위한 시각 조회나 기록이 수행되지 않는다.
+	 * 
+	 * @param metrics	측정값 저장소. <code>null</code>인 경우는 측정을 중단한다.
+	 * @throws IllegalArgumentException	저장소가 다른 상태차트에 대해 생성된 경우.
+	 */
+	public void setMetrics(StatechartMetrics metrics) {
+		Preconditions.checkArgument(metrics == null || metrics.getStatechart() == m_schart,
+									"StatechartMetrics was created for another statechart");
+		checkNotRegionWorker();
+		
+		m_scGuard.lock();
+		try {
+			StatechartMetrics prev = m_metrics;
+			if ( prev != null ) {
+				prev.unregister(m_execId);
+			}
+			
+			m_metrics = metrics;
+			m_enteredAt = null;
+			m_eventQueue.setMetrics((metrics != null) ? metrics.register(m_execId) : null);
+		}
+		finally {
+			m_scGuard.unlock();
+		}
+	}
+
+	/**
+	 * 상태차트 수행 중에 현재 상태 객체를 반환한다.
+	 * <p>
+	 * 직교 상태가 활성화된 경우는 직교 상태를 반환한다. 각 영역의 활성 상태들은
+	 * {@link #getActiveStates()}를 통해 얻는다.
+	 */
+	public State<C> getCurrentState() {
+		checkNotRegionWorker();
+		
+		return m_scGuard.get(()-> {
+			return (m_path.size() > 0) ? m_path.get(m_path.size()-1) : null;
+		});
+	}
+	
+	/**
+	 * 현재 활성화된 상태들의 집합을 반환한다.
+	 * <p>
+	 * 최상위 상태부터 현재 상태까지의 상태들이 순서대로 포함되며, 현재 상태가 직교 상태인 경우는
+	 * 이어서 각 영역의 활성 상태들이 영역 순서대로 포함된다.
+	 * 
+	 * @return	활성 상태 집합.
+	 */
+	public Set<State<C>> getActiveStates() {
+		checkNotRegionWorker();
+		
+		return m_scGuard.get(() -> {
+			Set<State<C>> states = new LinkedHashSet<>(m_path);
+			if ( m_regions != null ) {
+				for ( List<State<C>> path: m_regions ) {
+					states.addAll(path);
+				}
+			}
+			return states;
+		});
+	}
+	
+	/**
+	 * 영역들이 이벤트를 동시에 처리하는 직교 상태에서 사용할 쓰레드 풀을 설정한다.
+	 * <p>
+	 * 설정하지 않은 경우는 {@link ForkJoinPool#commonPool()}을 사용한다.
+	 * 
+	 * @param pool	쓰레드 풀.
+	 * @see State#hasConcurrentRegions()
+	 */
+	public void setRegionPool(ForkJoinPool pool) {
+		Objects.requireNonNull(pool, "ForkJoinPool was null");
+		
+		m_regionPool = pool;
+	}
+
+	/**
+	 * 주어진 상태가 본 수행에서 최근에 활성화되었던 자식 상태를 반환한다.
+	 * <p>
+	 * 최근 자식 상태는 {@link State#keepsHistory()}가 <code>true</code>인 상태에 대해서만
+	 * 자식 상태에서 빠져나올 때 기록된다.
+	 * 
+	 * @param state	대상 상태.
+	 * @return	최근 자식 상태. 기록된 것이 없는 경우는 <code>null</code>.
+	 */
+	public State<C> getRecentChildState(State<C> state) {
+		checkNotRegionWorker();
+		
+		return m_scGuard.get(() -> {
+			if ( m_history == null ) {
+				return null;
+			}
+			
+			int childId = m_history[m_schart.getStateId(state)] - 1;
+			return (childId >= 0) ? m_schart.getStateById(childId) : null;
+		});
+	}
+	
+	/**
+	 * 주어진 상태가 본 수행에서 사용하는 수행 전용 데이터를 반환한다.
+	 * <p>
+	 * 상태 객체는 여러 수행에서 공유될 수 있으므로, 수행별로 달라지는 데이터는 상태 객체에 저장하지 않고
+	 * 본 메소드를 통해 수행 객체에 저장한다. 해당 상태의 데이터가 아직 없는 경우는
+	 * 주어진 함수를 호출하여 생성한 후 저장한다.
+	 * <p>
+	 * 본 메소드는 상태의 진입/탈출/이벤트 처리 과정과 같이 상태차트 잠금을 획득한 상태에서만
+	 * 호출되어야 한다. 영역들이 동시에 이벤트를 처리하는 직교 상태({@link State#hasConcurrentRegions()})의
+	 * 상태 처리기에서도 호출할 수 있으며, 이때는 같은 상태의 데이터가 한번만 생성되도록 동기화된다.
+	 * 
+	 * @param state			대상 상태.
+	 * @param initializer	데이터가 없는 경우 호출되는 생성 함수.
+	 * @return	수행 전용 데이터.
+	 */
+	public <T> T getStateLocal(State<C> state, Function<? super C, ? extends T> initializer) {
+		if ( s_regionWorker.get() == this ) {
+			// 영역 작업 쓰레드들은 이벤트 처리 쓰레드가 미리 생성한 배열을 함께 사용한다.
+			synchronized ( m_stateLocals ) {
+				return getStateLocalInGuard(state, initializer);
+			}
+		}
+		else {
+			return getStateLocalInGuard(state, initializer);
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private <T> T getStateLocalInGuard(State<C> state, Function<? super C, ? extends T> initializer) {
+		if ( m_stateLocals == null ) {
+			m_stateLocals = new Object[m_schart.getStateCount()];
+		}
+		
+		int id = m_schart.getStateId(state);
+		Object local = m_stateLocals[id];
+		if ( local == null ) {
+			m_stateLocals[id] = local = initializer.apply((C)this);
+		}
+		
+		return (T)local;
+	}
+
+	/**
+	 * 주어진 이벤트를 상태차트 수행에 전달한다.
+	 * <p>
+	 * 이벤트는 이벤트 큐에 추가된 후 이벤트 처리 쓰레드에서 처리된다.
+	 * 이벤트 추가는 상태차트 잠금을 획득하지 않으므로, 현재 진행 중인 상태 전이의 소요 시간과
+	 * 무관하게 바로 반환된다. 단, 이벤트 큐의 용량이 설정되고 큐가 가득 찬 경우는 설정된
+	 * {@link OverflowPolicy}에 따라 대기하거나 예외를 발생시킬 수 있다.
+	 * <p>
+	 * 이벤트가 {@link CoalescingEvent}이고 같은 병합 키를 갖는 이벤트가 아직 처리되지 않은 채
+	 * 큐에 남아 있는 경우는, 새 이벤트가 큐에 추가되지 않고 대기 중인 이벤트를 대체한다.
+	 * 
+	 * <p>
+	 * 이벤트가 {@link ControlEvent}인 경우는 {@link #receiveEvent(Event, boolean)}를 통해
+	 * 우선 처리를 요청한 것과 같이 처리된다.
+	 * 
+	 * @param event	전달할 이벤트.
+	 * @throws EventQueueFullException	큐가 가득 차서 이벤트가 거부된 경우.
+	 * @see #setEventQueueCapacity(int, OverflowPolicy)
+	 * @see CoalescingEvent
+	 */
+	@Override
+	public void receiveEvent(Event event) {
+		receiveEvent(event, false);
+	}
+
+	/**
+	 * 주어진 이벤트를 상태차트 수행에 전달한다.
+	 * <p>
+	 * 우선 처리가 요청된 이벤트는 이벤트 큐의 우선 처리 큐에 추가되어, 일반 이벤트 큐에 대기 중인
+	 * 이벤트들보다 먼저 처리된다. 우선 처리 이벤트들 사이와 일반 이벤트들 사이에서는 각각 도착 순서가
+	 * 유지된다. 우선 처리 이벤트는 이벤트 큐의 용량 제한을 받지 않는다.
+	 * <p>
+	 * 저널이 설정된 수행의 경우는 재처리 결과가 원래 처리 결과와 같도록 모든 이벤트가 저널 기록
+	 * 순서대로 처리되므로, 우선 처리 요청은 무시된다.
+	 * <p>
+	 * {@link PassivationManager}에 의해 비활성화된 수행 객체에 전달된 이벤트는 버려지지 않고
+	 * 관리자를 통해 복원된 수행에 전달된다.
+	 * 
+	 * @param event	전달할 이벤트.
+	 * @param urgent	우선 처리 여부.
+	 * @throws EventQueueFullException	큐가 가득 차서 이벤트가 거부된 경우.
+	 * @see ControlEvent
+	 */
+	public void receiveEvent(Event event, boolean urgent) {
+		BiConsumer<Event,Boolean> forward = m_forward;
+		if ( forward != null ) {
+			if ( event != null ) {
+				forward.accept(event, urgent);
+			}
+		}
+		else if ( isRunning() && event != null ) {
+			EventJournal.Binding<C> journal = m_journal;
+			if ( journal != null ) {
+				// 저널에 기록된 후 이벤트 큐에 추가된다. 큐 용량은 기록 요청 전에 확인한다.
+				journal.append(event, m_eventQueue.getOverflowPolicy());
+			}
+			else if ( urgent ) {
+				m_eventQueue.receiveUrgentEvent(event);
+			}
+			else {
+				m_eventQueue.receiveEvent(event);
+			}
+		}
+	}
+
+	/**
+	 * 주어진 이벤트를 대기하거나 예외를 발생시키지 않고 상태차트 수행에 전달한다.
+	 * <p>
+	 * 이벤트 큐가 가득 찬 경우, {@link OverflowPolicy#DROP_OLDEST} 정책이면 가장 오래된 이벤트를
+	 * 버리고 주어진 이벤트를 추가하며, 그 외의 정책이면 주어진 이벤트를 버리고 <code>false</code>를
+	 * 반환한다. 저널이 설정된 수행의 경우는 저널에 기록 중인 이벤트도 큐의 이벤트 수에 포함되며,
+	 * 큐가 가득 찬 경우는 기록하지 않고 버린다.
+	 * 
+	 * @param event	전달할 이벤트.
+	 * @return	이벤트가 큐에 추가된 경우는 <code>true</code>, 수행 중이 아니거나 큐가 가득 차서
+	 * 			버려진 경우는 <code>false</code>.
+	 */
+	public boolean offer(Event event) {
+		BiConsumer<Event,Boolean> forward = m_forward;
+		if ( forward != null && event != null ) {
+			forward.accept(event, false);
+			return true;
+		}
+		if ( !isRunning() || event == null ) {
+			return false;
+		}
+		
+		EventJournal.Binding<C> journal = m_journal;
+		if ( journal != null ) {
+			return journal.append(event, OverflowPolicy.DROP_NEWEST);
+		}
+		else {
+			return m_eventQueue.offer(event);
+		}
+	}
+
+	/**
+	 * 주어진 이벤트들을 순서대로 상태차트 수행에 전달한다.
+	 * <p>
+	 * 각 이벤트에 대해 {@link #receiveEvent(Event)}를 호출하는 것과 동일한 효과를 가지며,
+	 * 이벤트 처리 작업의 스케줄링은 모든 이벤트를 추가한 후 한번만 수행된다.
+	 * <p>
+	 * 이벤트들은 하나씩 큐에 추가되므로 다음 사항에 유의하여야 한다.
+	 * <ul>
+	 * 	<li> 다른 쓰레드가 동시에 전달한 이벤트가 주어진 이벤트들 사이에 끼어들 수 있다.
+	 * 	<li> {@link ControlEvent}는 우선 처리 큐에 추가되므로, 앞서 전달된 일반 이벤트들보다 먼저
+	 * 		처리될 수 있다.
+	 * 	<li> 큐의 용량 제한은 이벤트별로 적용된다. {@link OverflowPolicy#REJECT} 정책에서 큐가 가득 차면
+	 * 		앞선 이벤트들은 이미 추가된 상태에서 {@link EventQueueFullException}이 발생한다.
+	 * </ul>
+	 * 
+	 * @param events	전달할 이벤트 리스트.
+	 * @throws EventQueueFullException	큐가 가득 차서 이벤트가 거부된 경우.
+	 */
+	public void receiveEvents(Collection<? extends Event> events) {
+		BiConsumer<Event,Boolean> forward = m_forward;
+		if ( forward != null ) {
+			for ( Event event: events ) {
+				if ( event != null ) {
+					forward.accept(event, false);
+				}
+			}
+		}
+		else if ( isRunning() ) {
+			EventJournal.Binding<C> journal = m_journal;
+			if ( journal != null ) {
+				OverflowPolicy policy = m_eventQueue.getOverflowPolicy();
+				for ( Event event: events ) {
+					if ( event != null ) {
+						journal.append(event, policy);
+					}
+				}
+			}
+			else {
+				m_eventQueue.receiveEvents(events);
+			}
+		}
+	}
+	
+	/**
+	 * 주어진 시간 후에 이벤트가 처리되도록 예약한다.
+	 * <p>
+	 * 예약은 주어진 활성 상태에 종속되며, 이벤트가 처리되기 전에 해당 상태를 탈출하면 자동으로
+	 * 취소된다. 예약된 이벤트는 공유 타이머({@link TimingWheel#getDefault()})가 만료된 후 이벤트
+	 * 처리 쓰레드에서 처리된다.
+	 * <p>
+	 * 타이머 만료는 이벤트 저널에 기록되지 않아 복구시 재현할 수 없으므로, 저널에 연결된 수행에는
+	 * 지연 이벤트를 예약할 수 없다.
+	 * 
+	 * @param owner	예약이 종속될 활성 상태.
+	 * @param event	예약할 이벤트.
+	 * @param delay	지연 시간.
+	 * @param unit	지연 시간 단위.
+	 * @throws IllegalStateException	주어진 상태가 활성 상태가 아니거나, 수행이 이벤트 저널에
+	 * 								연결된 경우.
+	 * @see EventJournal
+	 */
+	public void scheduleEvent(State<C> owner, Event event, long delay, TimeUnit unit) {
+		Objects.requireNonNull(event, "Event was null");
+		Preconditions.checkState(m_journal == null, "delayed events cannot be journaled: event=" + event);
+		checkNotRegionWorker();
+		
+		m_scGuard.lock();
+		try {
+			if ( !m_active || !isActiveInGuard(owner) ) {
+				throw new IllegalStateException("not active state: " + owner);
+			}
+			
+			addTimerInGuard(new StateTimer<>(this, owner, null, event), unit.toNanos(delay));
+		}
+		finally {
+			m_scGuard.unlock();
+		}
+	}
+	
+	/**
+	 * 이벤트 큐의 용량을 반환한다.
+	 * 
+	 * @return	큐에 저장할 수 있는 최대 이벤트 갯수. 제한이 없는 경우는 {@link Integer#MAX_VALUE}.
+	 */
+	public int getEventQueueCapacity() {
+		return m_eventQueue.getCapacity();
+	}
+	
+	/**
+	 * 이벤트 큐가 가득 찬 경우의 처리 정책을 반환한다.
+	 * 
+	 * @return	큐 넘침 처리 정책.
+	 */
+	public OverflowPolicy getOverflowPolicy() {
+		return m_eventQueue.getOverflowPolicy();
+	}
+	
+	/**
+	 * 이벤트 큐의 용량과 큐가 가득 찬 경우의 처리 정책을 설정한다.
+	 * <p>
+	 * 기본적으로 이벤트 큐는 용량 제한이 없다. 용량이 설정된 경우, 처리를 기다리는 이벤트가 용량만큼
+	 * 쌓인 상태에서 {@link #receiveEvent(Event)}로 전달된 이벤트는 주어진 정책에 따라 처리된다.
+	 * 내부 작업은 용량 제한을 받지 않는다.
+	 * <p>
+	 * 저널이 설정된 수행의 경우는 저널에 기록하기 전에 용량 제한이 적용되며, 기록 중인 이벤트도
+	 * 처리를 기다리는 이벤트로 간주된다. 저널에 기록된 이벤트는 복구시 다시 처리되므로 버릴 수 없어,
+	 * 이 경우는 {@link OverflowPolicy#DROP_OLDEST} 정책을 사용할 수 없다.
+	 * <p>
+	 * 본 메소드는 수행 시작 전에 호출되어야 한다.
+	 * 
+	 * @param capacity	큐에 저장할 수 있는 최대 이벤트 갯수. {@link Integer#MAX_VALUE}인 경우는 제한하지 않는다.
+	 * @param policy	큐 넘침 처리 정책.
+	 * @throws IllegalStateException	수행이 이미 시작되었거나, 저널이 설정된 수행에
+	 * 									{@link OverflowPolicy#DROP_OLDEST} 정책을 설정하는 경우.
+	 */
+	public void setEventQueueCapacity(int capacity, OverflowPolicy policy) {
+		Preconditions.checkArgument(capacity > 0, "invalid capacity: " + capacity);
+		Objects.requireNonNull(policy, "OverflowPolicy was null");
+		Preconditions.checkState(m_journal == null || policy != OverflowPolicy.DROP_OLDEST
+								|| capacity == Integer.MAX_VALUE,
+								"DROP_OLDEST cannot be used with an event journal");
+		
+		m_eventQueue.setCapacity(capacity, policy);
+	}
+	
+	/**
+	 * 이벤트 큐에 쌓인 이벤트들을 한번에 처리할 때 사용하는 최대 이벤트 갯수를 반환한다.
+	 * 
+	 * @return	최대 일괄 처리 이벤트 갯수.
+	 */
+	public int getEventBatchSize() {
+		return m_eventQueue.getBatchSize();
+	}
+	
+	/**
+	 * 이벤트 큐에 쌓인 이벤트들을 한번에 처리할 때 사용하는 최대 이벤트 갯수를 설정한다.
+	 * <p>
+	 * 1보다 큰 값이 설정된 경우, 이벤트 처리 쓰레드는 큐에 쌓인 이벤트들을 최대 주어진 갯수만큼
+	 * 한번에 꺼내어 상태차트 잠금을 한번만 획득한 상태에서 차례대로 처리한다.
+	 * 기본 값은 1로 이벤트마다 잠금을 획득한다.
+	 * 
+	 * @param size	최대 일괄 처리 이벤트 갯수.
+	 */
+	public void setEventBatchSize(int size) {
+		Preconditions.checkArgument(size > 0, "invalid batch size: " + size);
+		
+		m_eventQueue.setBatchSize(size);
+	}
+
+	@Override
+	protected void startService() throws Exception {
+		m_scGuard.lock();
+		try {
+			Preconditions.checkState(m_forward == null, "passivated execution cannot be restarted");
+			
+			m_active = true;
+			m_eventQueue.open();
+			notifyStartedInGuard();
+	
+			if ( m_restoredPath != null ) {
+				// 스냅샷으로부터 복원된 경우는 진입 동작을 수행하지 않고 복원된 상태들에서 재개한다.
+				// 복원된 상태들의 시간 제한은 재개 시점부터 다시 측정된다.
+				// 리스너들이 활성 상태들을 알 수 있도록 진입 동작 없이 진입 통보만 전달한다.
+				m_path.addAll(m_restoredPath);
+				m_regions = m_restoredRegions;
+				m_restoredPath = null;
+				m_restoredRegions = null;
+				// 스냅샷은 상태차트 잠금 안에서 생성되므로, 완료된 영역들의 완료 동작은 이미 호출되었다.
+				m_regionsCompleted = m_regions != null && areRegionsFinalInGuard();
+				for ( State<C> state: getActiveStates() ) {
+					notifyEnteredInGuard(state);
+					armTimeoutsInGuard(state);
+				}
+			}
+			else {
+				State<C> root = m_schart.getRootState();
+				State<C> to = enterLeafStateInGuard(m_path, root);
+				if ( to != null ) {
+					transitInGuard(to, null);
+				}
+				completeRegionsInGuard();
+			}
+	
+			if ( m_path.get(m_path.size()-1).isFinal() ) {
+				final State<C> s = m_path.get(m_path.size()-1);
+				
+				Utilities.runAsync(getExecutor(), () -> m_scGuard.run(() -> {
+					if ( s instanceof FinalState ) {
+						FinalState fs = (FinalState)s;
+						stopInGuard(fs.getAsyncOperationState(), fs.getFailureCause());
+					}
+					else {
+						stopInGuard(AsyncOperationState.COMPLETED, null);
+					}
+				}));
+			}
+		}
+		finally {
+			m_scGuard.unlock();
+		}
+	}
+	
+	@Override
+	protected void stopService() {
+		checkNotRegionWorker();
+		m_scGuard.run(() -> stopInGuard(AsyncOperationState.COMPLETED, null));
+	}
+
+	/**
+	 * 현재 수행 상태의 스냅샷을 생성한다.
+	 * <p>
+	 * 스냅샷에는 활성 상태 경로, 상태별 최근 자식 상태 기록, 그리고 주어진 직렬화 객체가 기록한
+	 * 응용 데이터가 포함된다. 상태 객체들의 진입 과정에서 생성된 수행 전용 데이터
+	 * ({@link #getStateLocal(State, Function)})는 포함되지 않는다.
+	 * 
+	 * @param serializer	응용 데이터 직렬화 객체. <code>null</code>인 경우는 응용 데이터를 기록하지 않는다.
+	 * @return	스냅샷 이진 데이터.
+	 * @throws IllegalStateException	상태차트 수행이 진행 중이 아닌 경우.
+	 * @see #restore(byte[], ContextSerializer)
+	 */
+	public byte[] snapshot(ContextSerializer<C> serializer) {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream(64);
+		try {
+			snapshot(new DataOutputStream(baos), serializer);
+		}
+		catch ( IOException e ) {
+			throw new RuntimeException(e);
+		}
+		
+		return baos.toByteArray();
+	}
+	
+	/**
+	 * 현재 수행 상태의 스냅샷을 주어진 출력 대상에 기록한다.
+	 * 
+	 * @param out			기록 대상.
+	 * @param serializer	응용 데이터 직렬화 객체. <code>null</code>인 경우는 응용 데이터를 기록하지 않는다.
+	 * @throws IOException	기록 중 오류가 발생된 경우.
+	 * @throws IllegalStateException	상태차트 수행이 진행 중이 아닌 경우.
+	 */
+	public void snapshot(DataOutput out, ContextSerializer<C> serializer) throws IOException {
+		checkNotRegionWorker();
+		
+		m_scGuard.lock();
+		try {
+			Preconditions.checkState(m_active, "statechart execution is not running");
+			
+			// 직교 상태가 활성화된 경우는 각 영역의 활성 경로를 이어서 기록한다.
+			Set<State<C>> states = getActiveStates();
+			int[] path = new int[states.size()];
+			int idx = 0;
+			for ( State<C> state: states ) {
+				path[idx++] = m_schart.getStateId(state);
+			}
+			new StatechartSnapshot(path, m_history).writeTo(out, m_schart.getSignature());
+			
+			if ( serializer != null ) {
+				serializer.write((C)this, out);
+			}
+		}
+		finally {
+			m_scGuard.unlock();
+		}
+	}
+	
+	/**
+	 * 주어진 스냅샷으로 수행 상태를 복원한다.
+	 * <p>
+	 * 본 메소드는 수행 시작 전에 호출되어야 하며, 이후 수행을 시작하면 최상위 상태부터 진입하는
+	 * 대신 스냅샷에 기록된 활성 상태들에서 수행이 재개된다. 이때 복원된 상태들의 진입 동작은
+	 * 다시 호출되지 않지만, 리스너들에게는 복원된 상태들에 대한 {@link StateEnteredEvent}가 전달된다.
+	 * 
+	 * @param snapshot		{@link #snapshot(ContextSerializer)}로 생성된 스냅샷.
+	 * @param serializer	응용 데이터 직렬화 객체. 스냅샷 생성시 사용한 것과 동일한 형식이어야 한다.
+	 * @throws IOException	스냅샷이 올바르지 않거나, 다른 구조의 상태차트에서 생성된 경우.
+	 * @throws IllegalStateException	상태차트 수행이 이미 시작된 경우.
+	 */
+	public void restore(byte[] snapshot, ContextSerializer<C> serializer) throws IOException {
+		restore(new DataInputStream(new ByteArrayInputStream(snapshot)), serializer);
+	}
+	
+	/**
+	 * 주어진 입력 대상으로부터 스냅샷을 읽어 수행 상태를 복원한다.
+	 * 
+	 * @param in			입력 대상.
+	 * @param serializer	응용 데이터 직렬화 객체. 스냅샷 생성시 사용한 것과 동일한 형식이어야 한다.
+	 * @throws IOException	스냅샷이 올바르지 않거나, 다른 구조의 상태차트에서 생성된 경우.
+	 * @throws IllegalStateException	상태차트 수행이 이미 시작된 경우.
+	 * @see #restore(byte[], ContextSerializer)
+	 */
+	public void restore(DataInput in, ContextSerializer<C> serializer) throws IOException {
+		checkNotRegionWorker();
+		
+		m_scGuard.lock();
+		try {
+			Preconditions.checkState(!m_active && m_path.isEmpty(),
+									"statechart execution has already been started");
+			
+			StatechartSnapshot snapshot = StatechartSnapshot.readFrom(in, m_schart.getSignature(),
+																	m_schart.getStateCount());
+			List<State<C>> path = Lists.newArrayListWithCapacity(snapshot.m_path.length);
+			List<List<State<C>>> regions = null;
+			List<State<C>> current = path;
+			for ( int id: snapshot.m_path ) {
+				State<C> state = m_schart.getStateById(id);
+				State<C> orthogonal = (regions != null || (!path.isEmpty()
+															&& path.get(path.size()-1).isOrthogonal()))
+									? path.get(path.size()-1) : null;
+				if ( orthogonal != null && state.getParentState() == orthogonal ) {
+					// 새 영역의 활성 경로가 시작된다.
+					if ( regions == null ) {
+						regions = Lists.newArrayList();
+					}
+					regions.add(current = Lists.newArrayList());
+				}
+				else if ( state.getParentState() != (current.isEmpty() ? null : current.get(current.size()-1)) ) {
+					throw new IOException("corrupted snapshot: invalid active path at " + state);
+				}
+				current.add(state);
+			}
+			if ( path.isEmpty() || !isLeafConfiguration(path, regions) ) {
+				throw new IOException("corrupted snapshot: active path does not end at a leaf state");
+			}
+			
+			if ( serializer != null ) {
+				serializer.read((C)this, in);
+			}
+			
+			m_restoredPath = path;
+			m_restoredRegions = regions;
+			m_history = snapshot.m_history;
+		}
+		finally {
+			m_scGuard.unlock();
+		}
+	}
+
+	// 복원된 활성 경로가 말단 상태 또는 모든 영역이 말단 상태에서 끝나는 직교 상태에서 끝나는지 확인한다.
+	private static <C extends StatechartExecution<C>> boolean isLeafConfiguration(List<State<C>> path,
+																		List<List<State<C>>> regions) {
+		State<C> last = path.get(path.size()-1);
+		if ( !last.isOrthogonal() ) {
+			return !last.isComposite() && regions == null;
+		}
+		if ( regions == null || regions.size() != last.getChildStates().size() ) {
+			return false;
+		}
+		
+		Set<State<C>> roots = new LinkedHashSet<>();
+		for ( List<State<C>> region: regions ) {
+			if ( !roots.add(region.get(0)) || region.get(region.size()-1).isComposite() ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 현재 수행 상태의 스냅샷을 생성하고 수행을 중단시킨다.
+	 * <p>
+	 * {@link #stop()}과 달리 활성 상태들의 탈출 동작이나 종료 통보 없이 이벤트 큐만을 반환한다.
+	 * 처리 대기 중인 이벤트나 작업이 있거나, 활성 상태 중 하나가 비활성화를 거부하는
+	 * ({@link State#isPassivatable(StatechartExecution)}) 경우는 아무런 작업을 수행하지 않는다.
+	 * 이벤트 처리 중인 경우도 잠금을 기다리지 않고 바로 반환하므로, 호출자가 잡고 있는 잠금을
+	 * 이벤트 처리기가 기다리더라도 교착 상태에 빠지지 않는다.
+	 * <p>
+	 * 비활성화된 수행 객체는 다시 시작할 수 없으며, 이후 본 객체에 전달되는 이벤트와 처리되지 못하고
+	 * 남은 이벤트는 주어진 전달 대상에게 넘겨진다. 단, 큐에 남은 이벤트는
+	 * {@link #forwardPassivated()}가 호출된 후에 넘겨진다.
+	 *
+	 * @param serializer	응용 데이터 직렬화 객체.
+	 * @param forward		이벤트 전달 대상. 이벤트와 우선 처리 여부를 전달받는다.
+	 * @return	스냅샷 이진 데이터. 수행 중이 아니거나 처리 대기 중인 작업 또는 만료되지 않은 타이머가
+	 * 			있거나, 비활성화가 거부된 경우는 <code>null</code>.
+	 * @see PassivationManager
+	 */
+	@SuppressWarnings("unchecked")
+	byte[] passivate(ContextSerializer<C> serializer, BiConsumer<Event,Boolean> forward) {
+		Objects.requireNonNull(forward, "forward was null");
+		
+		if ( !m_scLock.tryLock() ) {
+			// 이벤트 처리 중이므로 유휴 상태가 아니다.
+			return null;
+		}
+		try {
+			if ( !m_active || !m_eventQueue.isIdle() || m_timerCount > 0 ) {
+				return null;
+			}
+			for ( State<C> state: getActiveStates() ) {
+				if ( !state.isPassivatable((C)this) ) {
+					return null;
+				}
+			}
+
+			byte[] snapshot = snapshot(serializer);
+			m_forward = forward;
+
+			m_active = false;
+			m_path.clear();
+			m_regions = null;
+			m_stateLocals = null;
+			m_history = null;
+			m_eventQueue.close();
+			unregisterMetricsInGuard();
+
+			return snapshot;
+		}
+		finally {
+			m_scLock.unlock();
+		}
+	}
+
+	/**
+	 * 비활성화 과정에서 이벤트 큐에 남은 이벤트들을 비활성화시 주어진 전달 대상에게 넘긴다.
+	 * <p>
+	 * 전달 대상이 새로 복원된 수행을 사용할 수 있게 된 후에 호출되어야 한다.
+	 */
+	void forwardPassivated() {
+		BiConsumer<Event,Boolean> forward = m_forward;
+		Preconditions.checkState(forward != null, "execution has not been passivated");
+		
+		m_eventQueue.forwardTo(forward);
+	}
+
+	/**
+	 * 모든 종류의 {@link StatechartEvent}를 전달받는 상태차트 리스너를 등록한다.
+	 * 
+	 * @param listener	등록할 리스너.
+	 */
+	public void addStatechartListener(StatechartListener listener) {
+		Objects.requireNonNull(listener, "StatechartListener was null");
+		
+		m_listeners.add(listener, EnumSet.allOf(StatechartEventKind.class));
+	}
+
+	/**
+	 * 상태차트 리스너를 등록한다.
+	 * <p>
+	 * 리스너는 주어진 종류의 {@link StatechartEvent}만 전달받는다.
+	 * 종류가 주어지지 않은 경우는 모든 종류의 이벤트를 전달받는다.
+	 * 어떤 리스너도 관심을 갖지 않는 종류의 이벤트는 생성되지 않는다.
+	 * 
+	 * @param listener	등록할 리스너.
+	 * @param kinds		전달받을 이벤트 종류들.
+	 */
+	public void addStatechartListener(StatechartListener listener, StatechartEventKind... kinds) {
+		Objects.requireNonNull(listener, "StatechartListener was null");
+		
+		Set<StatechartEventKind> kindSet = (kinds.length > 0)
+										? EnumSet.copyOf(Arrays.asList(kinds))
+										: EnumSet.allOf(StatechartEventKind.class);
+		m_listeners.add(listener, kindSet);
+	}
+
+	/**
+	 * 상태차트 리스너를 등록하고, 등록 시점에 활성화된 상태들을 주어진 함수에 전달한다.
+	 * <p>
+	 * 등록과 활성 상태 전달이 상태차트 잠금 안에서 수행되므로, 전달된 상태들과 이후 리스너에
+	 * 전달되는 진입/탈출 통보 사이에 누락이나 중복이 없다.
+	 * 
+	 * @param listener		등록할 리스너.
+	 * @param kinds			전달받을 이벤트 종류들.
+	 * @param initializer	활성 상태들을 전달받을 함수. 수행 중이 아닌 경우는 빈 집합이 전달된다.
+	 */
+	void addStatechartListener(StatechartListener listener, Set<StatechartEventKind> kinds,
+								Consumer<? super Set<State<C>>> initializer) {
+		Objects.requireNonNull(listener, "StatechartListener was null");
+		checkNotRegionWorker();
+		
+		m_scGuard.run(() -> {
+			m_listeners.add(listener, kinds);
+			initializer.accept(m_active ? getActiveStates() : new LinkedHashSet<>());
+		});
+	}
+
+	/**
+	 * 등록된 상태차트 리스너를 제거한다.
+	 * 
+	 * @param listener	제거할 리스너.
+	 * @return	제거된 경우는 <code>true</code>, 등록되지 않은 리스너인 경우는 <code>false</code>.
+	 */
+	public boolean removeStatechartListener(StatechartListener listener) {
+		return m_listeners.remove(listener);
+	}
+
+	/**
+	 * Guava {@link EventBus}의 <code>@Subscribe</code> 메소드를 갖는 리스너 객체를 등록한다.
+	 * <p>
+	 * 주어진 객체가 {@link StatechartListener}인 경우는 모든 종류의 이벤트를 전달받도록 등록된다.
+	 * 
+	 * @param listener	등록할 리스너 객체.
+	 * @deprecated	{@link #addStatechartListener(StatechartListener, StatechartEventKind...)}를 사용한다.
+	 */
+	@Deprecated
+	public void addStatechartListener(Object listener) {
+		if ( listener instanceof StatechartListener ) {
+			m_listeners.add((StatechartListener)listener, EnumSet.allOf(StatechartEventKind.class));
+			return;
+		}
+		checkNotRegionWorker();
+		
+		m_scGuard.run(() -> {
+			if ( m_eventBus == null ) {
+				m_eventBus = new EventBus();
+			}
+			m_eventBus.register(listener);
+			
+			if ( m_eventBusSubscriberCount++ == 0 ) {
+				m_listeners.add(m_eventBusRelay, EnumSet.allOf(StatechartEventKind.class));
+			}
+		});
+	}
+
+	/**
+	 * {@link #addStatechartListener(Object)}로 등록된 리스너 객체를 제거한다.
+	 * 
+	 * @param listener	제거할 리스너 객체.
+	 * @deprecated	{@link #removeStatechartListener(StatechartListener)}를 사용한다.
+	 */
+	@Deprecated
+	public void removeStatechartListener(Object listener) {
+		if ( listener instanceof StatechartListener ) {
+			m_listeners.remove((StatechartListener)listener);
+			return;
+		}
+		checkNotRegionWorker();
+		
+		m_scGuard.run(() -> {
+			if ( m_eventBus == null ) {
+				throw new IllegalArgumentException("not registered: listener=" + listener);
+			}
+			m_eventBus.unregister(listener);
+			
+			if ( --m_eventBusSubscriberCount == 0 ) {
+				m_listeners.remove(m_eventBusRelay);
+			}
+		});
+	}
+
+	public String toString() {
+		if ( s_regionWorker.get() == this ) {
+			return "Statechart[id=" + m_execId + "]";
+		}
+		return "Statechart[current=" + getCurrentState() + "]";
+	}
+	
+	/**
+	 * 영역 작업 쓰레드는 이벤트 처리 쓰레드가 상태차트 잠금을 획득한 채 처리 완료를 기다리는 동안
+	 * 수행되므로, 작업 쓰레드에서 잠금을 획득하려 하면 교착 상태에 빠진다.
+	 */
+	private void checkNotRegionWorker() {
+		if ( s_regionWorker.get() == this ) {
+			throw new IllegalStateException("cannot be called from a concurrent region handler: exec="
+											+ m_execId);
+		}
+	}
+
+	EventJournal.Binding<C> getJournalBinding() {
+		return m_journal;
+	}
+	
+	void setJournalBinding(EventJournal.Binding<C> binding) {
+		m_journal = binding;
+	}
+	
+	/**
+	 * 저널 기록에 실패하여 처리되지 않는 이벤트를 리스너들에게 오류로 통보한다.
+	 */
+	void notifyJournalFailure(Event event, Throwable cause) {
+		m_scGuard.lock();
+		try {
+			if ( m_active ) {
+				notifyFaultInGuard(cause, getCurrentStateInGuard(), null, StatechartFaultCase.JOURNAL_WRITE,
+									event);
+			}
+		}
+		finally {
+			m_scGuard.unlock();
+		}
+	}
+	
+	void setReplaying(boolean flag) {
+		m_replaying = flag;
+	}
+	
+	/**
+	 * 저널에 기록할 이벤트를 위해 이벤트 큐의 자리를 예약한다.
+	 * 
+	 * @return	예약된 경우는 <code>true</code>, 큐 넘침 정책에 따라 이벤트를 버려야 하는 경우는 <code>false</code>.
+	 * @throws EventQueueFullException	큐가 가득 차서 이벤트가 거부된 경우.
+	 */
+	boolean reserveEvent(Event event, OverflowPolicy policy) {
+		return m_eventQueue.reserve(event, policy);
+	}
+	
+	void unreserveEvent() {
+		m_eventQueue.unreserve();
+	}
+	
+	/**
+	 * 저널에 기록된 이벤트를 이벤트 큐에 추가한다.
+	 */
+	void deliverEvent(Event event, boolean reserved) {
+		m_eventQueue.deliver(event, reserved);
+	}
+	
+	void enqueueAction(Runnable action) {
+		m_eventQueue.enqueueAction(action);
+	}
+
+	void handleEvent(Event event) {
+		m_scGuard.lock();
+		try {
+			if ( m_active ) {
+				handleEventInGuard(event);
+				return;
+			}
+		}
+		finally {
+			m_scGuard.unlock();
+		}
+		
+		forwardIfPassivated(event);
+	}
+	
+	/**
+	 * 주어진 이벤트들을 상태차트 잠금을 한번만 획득한 상태에서 차례대로 처리한다.
+	 * <p>
+	 * 처리 도중 상태차트 수행이 종료되면 나머지 이벤트들은 무시된다.
+	 * 한 이벤트의 처리 중 발생한 예외는 기록만 하고, 나머지 이벤트들은 계속 처리한다.
+	 */
+	void handleEvents(List<Event> events) {
+		int i = 0;
+		m_scGuard.lock();
+		try {
+			for (; i < events.size() && m_active; ++i ) {
+				Event event = events.get(i);
+				try {
+					handleEventInGuard(event);
+				}
+				catch ( Throwable e ) {
+					s_logger.warn("fails to handle event={}, exec={}", event, this, e);
+				}
+			}
+		}
+		finally {
+			m_scGuard.unlock();
+		}
+		
+		for (; i < events.size(); ++i ) {
+			forwardIfPassivated(events.get(i));
+		}
+	}
+	
+	// 비활성화되기 전에 처리 쓰레드가 꺼낸 이벤트는 버리지 않고 비활성화 관리자에게 넘긴다.
+	// 비활성화 관리자의 잠금을 획득할 수 있으므로 상태차트 잠금 밖에서 호출되어야 한다.
+	private void forwardIfPassivated(Event event) {
+		BiConsumer<Event,Boolean> forward = m_forward;
+		if ( forward != null ) {
+			forward.accept(event, event instanceof ControlEvent);
+		}
+	}
+
+	private void handleEventInGuard(Event event) {
+		if ( event instanceof EndOfEvent ) {
+			stopInGuard(AsyncOperationState.COMPLETED, null);
+
+			return;
+		}
+		
+		// 직교 상태가 활성화된 경우는 각 영역에 먼저 전달하고, 어느 영역에서도 처리되지 않은 경우에만
+		// 직교 상태와 그 조상 상태들에게 전달한다.
+		if ( m_regions != null && dispatchToRegionsInGuard(event) ) {
+			completeRegionsInGuard();
+			stopIfFinalInGuard();
+			return;
+		}
+		
+		int idx = m_path.size() -1;
+
+		State<C> toState = null;
+		StateRef<C> toRef = null;
+		for ( ; idx >= 0; --idx ) {
+			State<C> state = m_path.get(idx);
+			if ( !state.accepts(event) ) {
+				// 해당 이벤트 타입에 대한 처리기가 없는 상태는 건너뛴다.
+				continue;
+			}
+			
+			StatechartMetrics metrics = m_metrics;
+			long started = (metrics != null) ? System.nanoTime() : 0;
+			try {
+				toRef = state.handleEventRef((C)this, event);
+			}
+			catch ( Throwable fault ) {
+				State<C> faultState = getFaultHandleStateInGuard(state, fault);
+				s_logger.warn("fails to handle event: state={}, event={}, cause={}",
+								state, event, fault);
+
+				notifyFaultInGuard(fault, state, faultState, StatechartFaultCase.HANDLE_EVENT, event);
+			}
+			
+			if ( metrics != null ) {
+				metrics.getStateMetrics(m_schart.getStateId(state)).recordHandler(System.nanoTime() - started);
+			}
+			
+			notifyHandledInGuard(event, state, toRef);
+			if ( toRef != null ) {
+				if ( !toRef.isStopPropagate() ) {
+					toState = toRef.resolve(m_schart, state);
+					if ( metrics != null ) {
+						metrics.getStateMetrics(m_schart.getStateId(state)).incrementTransitionCount();
+					}
+					s_logger.debug("handled: event={}, {}, goto={}", event, state, toState);
+				}
+				else {
+					s_logger.debug("handled: event={}, {}", event, state);
+				}
+				break;
+			}
+		}
+
+		if ( toState != null ) {
+			transitInGuard(toState, event);
+		}
+
+		completeRegionsInGuard();
+		stopIfFinalInGuard();
+	}
+	
+	// 활성 영역들에 이벤트를 전달하고, 어느 한 영역에서라도 처리된 경우는 true를 반환한다.
+	private boolean dispatchToRegionsInGuard(Event event) {
+		State<C> orthogonal = m_path.get(m_path.size()-1);
+		boolean concurrent = orthogonal.hasConcurrentRegions() && m_regions.size() > 1;
+		List<RegionDispatch<C>> dispatches = Lists.newArrayListWithCapacity(m_regions.size());
+		for ( List<State<C>> path: m_regions ) {
+			dispatches.add(new RegionDispatch<>((C)this, path, event, m_metrics != null, concurrent));
+		}
+		
+		if ( concurrent ) {
+			// 작업 쓰레드들이 수행 전용 데이터 배열을 동시에 생성하지 않도록 미리 생성한다.
+			if ( m_stateLocals == null ) {
+				m_stateLocals = new Object[m_schart.getStateCount()];
+			}
+			m_regionPool.invokeAll(dispatches);
+		}
+		else {
+			for ( RegionDispatch<C> dispatch: dispatches ) {
+				dispatch.call();
+			}
+		}
+		
+		// 처리 결과의 통보와 상태 전이는 이벤트 처리 쓰레드에서 영역 순서대로 수행한다.
+		boolean handled = false;
+		List<State<C>> targets = Lists.newArrayList();
+		StatechartMetrics metrics = m_metrics;
+		for ( RegionDispatch<C> dispatch: dispatches ) {
+			for ( HandlerCall<C> call: dispatch.m_calls ) {
+				if ( call.m_fault != null ) {
+					State<C> faultState = getFaultHandleStateInGuard(call.m_state, call.m_fault);
+					s_logger.warn("fails to handle event: state={}, event={}, cause={}",
+									call.m_state, event, call.m_fault);
+					
+					notifyFaultInGuard(call.m_fault, call.m_state, faultState,
+										StatechartFaultCase.HANDLE_EVENT, event);
+				}
+				if ( metrics != null ) {
+					metrics.getStateMetrics(m_schart.getStateId(call.m_state)).recordHandler(call.m_elapsed);
+				}
+				notifyHandledInGuard(event, call.m_state, call.m_toRef);
+				
+				if ( call.m_toRef != null ) {
+					handled = true;
+					if ( !call.m_toRef.isStopPropagate() ) {
+						State<C> toState = call.m_toRef.resolve(m_schart, call.m_state);
+						if ( metrics != null ) {
+							metrics.getStateMetrics(m_schart.getStateId(call.m_state)).incrementTransitionCount();
+						}
+						s_logger.debug("handled: event={}, {}, goto={}", event, call.m_state, toState);
+						targets.add(toState);
+					}
+				}
+			}
+		}
+		
+		for ( State<C> target: targets ) {
+			if ( !m_active || m_regions == null || getCurrentStateInGuard() != orthogonal ) {
+				// 앞선 영역의 전이로 직교 상태를 벗어난 경우
+				break;
+			}
+			transitInGuard(target, event);
+		}
+		
+		return handled;
+	}
+	
+	/**
+	 * 주어진 상태로 전이한다.
+	 * <p>
+	 * 목표 상태가 직교 상태의 영역에 속하는 경우는 필요하면 직교 상태로 먼저 진입한 후, 해당 영역의
+	 * 활성 경로에서 목표 상태로 전이한다. 이때 다른 영역들의 활성 상태는 바뀌지 않는다.
+	 */
+	private void transitInGuard(State<C> to, Event causingEvent) {
+		State<C> orthogonal = getOrthogonalAncestor(to);
+		if ( orthogonal == null ) {
+			gotoStateInGuard(m_path, to, causingEvent);
+			return;
+		}
+		
+		if ( getCurrentStateInGuard() != orthogonal ) {
+			gotoStateInGuard(m_path, orthogonal, causingEvent);
+			if ( !m_active || getCurrentStateInGuard() != orthogonal || m_regions == null ) {
+				// 직교 상태 진입 과정에서 다른 상태로 전이된 경우
+				return;
+			}
+		}
+		
+		List<State<C>> region = getRegionPathInGuard(orthogonal, to);
+		if ( region != null ) {
+			gotoStateInGuard(region, to, causingEvent);
+		}
+	}
+	
+	private State<C> getCurrentStateInGuard() {
+		return m_path.isEmpty() ? null : m_path.get(m_path.size()-1);
+	}
+	
+	private boolean isActiveInGuard(State<C> state) {
+		if ( m_path.contains(state) ) {
+			return true;
+		}
+		if ( m_regions != null ) {
+			for ( List<State<C>> path: m_regions ) {
+				if ( path.contains(state) ) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+	
+	// 주어진 상태를 영역 안에 포함하는 직교 상태를 반환한다.
+	private static <C extends StatechartExecution<C>> State<C> getOrthogonalAncestor(State<C> state) {
+		for ( State<C> parent = state.getParentState(); parent != null; parent = parent.getParentState() ) {
+			if ( parent.isOrthogonal() ) {
+				return parent;
+			}
+		}
+		return null;
+	}
+	
+	// 활성 직교 상태에서 주어진 상태가 속한 영역의 활성 경로를 반환한다.
+	private List<State<C>> getRegionPathInGuard(State<C> orthogonal, State<C> state) {
+		int idx = 0;
+		for ( State<C> root: orthogonal.getChildStates() ) {
+			if ( m_schart.isAncestorOf(root, state) ) {
+				return (idx < m_regions.size() && !m_regions.get(idx).isEmpty()) ? m_regions.get(idx) : null;
+			}
+			++idx;
+		}
+		return null;
+	}
+	
+	/**
+	 * 직교 상태의 모든 영역들에 대해 시작 상태로 진입한다.
+	 * 
+	 * @return	모든 영역에 성공적으로 진입한 경우는 <code>null</code>, 직교 상태 밖의 상태로
+	 * 			전이가 추천된 경우는 해당 상태.
+	 */
+	private State<C> enterRegionsInGuard(State<C> orthogonal) {
+		m_regions = Lists.newArrayList();
+		m_regionsCompleted = false;
+		for ( State<C> root: orthogonal.getChildStates() ) {
+			List<State<C>> path = Lists.newArrayList();
+			m_regions.add(path);
+			
+			State<C> next = enterLeafStateInGuard(path, root);
+			if ( next != null ) {
+				if ( m_schart.isAncestorOf(root, next) ) {
+					gotoStateInGuard(path, next, null);
+				}
+				else if ( !m_schart.isAncestorOf(orthogonal, next) ) {
+					return next;
+				}
+				else {
+					IllegalStateException cause = new IllegalStateException("cannot bounce to another region: "
+																			+ "state=" + root + ", to=" + next);
+					stopInGuard(AsyncOperationState.FAILED, cause);
+					throw cause;
+				}
+			}
+		}
+		
+		return null;
+	}
+	
+	// 모든 영역의 활성 상태들을 안쪽부터 영역 역순으로 탈출한다.
+	private void exitRegionsInGuard() {
+		List<List<State<C>>> regions = m_regions;
+		m_regions = null;
+		
+		for ( int r = regions.size()-1; r >= 0; --r ) {
+			List<State<C>> path = regions.get(r);
+			for ( int i = path.size()-1; i >= 0; --i ) {
+				State<C> state = path.get(i);
+				exitIGEInGuard(state);
+				notifyLeftInGuard(state);
+				
+				if ( s_logger.isDebugEnabled() ) {
+					s_logger.debug("exited: state[" + state.getGuid() + "]");
+				}
+			}
+		}
+	}
+
+	/**
+	 * 활성 직교 상태의 모든 영역이 종료 상태에 도달한 경우는 직교 상태의 완료 동작을 호출하고,
+	 * 동작이 반환한 상태로 전이한다.
+	 * <p>
+	 * 완료 동작은 영역들이 종료 상태에 도달할 때마다 한번만 호출된다. 전이한 상태가 다시 완료된
+	 * 직교 상태일 수 있으므로 더 이상 호출할 완료 동작이 없을 때까지 반복한다.
+	 */
+	private void completeRegionsInGuard() {
+		while ( m_active && m_regions != null ) {
+			if ( !areRegionsFinalInGuard() ) {
+				m_regionsCompleted = false;
+				return;
+			}
+			if ( m_regionsCompleted ) {
+				return;
+			}
+			m_regionsCompleted = true;
+			
+			State<C> orthogonal = getCurrentStateInGuard();
+			State<C> toState = null;
+			try {
+				StateRef<C> toRef = StateRef.path(orthogonal.regionsCompleted((C)this));
+				if ( toRef != null && !toRef.isStopPropagate() ) {
+					toState = toRef.resolve(m_schart, orthogonal);
+				}
+			}
+			catch ( Throwable fault ) {
+				State<C> faultState = getFaultHandleStateInGuard(orthogonal, fault);
+				s_logger.warn("fails to complete regions: state={}, cause={}", orthogonal, fault);
+				
+				notifyFaultInGuard(fault, orthogonal, faultState, StatechartFaultCase.REGIONS_COMPLETED, null);
+			}
+			
+			if ( toState == null ) {
+				return;
+			}
+			s_logger.debug("regions completed: {}, goto={}", orthogonal, toState);
+			transitInGuard(toState, null);
+		}
+	}
+	
+	private boolean areRegionsFinalInGuard() {
+		for ( List<State<C>> path: m_regions ) {
+			if ( path.isEmpty() || !path.get(path.size()-1).isFinal() ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// 현재 상태가 종료 상태인 경우는 상태차트 수행을 종료시킨다.
+	private void stopIfFinalInGuard() {
+		if ( m_active && m_path.get(m_path.size()-1).isFinal() ) {
+			final State<C> s = m_path.get(m_path.size()-1);
+			if ( s instanceof FinalState ) {
+				FinalState fs = (FinalState)s;
+				switch ( fs.getAsyncOperationState() ) {
+					case COMPLETED:
+					case CANCELLED:
+						stopInGuard(AsyncOperationState.COMPLETED, null);
+						break;
+					case FAILED:
+						stopInGuard(fs.getAsyncOperationState(), fs.getFailureCause());
+						break;
+					default:
+						throw new RuntimeException();
+				}
+			}
+			else {
+				stopInGuard(AsyncOperationState.COMPLETED, null);
+			}
+		}
+	}
+
+	private void stopInGuard(AsyncOperationState asyncState, Throwable fault) {
+		if ( !m_active ) {
+			return;
+		}
+		m_active = false;
+		
+		for ( int i = m_path.size()-1; i >= 0; --i ) {
+			State<C> state = m_path.get(i);
+			exitIGEInGuard(state);
+
+			notifyLeftInGuard(state);
+			s_logger.debug("exited: {}", state);
+		}
+
+		notifyFinishedInGuard(asyncState, fault);
+		notifyServiceInterrupted();
+		
+		m_eventQueue.close();
+		unregisterMetricsInGuard();
+	}
+
+	private void gotoStateInGuard(List<State<C>> path, State<C> to, Event causingEvent) {
+		while ( true ) {
+			State<C> current = path.get(path.size()-1);
+
+			if ( current == to && to.isOrthogonal() ) {
+				// 영역들은 이미 활성화되어 있다.
+				return;
+			}
+			else if ( current == to ) {
+				if ( to.isComposite() ) {
+					try {
+						to = to.getInitialChildState();
+					}
+					catch ( Throwable fault ) {
+						State<C> reactState = to;
+						to = getFaultHandleStateInGuard(reactState, fault);
+
+						notifyFaultInGuard(fault, reactState, to,
+											StatechartFaultCase.GET_INITIAL_SUBSTATE, causingEvent);
+					}
+				}
+				else {
+					return;
+				}
+			}
+			else if ( m_schart.isAncestorOf(current, to) ) {
+				throw new AssertionError("Cannot goto the substate: current=" + current
+										+ ", to=" + to);
+			}
+			else if ( m_schart.isAncestorOf(to, current) ) {
+				exitUptoAncestorInGuard(path, to);
+
+				if ( to.isComposite() ) {
+					try {
+						to = to.getInitialChildState();
+					}
+					catch ( Throwable fault ) {
+						State<C> reactState = to;
+						to = getFaultHandleStateInGuard(reactState, fault);
+
+						notifyFaultInGuard(fault, reactState, null,
+											StatechartFaultCase.GET_INITIAL_SUBSTATE, null);
+					}
+				}
+				else {
+					return;
+				}
+			}
+			else if ( m_schart.isAncestorOf(to.getParentState(), current) ) {
+				try {
+					exitUptoAncestorInGuard(path, to.getParentState());
+				}
+				catch ( RuntimeException fault ) {
+					stopInGuard(AsyncOperationState.FAILED, fault);
+					
+					throw new RuntimeException(fault);
+				}
+			}
+			else {
+				throw new AssertionError("Cannot goto the substate: current=" + current
+										+ ", to=" + to);
+			}
+
+			to = enterLeafStateInGuard(path, to);
+			if ( to == null ) {
+				// 목표 상태로의 진입이 성공한 경우
+				return;
+			}
+		}
+	}
+
+	/**
+	 * 주어진 후손 상태까지 내려간다.
+	 *
+	 * @param state		이동 대상 후손 상태.
+	 * @return		성공적으로 진입된 경우는 <code>null</code>을 반환하고,
+	 * 				다른 state로 전이가 추천된 경우는 해당 state를 반환한다.
+	 */
+	private State<C> enterLeafStateInGuard(List<State<C>> path, State<C> state) {
+		State<C> from = path.isEmpty() ? null : path.get(path.size()-1);
+		while ( true ) {
+			State<C> next;
+
+			if ( from != state ) {
+				while ( true ) {
+					try {
+						StateRef<C> bounceRef = enterInGuard(state);
+						if ( bounceRef == null ) {
+							break;
+						}
+						next = bounceRef.resolve(m_schart, state);
+						notifyBouncedInGuard(state, next);
+
+						// state의 진입이 허가되지 않고 다른 state 'next'로 이동이 추천된 경우.
+						// 만일 추천된 state가 sibling state인 경우는 해당 state로의 진입을 시도하고,
+						// 그렇지 않은 경우는 해당 state를 반환한다. 직교 상태의 자식 상태들은 서로
+						// 다른 영역이므로 sibling state로 보지 않는다.
+						//
+						State<C> parent = state.getParentState();
+						if ( next.getParentState() != parent || (parent != null && parent.isOrthogonal()) ) {
+							return next;
+						}
+					}
+					catch ( Throwable e ) {
+						s_logger.warn("fails to call entry for " + state, e);
+						
+						next = getFaultHandleStateInGuard(state, e);
+						notifyFaultInGuard(e, state, next, StatechartFaultCase.STATE_ENTRY, null);
+						if ( next == null ) {
+							// 별도의 failure handle state가 설정되지 않은 경우는 Statechart 수행을 종료시킨다.
+							stopInGuard(AsyncOperationState.FAILED, e);
+							throw new RuntimeException();
+						}
+					}
+
+					state = next;
+				}
+
+				notifyEnteredInGuard(state);
+				markEnteredInGuard(state);
+				armTimeoutsInGuard(state);
+
+				// 대상 자식  state로의 진입이 성공된 경우.
+				if ( s_logger.isDebugEnabled() ) {
+					s_logger.debug("entered: state[" + state.getGuid() + "]");
+				}
+
+				path.add(state);
+			}
+
+			// 직교 상태인 경우는 모든 영역의 시작 상태들로 진입한다.
+			if ( state.isOrthogonal() ) {
+				return enterRegionsInGuard(state);
+			}
+			// 만일 진입한 상태가 nesting state인 경우는 시작 상태로 진입을 시도한다.
+			else if ( state.isComposite() ) {
+				try {
+					state = state.getInitialChildState();
+				}
+				catch ( Throwable e ) {
+					State<C> raiser = state;
+					state = getFaultHandleStateInGuard(raiser, e);
+					
+					notifyFaultInGuard(e, raiser, state, StatechartFaultCase.GET_INITIAL_SUBSTATE, null);
+				}
+			}
+			else {
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * 현재 상태에서 주어진 조상 state까지 exit을 호출하여 상태를 빠져나간다.
+	 * <p>
+	 * 대상 조상 state의 'exit'은 호출되지 않음.
+	 * 'ancestor' state가 현재 state의 ancestor 여부는 확인하지 않으므로, 미리 validate되어야 함.
+	 *
+	 * @param ancestor	대상 조상 state
+	 * @throws	AssertionError	'ancestor'가 현재 상태의 조상이 아닌 경우.
+	 */
+	private void exitUptoAncestorInGuard(List<State<C>> path, State<C> ancestor) {
+		for ( int i = path.size()-1; i >= 0; --i ) {
+			State<C> state = path.get(i);
+			if ( state == ancestor ) {
+				return;
+			}
+
+			exitIGEInGuard(state);
+			path.remove(i);
+
+			notifyLeftInGuard(state);
+
+			if ( s_logger.isDebugEnabled() ) {
+				s_logger.debug("exited: state[" + state.getGuid() + "]");
+			}
+		}
+
+		throw new AssertionError("Should not be here: class=" + getClass().getName()
+								+ ".exitUptoAncestor()");
+	}
+
+	private void exitIGEInGuard(State<C> state) {
+		if ( state.isOrthogonal() && m_regions != null ) {
+			exitRegionsInGuard();
+		}
+		cancelTimersInGuard(state);
+		
+		State<C> parent = state.getParentState();
+		if ( parent != null && parent.keepsHistory() ) {
+			if ( m_history == null ) {
+				m_history = new int[m_schart.getStateCount()];
+			}
+			m_history[m_schart.getStateId(parent)] = m_schart.getStateId(state) + 1;
+		}
+		
+		StatechartMetrics metrics = m_metrics;
+		long started = (metrics != null) ? System.nanoTime() : 0;
+		try {
+			state.leave((C)this);
+		}
+		catch ( Exception e ) {
+			s_logger.warn("ignored exception at exit: state=" + state + ", exception=" + e);
+		}
+		
+		if ( metrics != null ) {
+			long now = System.nanoTime();
+			int id = m_schart.getStateId(state);
+			StateMetrics stateMetrics = metrics.getStateMetrics(id);
+			stateMetrics.recordExit(now - started);
+			
+			if ( m_enteredAt != null && m_enteredAt[id] != 0 ) {
+				stateMetrics.recordDwell(now - m_enteredAt[id]);
+				m_enteredAt[id] = 0;
+			}
+		}
+	}
+	
+	private StateRef<C> enterInGuard(State<C> state) {
+		StatechartMetrics metrics = m_metrics;
+		if ( metrics == null ) {
+			return state.enterRef((C)this);
+		}
+		
+		long started = System.nanoTime();
+		try {
+			return state.enterRef((C)this);
+		}
+		finally {
+			metrics.getStateMetrics(m_schart.getStateId(state)).recordEntry(System.nanoTime() - started);
+		}
+	}
+	
+	private void armTimeoutsInGuard(State<C> state) {
+		List<StateTimeout<C>> timeouts = state.getTimeouts();
+		for ( int i =0; i < timeouts.size(); ++i ) {
+			StateTimeout<C> timeout = timeouts.get(i);
+			addTimerInGuard(new StateTimer<>(this, state, timeout, null), timeout.getDelay(TimeUnit.NANOSECONDS));
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private void addTimerInGuard(StateTimer<C> timer, long delayNanos) {
+		if ( m_timers == null ) {
+			m_timers = new StateTimer[m_schart.getStateCount()];
+		}
+		int id = m_schart.getStateId(timer.m_state);
+		timer.m_next = m_timers[id];
+		m_timers[id] = timer;
+		++m_timerCount;
+		
+		timer.m_handle = TimingWheel.getDefault().schedule(timer, delayNanos, TimeUnit.NANOSECONDS);
+	}
+	
+	// 탈출하는 상태의 만료되지 않은 타이머들을 취소한다. 이미 만료되어 처리를 기다리는 타이머는 무시된다.
+	private void cancelTimersInGuard(State<C> state) {
+		if ( m_timers == null ) {
+			return;
+		}
+		
+		int id = m_schart.getStateId(state);
+		for ( StateTimer<C> timer = m_timers[id]; timer != null; timer = timer.m_next ) {
+			timer.m_done = true;
+			timer.m_handle.cancel();
+			--m_timerCount;
+		}
+		m_timers[id] = null;
+	}
+	
+	private void fireTimerInGuard(StateTimer<C> timer) {
+		if ( timer.m_done || !m_active ) {
+			return;
+		}
+		
+		// 상태의 타이머 목록에서 제거한다.
+		int id = m_schart.getStateId(timer.m_state);
+		StateTimer<C> prev = null;
+		for ( StateTimer<C> cur = m_timers[id]; cur != timer; prev = cur, cur = cur.m_next );
+		if ( prev != null ) {
+			prev.m_next = timer.m_next;
+		}
+		else {
+			m_timers[id] = timer.m_next;
+		}
+		timer.m_done = true;
+		--m_timerCount;
+		
+		if ( timer.m_event != null ) {
+			handleEventInGuard(timer.m_event);
+			return;
+		}
+		
+		State<C> state = timer.m_state;
+		State<C> toState = null;
+		try {
+			StateRef<C> toRef = StateRef.path(timer.m_timeout.getAction().apply((C)this));
+			if ( toRef != null && !toRef.isStopPropagate() ) {
+				toState = toRef.resolve(m_schart, state);
+			}
+		}
+		catch ( Throwable fault ) {
+			State<C> faultState = getFaultHandleStateInGuard(state, fault);
+			s_logger.warn("fails to handle timeout: state={}, cause={}", state, fault);
+			
+			notifyFaultInGuard(fault, state, faultState, StatechartFaultCase.TIMEOUT, null);
+		}
+		
+		if ( toState != null ) {
+			s_logger.debug("timed out: {}, goto={}", state, toState);
+			transitInGuard(toState, null);
+		}
+		
+		completeRegionsInGuard();
+		stopIfFinalInGuard();
+	}
+	
+	private void markEnteredInGuard(State<C> state) {
+		if ( m_metrics != null ) {
+			if ( m_enteredAt == null ) {
+				m_enteredAt = new long[m_schart.getStateCount()];
+			}
+			m_enteredAt[m_schart.getStateId(state)] = System.nanoTime();
+		}
+	}
+	
+	private void unregisterMetricsInGuard() {
+		StatechartMetrics metrics = m_metrics;
+		if ( metrics != null ) {
+			metrics.unregister(m_execId);
+			m_enteredAt = null;
+		}
+	}
+
+	private State<C> getFaultHandleStateInGuard(State<C> state, Throwable fault) {
+		State<C> superState = state.getParentState();
+		while ( true ) {
+			if ( superState != null ) {
+				state = superState.getExceptionState();
+				if ( state != null ) {
+					return state;
+				}
+				
+				superState = superState.getParentState();
+			}
+			else {
+				return m_schart.getRootState().getExceptionState();
+			}
+		}
+	}
+
+	//
+	// 아래의 통지 메소드들은 수행 기록기가 설정된 경우 이를 기록하고, 해당 종류의 이벤트에
+	// 관심있는 리스너가 있는 경우에만 이벤트 객체를 생성하여 전달한다.
+	//
+	
+	private boolean isNotifying(StatechartEventKind kind) {
+		return !m_replaying && m_listeners.isSubscribed(kind);
+	}
+	
+	private void traceInGuard(StatechartEventKind kind, State<C> state, Event event) {
+		TraceRecorder tracer = m_tracer;
+		if ( tracer != null ) {
+			tracer.record(m_execId, getTraceStateId(state), EventTypeIds.getId(event), kind);
+		}
+	}
+	
+	private int getTraceStateId(State<C> state) {
+		return (state != null) ? m_schart.getStateId(state) : -1;
+	}
+	
+	private void notifyStartedInGuard() {
+		traceInGuard(StatechartEventKind.STARTED, m_schart.getRootState(), null);
+		if ( isNotifying(StatechartEventKind.STARTED) ) {
+			m_listeners.notify(StatechartEventKind.STARTED, new StatechartStartedEvent(m_schart));
+		}
+	}
+	
+	private void notifyFinishedInGuard(AsyncOperationState asyncState, Throwable fault) {
+		traceInGuard(StatechartEventKind.FINISHED, m_schart.getRootState(), null);
+		if ( isNotifying(StatechartEventKind.FINISHED) ) {
+			m_listeners.notify(StatechartEventKind.FINISHED,
+								new StatechartFinishedEvent(asyncState, fault));
+		}
+	}
+	
+	private void notifyEnteredInGuard(State<C> state) {
+		traceInGuard(StatechartEventKind.STATE_ENTERED, state, null);
+		if ( isNotifying(StatechartEventKind.STATE_ENTERED) ) {
+			m_listeners.notify(StatechartEventKind.STATE_ENTERED, new StateEnteredEvent(state));
+		}
+	}
+	
+	private void notifyLeftInGuard(State<C> state) {
+		traceInGuard(StatechartEventKind.STATE_LEFT, state, null);
+		if ( isNotifying(StatechartEventKind.STATE_LEFT) ) {
+			m_listeners.notify(StatechartEventKind.STATE_LEFT, new StateLeftEvent(state));
+		}
+	}
+	
+	private void notifyBouncedInGuard(State<C> from, State<C> bounce) {
+		traceInGuard(StatechartEventKind.STATE_BOUNCED, from, null);
+		if ( isNotifying(StatechartEventKind.STATE_BOUNCED) ) {
+			m_listeners.notify(StatechartEventKind.STATE_BOUNCED, new StateBouncedEvent<>(from, bounce));
+		}
+	}
+	
+	private void notifyHandledInGuard(Event event, State<C> state, StateRef<C> toRef) {
+		traceInGuard(StatechartEventKind.EVENT_HANDLED, state, event);
+		if ( isNotifying(StatechartEventKind.EVENT_HANDLED) ) {
+			String toStateId = (toRef != null) ? toRef.getPath() : null;
+			m_listeners.notify(StatechartEventKind.EVENT_HANDLED,
+								new EventHandledEvent(event, state, toStateId));
+		}
+	}
+	
+	private void notifyFaultInGuard(Throwable fault, State<C> thrower, State<C> to,
+									StatechartFaultCase faultCase, Event event) {
+		StatechartMetrics metrics = m_metrics;
+		if ( metrics != null && thrower != null ) {
+			metrics.getStateMetrics(m_schart.getStateId(thrower)).incrementFaultCount();
+		}
+		
+		TraceRecorder tracer = m_tracer;
+		boolean subscribed = isNotifying(StatechartEventKind.FAULT_RAISED);
+		if ( tracer == null && !subscribed ) {
+			return;
+		}
+		
+		FaultRaisedEvent faultEvent = new FaultRaisedEvent(fault, thrower, to, faultCase, event);
+		if ( tracer != null ) {
+			tracer.recordFault(m_execId, getTraceStateId(thrower), EventTypeIds.getId(event), faultEvent);
+		}
+		if ( subscribed ) {
+			m_listeners.notify(StatechartEventKind.FAULT_RAISED, faultEvent);
+		}
+	}
+
+	/**
+	 * 활성 상태에 종속된 타이머. 상태 시간 제한 또는 지연 이벤트 중 하나를 갖는다.
+	 */
+	private static final class StateTimer<C extends StatechartExecution<C>> implements Runnable {
+		private final StatechartExecution<C> m_exec;
+		private final State<C> m_state;
+		private final StateTimeout<C> m_timeout;
+		private final Event m_event;
+		@GuardedBy("m_scLock") private TimingWheel.Timeout m_handle;
+		@GuardedBy("m_scLock") private StateTimer<C> m_next;
+		@GuardedBy("m_scLock") private boolean m_done = false;	// 취소되었거나 처리된 경우
+		
+		StateTimer(StatechartExecution<C> exec, State<C> state, StateTimeout<C> timeout, Event event) {
+			m_exec = exec;
+			m_state = state;
+			m_timeout = timeout;
+			m_event = event;
+		}
+		
+		// 타이머 쓰레드에서 호출되므로, 처리는 이벤트 처리 쓰레드에 넘긴다.
+		@Override
+		public void run() {
+			m_exec.m_eventQueue.enqueueAction(() -> m_exec.m_scGuard.run(() -> m_exec.fireTimerInGuard(this)));
+		}
+		
+		@Override
+		public String toString() {
+			return String.format("Timer[%s, %s]", m_state.getGuid(),
+								(m_timeout != null) ? m_timeout : m_event);
+		}
+	}
+
+	// 하나의 영역에서 이벤트를 처리한 결과
+	private static final class HandlerCall<C extends StatechartExecution<C>> {
+		private final State<C> m_state;
+		private StateRef<C> m_toRef;
+		private Throwable m_fault;
+		private long m_elapsed;
+		
+		HandlerCall(State<C> state) {
+			m_state = state;
+		}
+	}
+	
+	/**
+	 * 하나의 영역의 활성 경로에 대해 안쪽 상태부터 이벤트를 전달한다.
+	 * <p>
+	 * 영역들이 동시에 이벤트를 처리하는 경우는 쓰레드 풀에서 수행되므로, 상태 처리기의 호출 결과만
+	 * 기록하고 통보와 전이는 이벤트 처리 쓰레드에서 수행된다.
+	 */
+	private static final class RegionDispatch<C extends StatechartExecution<C>> implements Callable<Void> {
+		private final C m_context;
+		private final List<State<C>> m_path;
+		private final Event m_event;
+		private final boolean m_timed;
+		private final boolean m_concurrent;
+		private final List<HandlerCall<C>> m_calls = Lists.newArrayList();
+		
+		RegionDispatch(C context, List<State<C>> path, Event event, boolean timed, boolean concurrent) {
+			m_context = context;
+			m_path = path;
+			m_event = event;
+			m_timed = timed;
+			m_concurrent = concurrent;
+		}
+		
+		@Override
+		public Void call() {
+			if ( !m_concurrent ) {
+				dispatch();
+				return null;
+			}
+			
+			// 작업 쓰레드가 대기 중에 다른 수행의 영역 작업을 처리할 수 있으므로 이전 값을 복원한다.
+			StatechartExecution<?> prev = s_regionWorker.get();
+			s_regionWorker.set(m_context);
+			try {
+				dispatch();
+			}
+			finally {
+				s_regionWorker.set(prev);
+			}
+			
+			return null;
+		}
+		
+		private void dispatch() {
+			for ( int idx = m_path.size()-1; idx >= 0; --idx ) {
+				State<C> state = m_path.get(idx);
+				if ( !state.accepts(m_event) ) {
+					continue;
+				}
+				
+				HandlerCall<C> call = new HandlerCall<>(state);
+				long started = m_timed ? System.nanoTime() : 0;
+				try {
+					call.m_toRef = state.handleEventRef(m_context, m_event);
+				}
+				catch ( Throwable fault ) {
+					call.m_fault = fault;
+				}
+				if ( m_timed ) {
+					call.m_elapsed = System.nanoTime() - started;
+				}
+				
+				m_calls.add(call);
+				if ( call.m_toRef != null ) {
+					break;
+				}
+			}
+		}
+	}
+}
@@ -1,13 +1,16 @@
-package camus.statechart;
-
-
-/**
- *
- * @author Kang-Woo Lee (ETRI)
- */
-public enum StatechartFaultCase {
-	START,
-	HANDLE_EVENT,
-	GET_INITIAL_SUBSTATE,
-	STATE_ENTRY,
-}
+package camus.statechart;
+
+
+/**
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+public enum StatechartFaultCase {
+	START,
+	HANDLE_EVENT,
+	GET_INITIAL_SUBSTATE,
+	STATE_ENTRY,
+	TIMEOUT,
+	JOURNAL_WRITE,
+	REGIONS_COMPLETED,
+}
@@ -1,9 +1,15 @@
-package camus.statechart;
-
-/**
- *
- * @author Kang-Woo Lee (ETRI)
- */
-public interface StatechartListener {
-	public void receiveEvent(StatechartEvent event);
-}
+package camus.statechart;
+
+/**
+ * <code>StatechartListener</code>는 상태차트 수행 중에 발생되는 {@link StatechartEvent}를
+ * 전달받는 리스너 인터페이스를 정의한다.
+ * <p>
+ * 리스너는 {@link StatechartExecution#addStatechartListener(StatechartListener, StatechartEventKind...)}를
+ * 통해 관심있는 이벤트 종류와 함께 등록한다. 리스너는 상태차트 잠금을 획득한 상태에서 호출되므로,
+ * 오래 걸리는 작업을 수행하지 않아야 한다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+public interface StatechartListener {
+	public void receiveEvent(StatechartEvent event);
+}
@@ -0,0 +1,102 @@
+package camus.statechart;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * <code>StatechartListeners</code>는 상태차트 수행에 등록된 {@link StatechartListener}들의
+ * 목록을 관리한다.
+ * <p>
+ * 각 리스너는 관심있는 {@link StatechartEventKind}들과 함께 등록되며, 등록된 모든 리스너들의
+ * 관심 종류의 합집합을 비트 마스크로 유지한다. 상태차트 수행은 {@link #isSubscribed(StatechartEventKind)}로
+ * 해당 종류에 관심있는 리스너가 있는 경우에만 이벤트 객체를 생성하여 전달하기 때문에,
+ * 리스너가 없는 경우에는 통지를 위한 객체 생성이 발생하지 않는다.
+ * <p>
+ * 리스너 목록은 copy-on-write 방식으로 관리되어, 통지 과정에서는 잠금을 사용하지 않는다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+@ThreadSafe
+final class StatechartListeners {
+	private static final Logger s_logger = LoggerFactory.getLogger(StatechartListeners.class);
+	private static final Registration[] EMPTY = new Registration[0];
+
+	private volatile Registration[] m_regs = EMPTY;
+	private volatile int m_mask = 0;
+
+	boolean isSubscribed(StatechartEventKind kind) {
+		return (m_mask & kind.mask()) != 0;
+	}
+
+	boolean isEmpty() {
+		return m_mask == 0;
+	}
+
+	synchronized void add(StatechartListener listener, Set<StatechartEventKind> kinds) {
+		int mask = 0;
+		for ( StatechartEventKind kind: kinds ) {
+			mask |= kind.mask();
+		}
+
+		Registration[] regs = Arrays.copyOf(m_regs, m_regs.length+1);
+		regs[regs.length-1] = new Registration(listener, mask);
+		update(regs);
+	}
+
+	synchronized boolean remove(StatechartListener listener) {
+		Registration[] regs = m_regs;
+		for ( int i =0; i < regs.length; ++i ) {
+			if ( regs[i].m_listener == listener ) {
+				Registration[] updated = new Registration[regs.length-1];
+				System.arraycopy(regs, 0, updated, 0, i);
+				System.arraycopy(regs, i+1, updated, i, regs.length-i-1);
+				update(updated);
+
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	void notify(StatechartEventKind kind, StatechartEvent event) {
+		int bit = kind.mask();
+		for ( Registration reg: m_regs ) {
+			if ( (reg.m_mask & bit) != 0 ) {
+				try {
+					reg.m_listener.receiveEvent(event);
+				}
+				catch ( Throwable e ) {
+					s_logger.warn("ignored listener failure: listener={}, event={}, cause={}",
+									reg.m_listener, event, e);
+				}
+			}
+		}
+	}
+
+	private void update(Registration[] regs) {
+		int mask = 0;
+		for ( Registration reg: regs ) {
+			mask |= reg.m_mask;
+		}
+
+		m_regs = (regs.length > 0) ? regs : EMPTY;
+		m_mask = mask;
+	}
+
+	private static final class Registration {
+		private final StatechartListener m_listener;
+		private final int m_mask;
+
+		Registration(StatechartListener listener, int mask) {
+			m_listener = listener;
+			m_mask = mask;
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package camus.statechart;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.base.Preconditions;
+
+
+/**
+ * <code>StatechartScheduler</code>는 여러 상태차트 수행이 고정된 갯수의 작업 쓰레드를
+ * 공유하여 이벤트를 처리하도록 하는 스케줄러를 정의한다.
+ * <p>
+ * 스케줄러를 공유하는 각 상태차트 수행은 자신의 이벤트 큐를 별도로 유지하며, 다음과 같은 성질이 보장된다.
+ * <ul>
+ * 	<li> 하나의 상태차트 수행에 대해서는 동시에 최대 하나의 이벤트만 처리된다.
+ * 	<li> 하나의 상태차트 수행에 전달된 이벤트들은 전달된 순서대로 처리된다.
+ * 	<li> 작업 쓰레드는 한번에 하나의 상태차트 수행에 대해 최대 {@link #getQuantum()}개의
+ * 		이벤트를 처리한 후, 나머지 이벤트의 처리는 다른 상태차트 수행들의 뒤로 미룬다.
+ * </ul>
+ * 이벤트가 없는 상태차트 수행은 작업 쓰레드를 점유하지 않기 때문에, 대부분의 시간을 대기 상태로
+ * 보내는 다수의 상태차트 수행을 적은 수의 쓰레드로 수행시킬 수 있다.
+ * <p>
+ * 작업 쓰레드들은 하나의 공유 FIFO 큐에서 작업을 가져온다. 따라서 quantum을 소진하여 다시 제출되는
+ * 상태차트 수행도 외부 쓰레드에서 새로 제출된 수행과 동일한 큐의 뒤에 추가되며, 쓰레드별 작업 큐를
+ * 사용하는 경우와 달리 이벤트가 계속 도착하는 수행들이 다른 수행의 처리를 무한히 지연시키지 않는다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+@ThreadSafe
+public class StatechartScheduler implements StatechartDispatcher {
+	public static final int DEFAULT_QUANTUM = 32;
+	private static final AtomicInteger s_seqno = new AtomicInteger(0);
+
+	private final ThreadPoolExecutor m_workers;
+	private final int m_quantum;
+
+	/**
+	 * 주어진 갯수의 작업 쓰레드를 사용하는 스케줄러를 생성한다.
+	 *
+	 * @param nworkers	작업 쓰레드 갯수.
+	 * @param quantum	한 상태차트 수행이 작업 쓰레드를 연속하여 점유할 때 처리하는 최대 이벤트 갯수.
+	 */
+	public StatechartScheduler(int nworkers, int quantum) {
+		Preconditions.checkArgument(nworkers > 0, "invalid number of workers: " + nworkers);
+		Preconditions.checkArgument(quantum > 0, "invalid quantum: " + quantum);
+
+		String prefix = "statechart-" + s_seqno.getAndIncrement() + "-worker-";
+		AtomicInteger index = new AtomicInteger(0);
+		m_workers = new ThreadPoolExecutor(nworkers, nworkers, 0, TimeUnit.MILLISECONDS,
+											new LinkedBlockingQueue<>(), task -> {
+			Thread thread = new Thread(task, prefix + index.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		});
+		m_quantum = quantum;
+	}
+
+	/**
+	 * 주어진 갯수의 작업 쓰레드와 기본 quantum({@value #DEFAULT_QUANTUM})을 사용하는
+	 * 스케줄러를 생성한다.
+	 *
+	 * @param nworkers	작업 쓰레드 갯수.
+	 */
+	public StatechartScheduler(int nworkers) {
+		this(nworkers, DEFAULT_QUANTUM);
+	}
+
+	@Override
+	public Executor attach(StatechartExecution<?> exec) {
+		return m_workers;
+	}
+
+	/**
+	 * 한 상태차트 수행이 작업 쓰레드를 연속하여 점유할 때 처리하는 최대 이벤트 갯수를 반환한다.
+	 *
+	 * @return	quantum 값.
+	 */
+	@Override
+	public int getQuantum() {
+		return m_quantum;
+	}
+
+	/**
+	 * 작업 쓰레드의 갯수를 반환한다.
+	 *
+	 * @return	작업 쓰레드 갯수.
+	 */
+	public int getWorkerCount() {
+		return m_workers.getCorePoolSize();
+	}
+
+	/**
+	 * 스케줄러를 종료시킨다.
+	 * <p>
+	 * 이미 수행 중인 이벤트 처리는 계속 진행되지만, 이후에 도착하는 이벤트는 처리되지 않는다.
+	 */
+	public void shutdown() {
+		m_workers.shutdown();
+	}
+
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		return m_workers.awaitTermination(timeout, unit);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("StatechartScheduler[workers=%d, quantum=%d]",
+							m_workers.getCorePoolSize(), m_quantum);
+	}
+}
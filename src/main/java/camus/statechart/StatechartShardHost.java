@@ -0,0 +1,451 @@
+package camus.statechart;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+import event.Event;
+
+
+/**
+ * <code>StatechartShardHost</code>는 상태차트 수행들을 키(예: 장치 식별자)에 따라 여러 shard로
+ * 나누어 수행시키는 호스트를 정의한다.
+ * <p>
+ * 각 shard는 전용 작업 쓰레드와 작업 큐를 갖고, 하나의 키에 등록된 상태차트 수행의 이벤트는
+ * 항상 그 키가 배정된 shard의 작업 쓰레드에서 처리된다. 따라서 수행의 상태 데이터가 하나의 코어
+ * 캐시에 머무르게 되고, shard 사이에는 공유하는 자료 구조가 없어 shard 수에 비례하여 처리량이
+ * 늘어난다.
+ * <p>
+ * 키는 해시 값에 따라 고정된 갯수의 파티션으로 나뉘고, 파티션이 shard에 배정된다. 각 파티션은
+ * 자신에 속한 키별 수행 맵과 처리 시간 누계를 유지하며, shard의 수행 맵은 배정된 파티션들의 맵으로
+ * 구성된다. {@link #resize(int)}는 shard 수를 바꾸어 파티션들을 다시 고르게 배정하고,
+ * {@link #rebalance()}는 직전 재배정 이후 파티션별 처리 시간을 기준으로 파티션들을 다시 배정하여
+ * shard 사이의 부하를 맞춘다.
+ * <p>
+ * 상태차트 수행은 본 호스트를 {@link StatechartDispatcher}로 사용하여 생성하고, 시작하기 전에
+ * {@link #register(Object, StatechartExecution)}로 키를 등록하여야 한다. 상태차트 수행은 동시에
+ * 최대 하나의 처리 작업만을 제출하므로, 파티션이 다른 shard로 옮겨지더라도 이미 제출된 작업은
+ * 이전 shard에서 마저 처리되고 이후 작업부터 새 shard에서 처리되어 이벤트 처리 순서가 유지된다.
+ * <pre>
+ * StatechartShardHost&lt;String&gt; host = new StatechartShardHost&lt;&gt;(4);
+ * DeviceExecution exec = new DeviceExecution(schart, host);
+ * host.register(deviceId, exec);
+ * exec.start();
+ * host.submit(deviceId, event);
+ * </pre>
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+@ThreadSafe
+public class StatechartShardHost<K> implements StatechartDispatcher {
+	private static final Logger s_logger = LoggerFactory.getLogger(StatechartShardHost.class);
+
+	public static final int DEFAULT_PARTITION_COUNT = 256;
+	private static final long IDLE_PARK_NANOS = TimeUnit.SECONDS.toNanos(1);
+	private static final AtomicInteger s_seqno = new AtomicInteger(0);
+
+	private final String m_name;
+	private final Partition<K>[] m_partitions;
+	private final int m_quantum;
+	private final Map<StatechartExecution<?>,Partition<K>> m_attachments = new ConcurrentHashMap<>();
+	@GuardedBy("this") private Shard[] m_shards;
+	@GuardedBy("this") private boolean m_shutdown = false;
+
+	/**
+	 * 가용 프로세서 수만큼의 shard를 사용하는 호스트를 생성한다.
+	 */
+	public StatechartShardHost() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * 주어진 갯수의 shard를 사용하는 호스트를 생성한다.
+	 *
+	 * @param nshards	shard 갯수.
+	 */
+	public StatechartShardHost(int nshards) {
+		this(nshards, DEFAULT_PARTITION_COUNT, StatechartScheduler.DEFAULT_QUANTUM);
+	}
+
+	/**
+	 * 주어진 갯수의 shard와 파티션을 사용하는 호스트를 생성한다.
+	 *
+	 * @param nshards		shard 갯수.
+	 * @param npartitions	키 파티션 갯수. 재배정의 단위가 되므로 shard 갯수보다 충분히 커야 한다.
+	 * @param quantum		한 상태차트 수행이 작업 쓰레드를 연속하여 점유할 때 처리하는 최대 이벤트 갯수.
+	 */
+	@SuppressWarnings("unchecked")
+	public StatechartShardHost(int nshards, int npartitions, int quantum) {
+		Preconditions.checkArgument(nshards > 0, "invalid number of shards: " + nshards);
+		Preconditions.checkArgument(npartitions >= nshards, "invalid number of partitions: " + npartitions);
+		Preconditions.checkArgument(quantum > 0, "invalid quantum: " + quantum);
+
+		m_name = "statechart-shard-" + s_seqno.getAndIncrement();
+		m_quantum = quantum;
+		m_partitions = new Partition[npartitions];
+		m_shards = new Shard[nshards];
+		for ( int i =0; i < nshards; ++i ) {
+			m_shards[i] = newShard(i);
+		}
+		for ( int i =0; i < npartitions; ++i ) {
+			m_partitions[i] = new Partition<>(i, m_shards[i % nshards]);
+		}
+	}
+
+	/**
+	 * 주어진 키에 상태차트 수행을 등록한다.
+	 * <p>
+	 * 상태차트 수행은 본 호스트를 이벤트 처리 전략으로 사용하여 생성되어야 하며, 수행을 시작하기
+	 * 전에 등록되어야 한다.
+	 *
+	 * @param key	수행 키.
+	 * @param exec	상태차트 수행 객체.
+	 * @throws IllegalStateException	주어진 키에 이미 다른 수행이 등록된 경우.
+	 */
+	public void register(K key, StatechartExecution<?> exec) {
+		Objects.requireNonNull(key, "key was null");
+		Objects.requireNonNull(exec, "StatechartExecution was null");
+
+		Partition<K> partition = getPartition(key);
+		if ( partition.m_executions.putIfAbsent(key, exec) != null ) {
+			throw new IllegalStateException("execution already registered: key=" + key);
+		}
+		m_attachments.put(exec, partition);
+	}
+
+	/**
+	 * 주어진 키에 등록된 상태차트 수행의 등록을 해제한다.
+	 * <p>
+	 * 수행 중인 상태차트는 계속 같은 shard에서 수행되지만, {@link #submit(Object, Event)}로
+	 * 이벤트를 전달받지 못한다.
+	 *
+	 * @param key	수행 키.
+	 * @return	등록 해제된 상태차트 수행. 등록된 수행이 없는 경우는 <code>null</code>.
+	 */
+	public StatechartExecution<?> unregister(K key) {
+		StatechartExecution<?> exec = getPartition(key).m_executions.remove(key);
+		if ( exec != null ) {
+			m_attachments.remove(exec);
+		}
+
+		return exec;
+	}
+
+	/**
+	 * 주어진 키에 등록된 상태차트 수행을 반환한다.
+	 *
+	 * @param key	수행 키.
+	 * @return	상태차트 수행. 등록된 수행이 없는 경우는 <code>null</code>.
+	 */
+	public StatechartExecution<?> getExecution(K key) {
+		return getPartition(key).m_executions.get(key);
+	}
+
+	/**
+	 * 주어진 키에 등록된 상태차트 수행에 이벤트를 전달한다.
+	 *
+	 * @param key	수행 키.
+	 * @param event	전달할 이벤트.
+	 * @return	등록된 수행이 있어 이벤트가 전달된 경우는 <code>true</code>, 그렇지 않은 경우는 <code>false</code>.
+	 */
+	public boolean submit(K key, Event event) {
+		StatechartExecution<?> exec = getPartition(key).m_executions.get(key);
+		if ( exec == null ) {
+			return false;
+		}
+
+		exec.receiveEvent(event);
+		return true;
+	}
+
+	/**
+	 * 주어진 키가 현재 배정된 shard의 번호를 반환한다.
+	 *
+	 * @param key	수행 키.
+	 * @return	shard 번호.
+	 */
+	public int getShardOf(K key) {
+		return getPartition(key).m_shard.m_index;
+	}
+
+	/**
+	 * shard의 갯수를 반환한다.
+	 *
+	 * @return	shard 갯수.
+	 */
+	public synchronized int getShardCount() {
+		return m_shards.length;
+	}
+
+	/**
+	 * shard 갯수를 바꾸고 파티션들을 새 shard들에 고르게 다시 배정한다.
+	 * <p>
+	 * 가용 코어 수가 바뀐 경우 등에 사용된다. 제거되는 shard의 작업 쓰레드는 이미 제출된 작업을
+	 * 모두 처리한 후 종료된다.
+	 *
+	 * @param nshards	새 shard 갯수.
+	 */
+	public synchronized void resize(int nshards) {
+		Preconditions.checkArgument(nshards > 0 && nshards <= m_partitions.length,
+									"invalid number of shards: " + nshards);
+		Preconditions.checkState(!m_shutdown, "host has been shut down");
+
+		Shard[] shards = Arrays.copyOf(m_shards, nshards);
+		for ( int i = m_shards.length; i < nshards; ++i ) {
+			shards[i] = newShard(i);
+		}
+		for ( Partition<K> partition: m_partitions ) {
+			partition.m_shard = shards[partition.m_index % nshards];
+			partition.m_load.set(0);
+		}
+		retire(m_shards, nshards);
+		m_shards = shards;
+
+		s_logger.info("resized: {}, shards={}", m_name, nshards);
+	}
+
+	/**
+	 * 직전 재배정 이후의 파티션별 처리 시간을 기준으로 파티션들을 shard들에 다시 배정한다.
+	 * <p>
+	 * 처리 시간이 큰 파티션부터 누적 처리 시간이 가장 작은 shard에 배정하며, 누적 처리 시간이
+	 * 같은 경우는 배정된 파티션이 적은 shard를 선택한다. 배정 후 파티션별 처리 시간 누계는 초기화된다.
+	 *
+	 * @return	다른 shard로 옮겨진 파티션 갯수.
+	 */
+	public synchronized int rebalance() {
+		Preconditions.checkState(!m_shutdown, "host has been shut down");
+
+		long[] loads = new long[m_partitions.length];
+		Integer[] order = new Integer[m_partitions.length];
+		for ( int i =0; i < m_partitions.length; ++i ) {
+			loads[i] = m_partitions[i].m_load.getAndSet(0);
+			order[i] = i;
+		}
+		Arrays.sort(order, Comparator.comparingLong((Integer idx) -> loads[idx]).reversed());
+
+		long[] shardLoads = new long[m_shards.length];
+		int[] counts = new int[m_shards.length];
+		int moved = 0;
+		for ( int idx: order ) {
+			int target = 0;
+			for ( int i =1; i < shardLoads.length; ++i ) {
+				if ( shardLoads[i] < shardLoads[target]
+					|| (shardLoads[i] == shardLoads[target] && counts[i] < counts[target]) ) {
+					target = i;
+				}
+			}
+			shardLoads[target] += loads[idx];
+			++counts[target];
+
+			Partition<K> partition = m_partitions[idx];
+			if ( partition.m_shard != m_shards[target] ) {
+				partition.m_shard = m_shards[target];
+				++moved;
+			}
+		}
+
+		s_logger.info("rebalanced: {}, moved partitions={}", m_name, moved);
+		return moved;
+	}
+
+	/**
+	 * 각 shard가 직전 재배정 이후 이벤트 처리에 사용한 시간(나노초)을 반환한다.
+	 *
+	 * @return	shard 번호별 처리 시간.
+	 */
+	public synchronized long[] getShardLoads() {
+		long[] loads = new long[m_shards.length];
+		for ( Partition<K> partition: m_partitions ) {
+			loads[partition.m_shard.m_index] += partition.m_load.get();
+		}
+
+		return loads;
+	}
+
+	/**
+	 * 호스트를 종료시킨다.
+	 * <p>
+	 * 각 shard의 작업 쓰레드는 이미 제출된 작업을 모두 처리한 후 종료되며, 이후에 제출되는
+	 * 작업은 거부된다.
+	 */
+	public synchronized void shutdown() {
+		if ( !m_shutdown ) {
+			m_shutdown = true;
+			retire(m_shards, 0);
+		}
+	}
+
+	@Override
+	public Executor attach(StatechartExecution<?> exec) {
+		Partition<K> partition = m_attachments.get(exec);
+		if ( partition == null ) {
+			throw new IllegalStateException("execution is not registered: " + exec);
+		}
+
+		return new Slot(partition);
+	}
+
+	@Override
+	public int getQuantum() {
+		return m_quantum;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("StatechartShardHost[%s, shards=%d, partitions=%d]",
+							m_name, getShardCount(), m_partitions.length);
+	}
+
+	private Partition<K> getPartition(K key) {
+		int hash = key.hashCode();
+		hash ^= (hash >>> 16);
+
+		return m_partitions[Math.floorMod(hash, m_partitions.length)];
+	}
+
+	private Shard newShard(int index) {
+		Shard shard = new Shard(index, m_name + "-" + index);
+		shard.m_thread.start();
+
+		return shard;
+	}
+
+	// 주어진 배열에서 'from'번째 이후의 shard들을 종료시킨다.
+	private static void retire(Shard[] shards, int from) {
+		for ( int i = from; i < shards.length; ++i ) {
+			shards[i].m_closed = true;
+			LockSupport.unpark(shards[i].m_thread);
+		}
+	}
+
+	private static final class Partition<K> {
+		private final int m_index;
+		private final Map<K,StatechartExecution<?>> m_executions = new ConcurrentHashMap<>();
+		private final AtomicLong m_load = new AtomicLong(0);	// 직전 재배정 이후 처리 시간 (나노초)
+		private volatile Shard m_shard;
+
+		Partition(int index, Shard shard) {
+			m_index = index;
+			m_shard = shard;
+		}
+	}
+
+	/**
+	 * 상태차트 수행별로 할당되는 <code>Executor</code>.
+	 * <p>
+	 * 상태차트 수행은 동시에 최대 하나의 작업만 제출하므로, 제출된 작업을 본 객체에 보관하고
+	 * 본 객체를 파티션이 현재 배정된 shard의 큐에 추가한다.
+	 */
+	private static final class Slot implements Executor, Runnable {
+		private final Partition<?> m_partition;
+		private volatile Runnable m_task;
+
+		Slot(Partition<?> partition) {
+			m_partition = partition;
+		}
+
+		@Override
+		public void execute(Runnable task) {
+			m_task = task;
+			m_partition.m_shard.offer(this);
+		}
+
+		@Override
+		public void run() {
+			long started = System.nanoTime();
+			try {
+				m_task.run();
+			}
+			catch ( Throwable e ) {
+				s_logger.warn("fails to run task: " + m_task, e);
+			}
+			m_partition.m_load.addAndGet(System.nanoTime() - started);
+		}
+	}
+
+	private static final class Shard {
+		private final int m_index;		// 호스트의 shard 배열에서의 위치
+		private final Thread m_thread;
+		private final MpscQueue<Slot> m_slots = new MpscQueue<>();
+		private volatile boolean m_idle = false;
+		private volatile boolean m_closed = false;
+		private volatile boolean m_terminated = false;
+
+		Shard(int index, String name) {
+			m_index = index;
+			m_thread = new Thread(this::run, name);
+			m_thread.setDaemon(true);
+		}
+
+		void offer(Slot slot) {
+			// 큐의 원자적 교환 후에 'm_idle'을 읽으므로, 작업 쓰레드가 대기 표시 후 확인하는
+			// 'isEmpty()'와 엇갈려 깨우기를 놓치지 않는다.
+			m_slots.offer(slot);
+
+			if ( m_terminated && !relocate() ) {
+				throw new RejectedExecutionException("shard has been terminated: " + m_thread.getName());
+			}
+			else if ( m_idle ) {
+				LockSupport.unpark(m_thread);
+			}
+		}
+
+		private void run() {
+			while ( true ) {
+				Slot slot = m_slots.poll();
+				if ( slot != null ) {
+					slot.run();
+					continue;
+				}
+				if ( m_closed ) {
+					break;
+				}
+
+				m_idle = true;
+				if ( m_slots.isEmpty() && !m_closed ) {
+					LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+				}
+				m_idle = false;
+			}
+
+			m_terminated = true;
+			relocate();
+		}
+
+		// 종료된 shard로 제출된 작업들을 파티션이 현재 배정된 shard로 다시 보낸다.
+		// 호스트가 종료되어 보낼 shard가 없는 작업이 있는 경우는 false를 반환한다.
+		private synchronized boolean relocate() {
+			boolean relocated = true;
+			
+			Slot slot;
+			while ( (slot = m_slots.poll()) != null ) {
+				Shard shard = slot.m_partition.m_shard;
+				if ( shard == this ) {
+					s_logger.debug("drop a task submitted after shutdown: {}", m_thread.getName());
+					relocated = false;
+				}
+				else {
+					shard.offer(slot);
+				}
+			}
+			
+			return relocated;
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package camus.statechart;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+
+/**
+ * <code>StatechartSnapshot</code>은 상태차트 수행 스냅샷의 이진 형식을 정의한다.
+ * <p>
+ * 스냅샷은 다음과 같이 구성된다. 정수들은 모두 가변 길이(7비트 단위)로 기록된다.
+ * <ol>
+ * 	<li> 매직 번호(4바이트), 형식 버전(1바이트), 상태 구조 서명(8바이트)
+ * 	<li> 활성 상태 갯수와 최상위 상태부터의 상태 번호들. 현재 상태가 직교 상태인 경우는 이어서
+ * 		각 영역의 활성 경로가 영역 순서대로 기록되며, 직교 상태의 자식 상태에서 새 영역이 시작된다.
+ * 	<li> 최근 자식 상태가 기록된 상태의 갯수와 (상태 번호, 자식 상태 번호) 쌍들
+ * 	<li> {@link ContextSerializer}가 기록한 응용 데이터
+ * </ol>
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+final class StatechartSnapshot {
+	private static final int MAGIC = 0x5343534E;	// "SCSN"
+	private static final int VERSION = 1;
+
+	final int[] m_path;		// 최상위 상태부터의 활성 상태 번호들 (영역별 활성 경로 포함)
+	final int[] m_history;	// 상태 번호별 최근 자식 상태 번호 + 1 (0: 없음). 없는 경우는 null.
+
+	StatechartSnapshot(int[] path, int[] history) {
+		m_path = path;
+		m_history = history;
+	}
+
+	void writeTo(DataOutput out, long signature) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeByte(VERSION);
+		out.writeLong(signature);
+
+		writeVarInt(out, m_path.length);
+		for ( int id: m_path ) {
+			writeVarInt(out, id);
+		}
+
+		int count = 0;
+		if ( m_history != null ) {
+			for ( int child: m_history ) {
+				if ( child != 0 ) {
+					++count;
+				}
+			}
+		}
+		writeVarInt(out, count);
+		for ( int id =0; count > 0; ++id ) {
+			if ( m_history[id] != 0 ) {
+				writeVarInt(out, id);
+				writeVarInt(out, m_history[id] - 1);
+				--count;
+			}
+		}
+	}
+
+	static StatechartSnapshot readFrom(DataInput in, long signature, int nstates) throws IOException {
+		if ( in.readInt() != MAGIC ) {
+			throw new IOException("not a statechart snapshot");
+		}
+		int version = in.readByte();
+		if ( version != VERSION ) {
+			throw new IOException("unsupported snapshot version: " + version);
+		}
+		long sig = in.readLong();
+		if ( sig != signature ) {
+			throw new IOException(String.format("incompatible statechart: signature=%x, expected=%x",
+												sig, signature));
+		}
+
+		int[] path = new int[readStateId(in, nstates + 1)];
+		for ( int i =0; i < path.length; ++i ) {
+			path[i] = readStateId(in, nstates);
+		}
+
+		int count = readStateId(in, nstates + 1);
+		int[] history = null;
+		if ( count > 0 ) {
+			history = new int[nstates];
+			for ( int i =0; i < count; ++i ) {
+				int id = readStateId(in, nstates);
+				history[id] = readStateId(in, nstates) + 1;
+			}
+		}
+
+		return new StatechartSnapshot(path, history);
+	}
+
+	private static int readStateId(DataInput in, int bound) throws IOException {
+		int value = readVarInt(in);
+		if ( value < 0 || value >= bound ) {
+			throw new IOException("corrupted snapshot: value=" + value + ", bound=" + bound);
+		}
+
+		return value;
+	}
+
+	static void writeVarInt(DataOutput out, int value) throws IOException {
+		while ( (value & ~0x7F) != 0 ) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	static int readVarInt(DataInput in) throws IOException {
+		int value = 0;
+		for ( int shift = 0; shift < 32; shift += 7 ) {
+			int b = in.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			if ( (b & 0x80) == 0 ) {
+				return value;
+			}
+		}
+
+		throw new IOException("malformed variable-length integer");
+	}
+}
@@ -0,0 +1,369 @@
+package camus.statechart;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+
+/**
+ * <code>TimingWheel</code>은 모든 상태차트 수행이 공유하는 계층형 타이밍 휠 기반의 타이머를 정의한다.
+ * <p>
+ * 타이머는 하나의 전용 쓰레드에서 tick 단위({@link #DEFAULT_TICK_MILLIS}ms)로 처리된다.
+ * 휠은 256, 64, 64, 64개의 슬롯을 갖는 4단계로 구성되며, 만료 시각이 가까운 타이머는 하위 단계에,
+ * 먼 타이머는 상위 단계에 등록된 후 만료 시각이 다가옴에 따라 하위 단계로 옮겨진다.
+ * 최상위 단계의 범위를 넘는 타이머는 최상위 단계의 마지막 슬롯에 등록된 후 다시 배치된다.
+ * <p>
+ * 타이머 등록과 취소는 잠금 없이 {@link MpscQueue}에 요청을 추가하는 것으로 끝나고, 실제 슬롯의
+ * 변경은 타이머 쓰레드에서만 수행되므로 두 연산 모두 O(1) 비용을 갖는다. 등록된 타이머가 없는 동안
+ * 타이머 쓰레드는 tick 처리를 멈추고 대기한다.
+ * <p>
+ * 만료된 타이머의 작업은 타이머 쓰레드에서 수행되므로, 작업은 다른 쓰레드에 처리를 넘기는 등
+ * 짧은 시간 내에 완료되어야 한다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+@ThreadSafe
+public final class TimingWheel {
+	private static final Logger s_logger = LoggerFactory.getLogger(TimingWheel.class);
+
+	public static final long DEFAULT_TICK_MILLIS = 10;
+	private static final int[] LEVEL_BITS = { 8, 6, 6, 6 };
+	private static final long MAX_TICKS = (1L << 26) - 1;	// 최상위 단계가 포함하는 최대 tick 수
+	private static final long IDLE_PARK_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+	private static volatile TimingWheel s_default;
+	private static final AtomicInteger s_seqno = new AtomicInteger(0);
+
+	private final long m_tickNanos;
+	private final long m_startNanos = System.nanoTime();
+	private final Bucket[][] m_levels;
+	private final MpscQueue<Timeout> m_additions = new MpscQueue<>();
+	private final MpscQueue<Timeout> m_cancellations = new MpscQueue<>();
+	private final AtomicInteger m_pendingCount = new AtomicInteger(0);
+	private final AtomicBoolean m_started = new AtomicBoolean(false);
+	private volatile Thread m_thread;
+	private volatile boolean m_idle = false;
+
+	// 아래 필드들은 타이머 쓰레드에서만 사용된다.
+	private long m_tick = 0;	// 다음에 처리할 tick 번호
+	private int m_count = 0;	// 슬롯에 등록된 타이머 수
+
+	/**
+	 * 모든 상태차트 수행이 공유하는 타이밍 휠을 반환한다.
+	 *
+	 * @return	타이밍 휠 객체.
+	 */
+	public static TimingWheel getDefault() {
+		TimingWheel wheel = s_default;
+		if ( wheel == null ) {
+			synchronized ( TimingWheel.class ) {
+				if ( (wheel = s_default) == null ) {
+					s_default = wheel = new TimingWheel(DEFAULT_TICK_MILLIS, TimeUnit.MILLISECONDS);
+				}
+			}
+		}
+
+		return wheel;
+	}
+
+	TimingWheel(long tickDuration, TimeUnit unit) {
+		Preconditions.checkArgument(tickDuration > 0, "invalid tick duration: " + tickDuration);
+
+		m_tickNanos = unit.toNanos(tickDuration);
+		m_levels = new Bucket[LEVEL_BITS.length][];
+		for ( int i =0; i < LEVEL_BITS.length; ++i ) {
+			m_levels[i] = new Bucket[1 << LEVEL_BITS[i]];
+			for ( int j =0; j < m_levels[i].length; ++j ) {
+				m_levels[i][j] = new Bucket();
+			}
+		}
+	}
+
+	/**
+	 * tick 간격을 반환한다.
+	 *
+	 * @param unit	반환 값의 시간 단위.
+	 * @return	tick 간격.
+	 */
+	public long getTickDuration(TimeUnit unit) {
+		return unit.convert(m_tickNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * 만료되거나 취소되지 않은 타이머의 수를 반환한다.
+	 *
+	 * @return	타이머 수.
+	 */
+	public int getPendingCount() {
+		return m_pendingCount.get();
+	}
+
+	/**
+	 * 주어진 시간 후에 작업이 수행되도록 타이머를 등록한다.
+	 * <p>
+	 * 작업은 지정된 시간이 경과한 후 처음 처리되는 tick에서 수행되므로, 최대 한 tick만큼 늦게
+	 * 수행될 수 있다.
+	 *
+	 * @param task	만료시 수행할 작업.
+	 * @param delay	지연 시간.
+	 * @param unit	지연 시간 단위.
+	 * @return	등록된 타이머.
+	 */
+	public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+		Preconditions.checkNotNull(task, "task was null");
+
+		long deadline = (System.nanoTime() - m_startNanos) + Math.max(0, unit.toNanos(delay));
+		long expireTick = (deadline + m_tickNanos - 1) / m_tickNanos;
+
+		Timeout timeout = new Timeout(this, task, expireTick);
+		m_additions.offer(timeout);
+		m_pendingCount.incrementAndGet();
+
+		if ( m_started.compareAndSet(false, true) ) {
+			Thread thread = new Thread(this::run, "statechart-timer-" + s_seqno.getAndIncrement());
+			thread.setDaemon(true);
+			m_thread = thread;
+			thread.start();
+		}
+		else if ( m_idle ) {
+			LockSupport.unpark(m_thread);
+		}
+
+		return timeout;
+	}
+
+	private long currentTick() {
+		return (System.nanoTime() - m_startNanos) / m_tickNanos;
+	}
+
+	private void run() {
+		while ( true ) {
+			if ( m_count == 0 ) {
+				// 등록된 타이머가 없는 동안 지나간 tick들은 처리하지 않는다.
+				m_tick = Math.max(m_tick, currentTick());
+			}
+
+			transferAdditions();
+			processCancellations();
+
+			if ( m_count == 0 ) {
+				// 등록 요청과 대기 시작이 엇갈려 깨우기를 놓치는 경우에 대비하여 대기 시간을 제한한다.
+				m_idle = true;
+				if ( m_additions.isEmpty() ) {
+					LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+				}
+				m_idle = false;
+				continue;
+			}
+
+			long waitNanos = m_tick * m_tickNanos - (System.nanoTime() - m_startNanos);
+			if ( waitNanos > 0 ) {
+				LockSupport.parkNanos(this, waitNanos);
+				continue;
+			}
+
+			processTick();
+		}
+	}
+
+	private void transferAdditions() {
+		Timeout timeout;
+		while ( (timeout = m_additions.poll()) != null ) {
+			if ( timeout.m_state == Timeout.PENDING ) {
+				place(timeout);
+				++m_count;
+			}
+		}
+	}
+
+	private void processCancellations() {
+		Timeout timeout;
+		while ( (timeout = m_cancellations.poll()) != null ) {
+			// 아직 슬롯에 배치되지 않은 타이머는 'transferAdditions()'에서 버려진다.
+			if ( timeout.m_bucket != null ) {
+				timeout.m_bucket.remove(timeout);
+				--m_count;
+			}
+		}
+	}
+
+	// 현재 tick을 기준으로 타이머를 적절한 단계의 슬롯에 배치한다.
+	private void place(Timeout timeout) {
+		long delta = Math.min(Math.max(timeout.m_expireTick - m_tick, 0), MAX_TICKS);
+		long expireTick = m_tick + delta;
+
+		int shift = 0;
+		for ( int level = 0; level < LEVEL_BITS.length; ++level ) {
+			int bits = LEVEL_BITS[level];
+			if ( delta < (1L << (shift + bits)) || level == LEVEL_BITS.length-1 ) {
+				Bucket[] buckets = m_levels[level];
+				buckets[(int)(expireTick >>> shift) & (buckets.length-1)].add(timeout);
+				return;
+			}
+			shift += bits;
+		}
+	}
+
+	private void processTick() {
+		// 하위 단계의 슬롯을 한바퀴 돈 경우는 상위 단계의 해당 슬롯의 타이머들을 하위 단계로 옮긴다.
+		int shift = 0;
+		for ( int level = 0; level < LEVEL_BITS.length-1; ++level ) {
+			shift += LEVEL_BITS[level];
+			if ( (m_tick & ((1L << shift)-1)) != 0 ) {
+				break;
+			}
+
+			Bucket[] upper = m_levels[level+1];
+			cascade(upper[(int)(m_tick >>> shift) & (upper.length-1)]);
+		}
+
+		Bucket[] lowest = m_levels[0];
+		Bucket bucket = lowest[(int)m_tick & (lowest.length-1)];
+		Timeout timeout;
+		while ( (timeout = bucket.poll()) != null ) {
+			--m_count;
+
+			if ( timeout.m_expireTick > m_tick ) {
+				// 최상위 단계의 범위를 넘었던 타이머
+				place(timeout);
+				++m_count;
+			}
+			else {
+				timeout.expire();
+			}
+		}
+
+		++m_tick;
+	}
+
+	private void cascade(Bucket bucket) {
+		Timeout timeout;
+		while ( (timeout = bucket.poll()) != null ) {
+			place(timeout);
+		}
+	}
+
+	/**
+	 * <code>Timeout</code>은 {@link TimingWheel}에 등록된 타이머를 정의한다.
+	 */
+	public static final class Timeout {
+		private static final int PENDING = 0;
+		private static final int CANCELLED = 1;
+		private static final int EXPIRED = 2;
+		private static final AtomicIntegerFieldUpdater<Timeout> STATE
+							= AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "m_state");
+
+		private final TimingWheel m_wheel;
+		private final Runnable m_task;
+		private final long m_expireTick;
+		private volatile int m_state = PENDING;
+
+		// 아래 필드들은 타이머 쓰레드에서만 사용된다.
+		private Bucket m_bucket;
+		private Timeout m_prev;
+		private Timeout m_next;
+
+		private Timeout(TimingWheel wheel, Runnable task, long expireTick) {
+			m_wheel = wheel;
+			m_task = task;
+			m_expireTick = expireTick;
+		}
+
+		/**
+		 * 타이머를 취소한다.
+		 * <p>
+		 * 취소는 즉시 반영되며, 슬롯에서의 제거는 타이머 쓰레드에서 다음 tick 처리 전에 수행된다.
+		 *
+		 * @return	취소된 경우는 <code>true</code>, 이미 만료되었거나 취소된 경우는 <code>false</code>.
+		 */
+		public boolean cancel() {
+			if ( STATE.compareAndSet(this, PENDING, CANCELLED) ) {
+				m_wheel.m_pendingCount.decrementAndGet();
+				m_wheel.m_cancellations.offer(this);
+				return true;
+			}
+			else {
+				return false;
+			}
+		}
+
+		public boolean isCancelled() {
+			return m_state == CANCELLED;
+		}
+
+		public boolean isExpired() {
+			return m_state == EXPIRED;
+		}
+
+		private void expire() {
+			if ( STATE.compareAndSet(this, PENDING, EXPIRED) ) {
+				m_wheel.m_pendingCount.decrementAndGet();
+				try {
+					m_task.run();
+				}
+				catch ( Throwable e ) {
+					s_logger.warn("fails to run timer task: task={}, cause={}", m_task, e);
+				}
+			}
+		}
+
+		@Override
+		public String toString() {
+			return String.format("Timeout[tick=%d, task=%s]", m_expireTick, m_task);
+		}
+	}
+
+	// 타이머 쓰레드에서만 사용되는 이중 연결 리스트
+	private static final class Bucket {
+		private Timeout m_head;
+		private Timeout m_tail;
+
+		void add(Timeout timeout) {
+			timeout.m_bucket = this;
+			timeout.m_prev = m_tail;
+			timeout.m_next = null;
+			if ( m_tail != null ) {
+				m_tail.m_next = timeout;
+			}
+			else {
+				m_head = timeout;
+			}
+			m_tail = timeout;
+		}
+
+		void remove(Timeout timeout) {
+			if ( timeout.m_prev != null ) {
+				timeout.m_prev.m_next = timeout.m_next;
+			}
+			else {
+				m_head = timeout.m_next;
+			}
+			if ( timeout.m_next != null ) {
+				timeout.m_next.m_prev = timeout.m_prev;
+			}
+			else {
+				m_tail = timeout.m_prev;
+			}
+
+			timeout.m_bucket = null;
+			timeout.m_prev = timeout.m_next = null;
+		}
+
+		Timeout poll() {
+			Timeout head = m_head;
+			if ( head != null ) {
+				remove(head);
+			}
+			return head;
+		}
+	}
+}
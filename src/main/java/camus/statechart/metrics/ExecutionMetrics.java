@@ -0,0 +1,131 @@
+package camus.statechart.metrics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * <code>ExecutionMetrics</code>는 하나의 상태차트 수행에 대해 수집된 이벤트 큐 측정값들을 정의한다.
+ * <p>
+ * 이벤트 큐에 대기 중인 이벤트 갯수와, 이벤트가 큐에 추가된 시점부터 처리가 시작될 때까지의
+ * 대기 시간 분포, 큐가 가득 차서 버려진 이벤트 갯수, 그리고 같은 병합 키를 갖는 새 이벤트로
+ * 대체된 이벤트 갯수로 구성된다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+public final class ExecutionMetrics {
+	private final long m_execId;
+	private final AtomicInteger m_queueDepth = new AtomicInteger(0);
+	private final LatencyHistogram m_queueLatency = new LatencyHistogram();
+	private final LongAdder m_dropped = new LongAdder();
+	private final LongAdder m_coalesced = new LongAdder();
+
+	ExecutionMetrics(long execId) {
+		m_execId = execId;
+	}
+
+	/**
+	 * 대상 상태차트 수행의 식별자를 반환한다.
+	 *
+	 * @return	수행 식별자.
+	 */
+	public long getExecutionId() {
+		return m_execId;
+	}
+
+	/**
+	 * 이벤트 큐에서 처리를 기다리는 이벤트 갯수를 반환한다.
+	 *
+	 * @return	대기 이벤트 갯수.
+	 */
+	public int getQueueDepth() {
+		return m_queueDepth.get();
+	}
+
+	/**
+	 * 이벤트가 큐에 추가된 후 처리가 시작될 때까지의 대기 시간 분포를 반환한다.
+	 *
+	 * @return	대기 시간 히스토그램.
+	 */
+	public LatencyHistogram getQueueLatency() {
+		return m_queueLatency;
+	}
+
+	/**
+	 * 큐가 가득 차서 버려지거나 거부된 이벤트 갯수를 반환한다.
+	 *
+	 * @return	버려진 이벤트 갯수.
+	 */
+	public long getDroppedCount() {
+		return m_dropped.sum();
+	}
+
+	/**
+	 * 처리되기 전에 같은 병합 키를 갖는 새 이벤트로 대체된 이벤트 갯수를 반환한다.
+	 *
+	 * @return	대체된 이벤트 갯수.
+	 */
+	public long getCoalescedCount() {
+		return m_coalesced.sum();
+	}
+
+	/**
+	 * 이벤트가 큐에 추가되었음을 기록한다.
+	 */
+	public void eventEnqueued() {
+		m_queueDepth.incrementAndGet();
+	}
+
+	/**
+	 * {@link #eventEnqueued()}로 기록된 이벤트의 처리가 시작되었음을 기록한다.
+	 *
+	 * @param waitNanos	큐에서 대기한 시간 (나노초).
+	 */
+	public void eventDequeued(long waitNanos) {
+		m_queueDepth.decrementAndGet();
+		m_queueLatency.record(waitNanos);
+	}
+
+	/**
+	 * 큐가 가득 차서 이벤트가 버려졌음을 기록한다.
+	 *
+	 * @param queued	{@link #eventEnqueued()}로 기록된 후 큐에서 제거된 이벤트인 경우는 <code>true</code>.
+	 */
+	public void eventDropped(boolean queued) {
+		if ( queued ) {
+			m_queueDepth.decrementAndGet();
+		}
+		m_dropped.increment();
+	}
+
+	/**
+	 * 큐에서 대기 중인 이벤트가 같은 병합 키를 갖는 새 이벤트로 대체되었음을 기록한다.
+	 */
+	public void eventCoalesced() {
+		m_coalesced.increment();
+	}
+
+	void reset() {
+		m_queueLatency.reset();
+		m_dropped.reset();
+		m_coalesced.reset();
+	}
+
+	/**
+	 * JMX를 통해 노출되는 요약 정보를 생성한다.
+	 *
+	 * @return	요약 정보.
+	 */
+	public ExecutionStatistics toStatistics() {
+		return new ExecutionStatistics(m_execId, getQueueDepth(), m_queueLatency.getCount(), getDroppedCount(),
+										getCoalescedCount(), m_queueLatency.getMean(), m_queueLatency.getValueAtPercentile(99),
+										m_queueLatency.getMax());
+	}
+
+	@Override
+	public String toString() {
+		return String.format("ExecutionMetrics[%d: depth=%d, dropped=%d, coalesced=%d, latency={%s}]",
+							m_execId, getQueueDepth(), getDroppedCount(), getCoalescedCount(),
+							m_queueLatency);
+	}
+}
@@ -0,0 +1,72 @@
+package camus.statechart.metrics;
+
+import java.beans.ConstructorProperties;
+
+import javax.annotation.concurrent.Immutable;
+
+
+/**
+ * <code>ExecutionStatistics</code>는 {@link ExecutionMetrics}의 요약 정보를 정의한다.
+ * <p>
+ * {@link StatechartMetricsMXBean}을 통해 JMX 클라이언트에게 전달된다.
+ * 시간 값들은 모두 나노초 단위이다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+@Immutable
+public final class ExecutionStatistics {
+	private final long m_execId;
+	private final int m_queueDepth;
+	private final long m_handledCount;
+	private final long m_droppedCount;
+	private final long m_coalescedCount;
+	private final double m_meanQueueLatency;
+	private final long m_p99QueueLatency;
+	private final long m_maxQueueLatency;
+
+	@ConstructorProperties({"executionId", "queueDepth", "handledCount", "droppedCount",
+							"coalescedCount", "meanQueueLatency", "p99QueueLatency", "maxQueueLatency"})
+	public ExecutionStatistics(long execId, int queueDepth, long handledCount, long droppedCount,
+								long coalescedCount, double meanQueueLatency, long p99QueueLatency, long maxQueueLatency) {
+		m_execId = execId;
+		m_queueDepth = queueDepth;
+		m_handledCount = handledCount;
+		m_droppedCount = droppedCount;
+		m_coalescedCount = coalescedCount;
+		m_meanQueueLatency = meanQueueLatency;
+		m_p99QueueLatency = p99QueueLatency;
+		m_maxQueueLatency = maxQueueLatency;
+	}
+
+	public long getExecutionId() {
+		return m_execId;
+	}
+
+	public int getQueueDepth() {
+		return m_queueDepth;
+	}
+
+	public long getHandledCount() {
+		return m_handledCount;
+	}
+
+	public long getDroppedCount() {
+		return m_droppedCount;
+	}
+
+	public long getCoalescedCount() {
+		return m_coalescedCount;
+	}
+
+	public double getMeanQueueLatency() {
+		return m_meanQueueLatency;
+	}
+
+	public long getP99QueueLatency() {
+		return m_p99QueueLatency;
+	}
+
+	public long getMaxQueueLatency() {
+		return m_maxQueueLatency;
+	}
+}
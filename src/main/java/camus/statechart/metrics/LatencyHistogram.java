@@ -0,0 +1,157 @@
+package camus.statechart.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.google.common.base.Preconditions;
+
+
+/**
+ * <code>LatencyHistogram</code>는 나노초 단위 소요 시간의 분포를 기록하는 고정 크기 히스토그램을 정의한다.
+ * <p>
+ * 16 미만의 값은 값마다 하나의 구간에, 그 이상의 값은 2의 거듭제곱 구간을 8개의 동일 크기 구간으로
+ * 나누어 기록한다. 따라서 백분위 값의 상대 오차는 최대 12.5%이며, 기록 과정에서 객체 생성이나
+ * 잠금이 발생하지 않는다.
+ * <p>
+ * 본 클래스는 ThreadSafe하도록 구현되었다. 단, 기록 도중에 조회된 값들은 서로 일관되지 않을 수 있다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+public final class LatencyHistogram {
+	private static final int LINEAR_LIMIT = 16;
+	private static final int SUB_BITS = 3;
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+	private static final int BUCKET_COUNT = LINEAR_LIMIT + (63 - 4) * SUB_COUNT;
+
+	private final AtomicLongArray m_buckets = new AtomicLongArray(BUCKET_COUNT);
+	private final AtomicLong m_count = new AtomicLong(0);
+	private final AtomicLong m_sum = new AtomicLong(0);
+	private final AtomicLong m_max = new AtomicLong(0);
+
+	/**
+	 * 주어진 소요 시간을 기록한다. 음수는 0으로 기록된다.
+	 *
+	 * @param nanos	소요 시간 (나노초).
+	 */
+	public void record(long nanos) {
+		if ( nanos < 0 ) {
+			nanos = 0;
+		}
+
+		m_buckets.incrementAndGet(indexOf(nanos));
+		m_count.incrementAndGet();
+		m_sum.addAndGet(nanos);
+
+		long max;
+		while ( nanos > (max = m_max.get()) && !m_max.compareAndSet(max, nanos) );
+	}
+
+	/**
+	 * 기록된 값의 갯수를 반환한다.
+	 *
+	 * @return	기록 갯수.
+	 */
+	public long getCount() {
+		return m_count.get();
+	}
+
+	/**
+	 * 기록된 값들의 합을 반환한다.
+	 *
+	 * @return	기록 값의 합 (나노초).
+	 */
+	public long getSum() {
+		return m_sum.get();
+	}
+
+	/**
+	 * 기록된 값 중 최대 값을 반환한다.
+	 *
+	 * @return	최대 값 (나노초). 기록된 값이 없는 경우는 0.
+	 */
+	public long getMax() {
+		return m_max.get();
+	}
+
+	/**
+	 * 기록된 값들의 평균을 반환한다.
+	 *
+	 * @return	평균 값 (나노초). 기록된 값이 없는 경우는 0.
+	 */
+	public double getMean() {
+		long count = m_count.get();
+		return (count > 0) ? (double)m_sum.get() / count : 0;
+	}
+
+	/**
+	 * 주어진 백분위에 해당하는 값을 반환한다.
+	 * <p>
+	 * 반환 값은 해당 값이 속한 구간의 상한 값이며, 최대 값을 넘지 않는다.
+	 *
+	 * @param percentile	백분위 (0 ~ 100).
+	 * @return	백분위 값 (나노초). 기록된 값이 없는 경우는 0.
+	 */
+	public long getValueAtPercentile(double percentile) {
+		Preconditions.checkArgument(percentile >= 0 && percentile <= 100,
+									"invalid percentile: " + percentile);
+
+		long total = 0;
+		long[] counts = new long[BUCKET_COUNT];
+		for ( int i =0; i < BUCKET_COUNT; ++i ) {
+			total += counts[i] = m_buckets.get(i);
+		}
+		if ( total == 0 ) {
+			return 0;
+		}
+
+		long rank = Math.max(1, (long)Math.ceil(total * percentile / 100));
+		long accum = 0;
+		for ( int i =0; i < BUCKET_COUNT; ++i ) {
+			accum += counts[i];
+			if ( accum >= rank ) {
+				return Math.min(upperBoundOf(i), m_max.get());
+			}
+		}
+
+		return m_max.get();
+	}
+
+	/**
+	 * 기록된 모든 값을 삭제한다.
+	 */
+	public void reset() {
+		for ( int i =0; i < BUCKET_COUNT; ++i ) {
+			m_buckets.set(i, 0);
+		}
+		m_count.set(0);
+		m_sum.set(0);
+		m_max.set(0);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("count=%d, mean=%.0fns, p50=%dns, p99=%dns, max=%dns", getCount(), getMean(),
+							getValueAtPercentile(50), getValueAtPercentile(99), getMax());
+	}
+
+	static int indexOf(long value) {
+		if ( value < LINEAR_LIMIT ) {
+			return (int)value;
+		}
+
+		int exp = 63 - Long.numberOfLeadingZeros(value);		// 4 이상
+		int sub = (int)(value >>> (exp - SUB_BITS)) & (SUB_COUNT - 1);
+		return LINEAR_LIMIT + (exp - 4) * SUB_COUNT + sub;
+	}
+
+	static long upperBoundOf(int index) {
+		if ( index < LINEAR_LIMIT ) {
+			return index;
+		}
+
+		int exp = (index - LINEAR_LIMIT) / SUB_COUNT + 4;
+		int sub = (index - LINEAR_LIMIT) % SUB_COUNT;
+		long width = 1L << (exp - SUB_BITS);
+		return ((SUB_COUNT + sub) * width) + width - 1;
+	}
+}
@@ -0,0 +1,116 @@
+package camus.statechart.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * <code>StateMetrics</code>는 하나의 상태에 대해 수집된 수행 측정값들을 정의한다.
+ * <p>
+ * 측정값은 같은 상태차트를 사용하는 모든 수행에서 누적되며, 다음으로 구성된다.
+ * <ul>
+ * 	<li> 진입 동작({@link camus.statechart.State#enterRef(camus.statechart.StatechartExecution)}) 소요 시간.
+ * 	<li> 탈출 동작({@link camus.statechart.State#leave(camus.statechart.StatechartExecution)}) 소요 시간.
+ * 	<li> 이벤트 처리기 소요 시간.
+ * 	<li> 진입부터 탈출까지 머무른 시간.
+ * 	<li> 본 상태의 이벤트 처리로 발생된 상태 전이 횟수와 본 상태에서 발생된 오류 횟수.
+ * </ul>
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+public final class StateMetrics {
+	private final String m_guid;
+	private final LatencyHistogram m_entry = new LatencyHistogram();
+	private final LatencyHistogram m_exit = new LatencyHistogram();
+	private final LatencyHistogram m_handler = new LatencyHistogram();
+	private final LatencyHistogram m_dwell = new LatencyHistogram();
+	private final LongAdder m_transitions = new LongAdder();
+	private final LongAdder m_faults = new LongAdder();
+
+	StateMetrics(String guid) {
+		m_guid = guid;
+	}
+
+	/**
+	 * 대상 상태의 전역 식별자를 반환한다.
+	 *
+	 * @return	상태 전역 식별자.
+	 */
+	public String getGuid() {
+		return m_guid;
+	}
+
+	public LatencyHistogram getEntryTime() {
+		return m_entry;
+	}
+
+	public LatencyHistogram getExitTime() {
+		return m_exit;
+	}
+
+	public LatencyHistogram getHandlerTime() {
+		return m_handler;
+	}
+
+	public LatencyHistogram getDwellTime() {
+		return m_dwell;
+	}
+
+	public long getTransitionCount() {
+		return m_transitions.sum();
+	}
+
+	public long getFaultCount() {
+		return m_faults.sum();
+	}
+
+	public void recordEntry(long nanos) {
+		m_entry.record(nanos);
+	}
+
+	public void recordExit(long nanos) {
+		m_exit.record(nanos);
+	}
+
+	public void recordHandler(long nanos) {
+		m_handler.record(nanos);
+	}
+
+	public void recordDwell(long nanos) {
+		m_dwell.record(nanos);
+	}
+
+	public void incrementTransitionCount() {
+		m_transitions.increment();
+	}
+
+	public void incrementFaultCount() {
+		m_faults.increment();
+	}
+
+	void reset() {
+		m_entry.reset();
+		m_exit.reset();
+		m_handler.reset();
+		m_dwell.reset();
+		m_transitions.reset();
+		m_faults.reset();
+	}
+
+	/**
+	 * JMX를 통해 노출되는 요약 정보를 생성한다.
+	 *
+	 * @return	요약 정보.
+	 */
+	public StateStatistics toStatistics() {
+		return new StateStatistics(m_guid, m_entry.getCount(), getTransitionCount(), getFaultCount(),
+								m_entry.getMean(), m_exit.getMean(), m_handler.getMean(),
+								m_handler.getValueAtPercentile(99), m_dwell.getMean(),
+								m_dwell.getValueAtPercentile(99));
+	}
+
+	@Override
+	public String toString() {
+		return String.format("StateMetrics[%s: transitions=%d, faults=%d, handler={%s}, dwell={%s}]",
+							m_guid, getTransitionCount(), getFaultCount(), m_handler, m_dwell);
+	}
+}
@@ -0,0 +1,86 @@
+package camus.statechart.metrics;
+
+import java.beans.ConstructorProperties;
+
+import javax.annotation.concurrent.Immutable;
+
+
+/**
+ * <code>StateStatistics</code>는 {@link StateMetrics}의 요약 정보를 정의한다.
+ * <p>
+ * {@link StatechartMetricsMXBean}을 통해 JMX 클라이언트에게 전달된다.
+ * 시간 값들은 모두 나노초 단위이다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+@Immutable
+public final class StateStatistics {
+	private final String m_guid;
+	private final long m_entryCount;
+	private final long m_transitionCount;
+	private final long m_faultCount;
+	private final double m_meanEntryTime;
+	private final double m_meanExitTime;
+	private final double m_meanHandlerTime;
+	private final long m_p99HandlerTime;
+	private final double m_meanDwellTime;
+	private final long m_p99DwellTime;
+
+	@ConstructorProperties({"guid", "entryCount", "transitionCount", "faultCount", "meanEntryTime",
+							"meanExitTime", "meanHandlerTime", "p99HandlerTime", "meanDwellTime",
+							"p99DwellTime"})
+	public StateStatistics(String guid, long entryCount, long transitionCount, long faultCount,
+							double meanEntryTime, double meanExitTime, double meanHandlerTime,
+							long p99HandlerTime, double meanDwellTime, long p99DwellTime) {
+		m_guid = guid;
+		m_entryCount = entryCount;
+		m_transitionCount = transitionCount;
+		m_faultCount = faultCount;
+		m_meanEntryTime = meanEntryTime;
+		m_meanExitTime = meanExitTime;
+		m_meanHandlerTime = meanHandlerTime;
+		m_p99HandlerTime = p99HandlerTime;
+		m_meanDwellTime = meanDwellTime;
+		m_p99DwellTime = p99DwellTime;
+	}
+
+	public String getGuid() {
+		return m_guid;
+	}
+
+	public long getEntryCount() {
+		return m_entryCount;
+	}
+
+	public long getTransitionCount() {
+		return m_transitionCount;
+	}
+
+	public long getFaultCount() {
+		return m_faultCount;
+	}
+
+	public double getMeanEntryTime() {
+		return m_meanEntryTime;
+	}
+
+	public double getMeanExitTime() {
+		return m_meanExitTime;
+	}
+
+	public double getMeanHandlerTime() {
+		return m_meanHandlerTime;
+	}
+
+	public long getP99HandlerTime() {
+		return m_p99HandlerTime;
+	}
+
+	public double getMeanDwellTime() {
+		return m_meanDwellTime;
+	}
+
+	public long getP99DwellTime() {
+		return m_p99DwellTime;
+	}
+}
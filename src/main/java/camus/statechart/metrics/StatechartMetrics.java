@@ -0,0 +1,214 @@
+package camus.statechart.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import camus.statechart.State;
+import camus.statechart.Statechart;
+import camus.statechart.StatechartExecution;
+
+
+/**
+ * <code>StatechartMetrics</code>는 하나의 상태차트를 사용하는 수행들의 측정값을 수집하는
+ * pull 방식의 측정값 저장소를 정의한다.
+ * <p>
+ * 측정은 {@link StatechartExecution#setMetrics(StatechartMetrics)}로 저장소가 설정된 수행에서만
+ * 이루어지며, 저장소가 설정되지 않은 수행은 측정을 위한 시각 조회나 기록을 수행하지 않는다.
+ * 상태별 측정값({@link StateMetrics})은 저장소를 공유하는 모든 수행에서 누적되고,
+ * 수행별 측정값({@link ExecutionMetrics})은 수행이 종료되면 저장소에서 제거된다.
+ * <p>
+ * 수집된 측정값은 본 객체의 메소드로 직접 조회하거나, {@link #registerMBean(String)}으로
+ * 등록한 후 JMX를 통해 조회할 수 있다. 외부 모니터링 서비스에는 의존하지 않는다.
+ * <p>
+ * 본 클래스는 ThreadSafe하도록 구현되었다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+public final class StatechartMetrics implements StatechartMetricsMXBean {
+	public static final String JMX_DOMAIN = "camus.statechart";
+
+	private final Statechart<?> m_schart;
+	private final StateMetrics[] m_states;
+	private final Map<Long,ExecutionMetrics> m_execs = new ConcurrentHashMap<>();
+	private volatile ObjectName m_objName;
+
+	/**
+	 * 주어진 상태차트에 대한 측정값 저장소를 생성한다.
+	 *
+	 * @param schart	측정 대상 상태차트.
+	 */
+	public StatechartMetrics(Statechart<?> schart) {
+		Objects.requireNonNull(schart, "Statechart was null");
+
+		m_schart = schart;
+		m_states = new StateMetrics[schart.getStateCount()];
+		for ( int i =0; i < m_states.length; ++i ) {
+			m_states[i] = new StateMetrics(schart.getStateById(i).getGuid());
+		}
+	}
+
+	/**
+	 * 측정 대상 상태차트를 반환한다.
+	 *
+	 * @return	상태차트.
+	 */
+	public Statechart<?> getStatechart() {
+		return m_schart;
+	}
+
+	/**
+	 * 주어진 상태 번호의 상태에 대한 측정값을 반환한다.
+	 *
+	 * @param stateId	상태 번호 ({@link Statechart#getStateId(State)}).
+	 * @return	상태 측정값.
+	 */
+	public StateMetrics getStateMetrics(int stateId) {
+		return m_states[stateId];
+	}
+
+	/**
+	 * 주어진 전역 식별자의 상태에 대한 측정값을 반환한다.
+	 *
+	 * @param guid	상태 전역 식별자.
+	 * @return	상태 측정값.
+	 * @throws camus.statechart.StateNotFoundException	해당 상태가 없는 경우.
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public StateMetrics getStateMetrics(String guid) {
+		Statechart schart = m_schart;
+		return m_states[schart.getStateId(schart.getState(guid))];
+	}
+
+	/**
+	 * 측정 중인 수행들의 측정값을 반환한다.
+	 *
+	 * @return	수행 측정값 집합.
+	 */
+	public Collection<ExecutionMetrics> getExecutionMetrics() {
+		return Collections.unmodifiableCollection(m_execs.values());
+	}
+
+	/**
+	 * 주어진 수행의 측정값을 생성하여 등록한다.
+	 * <p>
+	 * 본 메소드는 {@link StatechartExecution}에서 호출되며, 응용에서 직접 호출하지 않는다.
+	 *
+	 * @param execId	수행 식별자.
+	 * @return	등록된 수행 측정값.
+	 */
+	public ExecutionMetrics register(long execId) {
+		return m_execs.computeIfAbsent(execId, ExecutionMetrics::new);
+	}
+
+	/**
+	 * 주어진 수행의 측정값을 제거한다.
+	 * <p>
+	 * 본 메소드는 {@link StatechartExecution}에서 호출되며, 응용에서 직접 호출하지 않는다.
+	 *
+	 * @param execId	수행 식별자.
+	 */
+	public void unregister(long execId) {
+		m_execs.remove(execId);
+	}
+
+	@Override
+	public int getStateCount() {
+		return m_states.length;
+	}
+
+	@Override
+	public int getExecutionCount() {
+		return m_execs.size();
+	}
+
+	@Override
+	public long getTotalQueueDepth() {
+		long total = 0;
+		for ( ExecutionMetrics metrics: m_execs.values() ) {
+			total += metrics.getQueueDepth();
+		}
+
+		return total;
+	}
+
+	@Override
+	public StateStatistics[] getStateStatistics() {
+		StateStatistics[] stats = new StateStatistics[m_states.length];
+		for ( int i =0; i < stats.length; ++i ) {
+			stats[i] = m_states[i].toStatistics();
+		}
+
+		return stats;
+	}
+
+	@Override
+	public ExecutionStatistics[] getExecutionStatistics() {
+		return m_execs.values().stream()
+						.map(ExecutionMetrics::toStatistics)
+						.toArray(ExecutionStatistics[]::new);
+	}
+
+	@Override
+	public void reset() {
+		for ( StateMetrics metrics: m_states ) {
+			metrics.reset();
+		}
+		for ( ExecutionMetrics metrics: m_execs.values() ) {
+			metrics.reset();
+		}
+	}
+
+	/**
+	 * 본 저장소를 플랫폼 MBean 서버에 등록한다.
+	 * <p>
+	 * 등록 이름은 <code>camus.statechart:type=StatechartMetrics,name=&lt;name&gt;</code>이다.
+	 *
+	 * @param name	등록 이름에 사용할 상태차트 이름.
+	 * @return	등록된 MBean의 이름.
+	 * @throws JMException	등록에 실패한 경우.
+	 */
+	public synchronized ObjectName registerMBean(String name) throws JMException {
+		Objects.requireNonNull(name, "name was null");
+
+		if ( m_objName != null ) {
+			throw new IllegalStateException("already registered: name=" + m_objName);
+		}
+
+		ObjectName objName = new ObjectName(JMX_DOMAIN + ":type=StatechartMetrics,name="
+											+ ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, objName);
+		m_objName = objName;
+
+		return objName;
+	}
+
+	/**
+	 * {@link #registerMBean(String)}으로 등록된 MBean을 등록 해제한다.
+	 *
+	 * @throws JMException	등록 해제에 실패한 경우.
+	 */
+	public synchronized void unregisterMBean() throws JMException {
+		ObjectName objName = m_objName;
+		if ( objName != null ) {
+			m_objName = null;
+
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if ( server.isRegistered(objName) ) {
+				server.unregisterMBean(objName);
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("StatechartMetrics[nstates=%d, nexecs=%d]", m_states.length, m_execs.size());
+	}
+}
@@ -0,0 +1,39 @@
+package camus.statechart.metrics;
+
+
+/**
+ * {@link StatechartMetrics}를 JMX로 노출하기 위한 MXBean 인터페이스를 정의한다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+public interface StatechartMetricsMXBean {
+	/**
+	 * 측정 대상 상태차트에 포함된 상태의 갯수를 반환한다.
+	 */
+	public int getStateCount();
+
+	/**
+	 * 현재 측정 중인 상태차트 수행의 갯수를 반환한다.
+	 */
+	public int getExecutionCount();
+
+	/**
+	 * 모든 수행의 이벤트 큐에 대기 중인 이벤트 갯수의 합을 반환한다.
+	 */
+	public long getTotalQueueDepth();
+
+	/**
+	 * 상태별 측정값 요약 정보를 상태 번호 순서로 반환한다.
+	 */
+	public StateStatistics[] getStateStatistics();
+
+	/**
+	 * 측정 중인 수행별 측정값 요약 정보를 반환한다.
+	 */
+	public ExecutionStatistics[] getExecutionStatistics();
+
+	/**
+	 * 지금까지 누적된 측정값들을 초기화한다. 이벤트 큐 대기 갯수는 초기화되지 않는다.
+	 */
+	public void reset();
+}
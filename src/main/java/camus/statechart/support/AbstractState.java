@@ -1,114 +1,264 @@
-package camus.statechart.support;
-
-import java.util.Collection;
-import java.util.Map;
-
-import camus.statechart.State;
-import camus.statechart.StateExistsException;
-import camus.statechart.StateNotFoundException;
-import camus.statechart.StatechartExecution;
-
-import com.google.common.collect.Maps;
-
-/**
- * 
- * @author Kang-Woo Lee (ETRI)
- */
-public abstract class AbstractState<C extends StatechartExecution<C>> implements State<C> {
-	private final State<C> m_parent;
-	private final String m_guid;
-	private final String m_luid;
-	
-	private String m_defaultStateId;
-	private final Map<String,State<C>> m_childStates = Maps.newHashMap();
-
-	private final String m_exceptionChildStateId;
-	private final boolean m_keepHistory;
-	private String m_recentChildStateId;
-	
-	protected AbstractState(State<C> parent, String guid, boolean keepHistory,
-							String exceptionChildStateId) {
-		m_parent = parent;
-		m_guid = guid;
-		m_luid = StateChartUtils.toLuid(guid);
-		
-		m_keepHistory = keepHistory;
-		m_exceptionChildStateId = exceptionChildStateId;
-	}
-
-	@Override
-	public State<C> getParentState() {
-		return m_parent;
-	}
-
-	@Override
-	public String getGuid() {
-		return m_guid;
-	}
-
-	@Override
-	public String getLuid() {
-		return m_luid;
-	}
-
-	@Override
-	public State<C> getInitialChildState() {
-		return m_childStates.get(m_defaultStateId);
-	}
-	
-	public void setDefaultStateId(String stateId) {
-		m_defaultStateId = stateId;
-	}
-
-	@Override
-	public State<C> getChildState(String luid) {
-		return m_childStates.get(luid);
-	}
-
-	@Override
-	public Collection<State<C>> getChildStates() {
-		return m_childStates.values();
-	}
-	
-	public void addChildState(State<C> child) {
-		if ( m_childStates.putIfAbsent(child.getLuid(), child) != null ) {
-			throw new StateExistsException("child luid=" + child.getLuid());
-		}
-	}
-
-	@Override
-	public boolean isAncestorOf(State<C> state) {
-		return state.getGuid().startsWith(getGuid());
-	}
-
-	@Override
-	public State<C> getRecentChildState() {
-		if ( m_keepHistory ) {
-			return ( m_recentChildStateId != null ) ? m_childStates.get(m_recentChildStateId) : null;
-		}
-		else {
-			return null;
-		}
-	}
-	
-	@Override
-	public void setRecentChildState(String childLuid) {
-		if ( m_keepHistory ) {
-			if ( !m_childStates.containsKey(childLuid) ) {
-				throw new StateNotFoundException("unknown child state: luid=" + childLuid);
-			}
-			
-			m_recentChildStateId = childLuid;
-		}
-	}
-
-	@Override
-	public State<C> getExceptionState() {
-		return m_childStates.get(m_exceptionChildStateId);
-	}
-
-	@Override
-	public String toString() {
-		return String.format("State[%s]", m_guid);
-	}
-}
+package camus.statechart.support;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import camus.statechart.State;
+import camus.statechart.StateExistsException;
+import camus.statechart.StatePosition;
+import camus.statechart.StateTimeout;
+import camus.statechart.StatechartExecution;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * 상태 객체는 상태차트 정의의 일부로서 여러 상태차트 수행에서 동시에 공유될 수 있다.
+ * 따라서 상태차트 생성 이후에는 상태 객체를 변경하지 않으며, 수행별로 달라지는 데이터는
+ * {@link StatechartExecution#getStateLocal(State, java.util.function.Function)}를 통해
+ * 수행 객체에 저장한다.
+ * 
+ * @author Kang-Woo Lee (ETRI)
+ */
+public abstract class AbstractState<C extends StatechartExecution<C>> implements State<C> {
+	private final State<C> m_parent;
+	private final String m_guid;
+	private final String m_luid;
+	
+	private String m_defaultStateId;
+	private final Map<String,State<C>> m_childStates = Maps.newLinkedHashMap();
+
+	private final String m_exceptionChildStateId;
+	private final boolean m_keepHistory;
+	private final List<StateTimeout<C>> m_timeouts = Lists.newArrayList();
+	private boolean m_orthogonal = false;
+	private boolean m_concurrentRegions = false;
+	private volatile Function<? super C, String> m_completion;
+	private Set<Class<?>> m_eventTypes;		// 알 수 없는 경우는 null
+	
+	// 상태차트 생성시 부여되는 구조 번호 (부여되지 않은 경우는 null)
+	private volatile StatePosition m_position;
+	
+	protected AbstractState(State<C> parent, String guid, boolean keepHistory,
+							String exceptionChildStateId) {
+		m_parent = parent;
+		m_guid = guid;
+		m_luid = StateChartUtils.toLuid(guid);
+		
+		m_keepHistory = keepHistory;
+		m_exceptionChildStateId = exceptionChildStateId;
+	}
+
+	@Override
+	public State<C> getParentState() {
+		return m_parent;
+	}
+
+	@Override
+	public String getGuid() {
+		return m_guid;
+	}
+
+	@Override
+	public String getLuid() {
+		return m_luid;
+	}
+
+	@Override
+	public State<C> getInitialChildState() {
+		return m_childStates.get(m_defaultStateId);
+	}
+	
+	public void setDefaultStateId(String stateId) {
+		m_defaultStateId = stateId;
+	}
+
+	@Override
+	public State<C> getChildState(String luid) {
+		return m_childStates.get(luid);
+	}
+
+	@Override
+	public Collection<State<C>> getChildStates() {
+		return m_childStates.values();
+	}
+	
+	public void addChildState(State<C> child) {
+		if ( m_childStates.putIfAbsent(child.getLuid(), child) != null ) {
+			throw new StateExistsException("child luid=" + child.getLuid());
+		}
+	}
+
+	/**
+	 * 본 상태가 주어진 상태의 조상 상태인지 여부를 반환한다.
+	 * <p>
+	 * 두 상태가 동일한 경우도 <code>true</code>를 반환한다.
+	 * 두 상태 모두 동일한 상태차트 생성시 구조 번호가 부여된 경우는 정수 비교만으로 판단하고,
+	 * 그렇지 않은 경우는 주어진 상태부터 상위 상태를 따라 올라가며 확인한다.
+	 */
+	@Override
+	public boolean isAncestorOf(State<C> state) {
+		StatePosition pos = m_position;
+		if ( pos != null && state instanceof AbstractState ) {
+			StatePosition other = ((AbstractState<C>)state).m_position;
+			if ( pos.isSameChart(other) ) {
+				return pos.isAncestorOf(other);
+			}
+		}
+		
+		for ( State<C> current = state; current != null; current = current.getParentState() ) {
+			if ( current == this ) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * 상태차트 생성시 본 상태에 부여된 상태 번호를 반환한다.
+	 * <p>
+	 * 상태차트에 등록되지 않은 경우는 -1을 반환한다.
+	 * 
+	 * @return	상태 번호.
+	 * @see camus.statechart.Statechart#getStateId(State)
+	 */
+	public int getStateId() {
+		StatePosition pos = m_position;
+		return (pos != null) ? pos.getStateId() : -1;
+	}
+	
+	/**
+	 * 상태 트리에서의 본 상태의 깊이를 반환한다.
+	 * <p>
+	 * 최상위 상태의 깊이는 0이며, 상태차트에 등록되지 않은 경우는 -1을 반환한다.
+	 * 
+	 * @return	상태 깊이.
+	 */
+	public int getDepth() {
+		StatePosition pos = m_position;
+		return (pos != null) ? pos.getDepth() : -1;
+	}
+	
+	/**
+	 * 상태차트 생성시 부여된 구조 번호를 설정한다.
+	 * <p>
+	 * 본 메소드는 {@link camus.statechart.Statechart} 생성 과정에서 호출되며,
+	 * 응용에서 직접 호출하지 않는다. 구조 번호 객체는 상태 색인만이 생성할 수 있으므로
+	 * 임의의 번호를 부여할 수 없다.
+	 * 
+	 * @param position	구조 번호.
+	 * @throws IllegalArgumentException	다른 상태에 부여된 구조 번호인 경우.
+	 */
+	public void setPosition(StatePosition position) {
+		if ( position.getState() != this ) {
+			throw new IllegalArgumentException("position of another state: " + position);
+		}
+		
+		m_position = position;
+	}
+
+	@Override
+	public boolean keepsHistory() {
+		return m_keepHistory;
+	}
+
+	@Override
+	public State<C> getExceptionState() {
+		return m_childStates.get(m_exceptionChildStateId);
+	}
+
+	/**
+	 * 본 상태에 시간 제한을 추가한다.
+	 * <p>
+	 * 상태차트 수행이 본 상태에 진입한 후 주어진 시간 내에 탈출하지 않으면, 수행의 이벤트 처리
+	 * 쓰레드에서 주어진 동작이 호출되고 동작이 반환한 경로의 상태로 전이한다. 본 상태를 먼저
+	 * 탈출하는 경우는 타이머가 자동으로 취소된다.
+	 * 
+	 * @param delay		진입 후 동작이 호출될 때까지의 시간.
+	 * @param unit		시간 단위.
+	 * @param action	시간 제한 동작. 전이하지 않는 경우는 <code>null</code>을 반환한다.
+	 */
+	public void after(long delay, TimeUnit unit, Function<? super C, String> action) {
+		m_timeouts.add(new StateTimeout<C>(delay, unit, action));
+	}
+
+	@Override
+	public List<StateTimeout<C>> getTimeouts() {
+		return m_timeouts;
+	}
+
+	@Override
+	public boolean isOrthogonal() {
+		return m_orthogonal;
+	}
+	
+	/**
+	 * 본 상태를 직교 상태로 설정한다. 직교 상태의 자식 상태들은 각각 독립된 영역이 된다.
+	 * 
+	 * @param orthogonal	직교 상태 여부.
+	 */
+	public void setOrthogonal(boolean orthogonal) {
+		m_orthogonal = orthogonal;
+	}
+
+	@Override
+	public boolean hasConcurrentRegions() {
+		return m_orthogonal && m_concurrentRegions;
+	}
+	
+	/**
+	 * 영역들이 하나의 이벤트를 동시에 처리할지 여부를 설정한다.
+	 * 
+	 * @param concurrent	동시 처리 여부.
+	 * @see State#hasConcurrentRegions()
+	 */
+	public void setConcurrentRegions(boolean concurrent) {
+		m_concurrentRegions = concurrent;
+	}
+
+	/**
+	 * 직교 상태의 모든 영역이 종료 상태에 도달한 경우 호출될 완료 동작을 설정한다.
+	 * 
+	 * @param action	완료 동작. 동작은 전이할 상태의 경로를 반환하며, 전이하지 않는 경우는
+	 * 					<code>null</code>을 반환한다.
+	 * @see State#regionsCompleted(StatechartExecution)
+	 */
+	public void onCompletion(Function<? super C, String> action) {
+		m_completion = action;
+	}
+
+	@Override
+	public String regionsCompleted(C context) {
+		Function<? super C, String> action = m_completion;
+		return (action != null) ? action.apply(context) : null;
+	}
+
+	@Override
+	public Set<Class<?>> getEventTypes() {
+		return m_eventTypes;
+	}
+	
+	/**
+	 * 본 상태가 처리하는 이벤트 타입들을 설정한다.
+	 * <p>
+	 * {@link #handleEvent(StatechartExecution, event.Event)}는 주어진 타입들 외의 이벤트를
+	 * 처리하지 않아야 한다.
+	 * 
+	 * @param types	이벤트 타입들.
+	 * @see State#getEventTypes()
+	 */
+	public void setEventTypes(Class<?>... types) {
+		m_eventTypes = ImmutableSet.copyOf(types);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("State[%s]", m_guid);
+	}
+}
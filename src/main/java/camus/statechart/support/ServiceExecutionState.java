@@ -1,183 +1,295 @@
-package camus.statechart.support;
-
-import java.util.concurrent.atomic.AtomicInteger;
-
-import camus.statechart.State;
-import camus.statechart.StatechartExecution;
-
-import com.google.common.base.Preconditions;
-import com.google.common.eventbus.Subscribe;
-
-import async.Service;
-import async.ServiceState;
-import async.ServiceStateChangeEvent;
-import event.Event;
-
-
-
-
-/**
- * <code>ServiceTaskState</code>는 {@link Service} 작업을 수행하는 상태차트 기반 응용을
- * 구성하는 상태를 위한 추상 클래스를 정의한다.
- * <p>
- * 하나의 <code>Service</code> 작업을 수행하는 상태를 구현하는 경우, 본 추상 클래스를 상속하면
- * 간편하게 상태 클래스를 구현할 수 있다.
- * 본 클래스를 상속하여 상태 클래스를 구현하는 경우 다음과 같은 메소드를 재정의해야 한다.
- * <ul>
- * 	<li> {@link #getNextState(Service)}: 수행하는  <code>Service</code>가 종료된 경우
- * 		다음으로 이전할 상태 객체를 반환한다.
- * 	<li> {@link #getFaultState(Service)}: 수행하는 <code>Service</code>가 오류 발생으로
- * 		종료된 경우 (또는 오류 발생으로 작업 시작이 실패한 경우) 다음으로 이전할 상태 객체를 반환한다.
- * </ul> 
- * 
- * @author Kang-Woo Lee
- */
-public abstract class ServiceExecutionState<C extends StatechartExecution<C>>
-																		extends AbstractState<C> {
-	private volatile Service m_svc;
-	private volatile String m_execId;
-	private final AtomicInteger m_execIdGen = new AtomicInteger(0);
-	
-	/**
-	 * 수행하는  <code>Service</code>가 종료된 경우 다음으로 이전할 상태 객체를 반환한다.
-	 * <p>
-	 * 본 메소드는 <code>ServiceTaskState</code> 객체에서 호출된다.
-	 * 기본 동작을 "/finished"라는 상태로 전이하며, 이를 수정하는 경우 본 메소드를 override하여
-	 * 수정한다.
-	 * 
-	 * @param context		상태차트 수행 문맥
-	 * @return	다음으로 이전할 상태 객체.
-	 */
-	protected abstract String getNextStateIfStopped(C context);
-	
-	/**
-	 * {@link Service} 태스크 상태 중에 태스크가 오류가 발생한 경우, 다음으로
-	 * 이동할 상태를 반환한다.
-	 * <p>
-	 * 기본 동작을 "/finished"라는 상태로 전이하며, 이를 수정하는 경우 본 메소드를 override하여
-	 * 수정한다.
-	 * 
-	 * @param context		상태차트 수행 문맥
-	 * @param failureCause	발생된 오류 예외 객체.
-	 * @return	다음으로 이전할 상태 객체.
-	 */
-	protected abstract String getNextStateIfFailed(C context, Throwable failureCause);
-
-	/**
-	 * {@link Service} 작업을 수행하는 상태 객체를 생성한다.
-	 * <p>
-	 * 객체 생성 이후에는 {@link #setServiceTask(Service)}를 통해 본 상태에서 수행할
-	 * 작업을 설정하여야 한다.
-	 * 
-	 * @param appl		상태를 포함하는 상태 차트 응용.
-	 * @param parent	상위 상태. 없는 경우는 <code>null</code>.
-	 * @param luid		생성할 상태의 지역 식별자.
-	 * 					이 식별자는 동일 상위 상태에 포함돤 sibling 상태들 사이에서는 유일해야 한다.
-	 */
-	public ServiceExecutionState(State<C> parent, String guid, boolean keepHistory,
-								String exceptionChildStateId) {
-		super(parent, guid, keepHistory, exceptionChildStateId);
-	}
-	
-	/**
-	 * 상태 작업 수행 식별자를 반환한다.
-	 * <p>
-	 * 상태 작업 수행 식별자는 본 상태에 설정된 작업이 수행될 때마다 다르게 부여된다.
-	 * 
-	 * @return	작업 수행 식별자.
-	 */
-	public final String getExecId() {
-		return m_execId;
-	}
-	
-	/**
-	 * 설정된 <code>Service</code> 객체를 반환한다.
-	 * 
-	 * @return	<code>Service</code> 작업 객체.
-	 */
-	public final Service getService() {
-		return m_svc;
-	}
-	
-	/**
-	 * 본 상태로 진입시 수행시킬 <code>Service</code> 객체를 설정한다.
-	 * 
-	 * @param task	수행시킬  <code>Service</code> 작업 객체
-	 */
-	public final void setService(Service task) {
-		m_svc = task;
-	}
-
-	@Override
-	public String enter(C context) {
-		Preconditions.checkState(m_svc != null, "Service has not been set");
-		try {
-			m_svc.addStateChangeListener(new EventRelayListener<>(context, m_execId));
-			m_svc.start();
-			
-			m_execId = getGuid() + ":" + m_execIdGen.getAndIncrement();
-		}
-		catch ( Exception e ) {
-			return getNextStateIfFailed(context, e);
-		}
-		
-		return null;
-	}
-
-	@Override
-	public void leave(C context) {
-		m_svc.removeStateChangeListener(new EventRelayListener<>(context, m_execId));
-		
-		m_svc.stop();
-	}
-
-	@Override
-	public String handleEvent(C context, Event event) {
-		if ( event instanceof ServiceStateChangeEvent ) {
-			ServiceStateChangeEvent ssce = (ServiceStateChangeEvent)event;
-			
-			if ( !ssce.getTag().equals(m_execId) ) {
-				return State.STOP_PROPAGATE_GUID;
-			}
-			
-			if ( ssce.getToState() == ServiceState.STOPPED ) {
-				return getNextStateIfStopped(context);
-			}
-			else if ( ssce.getToState() == ServiceState.FAILED ) {
-				return getNextStateIfFailed(context, m_svc.getFailureCause());
-			}
-		}
-		
-		return null;
-	}
-    
-	/**
-	 * 강제로 <code>Service</code> 작업이 종료시킨다.
-	 * <p>
-	 * 설정 작업을 종료시키고 {@link #getNextState(Service)}를 호출하여 획득한 상태로 전이시킨다.
-	 */
-    public void finishTask() {
-    	m_svc.stop();
-    }
-	
-	private static class EventRelayListener<C extends StatechartExecution<C>> {
-		private final C m_execution;
-		private final String m_execId;
-		
-		EventRelayListener(C execution, String execId) {
-			m_execution = execution;
-			m_execId = execId;
-		}
-		
-		@Subscribe
-		public void onStateChanged(ServiceStateChangeEvent event) {
-			if ( event.getFromState() == ServiceState.RUNNING ) {
-				ServiceStateChangeEvent tagged = new ServiceStateChangeEvent(event.getService(),
-																		event.getFromState(),
-																		event.getToState(),
-																		m_execId);
-				m_execution.receiveEvent(tagged);
-			}
-		}
-	}
-}
+package camus.statechart.support;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import camus.statechart.State;
+import camus.statechart.StatechartExecution;
+
+import com.google.common.base.Preconditions;
+import com.google.common.eventbus.Subscribe;
+
+import async.Service;
+import async.ServiceState;
+import async.ServiceStateChangeEvent;
+import event.Event;
+
+
+
+
+/**
+ * <code>ServiceTaskState</code>는 {@link Service} 작업을 수행하는 상태차트 기반 응용을
+ * 구성하는 상태를 위한 추상 클래스를 정의한다.
+ * <p>
+ * 하나의 <code>Service</code> 작업을 수행하는 상태를 구현하는 경우, 본 추상 클래스를 상속하면
+ * 간편하게 상태 클래스를 구현할 수 있다.
+ * 본 클래스를 상속하여 상태 클래스를 구현하는 경우 다음과 같은 메소드를 재정의해야 한다.
+ * <ul>
+ * 	<li> {@link #getNextState(Service)}: 수행하는  <code>Service</code>가 종료된 경우
+ * 		다음으로 이전할 상태 객체를 반환한다.
+ * 	<li> {@link #getFaultState(Service)}: 수행하는 <code>Service</code>가 오류 발생으로
+ * 		종료된 경우 (또는 오류 발생으로 작업 시작이 실패한 경우) 다음으로 이전할 상태 객체를 반환한다.
+ * </ul> 
+ * 상태 객체는 같은 상태차트를 사용하는 모든 수행들이 공유하므로, 수행할 <code>Service</code>는
+ * {@link #setServiceFactory(Function)}로 설정된 생성 함수를 통해 상태 진입시마다 수행별로 생성된다.
+ * {@link #setService(Service)}로 하나의 <code>Service</code> 객체를 설정한 경우는 동시에
+ * 하나의 수행만이 본 상태에 진입할 수 있다.
+ * 
+ * @author Kang-Woo Lee
+ */
+public abstract class ServiceExecutionState<C extends StatechartExecution<C>>
+																		extends AbstractState<C> {
+	private volatile Function<? super C,? extends Service> m_svcFactory;
+	private volatile Service m_svc;		// 'setService()'로 설정된 경우만 사용
+	private final AtomicReference<C> m_owner = new AtomicReference<>();	// 'm_svc'를 사용 중인 수행
+	private final AtomicInteger m_execIdGen = new AtomicInteger(0);
+	
+	/**
+	 * 수행하는  <code>Service</code>가 종료된 경우 다음으로 이전할 상태 객체를 반환한다.
+	 * <p>
+	 * 본 메소드는 <code>ServiceTaskState</code> 객체에서 호출된다.
+	 * 기본 동작을 "/finished"라는 상태로 전이하며, 이를 수정하는 경우 본 메소드를 override하여
+	 * 수정한다.
+	 * 
+	 * @param context		상태차트 수행 문맥
+	 * @return	다음으로 이전할 상태 객체.
+	 */
+	protected abstract String getNextStateIfStopped(C context);
+	
+	/**
+	 * {@link Service} 태스크 상태 중에 태스크가 오류가 발생한 경우, 다음으로
+	 * 이동할 상태를 반환한다.
+	 * <p>
+	 * 기본 동작을 "/finished"라는 상태로 전이하며, 이를 수정하는 경우 본 메소드를 override하여
+	 * 수정한다.
+	 * 
+	 * @param context		상태차트 수행 문맥
+	 * @param failureCause	발생된 오류 예외 객체.
+	 * @return	다음으로 이전할 상태 객체.
+	 */
+	protected abstract String getNextStateIfFailed(C context, Throwable failureCause);
+
+	/**
+	 * {@link Service} 작업을 수행하는 상태 객체를 생성한다.
+	 * <p>
+	 * 객체 생성 이후에는 {@link #setServiceFactory(Function)}를 통해 본 상태에서 수행할
+	 * 작업의 생성 함수를 설정하여야 한다.
+	 * 
+	 * @param appl		상태를 포함하는 상태 차트 응용.
+	 * @param parent	상위 상태. 없는 경우는 <code>null</code>.
+	 * @param luid		생성할 상태의 지역 식별자.
+	 * 					이 식별자는 동일 상위 상태에 포함돤 sibling 상태들 사이에서는 유일해야 한다.
+	 */
+	public ServiceExecutionState(State<C> parent, String guid, boolean keepHistory,
+								String exceptionChildStateId) {
+		super(parent, guid, keepHistory, exceptionChildStateId);
+	}
+	
+	/**
+	 * 주어진 상태차트 수행에서의 상태 작업 수행 식별자를 반환한다.
+	 * <p>
+	 * 상태 작업 수행 식별자는 본 상태에 설정된 작업이 수행될 때마다 다르게 부여되며,
+	 * 상태차트 수행별로 따로 유지된다.
+	 * 
+	 * @param context	상태차트 수행 문맥
+	 * @return	작업 수행 식별자. 아직 작업이 수행되지 않은 경우는 <code>null</code>.
+	 */
+	public final String getExecId(C context) {
+		return getRun(context).m_execId;
+	}
+	
+	/**
+	 * 주어진 상태차트 수행에서 수행 중인 <code>Service</code> 객체를 반환한다.
+	 * 
+	 * @param context	상태차트 수행 문맥
+	 * @return	<code>Service</code> 작업 객체. 본 상태에 진입하지 않은 경우는 <code>null</code>.
+	 */
+	public final Service getService(C context) {
+		return getRun(context).m_svc;
+	}
+	
+	/**
+	 * {@link #setService(Service)}로 설정된 <code>Service</code> 객체를 반환한다.
+	 * 
+	 * @return	<code>Service</code> 작업 객체.
+	 * @deprecated	{@link #getService(StatechartExecution)}를 사용한다.
+	 */
+	@Deprecated
+	public final Service getService() {
+		return m_svc;
+	}
+	
+	/**
+	 * 본 상태로 진입시 수행시킬 <code>Service</code> 객체의 생성 함수를 설정한다.
+	 * <p>
+	 * 생성 함수는 상태 진입시마다 호출되며, 상태차트 수행별로 서로 다른 객체를 반환하여야 한다.
+	 * 
+	 * @param factory	상태차트 수행 문맥을 인자로 받는 <code>Service</code> 작업 생성 함수.
+	 */
+	public final void setServiceFactory(Function<? super C,? extends Service> factory) {
+		Objects.requireNonNull(factory, "Service factory was null");
+		
+		m_svcFactory = factory;
+	}
+	
+	/**
+	 * 본 상태로 진입시 수행시킬 <code>Service</code> 객체를 설정한다.
+	 * <p>
+	 * 설정된 객체는 모든 수행이 공유하므로, 다른 수행이 본 상태에 있는 동안 진입하는 수행은
+	 * {@link #getNextStateIfFailed(StatechartExecution, Throwable)}가 반환한 상태로 이동한다.
+	 * 
+	 * @param task	수행시킬  <code>Service</code> 작업 객체
+	 * @deprecated	{@link #setServiceFactory(Function)}를 사용한다.
+	 */
+	@Deprecated
+	public final void setService(Service task) {
+		Objects.requireNonNull(task, "Service was null");
+		
+		m_svc = task;
+		m_svcFactory = ctx -> {
+			if ( !m_owner.compareAndSet(null, ctx) ) {
+				throw new IllegalStateException("Service is used by another execution: state=" + getGuid());
+			}
+			return task;
+		};
+	}
+
+	@Override
+	public String enter(C context) {
+		Function<? super C,? extends Service> factory = m_svcFactory;
+		Preconditions.checkState(factory != null, "Service has not been set");
+		
+		Run<C> run = getRun(context);
+		run.m_execId = getGuid() + ":" + m_execIdGen.getAndIncrement();
+		try {
+			run.m_svc = factory.apply(context);
+			run.m_listener = new EventRelayListener<>(context, run.m_execId);
+			run.m_svc.addStateChangeListener(run.m_listener);
+			run.m_svc.start();
+		}
+		catch ( Exception e ) {
+			release(context, run);
+			return getNextStateIfFailed(context, e);
+		}
+		
+		return null;
+	}
+
+	@Override
+	public void leave(C context) {
+		Run<C> run = getRun(context);
+		Service svc = run.m_svc;
+		if ( svc != null ) {
+			// 작업 종료 통보가 전달되지 않도록 리스너를 먼저 제거하고, 종료된 후에 작업을 반환한다.
+			if ( run.m_listener != null ) {
+				svc.removeStateChangeListener(run.m_listener);
+				run.m_listener = null;
+			}
+			svc.stop();
+			release(context, run);
+		}
+	}
+
+	@Override
+	public String handleEvent(C context, Event event) {
+		if ( event instanceof ServiceStateChangeEvent ) {
+			ServiceStateChangeEvent ssce = (ServiceStateChangeEvent)event;
+			Run<C> run = getRun(context);
+			
+			if ( !ssce.getTag().equals(run.m_execId) ) {
+				return State.STOP_PROPAGATE_GUID;
+			}
+			
+			if ( ssce.getToState() == ServiceState.STOPPED ) {
+				return getNextStateIfStopped(context);
+			}
+			else if ( ssce.getToState() == ServiceState.FAILED ) {
+				return getNextStateIfFailed(context, run.m_svc.getFailureCause());
+			}
+		}
+		
+		return null;
+	}
+
+	/**
+	 * 작업이 수행 중인 동안은 작업 종료 통보를 전달할 리스너가 수행 객체를 참조하고 있으므로
+	 * 비활성화를 거부한다.
+	 */
+	@Override
+	public boolean isPassivatable(C context) {
+		return getRun(context).m_listener == null;
+	}
+    
+	/**
+	 * 주어진 상태차트 수행에서 수행 중인 <code>Service</code> 작업을 강제로 종료시킨다.
+	 * <p>
+	 * 작업이 종료되면 {@link #getNextStateIfStopped(StatechartExecution)}를 호출하여 획득한 상태로
+	 * 전이시킨다.
+	 * 
+	 * @param context	상태차트 수행 문맥
+	 */
+	public void finishTask(C context) {
+		Service svc = getRun(context).m_svc;
+		if ( svc != null ) {
+			svc.stop();
+		}
+	}
+    
+	/**
+	 * 강제로 <code>Service</code> 작업이 종료시킨다.
+	 * <p>
+	 * 설정 작업을 종료시키고 {@link #getNextState(Service)}를 호출하여 획득한 상태로 전이시킨다.
+	 * 
+	 * @deprecated	{@link #finishTask(StatechartExecution)}를 사용한다.
+	 */
+	@Deprecated
+    public void finishTask() {
+    	m_svc.stop();
+    }
+	
+	private Run<C> getRun(C context) {
+		return context.getStateLocal(this, ctx -> new Run<>());
+	}
+	
+	private void release(C context, Run<C> run) {
+		if ( run.m_listener != null ) {
+			if ( run.m_svc != null ) {
+				run.m_svc.removeStateChangeListener(run.m_listener);
+			}
+			run.m_listener = null;
+		}
+		run.m_svc = null;
+		m_owner.compareAndSet(context, null);
+	}
+	
+	// 상태차트 수행별로 유지되는 작업 수행 정보
+	private static class Run<C extends StatechartExecution<C>> {
+		private String m_execId;
+		private Service m_svc;				// 본 상태에 있는 동안 수행 중인 작업
+		private EventRelayListener<C> m_listener;
+	}
+	
+	private static class EventRelayListener<C extends StatechartExecution<C>> {
+		private final C m_execution;
+		private final String m_execId;
+		
+		EventRelayListener(C execution, String execId) {
+			m_execution = execution;
+			m_execId = execId;
+		}
+		
+		@Subscribe
+		public void onStateChanged(ServiceStateChangeEvent event) {
+			if ( event.getFromState() == ServiceState.RUNNING ) {
+				ServiceStateChangeEvent tagged = new ServiceStateChangeEvent(event.getService(),
+																		event.getFromState(),
+																		event.getToState(),
+																		m_execId);
+				// 작업 종료가 대기 중인 이벤트들에 의해 늦게 반영되지 않도록 우선 처리한다.
+				m_execution.receiveEvent(tagged, true);
+			}
+		}
+	}
+}
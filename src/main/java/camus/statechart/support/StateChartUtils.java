@@ -1,42 +1,32 @@
-package camus.statechart.support;
-
-import camus.statechart.State;
-import camus.statechart.Statechart;
-import camus.statechart.StatechartExecution;
-
-/**
- * 
- * @author Kang-Woo Lee (ETRI)
- */
-public class StateChartUtils {
-	public static final String[] toIdParts(String guid) {
-		return guid.split("/");
-	}
-	
-	public static final String toLuid(String guid) {
-		String[] parts = toIdParts(guid);
-		return parts.length > 0 ? parts[parts.length-1] : "";
-	}
-
-	public static <C extends StatechartExecution<C>> State<C> traverse(Statechart<C> schart,
-																	State<C> from, String path) {
-		State<C> current = from;
-		for ( String seg: path.split("/") ) {
-			switch ( seg ) {
-				case "..":
-					current = current.getParentState();
-					break;
-				case ".":
-					break;
-				case "":
-					current = schart.getRootState();
-					break;
-				default:
-					current = current.getChildState(seg);
-					break;
-			}
-		}
-		
-		return current;
-	}
-}
+package camus.statechart.support;
+
+import camus.statechart.State;
+import camus.statechart.Statechart;
+import camus.statechart.StatechartExecution;
+
+/**
+ * 
+ * @author Kang-Woo Lee (ETRI)
+ */
+public class StateChartUtils {
+	public static final String[] toIdParts(String guid) {
+		return guid.split("/");
+	}
+	
+	public static final String toLuid(String guid) {
+		String[] parts = toIdParts(guid);
+		return parts.length > 0 ? parts[parts.length-1] : "";
+	}
+
+	/**
+	 * 주어진 상태를 기준으로 경로에 해당하는 상태 객체를 얻는다.
+	 * <p>
+	 * 경로 해석 결과는 상태차트에 캐시되므로, 동일 경로에 대한 반복 호출은 문자열 분석을 수반하지 않는다.
+	 * 
+	 * @see Statechart#resolve(State, String)
+	 */
+	public static <C extends StatechartExecution<C>> State<C> traverse(Statechart<C> schart,
+																	State<C> from, String path) {
+		return schart.resolve(from, path);
+	}
+}
@@ -0,0 +1,182 @@
+package camus.statechart.trace;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.function.IntFunction;
+
+import camus.statechart.State;
+import camus.statechart.Statechart;
+
+
+/**
+ * <code>ChromeTraceWriter</code>는 수행 기록들을 Chrome trace 이벤트 형식(JSON)으로 출력한다.
+ * <p>
+ * 출력된 파일은 <code>chrome://tracing</code>이나 Perfetto UI에서 열어 볼 수 있다.
+ * 상태 진입과 탈출은 각각 구간의 시작('B')과 끝('E')으로, 나머지 기록들은 순간 이벤트('i')로
+ * 변환되며, 상태차트 수행 식별자는 쓰레드 식별자(tid)로 사용된다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+public final class ChromeTraceWriter {
+	private final IntFunction<String> m_stateNames;
+	private final IntFunction<String> m_eventTypeNames;
+
+	/**
+	 * 상태 번호를 그대로 상태 이름으로 사용하는 출력기를 생성한다.
+	 */
+	public ChromeTraceWriter() {
+		this(id -> "state#" + id);
+	}
+
+	/**
+	 * 주어진 함수로 상태 이름을 얻는 출력기를 생성한다.
+	 *
+	 * @param stateNames	상태 번호에 해당하는 상태 이름을 반환하는 함수.
+	 */
+	public ChromeTraceWriter(IntFunction<String> stateNames) {
+		this(stateNames, EventTypeIds::getName);
+	}
+
+	private ChromeTraceWriter(IntFunction<String> stateNames, IntFunction<String> eventTypeNames) {
+		m_stateNames = stateNames;
+		m_eventTypeNames = eventTypeNames;
+	}
+
+	/**
+	 * 주어진 상태차트의 상태 식별자(guid)를 상태 이름으로 사용하는 출력기를 생성한다.
+	 *
+	 * @param schart	수행 기록을 생성한 상태차트.
+	 * @return	출력기 객체.
+	 */
+	public static ChromeTraceWriter forStatechart(Statechart<?> schart) {
+		return new ChromeTraceWriter(id -> {
+			State<?> state = (id >= 0 && id < schart.getStateCount()) ? schart.getStateById(id) : null;
+			return (state != null) ? state.getGuid() : "state#" + id;
+		});
+	}
+
+	/**
+	 * {@link TraceRecorder#readFrom(java.io.DataInput)}로 읽은 기록에 저장된 이름 표를 사용하는
+	 * 출력기를 생성한다.
+	 * <p>
+	 * 이름 표에 없는 상태와 이벤트 타입은 번호로 표시된다.
+	 *
+	 * @param dump	읽어 들인 수행 기록.
+	 * @return	출력기 객체.
+	 */
+	public static ChromeTraceWriter forDump(TraceDump dump) {
+		return new ChromeTraceWriter(id -> {
+			String name = dump.getStateName(id);
+			return (name != null) ? name : "state#" + id;
+		}, dump::getEventTypeName);
+	}
+
+	/**
+	 * 주어진 수행 기록들을 JSON 형식으로 출력한다.
+	 *
+	 * @param records	출력할 수행 기록들.
+	 * @param writer	출력 대상.
+	 * @throws IOException	출력 중 오류가 발생된 경우.
+	 */
+	public void write(List<TraceRecord> records, Writer writer) throws IOException {
+		writer.write("{\"traceEvents\":[");
+		for ( int i =0; i < records.size(); ++i ) {
+			if ( i > 0 ) {
+				writer.write(",");
+			}
+			writer.write("\n");
+			writeRecord(records.get(i), writer);
+		}
+		writer.write("\n],\"displayTimeUnit\":\"ns\"}\n");
+		writer.flush();
+	}
+
+	private void writeRecord(TraceRecord record, Writer writer) throws IOException {
+		String phase;
+		String name;
+		switch ( record.getKind() ) {
+			case STATE_ENTERED:
+				phase = "B";
+				name = m_stateNames.apply(record.getStateId());
+				break;
+			case STATE_LEFT:
+				phase = "E";
+				name = m_stateNames.apply(record.getStateId());
+				break;
+			default:
+				phase = "i";
+				name = record.getKind().name();
+				break;
+		}
+
+		StringBuilder builder = new StringBuilder(128);
+		builder.append("{\"name\":");
+		appendString(builder, name);
+		builder.append(",\"cat\":\"statechart\",\"ph\":\"").append(phase).append('"');
+		appendMicros(builder.append(",\"ts\":"), record.getTimestamp());
+		builder.append(",\"pid\":1,\"tid\":").append(record.getExecutionId());
+		if ( phase.equals("i") ) {
+			builder.append(",\"s\":\"t\",\"args\":{");
+
+			boolean first = true;
+			if ( record.getStateId() >= 0 ) {
+				builder.append("\"state\":");
+				appendString(builder, m_stateNames.apply(record.getStateId()));
+				first = false;
+			}
+			if ( record.getEventTypeId() >= 0 ) {
+				builder.append(first ? "" : ",").append("\"event\":");
+				String eventName = m_eventTypeNames.apply(record.getEventTypeId());
+				appendString(builder, (eventName != null) ? eventName
+														: "event#" + record.getEventTypeId());
+			}
+			builder.append('}');
+		}
+		builder.append('}');
+
+		writer.write(builder.toString());
+	}
+
+	// Chrome trace의 'ts'는 마이크로초 단위이므로 나노초를 소수점 이하로 표현한다.
+	private static void appendMicros(StringBuilder builder, long nanos) {
+		builder.append(nanos / 1000).append('.');
+		String frac = Long.toString(nanos % 1000);
+		for ( int i = frac.length(); i < 3; ++i ) {
+			builder.append('0');
+		}
+		builder.append(frac);
+	}
+
+	private static void appendString(StringBuilder builder, String str) {
+		builder.append('"');
+		for ( int i =0; i < str.length(); ++i ) {
+			char c = str.charAt(i);
+			switch ( c ) {
+				case '"':
+					builder.append("\\\"");
+					break;
+				case '\\':
+					builder.append("\\\\");
+					break;
+				case '\n':
+					builder.append("\\n");
+					break;
+				case '\r':
+					builder.append("\\r");
+					break;
+				case '\t':
+					builder.append("\\t");
+					break;
+				default:
+					if ( c < 0x20 ) {
+						builder.append(String.format("\\u%04x", (int)c));
+					}
+					else {
+						builder.append(c);
+					}
+			}
+		}
+		builder.append('"');
+	}
+}
@@ -0,0 +1,69 @@
+package camus.statechart.trace;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import event.Event;
+
+
+/**
+ * <code>EventTypeIds</code>는 이벤트 타입에 정수 번호를 부여하는 전역 등록부를 정의한다.
+ * <p>
+ * 이벤트 타입 번호는 이벤트 객체의 구현 클래스별로 처음 등장한 순서대로 부여되며,
+ * 번호에 해당하는 이름은 해당 클래스의 첫 이벤트의 첫번째 이벤트 타입 식별자로 정해진다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+public final class EventTypeIds {
+	private static final ConcurrentHashMap<Class<?>,Integer> s_ids = new ConcurrentHashMap<>();
+	private static final List<String> s_names = new CopyOnWriteArrayList<>();
+
+	private EventTypeIds() {
+		throw new AssertionError("Should not be called: class=" + EventTypeIds.class.getName());
+	}
+
+	/**
+	 * 주어진 이벤트의 타입 번호를 반환한다.
+	 *
+	 * @param event	대상 이벤트. <code>null</code>인 경우는 -1을 반환한다.
+	 * @return	이벤트 타입 번호.
+	 */
+	public static int getId(Event event) {
+		if ( event == null ) {
+			return -1;
+		}
+
+		Integer id = s_ids.get(event.getClass());
+		if ( id == null ) {
+			id = register(event);
+		}
+
+		return id;
+	}
+
+	/**
+	 * 주어진 이벤트 타입 번호에 해당하는 이름을 반환한다.
+	 *
+	 * @param id	이벤트 타입 번호.
+	 * @return	이벤트 타입 이름. 등록되지 않은 번호인 경우는 <code>null</code>.
+	 */
+	public static String getName(int id) {
+		return (id >= 0 && id < s_names.size()) ? s_names.get(id) : null;
+	}
+
+	private static synchronized int register(Event event) {
+		Integer id = s_ids.get(event.getClass());
+		if ( id == null ) {
+			String[] typeIds = event.getEventTypeIds();
+			String name = (typeIds != null && typeIds.length > 0) ? typeIds[0]
+																	: event.getClass().getName();
+
+			id = s_names.size();
+			s_names.add(name);
+			s_ids.put(event.getClass(), id);
+		}
+
+		return id;
+	}
+}
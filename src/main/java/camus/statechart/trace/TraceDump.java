@@ -0,0 +1,67 @@
+package camus.statechart.trace;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.concurrent.Immutable;
+
+
+/**
+ * <code>TraceDump</code>는 {@link TraceRecorder#readFrom(java.io.DataInput)}로 읽은 수행 기록과
+ * 기록에 사용된 번호들의 이름 표를 정의한다.
+ * <p>
+ * 이벤트 타입 번호({@link EventTypeIds})와 상태 번호는 기록을 생성한 프로세스와 상태차트에서만
+ * 의미를 가지므로, 출력된 기록에는 번호별 이름 표가 함께 저장된다. 다른 프로세스에서 기록을 읽는
+ * 경우는 본 객체의 이름 표를 사용하여야 한다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+@Immutable
+public final class TraceDump {
+	private final List<TraceRecord> m_records;
+	private final Map<Integer,String> m_eventTypeNames;
+	private final Map<Integer,String> m_stateNames;
+
+	TraceDump(List<TraceRecord> records, Map<Integer,String> eventTypeNames,
+				Map<Integer,String> stateNames) {
+		m_records = Collections.unmodifiableList(records);
+		m_eventTypeNames = Collections.unmodifiableMap(eventTypeNames);
+		m_stateNames = Collections.unmodifiableMap(stateNames);
+	}
+
+	/**
+	 * 오래된 순서로 정렬된 수행 기록들을 반환한다.
+	 *
+	 * @return	수행 기록 리스트.
+	 */
+	public List<TraceRecord> getRecords() {
+		return m_records;
+	}
+
+	/**
+	 * 이벤트 타입 번호에 해당하는 이벤트 타입 이름을 반환한다.
+	 *
+	 * @param id	이벤트 타입 번호.
+	 * @return	이벤트 타입 이름. 이름 표에 없는 경우는 <code>null</code>.
+	 */
+	public String getEventTypeName(int id) {
+		return m_eventTypeNames.get(id);
+	}
+
+	/**
+	 * 상태 번호에 해당하는 상태의 전역 식별자(guid)를 반환한다.
+	 *
+	 * @param id	상태 번호.
+	 * @return	상태 식별자. 이름 표에 없는 경우는 <code>null</code>.
+	 */
+	public String getStateName(int id) {
+		return m_stateNames.get(id);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("TraceDump[records=%d, event_types=%d, states=%d]",
+							m_records.size(), m_eventTypeNames.size(), m_stateNames.size());
+	}
+}
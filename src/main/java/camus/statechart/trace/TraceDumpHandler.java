@@ -0,0 +1,26 @@
+package camus.statechart.trace;
+
+import java.util.List;
+
+import camus.statechart.FaultRaisedEvent;
+
+
+/**
+ * <code>TraceDumpHandler</code>는 상태차트 수행 중 오류 발생시 {@link TraceRecorder}에
+ * 기록된 최근 수행 기록을 전달받는 인터페이스를 정의한다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+@FunctionalInterface
+public interface TraceDumpHandler {
+	/**
+	 * 오류 발생 직전까지의 수행 기록을 전달한다.
+	 * <p>
+	 * 본 메소드는 상태차트 잠금을 획득한 상태에서 호출되므로, 오래 걸리는 작업은
+	 * 별도의 쓰레드에서 수행하여야 한다.
+	 *
+	 * @param fault		발생된 오류 이벤트.
+	 * @param records	오래된 순서로 정렬된 최근 수행 기록들.
+	 */
+	public void dump(FaultRaisedEvent fault, List<TraceRecord> records);
+}
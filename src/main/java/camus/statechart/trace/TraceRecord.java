@@ -0,0 +1,76 @@
+package camus.statechart.trace;
+
+import javax.annotation.concurrent.Immutable;
+
+import camus.statechart.StatechartEventKind;
+
+
+/**
+ * <code>TraceRecord</code>는 {@link TraceRecorder}에 기록된 하나의 수행 기록을 정의한다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+@Immutable
+public final class TraceRecord {
+	private final long m_timestamp;
+	private final long m_execId;
+	private final int m_stateId;
+	private final int m_eventTypeId;
+	private final StatechartEventKind m_kind;
+
+	public TraceRecord(long timestamp, long execId, int stateId, int eventTypeId,
+						StatechartEventKind kind) {
+		m_timestamp = timestamp;
+		m_execId = execId;
+		m_stateId = stateId;
+		m_eventTypeId = eventTypeId;
+		m_kind = kind;
+	}
+
+	/**
+	 * 기록 시각을 반환한다.
+	 *
+	 * @return	기록 시각 (epoch 기준 나노초).
+	 */
+	public long getTimestamp() {
+		return m_timestamp;
+	}
+
+	/**
+	 * 기록을 남긴 상태차트 수행의 식별자를 반환한다.
+	 *
+	 * @return	상태차트 수행 식별자.
+	 */
+	public long getExecutionId() {
+		return m_execId;
+	}
+
+	/**
+	 * 관련 상태의 상태 번호를 반환한다.
+	 *
+	 * @return	상태 번호. 관련 상태가 없는 경우는 -1.
+	 */
+	public int getStateId() {
+		return m_stateId;
+	}
+
+	/**
+	 * 관련 이벤트의 이벤트 타입 번호를 반환한다.
+	 *
+	 * @return	이벤트 타입 번호. 관련 이벤트가 없는 경우는 -1.
+	 * @see EventTypeIds#getName(int)
+	 */
+	public int getEventTypeId() {
+		return m_eventTypeId;
+	}
+
+	public StatechartEventKind getKind() {
+		return m_kind;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Trace[ts=%d, exec=%d, kind=%s, state=%d, event=%s]",
+							m_timestamp, m_execId, m_kind, m_stateId, EventTypeIds.getName(m_eventTypeId));
+	}
+}
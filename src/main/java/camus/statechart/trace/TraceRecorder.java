@@ -0,0 +1,320 @@
+package camus.statechart.trace;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Preconditions;
+
+import camus.statechart.FaultRaisedEvent;
+import camus.statechart.State;
+import camus.statechart.Statechart;
+import camus.statechart.StatechartEventKind;
+
+
+/**
+ * <code>TraceRecorder</code>는 상태차트 수행 과정을 고정 크기 이진 기록으로 저장하는
+ * 링 버퍼를 정의한다.
+ * <p>
+ * 각 기록은 기록 시각, 수행 식별자, 상태 번호, 이벤트 타입 번호, 기록 종류로 구성되며,
+ * 생성시 미리 할당된 <code>long</code> 배열에 저장되기 때문에 기록 과정에서 객체 생성이나
+ * 문자열 변환이 발생하지 않는다. 버퍼가 가득 찬 경우는 가장 오래된 기록부터 덮어쓴다.
+ * <p>
+ * 기록은 하나의 쓰레드에서만 수행되어야 한다. 상태차트 수행은 상태차트 잠금을 획득한
+ * 상태에서만 기록하므로, 수행별로 하나의 기록기를 사용하면 이 조건이 만족된다.
+ * 기록된 내용의 조회는 임의의 쓰레드에서 수행할 수 있다.
+ * <p>
+ * 기록기는 처음 설정된 상태차트 수행의 상태차트에 연결되며, 이진 형식으로 출력할 때
+ * 기록에 사용된 상태 번호와 이벤트 타입 번호의 이름 표를 함께 출력한다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+public final class TraceRecorder {
+	private static final int MAGIC = 0x53435452;	// "SCTR"
+	private static final int VERSION = 2;
+	private static final int SLOTS = 4;				// 기록당 long 갯수
+	private static final StatechartEventKind[] KINDS = StatechartEventKind.values();
+
+	private final long[] m_buffer;
+	private final int m_mask;
+	private final long m_epochOffset;	// System.nanoTime() + m_epochOffset = epoch 기준 나노초
+	private final AtomicLong m_seqno = new AtomicLong(0);	// 지금까지 기록된 기록의 수
+	private volatile Statechart<?> m_schart;		// 상태 번호의 이름 표를 얻을 상태차트
+
+	private volatile TraceDumpHandler m_dumpHandler;
+	private volatile int m_dumpCount;
+
+	/**
+	 * 주어진 갯수의 기록을 저장하는 기록기를 생성한다.
+	 * <p>
+	 * 실제 용량은 주어진 갯수 이상의 가장 작은 2의 거듭제곱으로 정해진다.
+	 *
+	 * @param capacity	저장할 최대 기록 갯수.
+	 */
+	public TraceRecorder(int capacity) {
+		Preconditions.checkArgument(capacity > 0 && capacity <= (1 << 24),
+									"invalid capacity: " + capacity);
+
+		int size = Integer.highestOneBit(capacity);
+		if ( size < capacity ) {
+			size <<= 1;
+		}
+
+		m_buffer = new long[size * SLOTS];
+		m_mask = size - 1;
+		m_epochOffset = System.currentTimeMillis() * 1_000_000L - System.nanoTime();
+		m_dumpCount = size;
+	}
+
+	/**
+	 * 저장 가능한 최대 기록 갯수를 반환한다.
+	 *
+	 * @return	최대 기록 갯수.
+	 */
+	public int getCapacity() {
+		return m_mask + 1;
+	}
+
+	/**
+	 * 본 기록기를 주어진 상태차트에 연결한다.
+	 * <p>
+	 * 본 메소드는 {@link camus.statechart.StatechartExecution#setTraceRecorder(TraceRecorder)}에서
+	 * 호출된다. 상태 번호는 상태차트별로 부여되므로, 하나의 기록기는 하나의 상태차트에만 연결될 수 있다.
+	 *
+	 * @param schart	연결할 상태차트.
+	 * @throws IllegalStateException	이미 다른 상태차트에 연결된 경우.
+	 */
+	public synchronized void bind(Statechart<?> schart) {
+		if ( m_schart != null && m_schart != schart ) {
+			throw new IllegalStateException("trace recorder is bound to another statechart: "
+											+ m_schart);
+		}
+		m_schart = schart;
+	}
+
+	/**
+	 * 지금까지 기록된 전체 기록의 수를 반환한다. 덮어써져 사라진 기록도 포함된다.
+	 *
+	 * @return	전체 기록 수.
+	 */
+	public long getRecordCount() {
+		return m_seqno.get();
+	}
+
+	/**
+	 * 하나의 수행 기록을 추가한다.
+	 *
+	 * @param execId		상태차트 수행 식별자.
+	 * @param stateId		관련 상태의 상태 번호. 없는 경우는 -1.
+	 * @param eventTypeId	관련 이벤트의 타입 번호. 없는 경우는 -1.
+	 * @param kind			기록 종류.
+	 */
+	public void record(long execId, int stateId, int eventTypeId, StatechartEventKind kind) {
+		long seqno = m_seqno.get();
+		int base = (int)(seqno & m_mask) * SLOTS;
+
+		m_buffer[base] = System.nanoTime();
+		m_buffer[base+1] = execId;
+		m_buffer[base+2] = ((long)stateId << 32) | (eventTypeId & 0xFFFFFFFFL);
+		m_buffer[base+3] = kind.ordinal();
+
+		m_seqno.lazySet(seqno+1);
+	}
+
+	/**
+	 * 오류 발생시 최근 수행 기록을 전달받을 처리기를 설정한다.
+	 *
+	 * @param handler	기록 처리기. <code>null</code>인 경우는 설정을 해제한다.
+	 * @param count		전달할 최근 기록의 최대 갯수.
+	 */
+	public void setFaultDumpHandler(TraceDumpHandler handler, int count) {
+		Preconditions.checkArgument(count > 0, "invalid dump count: " + count);
+
+		m_dumpCount = count;
+		m_dumpHandler = handler;
+	}
+
+	/**
+	 * 오류 발생을 기록하고, 설정된 처리기가 있는 경우 최근 수행 기록을 전달한다.
+	 *
+	 * @param execId	상태차트 수행 식별자.
+	 * @param stateId	오류를 발생시킨 상태의 상태 번호.
+	 * @param eventTypeId	오류 발생 당시 처리 중이던 이벤트의 타입 번호. 없는 경우는 -1.
+	 * @param fault		발생된 오류 이벤트.
+	 */
+	public void recordFault(long execId, int stateId, int eventTypeId, FaultRaisedEvent fault) {
+		record(execId, stateId, eventTypeId, StatechartEventKind.FAULT_RAISED);
+
+		TraceDumpHandler handler = m_dumpHandler;
+		if ( handler != null ) {
+			handler.dump(fault, getLastRecords(m_dumpCount));
+		}
+	}
+
+	/**
+	 * 최근 수행 기록들을 오래된 순서로 반환한다.
+	 *
+	 * @param count	반환할 최대 기록 갯수.
+	 * @return	수행 기록 리스트.
+	 */
+	public List<TraceRecord> getLastRecords(int count) {
+		long end = m_seqno.get();
+		long start = Math.max(0, Math.max(end - count, end - getCapacity()));
+
+		List<TraceRecord> records = new ArrayList<>((int)(end - start));
+		for ( long seqno = start; seqno < end; ++seqno ) {
+			int base = (int)(seqno & m_mask) * SLOTS;
+
+			long ts = m_buffer[base];
+			long execId = m_buffer[base+1];
+			long ids = m_buffer[base+2];
+			int kind = (int)m_buffer[base+3];
+			records.add(new TraceRecord(ts + m_epochOffset, execId, (int)(ids >> 32), (int)ids,
+										KINDS[kind]));
+		}
+
+		// 읽는 도중에 덮어써진 기록들은 제외한다.
+		long overwritten = m_seqno.get() - getCapacity() - start;
+		if ( overwritten > 0 ) {
+			return overwritten >= records.size() ? Collections.emptyList()
+											: records.subList((int)overwritten, records.size());
+		}
+
+		return records;
+	}
+
+	/**
+	 * 최근 수행 기록들을 이진 형식으로 출력한다.
+	 *
+	 * @param out	출력 대상.
+	 * @param count	출력할 최대 기록 갯수.
+	 * @throws IOException	출력 중 오류가 발생된 경우.
+	 * @see #readFrom(DataInput)
+	 */
+	public void writeTo(DataOutput out, int count) throws IOException {
+		write(getLastRecords(count), m_schart, out);
+	}
+
+	/**
+	 * 주어진 수행 기록들을 상태 이름 표 없이 이진 형식으로 출력한다.
+	 *
+	 * @param records	출력할 수행 기록들.
+	 * @param out		출력 대상.
+	 * @throws IOException	출력 중 오류가 발생된 경우.
+	 */
+	public static void write(List<TraceRecord> records, DataOutput out) throws IOException {
+		write(records, null, out);
+	}
+
+	/**
+	 * 주어진 수행 기록들을 이진 형식으로 출력한다.
+	 * <p>
+	 * 기록에 사용된 이벤트 타입 번호의 이름과, 상태차트가 주어진 경우는 상태 번호의 상태 식별자(guid)를
+	 * 기록들 앞에 함께 출력한다.
+	 *
+	 * @param records	출력할 수행 기록들.
+	 * @param schart	기록을 생성한 상태차트. 상태 이름 표를 출력하지 않는 경우는 <code>null</code>.
+	 * @param out		출력 대상.
+	 * @throws IOException	출력 중 오류가 발생된 경우.
+	 */
+	public static void write(List<TraceRecord> records, Statechart<?> schart, DataOutput out)
+		throws IOException {
+		Map<Integer,String> eventTypeNames = new LinkedHashMap<>();
+		Map<Integer,String> stateNames = new LinkedHashMap<>();
+		for ( TraceRecord record: records ) {
+			int typeId = record.getEventTypeId();
+			if ( typeId >= 0 && !eventTypeNames.containsKey(typeId) ) {
+				String name = EventTypeIds.getName(typeId);
+				if ( name != null ) {
+					eventTypeNames.put(typeId, name);
+				}
+			}
+
+			int stateId = record.getStateId();
+			if ( schart != null && stateId >= 0 && stateId < schart.getStateCount()
+				&& !stateNames.containsKey(stateId) ) {
+				State<?> state = schart.getStateById(stateId);
+				if ( state != null ) {
+					stateNames.put(stateId, state.getGuid());
+				}
+			}
+		}
+
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		writeNames(eventTypeNames, out);
+		writeNames(stateNames, out);
+		out.writeInt(records.size());
+		for ( TraceRecord record: records ) {
+			out.writeLong(record.getTimestamp());
+			out.writeLong(record.getExecutionId());
+			out.writeInt(record.getStateId());
+			out.writeInt(record.getEventTypeId());
+			out.writeByte(record.getKind().ordinal());
+		}
+	}
+
+	/**
+	 * {@link #writeTo(DataOutput, int)}로 출력된 수행 기록들과 이름 표를 읽는다.
+	 * <p>
+	 * 이름 표가 없는 이전 형식(버전 1)의 기록도 읽을 수 있으며, 이 경우 이름 표는 비어 있다.
+	 *
+	 * @param in	입력 대상.
+	 * @return	수행 기록과 이름 표.
+	 * @throws IOException	입력 중 오류가 발생되거나 형식이 올바르지 않은 경우.
+	 */
+	public static TraceDump readFrom(DataInput in) throws IOException {
+		if ( in.readInt() != MAGIC ) {
+			throw new IOException("not a statechart trace");
+		}
+		int version = in.readInt();
+		if ( version != 1 && version != VERSION ) {
+			throw new IOException("unsupported trace version: " + version);
+		}
+
+		Map<Integer,String> eventTypeNames = new LinkedHashMap<>();
+		Map<Integer,String> stateNames = new LinkedHashMap<>();
+		if ( version >= 2 ) {
+			readNames(in, eventTypeNames);
+			readNames(in, stateNames);
+		}
+
+		int count = in.readInt();
+		List<TraceRecord> records = new ArrayList<>(count);
+		for ( int i =0; i < count; ++i ) {
+			long ts = in.readLong();
+			long execId = in.readLong();
+			int stateId = in.readInt();
+			int eventTypeId = in.readInt();
+			int kind = in.readByte();
+			if ( kind < 0 || kind >= KINDS.length ) {
+				throw new IOException("invalid trace record kind: " + kind);
+			}
+			records.add(new TraceRecord(ts, execId, stateId, eventTypeId, KINDS[kind]));
+		}
+
+		return new TraceDump(records, eventTypeNames, stateNames);
+	}
+
+	private static void writeNames(Map<Integer,String> names, DataOutput out) throws IOException {
+		out.writeInt(names.size());
+		for ( Map.Entry<Integer,String> entry: names.entrySet() ) {
+			out.writeInt(entry.getKey());
+			out.writeUTF(entry.getValue());
+		}
+	}
+
+	private static void readNames(DataInput in, Map<Integer,String> names) throws IOException {
+		int count = in.readInt();
+		for ( int i =0; i < count; ++i ) {
+			int id = in.readInt();
+			names.put(id, in.readUTF());
+		}
+	}
+}
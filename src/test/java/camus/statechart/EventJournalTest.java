@@ -0,0 +1,299 @@
+package camus.statechart;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import event.Event;
+
+
+/**
+ * @author Kang-Woo Lee (ETRI)
+ */
+public class EventJournalTest {
+	private static final EventSerializer EVENTS = new EventSerializer() {
+		@Override
+		public void write(Event event, DataOutput out) throws IOException {
+			out.writeUTF(event.toString());
+		}
+
+		@Override
+		public Event read(DataInput in) throws IOException {
+			return new TestEvent(in.readUTF());
+		}
+	};
+	private static final ContextSerializer<TestExecution> CONTEXT = new ContextSerializer<TestExecution>() {
+		@Override
+		public void write(TestExecution exec, DataOutput out) throws IOException {
+			out.writeInt(exec.getValue());
+		}
+
+		@Override
+		public void read(TestExecution exec, DataInput in) throws IOException {
+			exec.setValue(in.readInt());
+		}
+	};
+
+	private File m_dir;
+	private Statechart<TestExecution> m_schart;
+	private TestState m_done;
+
+	@Before
+	public void setUp() throws IOException {
+		m_dir = Files.createTempDirectory("journal-test").toFile();
+
+		// 'add' 이벤트마다 값을 증가시키고, 'finish' 이벤트를 받으면 'done' 상태로 전이한다.
+		TestState root = new TestState(null, "/").initial("counting");
+		new TestState(root, "/counting").handler((exec, event) -> {
+			if ( event.toString().equals("finish") ) {
+				return "/done";
+			}
+			exec.setValue(exec.getValue() + 1);
+			return State.STOP_PROPAGATE_GUID;
+		});
+		m_done = new TestState(root, "/done");
+		m_schart = new Statechart<>(root);
+	}
+
+	@After
+	public void tearDown() {
+		deleteAll(m_dir);
+	}
+
+	@Test
+	public void testRecoverFromCheckpointAndTail() throws Exception {
+		EventJournal journal = new EventJournal(m_dir, EVENTS, 10);
+		TestExecution exec = new TestExecution(m_schart);
+		journal.recover(exec, "k1", CONTEXT);
+		for ( int i = 0; i < 25; ++i ) {
+			exec.receiveEvent(new TestEvent("add"));
+		}
+		StatechartSnapshotTest.waitFor(() -> exec.getValue() == 25);
+		journal.close();
+		exec.stop();
+
+		// 체크포인트(20) 이후의 이벤트들만 다시 처리하여 값을 복원한다.
+		EventJournal reopened = new EventJournal(m_dir, EVENTS, 10);
+		TestExecution recovered = new TestExecution(m_schart);
+		reopened.recover(recovered, "k1", CONTEXT);
+		assertEquals(25, recovered.getValue());
+
+		// 복구 후 전달된 이벤트도 저널에 기록된다.
+		recovered.receiveEvent(new TestEvent("add"));
+		recovered.receiveEvent(new TestEvent("finish"));
+		StatechartSnapshotTest.waitFor(() -> recovered.getCurrentState() == m_done);
+		reopened.close();
+		recovered.stop();
+
+		EventJournal third = new EventJournal(m_dir, EVENTS, 10);
+		TestExecution again = new TestExecution(m_schart);
+		third.recover(again, "k1", CONTEXT);
+		assertEquals(26, again.getValue());
+		assertSame(m_done, again.getCurrentState());
+		third.close();
+		again.stop();
+	}
+
+	@Test
+	public void testCloseDrainsAcceptedEventsAndRejectsLaterOnes() throws Exception {
+		EventJournal journal = new EventJournal(m_dir, EVENTS, 1000);
+		TestExecution exec = new TestExecution(m_schart);
+		journal.attach(exec, "k1", CONTEXT);
+		exec.start();
+
+		AtomicInteger accepted = new AtomicInteger();
+		Thread producer = new Thread(() -> {
+			try {
+				while ( true ) {
+					exec.receiveEvent(new TestEvent("add"));
+					accepted.incrementAndGet();
+				}
+			}
+			catch ( IllegalStateException expected ) { }
+		});
+		producer.start();
+		while ( accepted.get() < 100 ) {
+			Thread.sleep(1);
+		}
+		journal.close();
+		producer.join(5000);
+
+		// 닫히기 전에 받아들여진 이벤트는 모두 처리된다.
+		StatechartSnapshotTest.waitFor(() -> exec.getValue() == accepted.get());
+		try {
+			exec.receiveEvent(new TestEvent("add"));
+			fail("closed journal should reject events");
+		}
+		catch ( IllegalStateException expected ) { }
+		exec.stop();
+	}
+
+	@Test
+	public void testWriteFailureIsReported() throws Exception {
+		EventJournal journal = new EventJournal(m_dir, EVENTS, 1000);
+		journal.setMaxSegmentSize(1);
+		TestExecution exec = new TestExecution(m_schart);
+		AtomicInteger reported = new AtomicInteger();
+		exec.addStatechartListener(event -> {
+			if ( ((FaultRaisedEvent)event).getFaultCase() == StatechartFaultCase.JOURNAL_WRITE ) {
+				reported.incrementAndGet();
+			}
+		}, StatechartEventKind.FAULT_RAISED);
+		journal.attach(exec, "k1", CONTEXT);
+		exec.start();
+
+		// 다음 저널 파일을 생성할 수 없도록 디렉토리를 제거한다.
+		deleteAll(m_dir);
+
+		// 기록 쓰레드가 실패할 때까지 이벤트를 전달한다.
+		int sent = 0;
+		long deadline = System.currentTimeMillis() + 5000;
+		while ( true ) {
+			try {
+				exec.receiveEvent(new TestEvent("add"));
+				++sent;
+			}
+			catch ( IllegalStateException e ) {
+				break;
+			}
+			assertTrue("journal did not fail", System.currentTimeMillis() < deadline);
+			if ( sent % 100 == 0 ) {
+				Thread.sleep(1);
+			}
+		}
+
+		// 받아들여진 이벤트는 처리되거나 실패가 통보된다.
+		int expected = sent;
+		StatechartSnapshotTest.waitFor(() -> exec.getValue() + reported.get() == expected);
+		Thread.sleep(50);
+		assertEquals(sent, exec.getValue() + reported.get());
+		journal.close();
+		exec.stop();
+	}
+
+	@Test
+	public void testCapacityCountsEventsBeingJournaled() throws Exception {
+		CountDownLatch entered = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		TestState root = new TestState(null, "/").handler((exec, event) -> {
+			if ( event.toString().equals("block") ) {
+				entered.countDown();
+				try {
+					release.await(5, TimeUnit.SECONDS);
+				}
+				catch ( InterruptedException e ) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			exec.setValue(exec.getValue() + 1);
+			return State.STOP_PROPAGATE_GUID;
+		});
+		TestExecution exec = new TestExecution(new Statechart<>(root));
+		exec.setEventQueueCapacity(2, OverflowPolicy.REJECT);
+
+		EventJournal journal = new EventJournal(m_dir, EVENTS, 1000);
+		try {
+			journal.attach(exec, "k1", CONTEXT);
+			exec.start();
+
+			exec.receiveEvent(new TestEvent("block"));
+			assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+			// 기록 중이거나 기록 후 처리를 기다리는 이벤트가 용량만큼 쌓이면 기록하지 않고 거부한다.
+			exec.receiveEvent(new TestEvent("add"));
+			exec.receiveEvent(new TestEvent("add"));
+			try {
+				exec.receiveEvent(new TestEvent("add"));
+				fail("full queue should reject the event");
+			}
+			catch ( EventQueueFullException expected ) { }
+			assertFalse(exec.offer(new TestEvent("add")));
+
+			release.countDown();
+			StatechartSnapshotTest.waitFor(() -> exec.getValue() == 3);
+
+			exec.receiveEvent(new TestEvent("add"));
+			StatechartSnapshotTest.waitFor(() -> exec.getValue() == 4);
+		}
+		finally {
+			release.countDown();
+			journal.close();
+			exec.stop();
+		}
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testDropOldestCannotBeJournaled() throws Exception {
+		TestExecution exec = new TestExecution(m_schart);
+		exec.setEventQueueCapacity(4, OverflowPolicy.DROP_OLDEST);
+
+		EventJournal journal = new EventJournal(m_dir, EVENTS, 1000);
+		try {
+			journal.attach(exec, "k1", CONTEXT);
+		}
+		finally {
+			journal.close();
+		}
+	}
+
+	@Test
+	public void testChartWithTimeoutsCannotBeJournaled() throws Exception {
+		TestState root = new TestState(null, "/").initial("waiting");
+		new TestState(root, "/waiting").after(1, TimeUnit.SECONDS, exec -> "/");
+		TestExecution exec = new TestExecution(new Statechart<>(root));
+
+		EventJournal journal = new EventJournal(m_dir, EVENTS, 1000);
+		try {
+			journal.attach(exec, "k1", CONTEXT);
+			fail("timeouts should not be journaled");
+		}
+		catch ( IllegalArgumentException expected ) {
+			assertNull(exec.getJournalBinding());
+		}
+		finally {
+			journal.close();
+		}
+	}
+
+	@Test
+	public void testScheduleEventRejectedWhenJournaled() throws Exception {
+		EventJournal journal = new EventJournal(m_dir, EVENTS, 1000);
+		TestExecution exec = new TestExecution(m_schart);
+		journal.recover(exec, "k1", CONTEXT);
+		try {
+			exec.scheduleEvent(exec.getCurrentState(), new TestEvent("add"), 10, TimeUnit.MILLISECONDS);
+			fail("delayed events should not be journaled");
+		}
+		catch ( IllegalStateException expected ) { }
+		finally {
+			journal.close();
+			exec.stop();
+		}
+	}
+
+	private static void deleteAll(File file) {
+		File[] children = file.listFiles();
+		if ( children != null ) {
+			for ( File child: children ) {
+				deleteAll(child);
+			}
+		}
+		file.delete();
+	}
+}
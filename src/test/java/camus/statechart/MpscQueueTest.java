@@ -0,0 +1,98 @@
+package camus.statechart;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+
+/**
+ * @author Kang-Woo Lee (ETRI)
+ */
+public class MpscQueueTest {
+	@Test
+	public void testFifo() {
+		MpscQueue<Integer> queue = new MpscQueue<>();
+		assertTrue(queue.isEmpty());
+		assertNull(queue.poll());
+		assertNull(queue.peekLast());
+
+		for ( int i = 0; i < 5; ++i ) {
+			queue.offer(i);
+		}
+		assertEquals(Integer.valueOf(0), queue.peek());
+		assertEquals(Integer.valueOf(4), queue.peekLast());
+		for ( int i = 0; i < 5; ++i ) {
+			assertEquals(Integer.valueOf(i), queue.poll());
+		}
+		assertTrue(queue.isEmpty());
+		assertNull(queue.peekLast());
+	}
+
+	@Test
+	public void testRemoveFirstKeepsLastElement() {
+		MpscQueue<Integer> queue = new MpscQueue<>();
+		for ( int i = 0; i < 4; ++i ) {
+			queue.offer(i);
+		}
+
+		assertEquals(Integer.valueOf(0), queue.removeFirst(v -> v % 2 == 0));
+		assertEquals(Integer.valueOf(2), queue.removeFirst(v -> v % 2 == 0));
+		assertNull(queue.removeFirst(v -> v == 3));		// 마지막 원소는 제거하지 않는다.
+
+		assertEquals(Integer.valueOf(1), queue.poll());
+		assertEquals(Integer.valueOf(3), queue.poll());
+		assertNull(queue.poll());
+	}
+
+	@Test
+	public void testConcurrentProducersKeepPerProducerOrder() throws Exception {
+		int nproducers = 4;
+		int count = 100_000;
+		MpscQueue<long[]> queue = new MpscQueue<>();
+		CountDownLatch start = new CountDownLatch(1);
+		Thread[] producers = new Thread[nproducers];
+		for ( int p = 0; p < nproducers; ++p ) {
+			int producer = p;
+			producers[p] = new Thread(() -> {
+				try {
+					start.await();
+				}
+				catch ( InterruptedException e ) {
+					return;
+				}
+				for ( int i = 0; i < count; ++i ) {
+					queue.offer(new long[]{ producer, i });
+				}
+			});
+			producers[p].start();
+		}
+		start.countDown();
+
+		long[] next = new long[nproducers];
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+		for ( int received = 0; received < nproducers * count; ) {
+			long[] elm = queue.poll();
+			if ( elm == null ) {
+				assertTrue("timed out", System.nanoTime() < deadline);
+				Thread.yield();
+				continue;
+			}
+
+			assertEquals(next[(int)elm[0]]++, elm[1]);
+			++received;
+		}
+		for ( Thread producer: producers ) {
+			producer.join();
+		}
+
+		assertNull(queue.poll());
+		for ( long n: next ) {
+			assertEquals(count, n);
+		}
+	}
+}
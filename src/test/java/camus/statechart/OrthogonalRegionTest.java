@@ -0,0 +1,166 @@
+package camus.statechart;
+
+import static camus.statechart.StatechartSnapshotTest.waitFor;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+/**
+ * @author Kang-Woo Lee (ETRI)
+ */
+public class OrthogonalRegionTest {
+	private ForkJoinPool m_pool;
+	private TestState m_root;
+	private TestState m_work;
+	private TestState m_next;
+
+	@Before
+	public void setUp() {
+		m_pool = new ForkJoinPool(2);
+
+		// '/work'는 두 영역을 갖는 직교 상태로, 각 영역은 'a' 또는 'b' 이벤트를 받으면 종료 상태로 전이한다.
+		m_root = new TestState(null, "/").initial("work");
+		m_work = new TestState(m_root, "/work");
+		m_work.setOrthogonal(true);
+		m_work.handler((exec, event) -> {
+			exec.log("handled " + event);
+			return State.STOP_PROPAGATE_GUID;
+		});
+		addRegion(m_work, "a");
+		addRegion(m_work, "b");
+		m_next = new TestState(m_root, "/next");
+	}
+
+	@After
+	public void tearDown() {
+		m_pool.shutdown();
+	}
+
+	@Test
+	public void testAllRegionsFinalCompletesOrthogonalState() throws Exception {
+		m_work.onCompletion(exec -> "/next");
+		TestExecution exec = new TestExecution(new Statechart<>(m_root));
+		exec.start();
+
+		exec.receiveEvent(new TestEvent("a"));
+		exec.receiveEvent(new TestEvent("mark"));
+		waitFor(() -> exec.getLog().contains("handled mark"));
+		assertSame(m_work, exec.getCurrentState());
+
+		exec.receiveEvent(new TestEvent("b"));
+		waitFor(() -> exec.getCurrentState() == m_next);
+		assertTrue(exec.getLog().containsAll(Arrays.asList("leave /work/a/done", "leave /work/b/done",
+															"leave /work", "enter /next")));
+		exec.stop();
+	}
+
+	@Test
+	public void testCompletionActionIsCalledOnce() throws Exception {
+		AtomicInteger count = new AtomicInteger(0);
+		m_work.onCompletion(exec -> {
+			count.incrementAndGet();
+			return null;
+		});
+		TestExecution exec = new TestExecution(new Statechart<>(m_root));
+		exec.start();
+
+		exec.receiveEvent(new TestEvent("a"));
+		exec.receiveEvent(new TestEvent("b"));
+		exec.receiveEvent(new TestEvent("mark"));
+		waitFor(() -> exec.getLog().contains("handled mark"));
+
+		assertEquals(1, count.get());
+		assertSame(m_work, exec.getCurrentState());
+		exec.stop();
+	}
+
+	@Test
+	public void testRegionWorkerCannotCallGuardedMethods() throws Exception {
+		m_work.setConcurrentRegions(true);
+		TestState a1 = (TestState)m_work.getChildState("a").getChildState("1");
+		a1.handler((exec, event) -> {
+			if ( event.toString().equals("probe") ) {
+				try {
+					exec.getCurrentState();
+					exec.log("called");
+				}
+				catch ( IllegalStateException expected ) {
+					exec.log("rejected");
+				}
+				return State.STOP_PROPAGATE_GUID;
+			}
+			return event.toString().equals("a") ? "/work/a/done" : null;
+		});
+
+		TestExecution exec = new TestExecution(new Statechart<>(m_root));
+		exec.setRegionPool(m_pool);
+		exec.start();
+
+		// 교착 상태에 빠지지 않고 호출이 거부되며, 이후에도 이벤트 처리가 계속된다.
+		exec.receiveEvent(new TestEvent("probe"));
+		exec.receiveEvent(new TestEvent("mark"));
+		waitFor(() -> exec.getLog().contains("handled mark"));
+		assertTrue(exec.getLog().contains("rejected"));
+		assertFalse(exec.getLog().contains("called"));
+		exec.stop();
+	}
+
+	@Test
+	public void testStateLocalIsCreatedOnceAcrossRegionWorkers() throws Exception {
+		m_work.setConcurrentRegions(true);
+		AtomicInteger created = new AtomicInteger(0);
+		for ( String region: Arrays.asList("a", "b") ) {
+			TestState state = (TestState)m_work.getChildState(region).getChildState("1");
+			state.handler((exec, event) -> {
+				if ( event.toString().startsWith("count") ) {
+					// 두 영역이 직교 상태의 데이터를 동시에 사용한다.
+					AtomicInteger counter = exec.getStateLocal(m_work, ctx -> {
+						created.incrementAndGet();
+						return new AtomicInteger(0);
+					});
+					counter.incrementAndGet();
+					return State.STOP_PROPAGATE_GUID;
+				}
+				return null;
+			});
+		}
+
+		int count = 200;
+		TestExecution exec = new TestExecution(new Statechart<>(m_root));
+		exec.setRegionPool(m_pool);
+		exec.start();
+		for ( int i = 0; i < count; ++i ) {
+			exec.receiveEvent(new TestEvent("count" + i));
+		}
+		exec.receiveEvent(new TestEvent("mark"));
+		waitFor(() -> exec.getLog().contains("handled mark"));
+
+		assertEquals(1, created.get());
+		exec.stop();
+	}
+
+	// 주어진 이름의 영역을 추가한다. 영역은 '1' 상태에서 시작하고, 영역 이름의 이벤트를 받으면
+	// 'done' 종료 상태로 전이한다.
+	private void addRegion(TestState orthogonal, String name) {
+		TestState region = new TestState(orthogonal, "/work/" + name).initial("1");
+		String done = "/work/" + name + "/done";
+		new TestState(region, "/work/" + name + "/1")
+			.handler((exec, event) -> event.toString().equals(name) ? done : null);
+		new TestState(region, done) {
+			@Override
+			public boolean isFinal() {
+				return true;
+			}
+		};
+	}
+}
@@ -0,0 +1,189 @@
+package camus.statechart;
+
+import static camus.statechart.StatechartSnapshotTest.waitFor;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+/**
+ * @author Kang-Woo Lee (ETRI)
+ */
+public class PassivationManagerTest {
+	private static final ContextSerializer<TestExecution> SERIALIZER = new ContextSerializer<TestExecution>() {
+		@Override
+		public void write(TestExecution exec, DataOutput out) throws IOException {
+			out.writeInt(exec.getValue());
+		}
+
+		@Override
+		public void read(TestExecution exec, DataInput in) throws IOException {
+			exec.setValue(in.readInt());
+		}
+	};
+
+	private TestState m_idle;
+	private TestState m_busy;
+	private Statechart<TestExecution> m_schart;
+	private PassivationManager<TestExecution> m_manager;
+
+	@Before
+	public void setUp() {
+		TestState root = new TestState(null, "/").initial("idle");
+		m_idle = new TestState(root, "/idle").handler((exec, event) -> {
+			exec.setValue(exec.getValue() + 1);
+			return event.toString().equals("work") ? "/busy" : null;
+		});
+		// 작업 중인 동안은 수행 전용 자원을 점유한 것으로 간주하여 비활성화를 거부한다.
+		m_busy = new TestState(root, "/busy") {
+			@Override
+			public boolean isPassivatable(TestExecution exec) {
+				return false;
+			}
+		}.handler((exec, event) -> event.toString().equals("done") ? "/idle" : null);
+		m_schart = new Statechart<>(root);
+
+		m_manager = new PassivationManager<>(PassivationStore.memory(), key -> new TestExecution(m_schart),
+											SERIALIZER, 1, TimeUnit.HOURS);
+	}
+
+	@After
+	public void tearDown() {
+		m_manager.close();
+	}
+
+	@Test
+	public void testLateEventIsForwardedToReactivatedExecution() throws Exception {
+		TestExecution exec = new TestExecution(m_schart);
+		exec.start();
+		m_manager.register("a", exec);
+
+		assertTrue(m_manager.passivate("a"));
+		assertFalse(m_manager.isResident("a"));
+		assertNull(exec.getCurrentState());
+
+		// 비활성화 이전에 획득한 수행 객체로 전달된 이벤트는 복원된 수행에서 처리된다.
+		exec.receiveEvent(new TestEvent("ping"));
+		assertTrue(m_manager.isResident("a"));
+
+		TestExecution restored = m_manager.getExecution("a");
+		assertNotSame(exec, restored);
+		waitFor(() -> restored.getValue() == 1);
+		assertSame(m_idle, restored.getCurrentState());
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testLateEventAfterUnregisterFails() throws Exception {
+		TestExecution exec = new TestExecution(m_schart);
+		exec.start();
+		m_manager.register("a", exec);
+		assertTrue(m_manager.passivate("a"));
+		m_manager.unregister("a");
+
+		exec.receiveEvent(new TestEvent("ping"));
+	}
+
+	@Test
+	public void testVetoingStateBlocksPassivation() throws Exception {
+		TestExecution exec = new TestExecution(m_schart);
+		exec.start();
+		m_manager.register("a", exec);
+
+		m_manager.receiveEvent("a", new TestEvent("work"));
+		waitFor(() -> exec.getCurrentState() == m_busy);
+		assertFalse(m_manager.passivate("a"));
+		assertSame(exec, m_manager.getExecution("a"));
+
+		m_manager.receiveEvent("a", new TestEvent("done"));
+		waitFor(() -> exec.getCurrentState() == m_idle);
+		assertTrue(m_manager.passivate("a"));
+	}
+
+	@Test
+	public void testHandlerSendingToItselfDuringSweep() throws Exception {
+		AtomicBoolean passivated = new AtomicBoolean(true);
+		TestState root = new TestState(null, "/").handler((exec, event) -> {
+			exec.log(event.toString());
+			if ( event.toString().equals("self") ) {
+				// 비활성화 작업이 수행 항목의 잠금을 잡은 상태에서 자신의 키로 이벤트를 보낸다.
+				Thread sweeper = new Thread(() -> passivated.set(m_manager.passivate("a")));
+				sweeper.start();
+				try {
+					Thread.sleep(100);
+				}
+				catch ( InterruptedException e ) {
+					Thread.currentThread().interrupt();
+				}
+				m_manager.receiveEvent("a", new TestEvent("echo"));
+			}
+			return State.STOP_PROPAGATE_GUID;
+		});
+		TestExecution exec = new TestExecution(new Statechart<>(root));
+		exec.start();
+		m_manager.register("a", exec);
+
+		m_manager.receiveEvent("a", new TestEvent("self"));
+		waitFor(() -> exec.getLog().contains("echo"));
+		assertFalse(passivated.get());
+		assertSame(exec, m_manager.getExecution("a"));
+	}
+
+	@Test
+	public void testNoEventLostWhilePassivatingRepeatedly() throws Exception {
+		TestExecution exec = new TestExecution(m_schart);
+		exec.start();
+		m_manager.register("a", exec);
+
+		// 생산자들은 처음 등록된 수행 객체만을 사용한다.
+		int nproducers = 4;
+		int count = 500;
+		List<Thread> producers = new ArrayList<>();
+		for ( int i = 0; i < nproducers; ++i ) {
+			Thread producer = new Thread(() -> {
+				try {
+					for ( int j = 0; j < count; ++j ) {
+						exec.receiveEvent(new TestEvent("ping"));
+						if ( j % 10 == 0 ) {
+							// 큐가 비는 구간이 생기도록 잠시 쉰다.
+							Thread.sleep(2);
+						}
+					}
+				}
+				catch ( InterruptedException e ) {
+					Thread.currentThread().interrupt();
+				}
+			});
+			producers.add(producer);
+			producer.start();
+		}
+
+		int passivations = 0;
+		while ( producers.stream().anyMatch(Thread::isAlive) ) {
+			if ( m_manager.passivate("a") ) {
+				++passivations;
+			}
+		}
+		for ( Thread producer: producers ) {
+			producer.join();
+		}
+
+		waitFor(() -> m_manager.getExecution("a").getValue() == nproducers * count);
+		assertTrue(passivations > 0);
+		assertEquals(nproducers * count, m_manager.getExecution("a").getValue());
+	}
+}
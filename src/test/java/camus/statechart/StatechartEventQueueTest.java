@@ -0,0 +1,255 @@
+package camus.statechart;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+
+/**
+ * @author Kang-Woo Lee (ETRI)
+ */
+public class StatechartEventQueueTest {
+	@Test
+	public void testFaultyEventDoesNotDropRestOfBatch() throws Exception {
+		CountDownLatch blocked = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(1);
+		TestState root = new TestState(null, "/").handler((exec, event) -> {
+			String name = event.toString();
+			if ( name.equals("block") ) {
+				blocked.countDown();
+				await(release);
+			}
+			else if ( name.equals("bad") ) {
+				// 상태차트에 없는 상태로의 전이는 처리기 밖에서 실패한다.
+				return "/nowhere";
+			}
+			exec.log(name);
+			if ( name.equals("last") ) {
+				done.countDown();
+			}
+			return State.STOP_PROPAGATE_GUID;
+		});
+		TestExecution exec = new TestExecution(new Statechart<>(root));
+		exec.setEventBatchSize(8);
+		exec.start();
+
+		exec.receiveEvent(new TestEvent("block"));
+		assertTrue(blocked.await(5, TimeUnit.SECONDS));
+		for ( String name: Arrays.asList("e1", "bad", "e2", "last") ) {
+			exec.receiveEvent(new TestEvent(name));
+		}
+		release.countDown();
+
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		List<String> log = exec.getLog();
+		assertEquals(Arrays.asList("block", "e1", "e2", "last"), log.subList(log.size()-4, log.size()));
+		assertTrue(exec.isRunning());
+		exec.stop();
+	}
+
+	@Test
+	public void testBlockingBatchLargerThanCapacityIsDrained() throws Exception {
+		TestExecution exec = newBlockingExecution(new CountDownLatch(0), new CountDownLatch(0));
+		exec.setEventQueueCapacity(2, OverflowPolicy.BLOCK);
+		exec.start();
+		exec.clearLog();
+
+		// 유휴 상태의 수행에 용량보다 큰 묶음을 전달해도 대기가 풀린다.
+		List<TestEvent> batch = Arrays.asList(new TestEvent("e1"), new TestEvent("e2"), new TestEvent("e3"));
+		Thread sender = new Thread(() -> exec.receiveEvents(batch));
+		sender.start();
+		sender.join(5000);
+		assertFalse(sender.isAlive());
+
+		StatechartSnapshotTest.waitFor(() -> exec.getLog().size() == 3);
+		assertEquals(Arrays.asList("e1", "e2", "e3"), exec.getLog());
+		exec.stop();
+	}
+
+	@Test
+	public void testRejectedBatchStillDeliversAddedEvents() throws Exception {
+		CountDownLatch blocked = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		TestExecution exec = newBlockingExecution(blocked, release);
+		exec.setEventQueueCapacity(2, OverflowPolicy.REJECT);
+		exec.start();
+		exec.clearLog();
+
+		// 처리 작업이 스케줄링되기 전에 큐가 가득 차도록 처리 쓰레드를 붙잡지 않은 채로 전달한다.
+		try {
+			exec.receiveEvents(Arrays.asList(new TestEvent("e1"), new TestEvent("e2"),
+											new TestEvent("e3")));
+		}
+		catch ( EventQueueFullException expected ) { }
+
+		// 다른 이벤트가 도착하지 않아도 추가된 이벤트들은 처리된다.
+		StatechartSnapshotTest.waitFor(() -> exec.getLog().size() >= 2);
+		assertEquals(Arrays.asList("e1", "e2"), exec.getLog().subList(0, 2));
+		release.countDown();
+		exec.stop();
+	}
+
+	@Test
+	public void testDropOldestUnlinksOldestPendingEvents() throws Exception {
+		CountDownLatch blocked = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		TestExecution exec = newBlockingExecution(blocked, release);
+		exec.setEventQueueCapacity(3, OverflowPolicy.DROP_OLDEST);
+		exec.start();
+		exec.clearLog();
+
+		exec.receiveEvent(new TestEvent("block"));
+		assertTrue(blocked.await(5, TimeUnit.SECONDS));
+		for ( String name: Arrays.asList("e1", "e2", "e3", "e4", "e5") ) {
+			exec.receiveEvent(new TestEvent(name));
+		}
+		exec.receiveEvent(new TestEvent("last"));
+		release.countDown();
+
+		// 큐 중간의 오래된 이벤트들은 연결이 끊어져 제거되고, 용량만큼의 최근 이벤트만 남는다.
+		StatechartSnapshotTest.waitFor(() -> exec.getLog().contains("last"));
+		assertEquals(Arrays.asList("block", "e4", "e5", "last"), exec.getLog());
+		exec.stop();
+	}
+
+	@Test
+	public void testDropOldestDiscardsUnlinkableLastEvent() throws Exception {
+		CountDownLatch blocked = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		TestExecution exec = newBlockingExecution(blocked, release);
+		exec.setEventQueueCapacity(1, OverflowPolicy.DROP_OLDEST);
+		exec.start();
+		exec.clearLog();
+
+		exec.receiveEvent(new TestEvent("block"));
+		assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+		// 대기 중인 이벤트가 큐의 마지막 원소이므로 제거되지 않고 버려진 것으로 표시된다.
+		exec.receiveEvent(new TestEvent("e1"));
+		exec.receiveEvent(new TestEvent("e2"));
+		assertTrue(exec.offer(new TestEvent("last")));
+		release.countDown();
+
+		StatechartSnapshotTest.waitFor(() -> exec.getLog().contains("last"));
+		assertEquals(Arrays.asList("block", "last"), exec.getLog());
+		exec.stop();
+	}
+
+	@Test
+	public void testCoalescedEventKeepsQueuePosition() throws Exception {
+		CountDownLatch blocked = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		TestExecution exec = newBlockingExecution(blocked, release);
+		exec.start();
+		exec.clearLog();
+
+		exec.receiveEvent(new TestEvent("block"));
+		assertTrue(blocked.await(5, TimeUnit.SECONDS));
+		exec.receiveEvent(new Reading("a", 1));
+		exec.receiveEvent(new Reading("b", 1));
+		exec.receiveEvent(new TestEvent("e1"));
+		exec.receiveEvent(new Reading("a", 2));
+		exec.receiveEvent(new Reading("a", 3));
+		exec.receiveEvent(new TestEvent("last"));
+		release.countDown();
+
+		StatechartSnapshotTest.waitFor(() -> exec.getLog().contains("last"));
+		assertEquals(Arrays.asList("block", "a:3", "b:1", "e1", "last"), exec.getLog());
+		exec.stop();
+	}
+
+	@Test
+	public void testCoalescingRacesWithConsumer() throws Exception {
+		// 생산자별로 병합 키를 사용하여, 대체 연산과 처리 쓰레드의 꺼내기 연산이 경쟁하게 한다.
+		int nproducers = 4;
+		int count = 50000;
+		TestState root = new TestState(null, "/").handler((exec, event) -> {
+			exec.log(event.toString());
+			return State.STOP_PROPAGATE_GUID;
+		});
+		TestExecution exec = new TestExecution(new Statechart<>(root));
+		exec.start();
+		exec.clearLog();
+
+		List<Thread> producers = new ArrayList<>();
+		for ( int i = 0; i < nproducers; ++i ) {
+			String key = "p" + i;
+			Thread producer = new Thread(() -> {
+				for ( int j = 1; j <= count; ++j ) {
+					exec.receiveEvent(new Reading(key, j));
+				}
+			});
+			producers.add(producer);
+			producer.start();
+		}
+		for ( Thread producer: producers ) {
+			producer.join();
+		}
+
+		// 각 생산자의 마지막 이벤트는 버려지지 않고, 같은 이벤트가 두번 처리되거나 순서가 바뀌지 않는다.
+		StatechartSnapshotTest.waitFor(() -> {
+			List<String> log = exec.getLog();
+			for ( int i = 0; i < nproducers; ++i ) {
+				if ( !log.contains("p" + i + ":" + count) ) {
+					return false;
+				}
+			}
+			return true;
+		});
+		int[] lasts = new int[nproducers];
+		for ( String entry: exec.getLog() ) {
+			String[] parts = entry.split(":");
+			int producer = Integer.parseInt(parts[0].substring(1));
+			int value = Integer.parseInt(parts[1]);
+			assertTrue(entry, value > lasts[producer]);
+			lasts[producer] = value;
+		}
+		exec.stop();
+	}
+
+	static class Reading extends TestEvent implements CoalescingEvent {
+		private final String m_key;
+
+		Reading(String key, int value) {
+			super(key + ":" + value);
+
+			m_key = key;
+		}
+
+		@Override
+		public Object getCoalescingKey() {
+			return m_key;
+		}
+	}
+
+	// 'block' 이벤트 처리 중에 해제될 때까지 대기하고, 모든 이벤트의 이름을 기록하는 수행을 생성한다.
+	private static TestExecution newBlockingExecution(CountDownLatch blocked, CountDownLatch release) {
+		TestState root = new TestState(null, "/").handler((exec, event) -> {
+			if ( event.toString().equals("block") ) {
+				blocked.countDown();
+				await(release);
+			}
+			exec.log(event.toString());
+			return State.STOP_PROPAGATE_GUID;
+		});
+		return new TestExecution(new Statechart<>(root));
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		}
+		catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
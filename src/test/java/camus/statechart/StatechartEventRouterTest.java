@@ -0,0 +1,234 @@
+package camus.statechart;
+
+import static camus.statechart.StatechartSnapshotTest.waitFor;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import event.Event;
+
+
+/**
+ * @author Kang-Woo Lee (ETRI)
+ */
+public class StatechartEventRouterTest {
+	interface Alarm { }
+	interface Ping { }
+
+	private StatechartEventRouter m_router;
+	private TestState m_a1;
+	private TestState m_a2;
+	private TestState m_b;
+	private TestState m_wild;
+	private Statechart<TestExecution> m_schart;
+
+	@Before
+	public void setUp() {
+		m_router = new StatechartEventRouter();
+
+		// '/a'와 '/a/1'은 모두 Alarm을, '/a/2'와 '/b'는 Ping을 처리하며, '/w'는 처리하는 타입을 알 수 없다.
+		TestState root = new TestState(null, "/").initial("a").handler((exec, event) -> {
+			exec.log("handled " + event);
+			return State.STOP_PROPAGATE_GUID;
+		});
+		root.setEventTypes();
+		TestState a = new TestState(root, "/a").initial("1").handler((exec, event) -> {
+			switch ( event.toString() ) {
+				case "go": return "/b";
+				case "wild": return "/w";
+				default: return null;
+			}
+		});
+		a.setEventTypes(Alarm.class);
+		m_a1 = new TestState(a, "/a/1")
+					.handler((exec, event) -> event.toString().equals("next") ? "/a/2" : null);
+		m_a1.setEventTypes(Alarm.class);
+		m_a2 = new TestState(a, "/a/2");
+		m_a2.setEventTypes(Ping.class);
+		m_b = new TestState(root, "/b")
+					.handler((exec, event) -> event.toString().equals("back") ? "/a" : null);
+		m_b.setEventTypes(Ping.class);
+		m_wild = new TestState(root, "/w")
+					.handler((exec, event) -> event.toString().equals("back") ? "/a" : null);
+		m_schart = new Statechart<>(root);
+	}
+
+	@Test
+	public void testCountsCrossingZero() throws Exception {
+		TestExecution exec = new TestExecution(m_schart);
+		m_router.register(exec);
+		exec.start();
+		assertEquals(Collections.singleton(exec), interested(Alarm.class));
+		assertTrue(interested(Ping.class).isEmpty());
+
+		// '/a/1'을 떠나도 '/a'가 Alarm을 처리하므로 색인에 남는다.
+		exec.receiveEvent(new TestEvent("next"));
+		waitFor(() -> exec.getCurrentState() == m_a2);
+		assertEquals(Collections.singleton(exec), interested(Alarm.class));
+		assertEquals(Collections.singleton(exec), interested(Ping.class));
+
+		exec.receiveEvent(new TestEvent("go"));
+		waitFor(() -> exec.getCurrentState() == m_b);
+		assertTrue(interested(Alarm.class).isEmpty());
+		assertEquals(Collections.singleton(exec), interested(Ping.class));
+
+		exec.receiveEvent(new TestEvent("back"));
+		waitFor(() -> exec.getCurrentState() == m_a1);
+		assertEquals(Collections.singleton(exec), interested(Alarm.class));
+		assertTrue(interested(Ping.class).isEmpty());
+		assertEquals(1, m_router.broadcast(new Tagged(Alarm.class)));
+		exec.stop();
+	}
+
+	@Test
+	public void testSameEventClassWithDifferentTypeIds() throws Exception {
+		TestExecution exec = new TestExecution(m_schart);
+		m_router.register(exec);
+		exec.start();
+
+		// 같은 구현 클래스의 이벤트라도 타입 식별자가 다르면 별도로 검사되어야 한다.
+		assertTrue(interested(Ping.class).isEmpty());
+		assertEquals(Collections.singleton(exec), interested(Alarm.class));
+		assertTrue(interested(Ping.class).isEmpty());
+		exec.stop();
+	}
+
+	@Test
+	public void testWildcardStateReceivesEveryEvent() throws Exception {
+		TestExecution exec = new TestExecution(m_schart);
+		m_router.register(exec);
+		exec.start();
+
+		exec.receiveEvent(new TestEvent("wild"));
+		waitFor(() -> exec.getCurrentState() == m_wild);
+		assertEquals(Collections.singleton(exec), interested(Ping.class));
+		assertEquals(Collections.singleton(exec), interested());
+
+		exec.receiveEvent(new TestEvent("back"));
+		waitFor(() -> exec.getCurrentState() == m_a1);
+		assertTrue(interested(Ping.class).isEmpty());
+		assertTrue(interested().isEmpty());
+		exec.stop();
+	}
+
+	@Test
+	public void testReregisterWhileRunning() throws Exception {
+		TestExecution exec = new TestExecution(m_schart);
+		exec.start();
+		exec.receiveEvent(new TestEvent("go"));
+		waitFor(() -> exec.getCurrentState() == m_b);
+
+		// 수행 중에 등록하면 현재 활성 상태들로 색인이 초기화된다.
+		m_router.register(exec);
+		assertEquals(Collections.singleton(exec), interested(Ping.class));
+		assertTrue(interested(Alarm.class).isEmpty());
+
+		assertTrue(m_router.unregister(exec));
+		assertTrue(interested(Ping.class).isEmpty());
+
+		exec.receiveEvent(new TestEvent("back"));
+		waitFor(() -> exec.getCurrentState() == m_a1);
+		m_router.register(exec);
+		assertEquals(Collections.singleton(exec), interested(Alarm.class));
+		assertTrue(interested(Ping.class).isEmpty());
+		assertEquals(1, m_router.getExecutionCount());
+		exec.stop();
+	}
+
+	@Test
+	public void testStartedEventResetsIndex() throws Exception {
+		StatechartListener[] captured = new StatechartListener[1];
+		TestExecution exec = new TestExecution(m_schart) {
+			@Override
+			void addStatechartListener(StatechartListener listener, Set<StatechartEventKind> kinds,
+										Consumer<? super Set<State<TestExecution>>> initializer) {
+				captured[0] = listener;
+				super.addStatechartListener(listener, kinds, initializer);
+			}
+		};
+		m_router.register(exec);
+		exec.start();
+		assertEquals(Collections.singleton(exec), interested(Alarm.class));
+
+		// 이전 수행의 활성 상태들에 대한 탈출 통보 없이 다시 시작된 경우를 흉내낸다.
+		captured[0].receiveEvent(new StatechartStartedEvent(m_schart));
+		assertTrue(interested(Alarm.class).isEmpty());
+
+		// 남아있던 상태들의 탈출 통보는 무시되고, 이후 진입한 상태들만 색인된다.
+		exec.receiveEvent(new TestEvent("go"));
+		waitFor(() -> exec.getCurrentState() == m_b);
+		assertTrue(interested(Alarm.class).isEmpty());
+		assertEquals(Collections.singleton(exec), interested(Ping.class));
+		exec.stop();
+	}
+
+	@Test
+	public void testUnregisterRacingWithUpdate() throws Exception {
+		for ( int round = 0; round < 50; ++round ) {
+			TestExecution exec = new TestExecution(m_schart);
+			m_router.register(exec);
+			exec.start();
+
+			Thread producer = new Thread(() -> {
+				for ( int i = 0; i < 200; ++i ) {
+					exec.receiveEvent(new TestEvent((i % 2 == 0) ? "go" : "back"));
+				}
+				exec.receiveEvent(new TestEvent("done"));
+			});
+			producer.start();
+			Thread.sleep(round % 3);
+			assertTrue(m_router.unregister(exec));
+			producer.join();
+
+			// 등록 해제 이후에 처리된 전이는 색인에 반영되지 않아야 한다.
+			waitFor(() -> exec.getLog().contains("handled done"));
+			assertTrue(interested(Alarm.class).isEmpty());
+			assertTrue(interested(Ping.class).isEmpty());
+			exec.stop();
+		}
+		assertEquals(0, m_router.getExecutionCount());
+	}
+
+	private Collection<StatechartExecution<?>> interested(Class<?>... types) {
+		return m_router.getInterestedExecutions(new Tagged(types));
+	}
+
+	/**
+	 * 주어진 타입 식별자들에 의해 타입이 결정되는 이벤트.
+	 */
+	static class Tagged implements Event {
+		private final String[] m_typeIds;
+
+		Tagged(Class<?>... types) {
+			m_typeIds = Arrays.stream(types).map(Class::getName).toArray(String[]::new);
+		}
+
+		@Override
+		public String[] getEventTypeIds() {
+			return m_typeIds.clone();
+		}
+
+		@Override
+		public boolean isInstanceOf(Class<?> intfc) {
+			return Arrays.asList(m_typeIds).contains(intfc.getName());
+		}
+
+		@Override
+		public String[] getPropertyNames() {
+			return new String[0];
+		}
+
+		@Override
+		public Object getProperty(String name) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package camus.statechart;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+/**
+ * @author Kang-Woo Lee (ETRI)
+ */
+public class StatechartSchedulerTest {
+	private static final int NHOTS = 4;
+	private static final int BACKLOG = 2000;
+
+	private StatechartScheduler m_scheduler;
+
+	@Before
+	public void setUp() {
+		m_scheduler = new StatechartScheduler(2, 4);
+	}
+
+	@After
+	public void tearDown() throws InterruptedException {
+		m_scheduler.shutdown();
+		m_scheduler.awaitTermination(5, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void testIdleExecutionIsNotStarvedByHotExecutions() throws Exception {
+		AtomicInteger[] handled = new AtomicInteger[NHOTS];
+		TestExecution[] hots = new TestExecution[NHOTS];
+		for ( int i = 0; i < NHOTS; ++i ) {
+			AtomicInteger count = handled[i] = new AtomicInteger();
+			TestState root = new TestState(null, "/").handler((exec, event) -> {
+				spin(TimeUnit.MICROSECONDS.toNanos(50));
+				count.incrementAndGet();
+				return State.STOP_PROPAGATE_GUID;
+			});
+			hots[i] = new TestExecution(new Statechart<>(root), m_scheduler);
+			hots[i].start();
+		}
+
+		CountDownLatch idleHandled = new CountDownLatch(1);
+		int[] snapshot = new int[NHOTS];
+		TestState idleRoot = new TestState(null, "/").handler((exec, event) -> {
+			for ( int i = 0; i < NHOTS; ++i ) {
+				snapshot[i] = handled[i].get();
+			}
+			idleHandled.countDown();
+			return State.STOP_PROPAGATE_GUID;
+		});
+		TestExecution idle = new TestExecution(new Statechart<>(idleRoot), m_scheduler);
+		idle.start();
+
+		// 각 수행이 이벤트를 처리하면서 quantum을 소진하여 재제출되도록 충분히 쌓아 둔다.
+		for ( int n = 0; n < BACKLOG; ++n ) {
+			for ( TestExecution hot: hots ) {
+				hot.receiveEvent(new TestEvent("hot"));
+			}
+		}
+		while ( handled[0].get() == 0 ) {
+			Thread.sleep(1);
+		}
+		idle.receiveEvent(new TestEvent("idle"));
+
+		assertTrue(idleHandled.await(10, TimeUnit.SECONDS));
+		for ( int i = 0; i < NHOTS; ++i ) {
+			assertTrue("hot execution[" + i + "] finished its backlog before the idle one was served",
+						snapshot[i] < BACKLOG);
+		}
+	}
+
+	@Test
+	public void testEventsOfExecutionAreHandledInOrder() throws Exception {
+		int nevents = 500;
+		int[] last = new int[]{ -1 };
+		AtomicInteger violations = new AtomicInteger();
+		CountDownLatch done = new CountDownLatch(nevents);
+		TestState root = new TestState(null, "/").handler((exec, event) -> {
+			int seq = Integer.parseInt(((TestEvent)event).getName());
+			if ( seq != last[0] + 1 ) {
+				violations.incrementAndGet();
+			}
+			last[0] = seq;
+			done.countDown();
+			return State.STOP_PROPAGATE_GUID;
+		});
+		TestExecution exec = new TestExecution(new Statechart<>(root), m_scheduler);
+		exec.start();
+
+		for ( int i = 0; i < nevents; ++i ) {
+			exec.receiveEvent(new TestEvent("" + i));
+		}
+
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		assertEquals(0, violations.get());
+	}
+
+	private static void spin(long nanos) {
+		long due = System.nanoTime() + nanos;
+		while ( System.nanoTime() < due ) { }
+	}
+}
@@ -0,0 +1,132 @@
+package camus.statechart;
+
+import static camus.statechart.StatechartSnapshotTest.waitFor;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+/**
+ * @author Kang-Woo Lee (ETRI)
+ */
+public class StatechartShardHostTest {
+	private StatechartShardHost<String> m_host;
+	private Statechart<TestExecution> m_schart;
+
+	@Before
+	public void setUp() {
+		m_host = new StatechartShardHost<>(2, 16, 4);
+
+		// 이벤트 이름을 기록하고 처리된 이벤트 수를 증가시킨다.
+		TestState root = new TestState(null, "/").handler((exec, event) -> {
+			exec.log(event.toString());
+			exec.setValue(exec.getValue() + 1);
+			return State.STOP_PROPAGATE_GUID;
+		});
+		m_schart = new Statechart<>(root);
+	}
+
+	@After
+	public void tearDown() {
+		m_host.shutdown();
+	}
+
+	@Test
+	public void testRelocationKeepsOrderAndLosesNothing() throws Exception {
+		int nkeys = 8;
+		int count = 5000;
+		List<TestExecution> execs = new ArrayList<>();
+		for ( int i = 0; i < nkeys; ++i ) {
+			TestExecution exec = new TestExecution(m_schart, m_host);
+			m_host.register("key" + i, exec);
+			exec.start();
+			exec.clearLog();
+			execs.add(exec);
+		}
+
+		List<Thread> producers = new ArrayList<>();
+		for ( int i = 0; i < nkeys; ++i ) {
+			String key = "key" + i;
+			Thread producer = new Thread(() -> {
+				try {
+					for ( int j = 0; j < count; ++j ) {
+						m_host.submit(key, new TestEvent(Integer.toString(j)));
+						if ( j % 500 == 0 ) {
+							// 재배정이 이벤트 처리 중에 여러번 일어나도록 잠시 쉰다.
+							Thread.sleep(1);
+						}
+					}
+				}
+				catch ( InterruptedException e ) {
+					Thread.currentThread().interrupt();
+				}
+			});
+			producers.add(producer);
+			producer.start();
+		}
+
+		// 이벤트가 처리되는 동안 shard 수를 바꾸고 파티션들을 다시 배정한다.
+		int[] sizes = { 3, 1, 4, 2 };
+		int round = 0;
+		do {
+			m_host.resize(sizes[round++ % sizes.length]);
+			m_host.rebalance();
+			Thread.sleep(1);
+		} while ( producers.stream().anyMatch(Thread::isAlive) || round < sizes.length );
+		for ( Thread producer: producers ) {
+			producer.join();
+		}
+
+		for ( TestExecution exec: execs ) {
+			waitFor(() -> exec.getValue() == count);
+			List<String> log = exec.getLog();
+			assertEquals(count, log.size());
+			for ( int j = 0; j < count; ++j ) {
+				assertEquals(Integer.toString(j), log.get(j));
+			}
+		}
+	}
+
+	@Test
+	public void testIdleShardWakesUpPromptly() throws Exception {
+		Semaphore handled = new Semaphore(0);
+		TestState root = new TestState(null, "/").handler((exec, event) -> {
+			handled.release();
+			return State.STOP_PROPAGATE_GUID;
+		});
+		TestExecution exec = new TestExecution(new Statechart<>(root), m_host);
+		m_host.register("key", exec);
+		exec.start();
+
+		// 작업 쓰레드가 대기에 들어가는 시점과 제출이 엇갈리도록, 처리될 때마다 하나씩 제출한다.
+		// 깨우기를 놓치면 작업 쓰레드는 최대 1초 동안 대기한다.
+		CountDownLatch done = new CountDownLatch(1);
+		Thread producer = new Thread(() -> {
+			try {
+				for ( int i = 0; i < 2000; ++i ) {
+					m_host.submit("key", new TestEvent("ping"));
+					if ( !handled.tryAcquire(500, TimeUnit.MILLISECONDS) ) {
+						return;
+					}
+				}
+				done.countDown();
+			}
+			catch ( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		producer.start();
+
+		assertTrue(done.await(30, TimeUnit.SECONDS));
+		exec.stop();
+	}
+}
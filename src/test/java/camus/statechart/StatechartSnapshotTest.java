@@ -0,0 +1,136 @@
+package camus.statechart;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.Before;
+import org.junit.Test;
+
+
+/**
+ * @author Kang-Woo Lee (ETRI)
+ */
+public class StatechartSnapshotTest {
+	private static final ContextSerializer<TestExecution> SERIALIZER = new ContextSerializer<TestExecution>() {
+		@Override
+		public void write(TestExecution exec, DataOutput out) throws IOException {
+			out.writeInt(exec.getValue());
+		}
+
+		@Override
+		public void read(TestExecution exec, DataInput in) throws IOException {
+			exec.setValue(in.readInt());
+		}
+	};
+
+	private TestState m_root;
+	private TestState m_work;
+	private TestState m_step1;
+	private TestState m_step2;
+	private TestState m_idle;
+	private Statechart<TestExecution> m_schart;
+
+	@Before
+	public void setUp() {
+		m_root = new TestState(null, "/").initial("idle");
+		m_idle = new TestState(m_root, "/idle").handler((exec, event) -> "/work");
+		m_work = new TestState(m_root, "/work", true).initial("step1");
+		m_step1 = new TestState(m_work, "/work/step1").handler((exec, event) -> {
+			exec.setValue(exec.getValue() + 1);
+			return event.toString().equals("next") ? "/work/step2" : null;
+		});
+		m_step2 = new TestState(m_work, "/work/step2").handler((exec, event) -> {
+			return event.toString().equals("pause") ? "/idle" : null;
+		});
+		m_schart = new Statechart<>(m_root);
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		TestExecution exec = new TestExecution(m_schart);
+		exec.start();
+		exec.receiveEvent(new TestEvent("go"));
+		exec.receiveEvent(new TestEvent("next"));
+		exec.receiveEvent(new TestEvent("pause"));
+		// 시작 상태도 '/idle'이므로, 현재 상태가 아닌 '/work'의 탈출 여부로 처리 완료를 확인한다.
+		waitFor(() -> exec.getLog().contains("leave /work"));
+
+		byte[] snapshot = exec.snapshot(SERIALIZER);
+		exec.stop();
+
+		TestExecution restored = new TestExecution(m_schart);
+		restored.restore(snapshot, SERIALIZER);
+		restored.start();
+
+		assertSame(m_idle, restored.getCurrentState());
+		assertSame(m_step2, restored.getRecentChildState(m_work));
+		assertEquals(1, restored.getValue());
+		assertTrue(restored.getLog().isEmpty());		// 복원된 상태의 진입 동작은 호출되지 않는다.
+
+		// 복원된 수행은 스냅샷 이후의 이벤트들을 이어서 처리한다.
+		restored.receiveEvent(new TestEvent("resume"));
+		restored.receiveEvent(new TestEvent("count"));
+		waitFor(() -> restored.getValue() == 2);
+		assertSame(m_step1, restored.getCurrentState());
+		assertEquals(Arrays.asList("leave /idle", "enter /work", "enter /work/step1"), restored.getLog());
+		restored.stop();
+	}
+
+	@Test
+	public void testRejectsSnapshotOfDifferentStructure() throws Exception {
+		TestExecution exec = new TestExecution(m_schart);
+		exec.start();
+		byte[] snapshot = exec.snapshot(null);
+		exec.stop();
+
+		TestState other = new TestState(null, "/").initial("idle");
+		new TestState(other, "/idle");
+		new TestState(other, "/busy");
+		TestExecution stranger = new TestExecution(new Statechart<>(other));
+		try {
+			stranger.restore(snapshot, null);
+			fail("should have been rejected");
+		}
+		catch ( IOException expected ) { }
+		assertFalse(stranger.isRunning());
+	}
+
+	@Test(expected=IOException.class)
+	public void testRejectsTruncatedSnapshot() throws Exception {
+		TestExecution exec = new TestExecution(m_schart);
+		exec.start();
+		byte[] snapshot = exec.snapshot(null);
+		exec.stop();
+
+		new TestExecution(m_schart).restore(Arrays.copyOf(snapshot, snapshot.length-1), null);
+	}
+
+	@Test(expected=IllegalStateException.class)
+	public void testRestoreAfterStartIsRejected() throws Exception {
+		TestExecution exec = new TestExecution(m_schart);
+		exec.start();
+		byte[] snapshot = exec.snapshot(null);
+
+		exec.restore(snapshot, null);
+	}
+
+	static void waitFor(BooleanSupplier cond) throws InterruptedException {
+		long due = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while ( !cond.getAsBoolean() ) {
+			if ( System.nanoTime() > due ) {
+				fail("timed out");
+			}
+			Thread.sleep(1);
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package camus.statechart;
+
+import event.Event;
+
+
+/**
+ * 테스트에서 상태차트 수행에 전달하는 이름 있는 이벤트를 정의한다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+class TestEvent implements Event {
+	private static final String[] NO_PROPERTIES = new String[0];
+
+	private final String m_name;
+
+	TestEvent(String name) {
+		m_name = name;
+	}
+
+	String getName() {
+		return m_name;
+	}
+
+	@Override
+	public String[] getEventTypeIds() {
+		return new String[]{ getClass().getName() };
+	}
+
+	@Override
+	public boolean isInstanceOf(Class<?> intfc) {
+		return intfc.isInstance(this);
+	}
+
+	@Override
+	public String[] getPropertyNames() {
+		return NO_PROPERTIES;
+	}
+
+	@Override
+	public Object getProperty(String name) {
+		return null;
+	}
+
+	@Override
+	public String toString() {
+		return m_name;
+	}
+
+	/**
+	 * 우선 처리 큐로 전달되는 테스트 제어 이벤트.
+	 */
+	static class Control extends TestEvent implements ControlEvent {
+		Control(String name) {
+			super(name);
+		}
+	}
+}
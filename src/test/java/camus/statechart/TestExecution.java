@@ -0,0 +1,43 @@
+package camus.statechart;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * 테스트용 상태차트 수행을 정의한다. 상태 진입, 탈출 등의 기록을 유지한다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+class TestExecution extends StatechartExecution<TestExecution> {
+	private final List<String> m_log = new ArrayList<>();
+	private volatile int m_value;
+
+	TestExecution(Statechart<TestExecution> schart) {
+		super(schart);
+	}
+
+	TestExecution(Statechart<TestExecution> schart, StatechartDispatcher dispatcher) {
+		super(schart, dispatcher);
+	}
+
+	synchronized void log(String entry) {
+		m_log.add(entry);
+	}
+
+	synchronized List<String> getLog() {
+		return new ArrayList<>(m_log);
+	}
+
+	synchronized void clearLog() {
+		m_log.clear();
+	}
+
+	int getValue() {
+		return m_value;
+	}
+
+	void setValue(int value) {
+		m_value = value;
+	}
+}
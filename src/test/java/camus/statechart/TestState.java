@@ -0,0 +1,57 @@
+package camus.statechart;
+
+import java.util.function.BiFunction;
+
+import camus.statechart.support.AbstractState;
+
+import event.Event;
+
+
+/**
+ * 테스트용 상태를 정의한다.
+ * <p>
+ * 진입과 탈출은 수행 객체의 기록에 남기며, 이벤트 처리는 생성시 주어진 함수에 위임한다.
+ *
+ * @author Kang-Woo Lee (ETRI)
+ */
+class TestState extends AbstractState<TestExecution> {
+	private volatile BiFunction<TestExecution,Event,String> m_handler = (exec, event) -> null;
+
+	TestState(TestState parent, String guid) {
+		this(parent, guid, false);
+	}
+
+	TestState(TestState parent, String guid, boolean keepHistory) {
+		super(parent, guid, keepHistory, null);
+
+		if ( parent != null ) {
+			parent.addChildState(this);
+		}
+	}
+
+	TestState handler(BiFunction<TestExecution,Event,String> handler) {
+		m_handler = handler;
+		return this;
+	}
+
+	TestState initial(String luid) {
+		setDefaultStateId(luid);
+		return this;
+	}
+
+	@Override
+	public String enter(TestExecution exec) {
+		exec.log("enter " + getGuid());
+		return null;
+	}
+
+	@Override
+	public void leave(TestExecution exec) {
+		exec.log("leave " + getGuid());
+	}
+
+	@Override
+	public String handleEvent(TestExecution exec, Event event) {
+		return m_handler.apply(exec, event);
+	}
+}
@@ -0,0 +1,90 @@
+package camus.statechart;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+
+/**
+ * @author Kang-Woo Lee (ETRI)
+ */
+public class TimingWheelTest {
+	@Test
+	public void testTimersCascadeThroughLevels() throws Exception {
+		// tick을 100us로 하여, 최하위 단계는 25.6ms, 두번째 단계는 1.6s까지의 타이머를 갖게 한다.
+		TimingWheel wheel = new TimingWheel(100, TimeUnit.MICROSECONDS);
+		long[] delays = { 1, 20, 30, 300, 1700, 2000 };
+
+		CountDownLatch latch = new CountDownLatch(delays.length);
+		ConcurrentLinkedQueue<Long> fired = new ConcurrentLinkedQueue<>();
+		long started = System.nanoTime();
+		long[] elapsed = new long[delays.length];
+		for ( int i = delays.length-1; i >= 0; --i ) {
+			int idx = i;
+			wheel.schedule(() -> {
+				elapsed[idx] = System.nanoTime() - started;
+				fired.add(delays[idx]);
+				latch.countDown();
+			}, delays[i], TimeUnit.MILLISECONDS);
+		}
+
+		assertTrue(latch.await(10, TimeUnit.SECONDS));
+		List<Long> expected = new ArrayList<>();
+		for ( long delay: delays ) {
+			expected.add(delay);
+		}
+		assertEquals(expected, new ArrayList<>(fired));
+		for ( int i = 0; i < delays.length; ++i ) {
+			assertTrue("fired early: delay=" + delays[i],
+						elapsed[i] >= TimeUnit.MILLISECONDS.toNanos(delays[i]));
+		}
+		assertEquals(0, wheel.getPendingCount());
+	}
+
+	@Test
+	public void testCancelledTimersNeverFire() throws Exception {
+		TimingWheel wheel = new TimingWheel(100, TimeUnit.MICROSECONDS);
+		Random random = new Random(7);
+
+		int count = 500;
+		CountDownLatch latch = new CountDownLatch(count);
+		ConcurrentLinkedQueue<Integer> fired = new ConcurrentLinkedQueue<>();
+		List<TimingWheel.Timeout> cancelled = new ArrayList<>();
+		for ( int i = 0; i < count * 2; ++i ) {
+			int idx = i;
+			TimingWheel.Timeout timeout = wheel.schedule(() -> {
+				fired.add(idx);
+				latch.countDown();
+			}, 200 + random.nextInt(1800), TimeUnit.MILLISECONDS);
+
+			// 홀수 번째 타이머는 서로 다른 단계에 배치된 후 취소된다.
+			if ( i % 2 == 1 ) {
+				cancelled.add(timeout);
+			}
+		}
+		for ( TimingWheel.Timeout timeout: cancelled ) {
+			assertTrue(timeout.cancel());
+		}
+
+		assertTrue(latch.await(10, TimeUnit.SECONDS));
+		Thread.sleep(50);
+		assertEquals(count, fired.size());
+		for ( int idx: fired ) {
+			assertEquals(0, idx % 2);
+		}
+		for ( TimingWheel.Timeout timeout: cancelled ) {
+			assertTrue(timeout.isCancelled());
+			assertFalse(timeout.isExpired());
+		}
+		assertEquals(0, wheel.getPendingCount());
+	}
+}
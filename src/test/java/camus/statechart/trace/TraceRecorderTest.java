@@ -0,0 +1,109 @@
+package camus.statechart.trace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+import camus.statechart.State;
+import camus.statechart.Statechart;
+import camus.statechart.StatechartEventKind;
+import camus.statechart.StatechartExecution;
+import camus.statechart.support.AbstractState;
+
+import event.Event;
+
+
+/**
+ * @author Kang-Woo Lee (ETRI)
+ */
+public class TraceRecorderTest {
+	@Test
+	public void testDumpCarriesNameTables() throws Exception {
+		Leaf root = new Leaf(null, "/");
+		Leaf idle = new Leaf(root, "/idle");
+		root.setDefaultStateId("idle");
+		Statechart<Exec> schart = new Statechart<>(root);
+
+		TraceRecorder tracer = new TraceRecorder(64);
+		Exec exec = new Exec(schart);
+		exec.setTraceRecorder(tracer);
+		exec.start();
+		exec.stop();
+
+		int typeId = EventTypeIds.getId(new Tick());
+		tracer.record(exec.getExecutionId(), schart.getStateId(idle), typeId,
+						StatechartEventKind.EVENT_HANDLED);
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		tracer.writeTo(new DataOutputStream(bytes), 64);
+		TraceDump dump = TraceRecorder.readFrom(new DataInputStream(
+												new ByteArrayInputStream(bytes.toByteArray())));
+
+		assertEquals(tracer.getRecordCount(), dump.getRecords().size());
+		assertEquals("/idle", dump.getStateName(schart.getStateId(idle)));
+		assertEquals(Tick.class.getName(), dump.getEventTypeName(typeId));
+
+		StringWriter json = new StringWriter();
+		ChromeTraceWriter.forDump(dump).write(dump.getRecords(), json);
+		assertTrue(json.toString().contains("\"name\":\"/idle\""));
+		assertTrue(json.toString().contains("\"event\":\"" + Tick.class.getName() + "\""));
+		assertFalse(json.toString().contains("state#"));
+	}
+
+	@Test(expected=IllegalStateException.class)
+	public void testRecorderIsBoundToOneStatechart() {
+		TraceRecorder tracer = new TraceRecorder(16);
+		new Exec(new Statechart<>(new Leaf(null, "/"))).setTraceRecorder(tracer);
+		new Exec(new Statechart<>(new Leaf(null, "/"))).setTraceRecorder(tracer);
+	}
+
+	private static class Exec extends StatechartExecution<Exec> {
+		Exec(Statechart<Exec> schart) {
+			super(schart);
+		}
+	}
+
+	private static class Leaf extends AbstractState<Exec> {
+		Leaf(Leaf parent, String guid) {
+			super(parent, guid, false, null);
+			if ( parent != null ) {
+				parent.addChildState(this);
+			}
+		}
+
+		@Override
+		public String handleEvent(Exec exec, Event event) {
+			return State.STOP_PROPAGATE_GUID;
+		}
+	}
+
+	private static class Tick implements Event {
+		@Override
+		public String[] getEventTypeIds() {
+			return new String[]{ Tick.class.getName() };
+		}
+
+		@Override
+		public boolean isInstanceOf(Class<?> intfc) {
+			return intfc.isInstance(this);
+		}
+
+		@Override
+		public String[] getPropertyNames() {
+			return new String[0];
+		}
+
+		@Override
+		public Object getProperty(String name) {
+			return null;
+		}
+	}
+}